@@ -15,3 +15,10 @@
 #-keepclassmembers class fqcn.of.javascript.interface.for.webview {
 #   public *;
 #}
+
+# Strip verbose and debug logging, including the arguments, from release builds.
+# Logger already skips them at runtime; this removes the calls from the scan path entirely.
+-assumenosideeffects class tonyg.example.com.beacon.utilities.Logger {
+    public static void v(...);
+    public static void d(...);
+}
@@ -7,29 +7,56 @@ import android.bluetooth.BluetoothDevice;
 import android.bluetooth.le.ScanResult;
 import android.content.BroadcastReceiver;
 import android.content.Context;
+import android.content.DialogInterface;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v7.app.AlertDialog;
 import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
 import android.support.v7.widget.Toolbar;
-import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
-import android.widget.ListView;
+import android.view.MotionEvent;
+import android.view.View;
 import android.widget.TextView;
+import android.widget.Toast;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executor;
 
 import tonyg.example.com.beacon.adapters.IBeaconsListAdapter;
 import tonyg.example.com.beacon.ble.IBeacon;
 import tonyg.example.com.beacon.ble.BleCommManager;
+import tonyg.example.com.beacon.ble.EphemeralIdResolver;
 import tonyg.example.com.beacon.ble.callbacks.BleScanCallbackv21;
-import tonyg.example.com.beacon.models.IBeaconListItem;
-import tonyg.example.com.beacon.utilities.IBeaconLocator;
+import tonyg.example.com.beacon.catalog.CatalogEntry;
+import tonyg.example.com.beacon.catalog.CatalogSnapshot;
+import tonyg.example.com.beacon.catalog.CatalogStore;
+import tonyg.example.com.beacon.pipeline.FilterStage;
+import tonyg.example.com.beacon.pipeline.PipelineSnapshot;
+import tonyg.example.com.beacon.pipeline.RenderStage;
+import tonyg.example.com.beacon.pipeline.ScanPipeline;
+import tonyg.example.com.beacon.region.Region;
+import tonyg.example.com.beacon.utilities.AndroidLogSink;
+import tonyg.example.com.beacon.metrics.BeaconMetrics;
+import tonyg.example.com.beacon.utilities.CoverageHeatmap;
+import tonyg.example.com.beacon.utilities.Logger;
+import tonyg.example.com.beacon.utilities.MetricsOverlay;
+import tonyg.example.com.beacon.utilities.TxPowerCalibrator;
+import tonyg.example.com.beacon.utilities.TxPowerOverrides;
 import tonyg.example.com.beacon.models.IBeaconMapLayout;
 import tonyg.example.com.beacon.ble.callbacks.BleScanCallbackv18;
-import tonyg.example.com.beacon.utilities.DataConverter;
+import tonyg.example.com.blecodec.DataConverter;
+import tonyg.example.com.blecodec.EphemeralIdGenerator;
 
 /**
  * Connect to a BLE Device, list its GATT services
@@ -44,22 +71,57 @@ public class MainActivity extends AppCompatActivity {
 
     // Number of iBeacons required to find Central
     private static final int MIN_IBEACONS_FOR_TRILATERATION = 3;
+    // Most iBeacons shown in the list, nearest first
+    private static final int MAX_LISTED_IBEACONS = 100;
+
+    // the example Peripheral, which can rotate its Major and Minor.  Its secret is provisioned at build time
+    private static final UUID EPHEMERAL_IBEACON_UUID = UUID.fromString("e20a39f4-73f5-4bc4-a12f-17d1ad07a961");
+    private static final int EPHEMERAL_IBEACON_MAJOR = 1122;
+    private static final int EPHEMERAL_IBEACON_MINOR = 3344;
+
+    // announced when the phone comes within range of the site's iBeacons, and when it leaves
+    private static final Region SITE_REGION = new Region("site", EPHEMERAL_IBEACON_UUID);
+
+    // pipeline metrics are appended here while the overlay is shown
+    private static final String METRICS_FILE_NAME = "metrics.csv";
+    // positions of the installed beacons, written by BeaconCatalogWriter.  Site edits go in delta segments beside it
+    private static final String CATALOG_FILE_NAME = "beacons.catalog";
 
     /** Bluetooth Stuff **/
     private BleCommManager mBleCommManager;
-    private ArrayList<IBeacon> mFoundIBeacons = new ArrayList<IBeacon>();
+    private EphemeralIdResolver mEphemeralIds = new EphemeralIdResolver();
+    // parses, filters and locates off the UI thread; only snapshots come back
+    private ScanPipeline mPipeline;
+    private PipelineSnapshot mSnapshot = PipelineSnapshot.EMPTY; // the one on screen
+    private CatalogStore mCatalog; // null if the catalog could not be opened
+    private boolean mIsScanning = false;
+
+    /** Calibration **/
+    private TxPowerOverrides mTxPowerOverrides;
+    private boolean mIsCalibrating = false;
 
     /** UI Stuff **/
     private MenuItem mProgressSpinner;
     private MenuItem mStartScanItem, mStopScanItem;
     private TextView mCentralPosition;
-    private ListView mIBeaconsList;
+    private RecyclerView mIBeaconsList;
     private IBeaconsListAdapter mIBeaconsListAdapter;
     private IBeaconMapLayout mIBeaconMap;
+    private MetricsOverlay mMetricsOverlay;
+    private float mLastMapTouchX, mLastMapTouchY; // where a long press on the map is
+    private final Handler mUiHandler = new Handler(Looper.getMainLooper());
+    private final Executor mUiExecutor = new Executor() {
+        @Override
+        public void execute(Runnable task) {
+            mUiHandler.post(task);
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        // verbose logging runs on every advertisement, so release builds log only INFO and above
+        Logger.configure(new AndroidLogSink(), BuildConfig.DEBUG ? Logger.VERBOSE : Logger.INFO);
         setContentView(R.layout.activity_main);
 
         Toolbar toolbar = (Toolbar) findViewById(R.id.toolbar);
@@ -69,7 +131,25 @@ public class MainActivity extends AppCompatActivity {
         IntentFilter filter = new IntentFilter(BluetoothAdapter.ACTION_STATE_CHANGED);
         registerReceiver(mBleBroadcastReceiver, filter);
 
+        mTxPowerOverrides = new TxPowerOverrides(this);
+        byte[] ephemeralIdSecret = EphemeralIdGenerator.parseSecret(BuildConfig.EPHEMERAL_ID_SECRET);
+        if (ephemeralIdSecret != null) {
+            mEphemeralIds.register(EPHEMERAL_IBEACON_UUID, EPHEMERAL_IBEACON_MAJOR, EPHEMERAL_IBEACON_MINOR,
+                    ephemeralIdSecret, EphemeralIdGenerator.DEFAULT_ROTATION_PERIOD_MILLIS);
+        } else {
+            Logger.w(TAG, "No ephemeral ID secret was provisioned, so rotating identifiers are not resolved");
+        }
+
         loadUI();
+        loadCatalog();
+
+        mPipeline = new ScanPipeline(MAX_LISTED_IBEACONS, MIN_IBEACONS_FOR_TRILATERATION, mEphemeralIds,
+                mUiExecutor, mSnapshotListener, BeaconMetrics.REGISTRY);
+        mPipeline.setNewIBeaconListener(mNewIBeaconListener);
+        mPipeline.setProximityListener(mProximityListener);
+        mPipeline.setRegionListener(mRegionListener);
+        mPipeline.startMonitoring(SITE_REGION);
+        mPipeline.start();
     }
 
     @Override
@@ -86,6 +166,11 @@ public class MainActivity extends AppCompatActivity {
     @Override
     public void onDestroy() {
         super.onDestroy();
+        mMetricsOverlay.release();
+        mIBeaconMap.release();
+        mIBeaconsListAdapter.release();
+        mPipeline.stop();
+        mUiHandler.removeCallbacksAndMessages(null); // snapshots still on their way
         unregisterReceiver(mBleBroadcastReceiver);
     }
 
@@ -93,13 +178,46 @@ public class MainActivity extends AppCompatActivity {
     public void loadUI() {
         mCentralPosition = (TextView) findViewById(R.id.central_position);
         mIBeaconsListAdapter = new IBeaconsListAdapter();
-        mIBeaconsList = (ListView) findViewById(R.id.beacons_list);
+        mIBeaconsList = (RecyclerView) findViewById(R.id.beacons_list);
+        mIBeaconsList.setLayoutManager(new LinearLayoutManager(this));
         mIBeaconsList.setAdapter(mIBeaconsListAdapter);
 
         mIBeaconMap = (IBeaconMapLayout)findViewById(R.id.beacon_map);
+        // long press where the phone is, while scanning, to fit each iBeacon's distance model there
+        mIBeaconMap.setOnTouchListener(new View.OnTouchListener() {
+            @Override
+            public boolean onTouch(View view, MotionEvent event) {
+                mLastMapTouchX = event.getX();
+                mLastMapTouchY = event.getY();
+                return false;
+            }
+        });
+        mIBeaconMap.setOnLongClickListener(new View.OnLongClickListener() {
+            @Override
+            public boolean onLongClick(View view) {
+                startSurvey(mIBeaconMap.toMetersX(mLastMapTouchX), mIBeaconMap.toMetersY(mLastMapTouchY));
+                return true;
+            }
+        });
+        mMetricsOverlay = new MetricsOverlay((TextView) findViewById(R.id.metrics_overlay),
+                new File(getExternalFilesDir(null), METRICS_FILE_NAME), Build.MANUFACTURER + " " + Build.MODEL);
 
     }
 
+    /**
+     * Map the beacon catalog and its delta segments.  Nothing is read until a beacon is looked up.
+     */
+    private void loadCatalog() {
+        File catalogFile = new File(getExternalFilesDir(null), CATALOG_FILE_NAME);
+        try {
+            mCatalog = CatalogStore.open(catalogFile, CatalogStore.DEFAULT_MAX_DELTAS);
+            CatalogSnapshot snapshot = mCatalog.getSnapshot();
+            Logger.i(TAG, "Beacon catalog has " + snapshot.getBaseSize() + " beacons and " + snapshot.getDeltaCount() + " site edits");
+        } catch (IOException e) {
+            Logger.w(TAG, "Could not open beacon catalog: " + e.getMessage());
+        }
+    }
+
     /**
      * Create a menu
      * @param menu The menu
@@ -137,6 +255,28 @@ public class MainActivity extends AppCompatActivity {
                 stopScan();
                 return true;
 
+            case R.id.action_show_coverage:
+                // User toggled the coverage heatmap
+                item.setChecked(!item.isChecked());
+                mIBeaconMap.setHeatmapEnabled(item.isChecked(), CoverageHeatmap.MODE_POSITION_ERROR);
+                mIBeaconMap.draw();
+                return true;
+
+            case R.id.action_show_metrics:
+                // User toggled the metrics overlay
+                item.setChecked(!item.isChecked());
+                if (item.isChecked()) {
+                    mMetricsOverlay.show();
+                } else {
+                    mMetricsOverlay.hide();
+                }
+                return true;
+
+            case R.id.action_calibrate:
+                // User chose to calibrate the nearest iBeacon
+                startCalibration();
+                return true;
+
             default:
                 // If we got here, the user's action was not recognized.
                 // Invoke the superclass to handle it.
@@ -151,8 +291,8 @@ public class MainActivity extends AppCompatActivity {
         try {
             mBleCommManager = new BleCommManager(this);
         } catch (Exception e) {
-            Log.d(TAG, "Could not initialize bluetooth");
-            Log.d(TAG, e.getMessage());
+            Logger.d(TAG, "Could not initialize bluetooth");
+            Logger.d(TAG, e.getMessage());
             finish();
         }
 
@@ -172,12 +312,16 @@ public class MainActivity extends AppCompatActivity {
         mStopScanItem.setVisible(true);
         mProgressSpinner.setVisible(true);
         mIBeaconsListAdapter.clear();
-        mFoundIBeacons.clear();
+        mPipeline.clear();
+        clearCentral(); // so the new scan's trail does not join onto the last one
+        // iBeacons that stop being seen are dropped from the list, the map, and the position
+        mPipeline.setScanning(true);
+        mIsScanning = true;
 
         try {
             mBleCommManager.scanForPeripherals(mScanCallbackv18, mScanCallbackv21);
         } catch (Exception e) {
-            Log.d(TAG, "Can't create Ble Device Scanner");
+            Logger.d(TAG, "Can't create Ble Device Scanner");
         }
 
         // to test mapping engine, add fake beacons
@@ -192,11 +336,94 @@ public class MainActivity extends AppCompatActivity {
     }
 
     public void onBleScanStopped() {
-        Log.v(TAG, "Scan complete");
+        Logger.v(TAG, "Scan complete");
         mStartScanItem.setVisible(true);
         mStopScanItem.setVisible(false);
         mProgressSpinner.setVisible(false);
+        // keep showing what the scan found
+        mPipeline.setScanning(false);
+        mPipeline.stopSurvey();
+        mIsScanning = false;
+
+        if (mIsCalibrating) {
+            mIsCalibrating = false;
+            mPipeline.finishCalibration(mCalibrationListener);
+        }
+    }
+
 
+    /**
+     * Fit each located iBeacon's path loss from sightings at a known position, for the rest of the scan
+     *
+     * @param x where the phone is held, in meters
+     * @param y where the phone is held, in meters
+     */
+    private void startSurvey(double x, double y) {
+        if (!mIsScanning) {
+            Toast.makeText(this, R.string.survey_not_scanning, Toast.LENGTH_SHORT).show();
+            return;
+        }
+        mPipeline.startSurvey(x, y);
+        Toast.makeText(this, getString(R.string.survey_started, x, y), Toast.LENGTH_LONG).show();
+    }
+
+    /**
+     * Measure the nearest iBeacon's RSSI at 1 meter, during one scan
+     */
+    public void startCalibration() {
+        List<IBeacon> nearest = mSnapshot.getNearestIBeacons();
+        if (nearest.isEmpty()) {
+            Toast.makeText(this, R.string.calibration_no_ibeacon, Toast.LENGTH_SHORT).show();
+            return;
+        }
+        IBeacon target = nearest.get(0);
+        mIsCalibrating = true;
+        Toast.makeText(this, getString(R.string.calibration_started, target.getMajor(), target.getMinor()), Toast.LENGTH_LONG).show();
+        startScan();
+        // queued after the clear, so the samples come from this scan only
+        mPipeline.startCalibration(target);
+    }
+
+    /**
+     * Show the measured power, and offer to use it for the calibrated iBeacon
+     */
+    private void onCalibrationFinished(final IBeacon target, TxPowerCalibrator calibrator) {
+        if (calibrator == null) {
+            return;
+        }
+        if (!calibrator.hasEnoughSamples()) {
+            Toast.makeText(this, getString(R.string.calibration_failed, calibrator.getSampleCount()), Toast.LENGTH_LONG).show();
+            return;
+        }
+        final int measuredPower = calibrator.getMeasuredPower();
+        Logger.v(TAG, "Calibrated {} at {} dBm", target.getUuidString(), measuredPower);
+
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.calibration_title)
+                .setMessage(getString(R.string.calibration_result, measuredPower, calibrator.getMedian(), calibrator.getSampleCount()))
+                .setPositiveButton(R.string.calibration_use, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        updateTransmissionPower(target, measuredPower);
+                    }
+                })
+                .setNeutralButton(R.string.calibration_clear, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        // the advertised TX Power is used again from the next scan
+                        mTxPowerOverrides.remove(target);
+                    }
+                })
+                .setNegativeButton(R.string.calibration_close, null)
+                .show();
+    }
+
+    /**
+     * Use a new TX Power for an iBeacon, now and whenever it is found again
+     */
+    private void updateTransmissionPower(IBeacon iBeacon, int transmissionPower) {
+        mTxPowerOverrides.put(iBeacon, transmissionPower);
+        mPipeline.updateTransmissionPower(iBeacon, transmissionPower);
     }
 
 
@@ -227,21 +454,16 @@ public class MainActivity extends AppCompatActivity {
 
 
 
-            mFoundIBeacons.add(iBeacon1);
-            mFoundIBeacons.add(iBeacon2);
-            mFoundIBeacons.add(iBeacon3);
-
+            List<IBeacon> iBeacons = new ArrayList<IBeacon>(3);
+            iBeacons.add(iBeacon1);
+            iBeacons.add(iBeacon2);
+            iBeacons.add(iBeacon3);
 
-            for (IBeacon iBeacon : mFoundIBeacons) {
-                mIBeaconMap.addBeacon(iBeacon);
-                mIBeaconsListAdapter.addIBeacon(iBeacon);
-            }
-
-            mIBeaconMap.draw();
-            mIBeaconsListAdapter.notifyDataSetChanged();
+            // they appear, and are located, in the next snapshot
+            mPipeline.add(iBeacons);
 
         } catch (Exception e) {
-            Log.d(TAG, "fake Scan Records did not convert to iBeacon");
+            Logger.d(TAG, "fake Scan Records did not convert to iBeacon");
         }
     }
 
@@ -262,52 +484,16 @@ public class MainActivity extends AppCompatActivity {
 
     /**
      * Event trigger when new Peripheral is discovered
+     *
+     * @param macAddress the Peripheral's MAC address
+     * @param scanRecord the Peripheral's Scan Record
+     * @param rssi the Peripheral's RSSI
      */
-    public void onIBeaconDiscovered(byte[] scanRecord, int rssi) {
-        Log.v(TAG, "iBeacon discovered, GAP: " + DataConverter.bytesToHex(scanRecord));
-
-        if (IBeacon.isIBeacon(scanRecord)) {
-            try {
-                final IBeacon iBeacon = IBeacon.fromScanRecord(scanRecord);
-
-                // check if iBeacon is already in list
-                boolean addBeacon = true;
-                for (IBeaconListItem iBeaconListItem : mIBeaconsListAdapter.getItems()) {
-
-                    if (iBeaconListItem.getIBeacon().equals(iBeacon)) {
-                        addBeacon = false;
-                        break;
-                    }
-                }
-
-                if (addBeacon) {
-                    // in real life, there is where to look up the beacon position
-                    iBeacon.setRssi(rssi);
-                    mFoundIBeacons.add(iBeacon);
-                    mIBeaconsListAdapter.addIBeacon(iBeacon);
-                    runOnUiThread(new Runnable() {
-                        @Override
-                        public void run() {
-                            mIBeaconsListAdapter.notifyDataSetChanged();
-
-                        }
-                    });
-
-
-                    mIBeaconMap.addBeacon(iBeacon);
-                    mIBeaconMap.draw();
-                    if (mIBeaconsList.getCount() >= MIN_IBEACONS_FOR_TRILATERATION) {
-                        triangulateCentral();
-                    }
-                }
-
-            } catch (Exception e) {
-                Log.d(TAG, "Could not convert scanRecord into iBeacon");
-            }
-        } else {
-            Log.d(TAG, "Not a beacon");
+    public void onIBeaconDiscovered(String macAddress, byte[] scanRecord, int rssi) {
+        // parsing, with its logging, deduplication and trilateration happen on the pipeline's threads
+        if (!mPipeline.submit(macAddress, scanRecord, rssi)) {
+            Logger.v(TAG, "Pipeline is full, dropped advertisement from {}", macAddress);
         }
-
     }
 
 
@@ -357,7 +543,7 @@ public class MainActivity extends AppCompatActivity {
             if (result.getScanRecord() != null) {
                 byte[] scanRecord = result.getScanRecord().getBytes();
 
-                onIBeaconDiscovered(scanRecord, rssi);
+                onIBeaconDiscovered(result.getDevice().getAddress(), scanRecord, rssi);
             }
         }
 
@@ -375,7 +561,7 @@ public class MainActivity extends AppCompatActivity {
                 if (result.getScanRecord() != null) {
                     byte[] scanRecord = result.getScanRecord().getBytes();
 
-                    onIBeaconDiscovered(scanRecord, rssi);
+                    onIBeaconDiscovered(result.getDevice().getAddress(), scanRecord, rssi);
                 }
             }
         }
@@ -389,20 +575,20 @@ public class MainActivity extends AppCompatActivity {
         public void onScanFailed(int errorCode) {
             switch (errorCode) {
                 case SCAN_FAILED_ALREADY_STARTED:
-                    Log.e(TAG, "Fails to start scan as BLE scan with the same settings is already started by the app.");
+                    Logger.e(TAG, "Fails to start scan as BLE scan with the same settings is already started by the app.");
                     break;
                 case SCAN_FAILED_APPLICATION_REGISTRATION_FAILED:
-                    Log.e(TAG, "Fails to start scan as app cannot be registered.");
+                    Logger.e(TAG, "Fails to start scan as app cannot be registered.");
                     break;
                 case SCAN_FAILED_FEATURE_UNSUPPORTED:
-                    Log.e(TAG, "Fails to start power optimized scan as this feature is not supported.");
+                    Logger.e(TAG, "Fails to start power optimized scan as this feature is not supported.");
                     break;
                 default: // SCAN_FAILED_INTERNAL_ERROR
-                    Log.e(TAG, "Fails to start scan due an internal error");
+                    Logger.e(TAG, "Fails to start scan due an internal error");
 
             }
 
-            runOnUiThread(new Runnable() {
+            mUiExecutor.execute(new Runnable() {
                 @Override
                 public void run() {
                     onBleScanStopped();
@@ -414,7 +600,7 @@ public class MainActivity extends AppCompatActivity {
          * Scan completed
          */
         public void onScanComplete() {
-            runOnUiThread(new Runnable() {
+            mUiExecutor.execute(new Runnable() {
                 @Override
                 public void run() {
                     onBleScanStopped();
@@ -433,11 +619,11 @@ public class MainActivity extends AppCompatActivity {
         @Override
         public void onLeScan(final BluetoothDevice bluetoothDevice, int rssi, byte[] scanRecord) {
 
-            onIBeaconDiscovered(scanRecord, rssi);
+            onIBeaconDiscovered(bluetoothDevice.getAddress(), scanRecord, rssi);
         }
         @Override
         public void onScanComplete() {
-            runOnUiThread(new Runnable() {
+            mUiExecutor.execute(new Runnable() {
                 @Override
                 public void run() {
                     onBleScanStopped();
@@ -446,28 +632,113 @@ public class MainActivity extends AppCompatActivity {
         }
     };
 
+    /**
+     * Show a snapshot from the pipeline
+     *
+     * @param snapshot the nearest iBeacons and the Central's position
+     */
+    private void showSnapshot(PipelineSnapshot snapshot) {
+        PipelineSnapshot previous = mSnapshot;
+        mSnapshot = snapshot;
+
+        // the adapter diffs the snapshot off the UI thread and only rebinds the rows that changed
+        mIBeaconsListAdapter.submitIBeacons(snapshot.getNearestIBeacons());
+        mIBeaconMap.setIBeacons(snapshot.getNearestIBeacons());
+
+        // a snapshot with new iBeacons repeats the old position, which must not be added to the trail again
+        boolean isPositionChanged = snapshot.hasPosition()
+                && (!previous.hasPosition() || snapshot.getX() != previous.getX() || snapshot.getY() != previous.getY());
+        if (isPositionChanged) {
+            plotCentral(snapshot.getX(), snapshot.getY());
+        } else if (!snapshot.hasPosition() && previous.hasPosition()) {
+            // too few iBeacons left to locate the Central
+            clearCentral();
+        }
+        mIBeaconMap.draw();
+    }
+
+    /**
+     * Take the Central, its position and its trail off the map
+     */
+    private void clearCentral() {
+        mCentralPosition.setText("");
+        mIBeaconMap.clearCentralPosition();
+    }
+
     /**
      * plot the location of the Central on the map
      */
-    public void triangulateCentral() {
-        try {
-            double[] centralPosition = IBeaconLocator.trilaterate(mFoundIBeacons);
-            Log.d(TAG, "Central at "+centralPosition[0]+", "+centralPosition[1]);
-
-            String centralPositionString = "";
-            try {
-                String xPosition = String.format("%.1f", centralPosition[0]);
-                String yPosition = String.format("%.1f", centralPosition[1]);
-                centralPositionString = String.format( getResources().getString(R.string.central_position), xPosition, yPosition);
-            } catch (Exception e) {
-                Log.d(TAG, "Could not convert central location to string");
-            }
-            mCentralPosition.setText(centralPositionString);
+    private void plotCentral(double x, double y) {
+        if (Logger.isLoggable(Logger.DEBUG)) {
+            Logger.d(TAG, "Central at " + x + ", " + y);
+        }
 
-            mIBeaconMap.setCentralPosition(centralPosition[0], centralPosition[1]);
-            mIBeaconMap.draw();
+        String centralPositionString = "";
+        try {
+            String xPosition = String.format("%.1f", x);
+            String yPosition = String.format("%.1f", y);
+            centralPositionString = String.format( getResources().getString(R.string.central_position), xPosition, yPosition);
         } catch (Exception e) {
-            Log.d(TAG, "Not enough Beacons to perform a triangulation.  Found " + mFoundIBeacons.size());
+            Logger.d(TAG, "Could not convert central location to string");
         }
+        mCentralPosition.setText(centralPositionString);
+
+        mIBeaconMap.setCentralPosition(x, y);
     }
+
+
+    /**
+     * Look up each new iBeacon's position.  Runs on the pipeline's filter stage.
+     */
+    private final FilterStage.NewIBeaconListener mNewIBeaconListener = new FilterStage.NewIBeaconListener() {
+        private final CatalogEntry mCatalogEntry = new CatalogEntry(); // reused for every lookup
+
+        @Override
+        public void onNewIBeacon(IBeacon iBeacon) {
+            CatalogStore catalog = mCatalog;
+            if (catalog != null && !catalog.apply(iBeacon, mCatalogEntry)) {
+                Logger.v(TAG, "iBeacon {} is not in the catalog", iBeacon.getUuidString());
+            }
+            // a TX Power calibrated on this phone wins over the catalog's
+            mTxPowerOverrides.apply(iBeacon);
+        }
+    };
+
+    private final RenderStage.Listener mSnapshotListener = new RenderStage.Listener() {
+        @Override
+        public void onSnapshot(PipelineSnapshot snapshot) {
+            showSnapshot(snapshot);
+        }
+    };
+
+    /**
+     * Only real proximity changes get here, not every flip at a range's edge
+     */
+    private final FilterStage.ProximityListener mProximityListener = new FilterStage.ProximityListener() {
+        @Override
+        public void onProximityChanged(IBeacon iBeacon, int previousProximity) {
+            Logger.d(TAG, "iBeacon {} is now at proximity {}", iBeacon.getUuidString(), iBeacon.getStableProximity());
+        }
+    };
+
+    private final FilterStage.RegionListener mRegionListener = new FilterStage.RegionListener() {
+        @Override
+        public void onEnterRegion(Region region) {
+            Logger.d(TAG, "Entered region {}", region);
+            Toast.makeText(MainActivity.this, getString(R.string.region_entered, region.getIdentifier()), Toast.LENGTH_SHORT).show();
+        }
+
+        @Override
+        public void onExitRegion(Region region) {
+            Logger.d(TAG, "Left region {}", region);
+            Toast.makeText(MainActivity.this, getString(R.string.region_exited, region.getIdentifier()), Toast.LENGTH_SHORT).show();
+        }
+    };
+
+    private final FilterStage.CalibrationListener mCalibrationListener = new FilterStage.CalibrationListener() {
+        @Override
+        public void onCalibrationFinished(IBeacon target, TxPowerCalibrator calibrator) {
+            MainActivity.this.onCalibrationFinished(target, calibrator);
+        }
+    };
 }
@@ -1,79 +1,190 @@
 package tonyg.example.com.beacon.adapters;
 
-import android.content.Context;
 import android.content.res.Resources;
-import android.util.Log;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.BaseAdapter;
 import android.widget.TextView;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import tonyg.example.com.beacon.R;
 import tonyg.example.com.beacon.ble.IBeacon;
 import tonyg.example.com.beacon.models.IBeaconListItem;
+import tonyg.example.com.beacon.utilities.FixedPointFormatter;
+import tonyg.example.com.beacon.utilities.ListDiff;
+import tonyg.example.com.beacon.utilities.Logger;
+import tonyg.example.com.beacon.utilities.TextTemplate;
 
 /**
  * Manages the IBeaconDeviceListItems so that we can populate the list
  *
+ * New snapshots of the list are compared with the previous snapshot on a background thread,
+ * and only the rows that were inserted, removed, moved or changed are updated.
+ *
  * @author Tony Gaitatzis backupbrain@gmail.com
  * @date 2015-12-17
  */
-public class IBeaconsListAdapter extends BaseAdapter {
+public class IBeaconsListAdapter extends RecyclerView.Adapter<IBeaconsListAdapter.ViewHolder> {
     private static String TAG = IBeaconsListAdapter.class.getSimpleName();
 
-    private ArrayList<IBeaconListItem> mBeaconListItems = new ArrayList<IBeaconListItem>(); // list of Peripherals
+    private ArrayList<IBeaconListItem> mBeaconListItems = new ArrayList<IBeaconListItem>(); // list of Peripherals, owned by the UI thread
+
+    /** Diffing **/
+    private final ExecutorService mDiffExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "ListDiff");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    private final Handler mUiHandler = new Handler(Looper.getMainLooper());
+    private final AtomicReference<List<IBeaconListItem>> mPendingItems = new AtomicReference<List<IBeaconListItem>>();
+    private final AtomicBoolean mIsDiffScheduled = new AtomicBoolean(false);
+    private List<IBeaconListItem> mDiffBase = new ArrayList<IBeaconListItem>(); // last snapshot diffed, owned by the diff thread
+
+    /** Row text templates, parsed once from the string resources **/
+    private TextTemplate mMajorTemplate, mMinorTemplate, mRssiTemplate, mTransmissionPowerTemplate, mDistanceTemplate, mLocationTemplate,
+            mTelemetryTemplate, mUptimeTemplate;
+
+    private static final ListDiff.Callback<IBeaconListItem> DIFF_CALLBACK = new ListDiff.Callback<IBeaconListItem>() {
+        @Override
+        public long getId(IBeaconListItem item) {
+            return item.getItemId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(IBeaconListItem oldItem, IBeaconListItem newItem) {
+            return oldItem.hasSameContents(newItem);
+        }
+    };
+
+    public IBeaconsListAdapter() {
+        setHasStableIds(true);
+    }
 
     /**
-     * How many items are in the ListView
-     * @return the number of items in this ListView
+     * How many items are in the list
+     * @return the number of items in this list
      */
     @Override
-    public int getCount() {
+    public int getItemCount() {
         return mBeaconListItems.size();
     }
 
     /**
-     * Add a new Peripheral to the ListView
+     * Replace the list with a new snapshot of iBeacons.  May be called from any thread.
+     *
+     * The snapshot is diffed against the previous one on a background thread.  If several
+     * snapshots arrive while a diff is running, only the latest one is diffed.
      *
-     * @param iBeacon iBeacon device information
-     * @param rssi Periheral's RSSI, indicating its radio signal quality
+     * @param iBeacons the iBeacons to list
+     */
+    public void submitIBeacons(List<IBeacon> iBeacons) {
+        List<IBeaconListItem> items = new ArrayList<IBeaconListItem>(iBeacons.size());
+        for (IBeacon iBeacon : iBeacons) {
+            items.add(new IBeaconListItem(iBeacon));
+        }
+        submitItems(items);
+    }
+
+    /**
+     * Replace the list with a new snapshot of list items.  May be called from any thread.
+     *
+     * @param items the new snapshot.  Do not modify it after submitting.
+     */
+    public void submitItems(List<IBeaconListItem> items) {
+        mPendingItems.set(items);
+        if (mIsDiffScheduled.compareAndSet(false, true)) {
+            try {
+                mDiffExecutor.execute(mDiffTask);
+            } catch (RejectedExecutionException e) {
+                // released; a scan thread can still deliver one last snapshot
+                mPendingItems.set(null);
+            }
+        }
+    }
+
+    /**
+     * Stop the diff thread and drop any result still on its way.  Call when the Activity is destroyed.
      */
-    public void addIBeacon(IBeacon iBeacon) {
-        // update UI stuff
-        int listItemId = mBeaconListItems.size();
-        IBeaconListItem listItem = new IBeaconListItem(iBeacon);
-        listItem.setItemId(listItemId);
-        listItem.setRssi(iBeacon.getRssi());
-
-        // add to list
-        mBeaconListItems.add(listItem);
+    public void release() {
+        mDiffExecutor.shutdownNow();
+        mPendingItems.set(null);
+        mUiHandler.removeCallbacksAndMessages(null);
     }
 
     /**
-     * Get current state of ListView
-     * @return ArrayList of BlePeripheralListItems
+     * Diff the latest pending snapshot and hand the result to the UI thread
+     */
+    private final Runnable mDiffTask = new Runnable() {
+        @Override
+        public void run() {
+            mIsDiffScheduled.set(false);
+            final List<IBeaconListItem> newItems = mPendingItems.getAndSet(null);
+            if (newItems == null) {
+                return;
+            }
+            final ListDiff diff = ListDiff.calculate(mDiffBase, newItems, DIFF_CALLBACK);
+            mDiffBase = newItems;
+
+            // results are posted in the order they were calculated, so each diff applies to the list the previous one produced
+            mUiHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    mBeaconListItems = new ArrayList<IBeaconListItem>(newItems);
+                    diff.dispatch(mUpdateReceiver);
+                }
+            });
+        }
+    };
+
+    private final ListDiff.Receiver mUpdateReceiver = new ListDiff.Receiver() {
+        @Override
+        public void onRemoved(int position) { notifyItemRemoved(position); }
+
+        @Override
+        public void onInserted(int position) { notifyItemInserted(position); }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) { notifyItemMoved(fromPosition, toPosition); }
+
+        @Override
+        public void onChanged(int position) { notifyItemChanged(position); }
+    };
+
+    /**
+     * Get current state of the list
+     * @return ArrayList of IBeaconListItems
      */
     public ArrayList<IBeaconListItem> getItems() {
         return mBeaconListItems;
     }
 
     /**
-     * Clear all items from the ListView
+     * Clear all items from the list
      */
     public void clear() {
-        mBeaconListItems.clear();
+        submitItems(new ArrayList<IBeaconListItem>());
     }
 
     /**
-     * Get the IBeaconListItem held at some position in the ListView
+     * Get the IBeaconListItem held at some position in the list
      *
      * @param position the position of a desired item in the list
      * @return the IBeaconListItem at some position
      */
-    @Override
     public IBeaconListItem getItem(int position) {
         return mBeaconListItems.get(position);
     }
@@ -84,9 +195,12 @@ public class IBeaconsListAdapter extends BaseAdapter {
     }
 
     /**
-     * This ViewHolder represents what UI components are in each List Item in the ListView
+     * This ViewHolder represents what UI components are in each List Item in the list,
+     * and the values they currently display
      */
-    public static class ViewHolder{
+    public static class ViewHolder extends RecyclerView.ViewHolder {
+        private static final long NOT_BOUND = Long.MAX_VALUE;
+
         public TextView mUuidTV;
         public TextView mRssiTV;
         public TextView mTransmissionPowerTV;
@@ -94,91 +208,160 @@ public class IBeaconsListAdapter extends BaseAdapter {
         public TextView mDistanceTV;
         public TextView mMajorTV;
         public TextView mMinorTV;
+        public View mTelemetryRow;
+        public TextView mTelemetryTV;
+        public TextView mUptimeTV;
+
+        /** Text buffers.  A TextView keeps a reference to its char array, so each TextView has its own **/
+        private char[] mRssiText, mTransmissionPowerText, mLocationText, mDistanceText, mMajorText, mMinorText, mTelemetryText, mUptimeText;
+
+        /** Values currently displayed **/
+        private long mBoundItemId = NOT_BOUND;
+        private long mBoundRssi = NOT_BOUND;
+        private long mBoundTransmissionPower = NOT_BOUND;
+        private long mBoundDistance = NOT_BOUND;
+        private long mBoundXLocation = NOT_BOUND;
+        private long mBoundYLocation = NOT_BOUND;
+        private long mBoundBatteryVolts = NOT_BOUND;
+        private long mBoundTemperature = NOT_BOUND;
+        private long mBoundUptimeHours = NOT_BOUND;
+
+        public ViewHolder(View v) {
+            super(v);
+            // match the UI stuff in the list Item to what's in the xml file
+            mUuidTV = (TextView) v.findViewById(R.id.uuid);
+            mRssiTV = (TextView) v.findViewById(R.id.rssi);
+            mTransmissionPowerTV = (TextView) v.findViewById(R.id.transmission_power);
+            mMajorTV = (TextView) v.findViewById(R.id.major_number);
+            mMinorTV = (TextView) v.findViewById(R.id.minor_number);
+            mDistanceTV = (TextView) v.findViewById(R.id.distance);
+            mLocationTV = (TextView) v.findViewById(R.id.location);
+            mTelemetryRow = v.findViewById(R.id.telemetry_row);
+            mTelemetryTV = (TextView) v.findViewById(R.id.telemetry);
+            mUptimeTV = (TextView) v.findViewById(R.id.uptime);
+        }
     }
 
     /**
-     * Generate a new ListItem for some known position in the ListView
+     * Generate a new List Item
      *
-     * @param position the position of the ListItem
-     * @param convertView An existing List Item
      * @param parent The Parent ViewGroup
+     * @param viewType The view type of the new List Item
      * @return The List Item
      */
     @Override
-    public View getView(int position, View convertView, ViewGroup parent) {
-        View v = convertView;
-        ViewHolder peripheralListItemView;
-
-        Context context = parent.getContext();
-        Resources resources = context.getResources();
+    public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        loadTemplates(parent.getResources());
 
-        // if this ListItem does not exist yet, generate it
-        // otherwise, use it
-        if(convertView == null) {
+        // convert list_item_ibeacon.xml to a View
+        LayoutInflater inflater = LayoutInflater.from(parent.getContext());
+        View v = inflater.inflate(R.layout.list_item_ibeacon, parent, false);
 
-            // convert list_item_ibeacon.xmla View
-            LayoutInflater inflater = LayoutInflater.from(context);
-            v = inflater.inflate(R.layout.list_item_ibeacon, null);
+        ViewHolder viewHolder = new ViewHolder(v);
+        viewHolder.mMajorText = new char[mMajorTemplate.getMaxLength(FixedPointFormatter.MAX_LENGTH)];
+        viewHolder.mMinorText = new char[mMinorTemplate.getMaxLength(FixedPointFormatter.MAX_LENGTH)];
+        viewHolder.mRssiText = new char[mRssiTemplate.getMaxLength(FixedPointFormatter.MAX_LENGTH)];
+        viewHolder.mTransmissionPowerText = new char[mTransmissionPowerTemplate.getMaxLength(FixedPointFormatter.MAX_LENGTH)];
+        viewHolder.mDistanceText = new char[mDistanceTemplate.getMaxLength(FixedPointFormatter.MAX_LENGTH)];
+        viewHolder.mLocationText = new char[mLocationTemplate.getMaxLength(FixedPointFormatter.MAX_LENGTH)];
+        viewHolder.mTelemetryText = new char[mTelemetryTemplate.getMaxLength(FixedPointFormatter.MAX_LENGTH)];
+        viewHolder.mUptimeText = new char[mUptimeTemplate.getMaxLength(FixedPointFormatter.MAX_LENGTH)];
+        return viewHolder;
+    }
 
-            // match the UI stuff in the list Item to what's in the xml file
-            peripheralListItemView = new ViewHolder();
-            peripheralListItemView.mUuidTV = (TextView) v.findViewById(R.id.uuid);
-            peripheralListItemView.mRssiTV = (TextView) v.findViewById(R.id.rssi);
-            peripheralListItemView.mTransmissionPowerTV = (TextView) v.findViewById(R.id.transmission_power);
-            peripheralListItemView.mMajorTV = (TextView) v.findViewById(R.id.major_number);
-            peripheralListItemView.mMinorTV = (TextView) v.findViewById(R.id.minor_number);
-            peripheralListItemView.mDistanceTV = (TextView) v.findViewById(R.id.distance);
-            peripheralListItemView.mLocationTV = (TextView) v.findViewById(R.id.location);
-
-            v.setTag( peripheralListItemView );
-        } else {
-            peripheralListItemView = (ViewHolder) v.getTag();
+    /**
+     * Parse the row format Strings the first time a row is created
+     *
+     * @param resources the app Resources
+     */
+    private void loadTemplates(Resources resources) {
+        if (mMajorTemplate != null) {
+            return;
         }
-        Log.v(TAG, "ListItem size: "+ mBeaconListItems.size());
-        // if there are known Peripherals, create a ListItem that says so
-        // otherwise, display a ListItem with Bluetooth Periheral information
-        if (mBeaconListItems.size() <= 0) {
-            peripheralListItemView.mUuidTV.setText(R.string.beacon_list_empty);
-        } else {
-            IBeaconListItem item = mBeaconListItems.get(position);
-
-            peripheralListItemView.mUuidTV.setText(item.getUuid().toString());
+        mMajorTemplate = new TextTemplate(resources.getString(R.string.major_number));
+        mMinorTemplate = new TextTemplate(resources.getString(R.string.minor_number));
+        mRssiTemplate = new TextTemplate(resources.getString(R.string.rssi));
+        mTransmissionPowerTemplate = new TextTemplate(resources.getString(R.string.transmission_power));
+        mDistanceTemplate = new TextTemplate(resources.getString(R.string.distance));
+        mLocationTemplate = new TextTemplate(resources.getString(R.string.location));
+        mTelemetryTemplate = new TextTemplate(resources.getString(R.string.telemetry));
+        mUptimeTemplate = new TextTemplate(resources.getString(R.string.uptime));
+    }
 
-            peripheralListItemView.mMajorTV.setText(String.format(resources.getString(R.string.major_number), item.getMajor()));
-            peripheralListItemView.mMinorTV.setText(String.format(resources.getString(R.string.minor_number), item.getMinor()));
+    /**
+     * Display the iBeacon information at some known position in the list.
+     * Only the TextViews whose displayed value changed are updated.
+     *
+     * @param peripheralListItemView the List Item
+     * @param position the position of the ListItem
+     */
+    @Override
+    public void onBindViewHolder(ViewHolder peripheralListItemView, int position) {
+        Logger.v(TAG, "ListItem size: {}", mBeaconListItems.size());
+        IBeaconListItem item = mBeaconListItems.get(position);
 
-            peripheralListItemView.mRssiTV.setText(String.format(resources.getString(R.string.rssi), item.getRssi()));
+        if (peripheralListItemView.mBoundItemId != item.getItemId()) {
+            // a different iBeacon: the UUID, Major, and Minor never change for the same iBeacon
+            peripheralListItemView.mBoundItemId = item.getItemId();
+            peripheralListItemView.mUuidTV.setText(item.getUuidString());
+            setText(peripheralListItemView.mMajorTV, peripheralListItemView.mMajorText, mMajorTemplate, item.getMajor(), 0, 0);
+            setText(peripheralListItemView.mMinorTV, peripheralListItemView.mMinorText, mMinorTemplate, item.getMinor(), 0, 0);
+        }
 
-            String distance_m = "";
-            try {
-                distance_m = String.format(resources.getString(R.string.distance), String.format("%.1f",item.getDistance()));
-            } catch (Exception e) {
-                Log.d(TAG, "Could not convert distance to string");
-            }
-            peripheralListItemView.mDistanceTV.setText(distance_m);
+        if (peripheralListItemView.mBoundRssi != item.getRssi()) {
+            peripheralListItemView.mBoundRssi = item.getRssi();
+            setText(peripheralListItemView.mRssiTV, peripheralListItemView.mRssiText, mRssiTemplate, item.getRssi(), 0, 0);
+        }
 
-            String location = "";
-            try {
-                String xLocation = String.format("%.1f", item.getXLocation());
-                String yLocation = String.format("%.1f", item.getYLocation());
-                location = String.format( resources.getString(R.string.location), xLocation, yLocation);
-            } catch (Exception e) {
-                Log.d(TAG, "Could not convert location to string");
-            }
-            peripheralListItemView.mLocationTV.setText(location);
+        if (peripheralListItemView.mBoundDistance != item.getDisplayDistance()) {
+            peripheralListItemView.mBoundDistance = item.getDisplayDistance();
+            setText(peripheralListItemView.mDistanceTV, peripheralListItemView.mDistanceText, mDistanceTemplate, item.getDisplayDistance(), 0, IBeaconListItem.DISPLAY_DECIMALS);
+        }
 
+        if (peripheralListItemView.mBoundXLocation != item.getDisplayXLocation() || peripheralListItemView.mBoundYLocation != item.getDisplayYLocation()) {
+            peripheralListItemView.mBoundXLocation = item.getDisplayXLocation();
+            peripheralListItemView.mBoundYLocation = item.getDisplayYLocation();
+            setText(peripheralListItemView.mLocationTV, peripheralListItemView.mLocationText, mLocationTemplate, item.getDisplayXLocation(), item.getDisplayYLocation(), IBeaconListItem.DISPLAY_DECIMALS);
+        }
 
-            String transmissionPower = "";
-            try {
-                transmissionPower = String.format(resources.getString(R.string.transmission_power), item.getTransmissionPower());
+        if (peripheralListItemView.mBoundTransmissionPower != item.getTransmissionPower()) {
+            peripheralListItemView.mBoundTransmissionPower = item.getTransmissionPower();
+            setText(peripheralListItemView.mTransmissionPowerTV, peripheralListItemView.mTransmissionPowerText, mTransmissionPowerTemplate, item.getTransmissionPower(), 0, 0);
+        }
 
-            } catch (Exception e) {
-                Log.d(TAG, "Could not convert reference rssi to string");
+        // battery, temperature, and uptime, once the iBeacon has sent telemetry
+        peripheralListItemView.mTelemetryRow.setVisibility(item.hasTelemetry() ? View.VISIBLE : View.GONE);
+        if (item.hasTelemetry()) {
+            if (peripheralListItemView.mBoundBatteryVolts != item.getDisplayBatteryVolts() || peripheralListItemView.mBoundTemperature != item.getDisplayTemperature()) {
+                peripheralListItemView.mBoundBatteryVolts = item.getDisplayBatteryVolts();
+                peripheralListItemView.mBoundTemperature = item.getDisplayTemperature();
+                setText(peripheralListItemView.mTelemetryTV, peripheralListItemView.mTelemetryText, mTelemetryTemplate, item.getDisplayBatteryVolts(), item.getDisplayTemperature(), IBeaconListItem.DISPLAY_DECIMALS);
             }
-            peripheralListItemView.mTransmissionPowerTV.setText(transmissionPower);
-
+            if (peripheralListItemView.mBoundUptimeHours != item.getDisplayUptimeHours()) {
+                peripheralListItemView.mBoundUptimeHours = item.getDisplayUptimeHours();
+                setText(peripheralListItemView.mUptimeTV, peripheralListItemView.mUptimeText, mUptimeTemplate, item.getDisplayUptimeHours(), 0, IBeaconListItem.DISPLAY_DECIMALS);
+            }
+        }
+    }
 
+    /**
+     * Fill a template with up to two fixed point numbers and display it
+     *
+     * @param textView the TextView
+     * @param buffer the TextView's own char array
+     * @param template the row template
+     * @param firstArgument the first argument
+     * @param secondArgument the second argument, if the template has one
+     * @param decimals decimal places of the arguments
+     */
+    private static void setText(TextView textView, char[] buffer, TextTemplate template, long firstArgument, long secondArgument, int decimals) {
+        int position = 0;
+        for (int slot = 0; slot < template.getSlotCount(); slot++) {
+            position = template.appendLiteral(slot, buffer, position);
+            long argument = (template.getArgumentIndex(slot) == 0) ? firstArgument : secondArgument;
+            position = FixedPointFormatter.appendFixedPoint(buffer, position, argument, decimals);
         }
-        return v;
+        position = template.appendLiteral(template.getSlotCount(), buffer, position);
+        textView.setText(buffer, 0, position);
     }
 }
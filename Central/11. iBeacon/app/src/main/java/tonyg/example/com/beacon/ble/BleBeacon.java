@@ -23,7 +23,8 @@ public class BleBeacon {
     public static final String TAG = BleBeacon.class.getSimpleName();
     public static final String BROADCAST_NAME = "MyBeacon";
 
-    public static final double RADIO_PROPAGATION_CONSTANT = 3.5;
+    // the default; iBeacons fit their own with a PathLossModel
+    public static final double RADIO_PROPAGATION_CONSTANT = IBeacon.RADIO_PROPAGATION_CONSTANT;
 
     /** GATT Profile  **/
     public static final UUID SERVICE_UUID = UUID.fromString("0000180c-0000-1000-8000-00805f9b34fb");
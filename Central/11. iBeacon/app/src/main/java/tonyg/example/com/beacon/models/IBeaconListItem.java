@@ -2,40 +2,89 @@ package tonyg.example.com.beacon.models;
 
 import java.util.UUID;
 
+import tonyg.example.com.beacon.ble.BeaconTelemetry;
 import tonyg.example.com.beacon.ble.IBeacon;
+import tonyg.example.com.beacon.utilities.FixedPointFormatter;
 
 
 /**
  * A visual representation of a list of discovered iBeacons
  * This is paired with a list_item_ibeacon.xml that lists the iBeacons found
  *
+ * Each IBeaconListItem is a snapshot of an iBeacon's values at the time it was created,
+ * so that two snapshots of the same iBeacon can be compared on a background thread.
+ * Decimal values are kept at display precision, so that snapshots only differ when the
+ * displayed text would differ.
+ *
  * @author Tony Gaitatzis backupbrain@gmail.com
  * @date 2016-12-09
  */
 public class IBeaconListItem {
-    private int mItemId;
+    // decimal places displayed for distances and locations
+    public static final int DISPLAY_DECIMALS = 1;
+
+    private long mItemId;
     private int mRssi;
+    private int mTransmissionPower;
+    private long mDistance; // fixed point at DISPLAY_DECIMALS
+    private long mXLocation; // fixed point at DISPLAY_DECIMALS
+    private long mYLocation; // fixed point at DISPLAY_DECIMALS
+    private boolean mHasTelemetry;
+    private long mBatteryVolts; // fixed point at DISPLAY_DECIMALS
+    private long mTemperature; // fixed point at DISPLAY_DECIMALS
+    private long mUptimeHours; // fixed point at DISPLAY_DECIMALS
     private IBeacon mIBeacon;
 
     public IBeaconListItem(IBeacon iBeacon) {
         mIBeacon = iBeacon;
+        mItemId = iBeacon.getStableId();
+        mRssi = iBeacon.getRssi();
+        mTransmissionPower = iBeacon.getTransmissionPower();
+        mDistance = FixedPointFormatter.toFixedPoint(iBeacon.getSmoothedDistance(), DISPLAY_DECIMALS);
+        mXLocation = FixedPointFormatter.toFixedPoint(iBeacon.getXLocation(), DISPLAY_DECIMALS);
+        mYLocation = FixedPointFormatter.toFixedPoint(iBeacon.getYLocation(), DISPLAY_DECIMALS);
+        BeaconTelemetry telemetry = iBeacon.getTelemetry();
+        mHasTelemetry = telemetry != null;
+        if (mHasTelemetry) {
+            mBatteryVolts = FixedPointFormatter.toFixedPoint(telemetry.getBatteryMillivolts() / 1000.0, DISPLAY_DECIMALS);
+            mTemperature = FixedPointFormatter.toFixedPoint(telemetry.getTemperature(), DISPLAY_DECIMALS);
+            mUptimeHours = FixedPointFormatter.toFixedPoint(telemetry.getUptimeDeciseconds() / 36000.0, DISPLAY_DECIMALS);
+        }
     }
 
-    public void setItemId(int id) {  mItemId = id; }
-    public void setRssi(int rssi) {
-        mRssi = rssi;
-    }
-
-    public int getItemId() { return mItemId; }
+    public long getItemId() { return mItemId; }
     public UUID getUuid() { return mIBeacon.getUuid(); }
+    public String getUuidString() { return mIBeacon.getUuidString(); }
     public int getMajor() { return mIBeacon.getMajor(); }
     public int getMinor() {
         return mIBeacon.getMinor();
     }
     public int getRssi() { return mRssi; }
-    public int getTransmissionPower() { return mIBeacon.getTransmissionPower(); }
-    public double getDistance() { return mIBeacon.getDistance(); }
-    public double getXLocation() { return mIBeacon.getXLocation(); }
-    public double getYLocation() { return mIBeacon.getYLocation(); }
+    public int getTransmissionPower() { return mTransmissionPower; }
+    public long getDisplayDistance() { return mDistance; }
+    public long getDisplayXLocation() { return mXLocation; }
+    public long getDisplayYLocation() { return mYLocation; }
+    public boolean hasTelemetry() { return mHasTelemetry; }
+    public long getDisplayBatteryVolts() { return mBatteryVolts; }
+    public long getDisplayTemperature() { return mTemperature; }
+    public long getDisplayUptimeHours() { return mUptimeHours; }
     public IBeacon getIBeacon() { return mIBeacon; }
+
+    /**
+     * Test if two snapshots would display the same values
+     *
+     * @param other another snapshot
+     * @return <b>true</b> if both snapshots display the same values
+     */
+    public boolean hasSameContents(IBeaconListItem other) {
+        return mRssi == other.mRssi
+                && mDistance == other.mDistance
+                && mXLocation == other.mXLocation
+                && mYLocation == other.mYLocation
+                && mTransmissionPower == other.mTransmissionPower
+                && mHasTelemetry == other.mHasTelemetry
+                && mBatteryVolts == other.mBatteryVolts
+                && mTemperature == other.mTemperature
+                && mUptimeHours == other.mUptimeHours;
+    }
 }
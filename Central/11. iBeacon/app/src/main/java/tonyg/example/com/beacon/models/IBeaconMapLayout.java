@@ -6,21 +6,37 @@ import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.Path;
 import android.graphics.Rect;
 import android.graphics.drawable.BitmapDrawable;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.AttributeSet;
-import android.util.Log;
 import android.widget.LinearLayout;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import tonyg.example.com.beacon.R;
 import tonyg.example.com.beacon.ble.BleBeacon;
 import tonyg.example.com.beacon.ble.IBeacon;
+import tonyg.example.com.beacon.utilities.CoverageHeatmap;
+import tonyg.example.com.beacon.utilities.Logger;
+import tonyg.example.com.beacon.utilities.PositionHistory;
 
 /**
  * This class represents a the visual Beacon Map
  *
+ * The coverage heatmap is updated on a background thread, and the map is drawn again once the
+ * changed tiles are ready, so the UI thread never waits for the tiles to be computed.
+ *
  * @author Tony Gaitatzis backupbrain@gmail.com
  * @date 2016-03-06
  */
@@ -37,6 +53,18 @@ public class IBeaconMapLayout extends LinearLayout {
     private static final int Y_OFFSET = 50;
     private static final int M_PX_MULTIPLIER = 400;
 
+    /** Trail properties **/
+    private static final int TRAIL_LENGTH = 256; // positions remembered
+    private static final int TRAIL_FADE_STEPS = 8; // number of alpha steps along the trail
+    private static final int TRAIL_STROKE_WIDTH = 3;
+
+    /** Heatmap properties **/
+    private static final int HEATMAP_CELL_PX = 10;
+    private static final int HEATMAP_TILE_SIZE = 16; // cells per tile edge
+    private static final int HEATMAP_ALPHA = 0x80;
+    private static final float HEATMAP_STRONG_RSSI = -50;
+    private static final float HEATMAP_MAX_ERROR_M = 2;
+
     private Bitmap mIBeaconIcon, mCentralIcon; // icons
     private Canvas mCanvas = new Canvas();
     private Paint mPaint = new Paint(); // paint properties
@@ -44,7 +72,33 @@ public class IBeaconMapLayout extends LinearLayout {
 
     private ArrayList<IBeacon> mIBeaconList = new ArrayList<IBeacon>(); // list of iBeacons
     private boolean mIsCentralPositionSet = false;
-    private double[] mCentralPosition; // central position
+    private double mCentralX, mCentralY; // central position
+
+    private PositionHistory mPositionHistory = new PositionHistory(TRAIL_LENGTH); // central trail
+    private Path mTrailPath = new Path(); // reusable trail segment
+    private Paint mTrailPaint = new Paint();
+
+    private volatile CoverageHeatmap mHeatmap; // optional coverage layer, or null
+    private Bitmap[] mHeatmapTileBitmaps; // rendered heatmap tiles, owned by the UI thread
+    private Rect mHeatmapSourceRect = new Rect();
+    private Rect mHeatmapDestRect = new Rect();
+
+    /** Heatmap updates **/
+    private final ExecutorService mHeatmapExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "HeatmapUpdate");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    private final Handler mUiHandler = new Handler(Looper.getMainLooper());
+    private final AtomicReference<List<IBeacon>> mPendingHeatmapIBeacons = new AtomicReference<List<IBeacon>>();
+    private final AtomicBoolean mIsHeatmapUpdateScheduled = new AtomicBoolean(false);
+    // owned by the heatmap thread
+    private CoverageHeatmap mUpdatedHeatmap; // the heatmap the iBeacons below were put on
+    private final ArrayList<IBeacon> mHeatmapIBeacons = new ArrayList<IBeacon>();
+    private int[] mRenderedTileVersions; // heatmap tile version of each rendered tile
 
     /**
      * Create a new BeaconMapLayout
@@ -92,17 +146,94 @@ public class IBeaconMapLayout extends LinearLayout {
         mPaint.setColor(Color.parseColor(PAINT_COLOR));
         mPaint.setStyle(Paint.Style.STROKE);
         mPaint.setStrokeWidth(STROKE_COLOR);
+
+        mTrailPaint.setColor(Color.parseColor(PAINT_COLOR));
+        mTrailPaint.setStyle(Paint.Style.STROKE);
+        mTrailPaint.setStrokeWidth(TRAIL_STROKE_WIDTH);
+        mTrailPaint.setAntiAlias(true);
         mMapBitmap = Bitmap.createBitmap(BITMAP_WIDTH, BITMAP_HEIGHT, Bitmap.Config.ARGB_8888);
         mCanvas = new Canvas(mMapBitmap);
     }
 
     /**
-     * Add a new Beacon
+     * Replace the Beacons shown.  Beacons that were lost, or are no longer among the nearest,
+     * are taken off the heatmap.
+     *
+     * @param iBeacons the iBeacons from a PipelineSnapshot, which never change
+     */
+    public void setIBeacons(List<IBeacon> iBeacons) {
+        mIBeaconList.clear();
+        mIBeaconList.addAll(iBeacons);
+        if (mHeatmap != null) {
+            scheduleHeatmapUpdate(iBeacons);
+        }
+    }
+
+    /**
+     * Show or hide the coverage heatmap
+     *
+     * @param enabled <b>true</b> to draw the heatmap under the beacons
+     * @param mode one of CoverageHeatmap.MODE_RSSI or CoverageHeatmap.MODE_POSITION_ERROR
+     */
+    public void setHeatmapEnabled(boolean enabled, int mode) {
+        final CoverageHeatmap previous = mHeatmap;
+        mHeatmap = null;
+        mHeatmapTileBitmaps = null;
+        if (previous != null) {
+            shutdownHeatmap(previous);
+        }
+        if (enabled) {
+            double cellSize_m = (double) HEATMAP_CELL_PX / M_PX_MULTIPLIER;
+            mHeatmap = new CoverageHeatmap(
+                    (double) -X_OFFSET / M_PX_MULTIPLIER,
+                    (double) -Y_OFFSET / M_PX_MULTIPLIER,
+                    (double) BITMAP_WIDTH / M_PX_MULTIPLIER,
+                    (double) BITMAP_HEIGHT / M_PX_MULTIPLIER,
+                    cellSize_m,
+                    HEATMAP_TILE_SIZE,
+                    mode);
+            mHeatmapTileBitmaps = new Bitmap[mHeatmap.getTileColumns() * mHeatmap.getTileRows()];
+            mHeatmapSourceRect.set(0, 0, HEATMAP_TILE_SIZE, HEATMAP_TILE_SIZE);
+            scheduleHeatmapUpdate(new ArrayList<IBeacon>(mIBeaconList));
+        }
+    }
+
+    /**
+     * Stop the heatmap threads.  Call when the Activity is destroyed.
+     */
+    public void release() {
+        final CoverageHeatmap heatmap = mHeatmap;
+        mHeatmap = null;
+        if (heatmap != null) {
+            shutdownHeatmap(heatmap);
+        }
+        mHeatmapExecutor.shutdown();
+        mUiHandler.removeCallbacksAndMessages(null);
+    }
+
+    /**
+     * Stop a heatmap's worker threads once any update running on it has finished
+     */
+    private void shutdownHeatmap(final CoverageHeatmap heatmap) {
+        mHeatmapExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                heatmap.shutdown();
+            }
+        });
+    }
+
+    /**
+     * Update the heatmap with the iBeacons shown.  If several lists arrive while an update is
+     * running, only the latest one is used.
      *
-     * @param iBeacon
+     * @param iBeacons the iBeacons, which must not be modified afterwards
      */
-    public void addBeacon(IBeacon iBeacon) {
-        mIBeaconList.add(iBeacon);
+    private void scheduleHeatmapUpdate(List<IBeacon> iBeacons) {
+        mPendingHeatmapIBeacons.set(iBeacons);
+        if (mIsHeatmapUpdateScheduled.compareAndSet(false, true)) {
+            mHeatmapExecutor.execute(mHeatmapUpdateTask);
+        }
     }
 
     /**
@@ -113,7 +244,26 @@ public class IBeaconMapLayout extends LinearLayout {
      */
     public void setCentralPosition(double x, double y) {
         mIsCentralPositionSet = true;
-        mCentralPosition = new double[]{x, y};
+        mCentralX = x;
+        mCentralY = y;
+        mPositionHistory.append(SystemClock.elapsedRealtime(), x, y);
+    }
+
+    /**
+     * Get the history of Central positions
+     *
+     * @return the position history, timestamped with SystemClock.elapsedRealtime()
+     */
+    public PositionHistory getPositionHistory() {
+        return mPositionHistory;
+    }
+
+    /**
+     * Forget the Central position and its trail
+     */
+    public void clearCentralPosition() {
+        mIsCentralPositionSet = false;
+        mPositionHistory.clear();
     }
 
     /**
@@ -122,7 +272,7 @@ public class IBeaconMapLayout extends LinearLayout {
      * @param beacon
      */
     private void drawBeaconPosition(IBeacon iBeacon) {
-        Log.d(TAG, "Drawing point: " + iBeacon);
+        Logger.d(TAG, "Drawing point: {}", iBeacon);
         Rect sourceRect = new Rect(0, 0, mIBeaconIcon.getWidth(), mIBeaconIcon.getHeight());
         Rect destRect = new Rect((int) (iBeacon.getXLocation() * M_PX_MULTIPLIER - 50 + X_OFFSET), (int) (iBeacon.getYLocation() * M_PX_MULTIPLIER - 50 + Y_OFFSET), (int) (iBeacon.getXLocation() * M_PX_MULTIPLIER + 50 + X_OFFSET), (int) (iBeacon.getYLocation() * M_PX_MULTIPLIER + 50 + Y_OFFSET));
         mCanvas.drawBitmap(mIBeaconIcon, sourceRect, destRect, null);
@@ -131,14 +281,193 @@ public class IBeaconMapLayout extends LinearLayout {
 
     }
 
+    /**
+     * Recompute the heatmap on the heatmap thread, render the changed tiles into pixels, and
+     * hand them to the UI thread to draw.  Only tiles that were recomputed are rendered again.
+     */
+    private final Runnable mHeatmapUpdateTask = new Runnable() {
+        @Override
+        public void run() {
+            mIsHeatmapUpdateScheduled.set(false);
+            List<IBeacon> iBeacons = mPendingHeatmapIBeacons.getAndSet(null);
+            final CoverageHeatmap heatmap = mHeatmap;
+            if (iBeacons == null || heatmap == null) {
+                return;
+            }
+            int tileCount = heatmap.getTileColumns() * heatmap.getTileRows();
+            if (heatmap != mUpdatedHeatmap) {
+                mUpdatedHeatmap = heatmap;
+                mHeatmapIBeacons.clear();
+                mRenderedTileVersions = new int[tileCount];
+                Arrays.fill(mRenderedTileVersions, -1);
+            }
+
+            // iBeacons that were lost, or are no longer among the nearest, are taken off.
+            // Only the few nearest iBeacons are listed, so a linear search is enough
+            for (IBeacon previous : mHeatmapIBeacons) {
+                if (!iBeacons.contains(previous)) {
+                    heatmap.removeBeacon(previous);
+                }
+            }
+            mHeatmapIBeacons.clear();
+            mHeatmapIBeacons.addAll(iBeacons);
+            for (IBeacon iBeacon : iBeacons) {
+                heatmap.putBeacon(iBeacon);
+            }
+            try {
+                heatmap.update();
+            } catch (InterruptedException e) {
+                Logger.d(TAG, "Heatmap update interrupted");
+                return;
+            } catch (RuntimeException e) {
+                // the failed tiles stay dirty for the next update; show the ones that were computed
+                Logger.w(TAG, "Heatmap update failed: " + e);
+            }
+
+            final int[][] tilePixels = new int[tileCount][]; // null where the tile has not changed
+            boolean isChanged = false;
+            for (int tileRow = 0; tileRow < heatmap.getTileRows(); tileRow++) {
+                for (int tileColumn = 0; tileColumn < heatmap.getTileColumns(); tileColumn++) {
+                    int tile = tileRow * heatmap.getTileColumns() + tileColumn;
+                    int version = heatmap.getTileVersion(tileColumn, tileRow);
+                    if (mRenderedTileVersions[tile] != version) {
+                        tilePixels[tile] = renderHeatmapTile(heatmap, heatmap.getTile(tileColumn, tileRow));
+                        mRenderedTileVersions[tile] = version;
+                        isChanged = true;
+                    }
+                }
+            }
+            if (!isChanged) {
+                return;
+            }
+            mUiHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (heatmap != mHeatmap) {
+                        return; // switched off or replaced meanwhile
+                    }
+                    for (int tile = 0; tile < tilePixels.length; tile++) {
+                        if (tilePixels[tile] == null) {
+                            continue;
+                        }
+                        if (mHeatmapTileBitmaps[tile] == null) {
+                            mHeatmapTileBitmaps[tile] = Bitmap.createBitmap(HEATMAP_TILE_SIZE, HEATMAP_TILE_SIZE, Bitmap.Config.ARGB_8888);
+                        }
+                        mHeatmapTileBitmaps[tile].setPixels(tilePixels[tile], 0, HEATMAP_TILE_SIZE, 0, 0, HEATMAP_TILE_SIZE, HEATMAP_TILE_SIZE);
+                    }
+                    draw();
+                }
+            });
+        }
+    };
+
+    /**
+     * Draw the rendered heatmap tiles.  Tiles not rendered yet are left blank.
+     */
+    private void drawHeatmap() {
+        int tileSize_px = HEATMAP_TILE_SIZE * HEATMAP_CELL_PX;
+        int tileColumns = mHeatmap.getTileColumns();
+        for (int tile = 0; tile < mHeatmapTileBitmaps.length; tile++) {
+            if (mHeatmapTileBitmaps[tile] == null) {
+                continue;
+            }
+            int tileColumn = tile % tileColumns;
+            int tileRow = tile / tileColumns;
+            mHeatmapDestRect.set(tileColumn * tileSize_px, tileRow * tileSize_px, (tileColumn + 1) * tileSize_px, (tileRow + 1) * tileSize_px);
+            mCanvas.drawBitmap(mHeatmapTileBitmaps[tile], mHeatmapSourceRect, mHeatmapDestRect, null);
+        }
+    }
+
+    /**
+     * Convert a heatmap tile into pixels, one pixel per cell
+     *
+     * @param heatmap the heatmap
+     * @param values the tile values
+     * @return the pixels
+     */
+    private static int[] renderHeatmapTile(CoverageHeatmap heatmap, float[] values) {
+        int[] pixels = new int[values.length];
+        for (int cell = 0; cell < values.length; cell++) {
+            pixels[cell] = getHeatmapColor(heatmap.getMode(), values[cell]);
+        }
+        return pixels;
+    }
+
+    /**
+     * Map a heatmap value onto a red (poor) to green (good) scale
+     *
+     * @param mode one of CoverageHeatmap.MODE_RSSI or CoverageHeatmap.MODE_POSITION_ERROR
+     * @param value RSSI or positioning error
+     * @return ARGB color
+     */
+    private static int getHeatmapColor(int mode, float value) {
+        float quality;
+        if (mode == CoverageHeatmap.MODE_RSSI) {
+            float floor = (float) CoverageHeatmap.DEFAULT_RSSI_FLOOR;
+            quality = (value - floor) / (HEATMAP_STRONG_RSSI - floor);
+        } else {
+            quality = 1 - value / HEATMAP_MAX_ERROR_M;
+        }
+        if (Float.isNaN(quality) || quality <= 0) {
+            return Color.argb(HEATMAP_ALPHA, 0x80, 0x80, 0x80); // no coverage
+        }
+        quality = Math.min(1, quality);
+        return Color.argb(HEATMAP_ALPHA, (int) (0xFF * (1 - quality)), (int) (0xFF * quality), 0);
+    }
+
+    /**
+     * Draw the Central's trail, fading from the oldest to the newest position
+     */
+    private void drawCentralTrail() {
+        int size = mPositionHistory.size();
+        if (size < 2) {
+            return;
+        }
+        int step = (size - 1 + TRAIL_FADE_STEPS - 1) / TRAIL_FADE_STEPS; // segments per alpha step
+        for (int start = 0; start < size - 1; start += step) {
+            int end = Math.min(start + step, size - 1);
+            mTrailPath.rewind();
+            mTrailPath.moveTo(toPixelsX(mPositionHistory.getX(start)), toPixelsY(mPositionHistory.getY(start)));
+            for (int index = start + 1; index <= end; index++) {
+                mTrailPath.lineTo(toPixelsX(mPositionHistory.getX(index)), toPixelsY(mPositionHistory.getY(index)));
+            }
+            mTrailPaint.setAlpha(0xFF * end / (size - 1));
+            mCanvas.drawPath(mTrailPath, mTrailPaint);
+        }
+    }
+
+    /**
+     * Convert a touch on the map to a position, in meters
+     *
+     * @param touchX the X coordinate of the touch, in view pixels
+     * @return the X position
+     */
+    public double toMetersX(float touchX) {
+        return (touchX * BITMAP_WIDTH / getWidth() - X_OFFSET) / (double) M_PX_MULTIPLIER;
+    }
+
+    /**
+     * Convert a touch on the map to a position, in meters
+     *
+     * @param touchY the Y coordinate of the touch, in view pixels
+     * @return the Y position
+     */
+    public double toMetersY(float touchY) {
+        return (touchY * BITMAP_HEIGHT / getHeight() - Y_OFFSET) / (double) M_PX_MULTIPLIER;
+    }
+
+    private float toPixelsX(double x) { return (float) (x * M_PX_MULTIPLIER + X_OFFSET); }
+    private float toPixelsY(double y) { return (float) (y * M_PX_MULTIPLIER + Y_OFFSET); }
+
     /**
      * Draw the Central onscreen
      *
-     * @param location
+     * @param x x location
+     * @param y y location
      */
-    public void drawCentralPosition(double[] location) {
+    public void drawCentralPosition(double x, double y) {
         Rect sourceRect = new Rect(0, 0, mCentralIcon.getWidth(), mCentralIcon.getHeight());
-        Rect destRect = new Rect((int) (location[0] * M_PX_MULTIPLIER - 36 + X_OFFSET), (int) (location[1] * M_PX_MULTIPLIER - 71 + Y_OFFSET), (int) (location[0] * M_PX_MULTIPLIER + 37 + X_OFFSET), (int) (location[1] * M_PX_MULTIPLIER + 72 + Y_OFFSET));
+        Rect destRect = new Rect((int) (x * M_PX_MULTIPLIER - 36 + X_OFFSET), (int) (y * M_PX_MULTIPLIER - 71 + Y_OFFSET), (int) (x * M_PX_MULTIPLIER + 37 + X_OFFSET), (int) (y * M_PX_MULTIPLIER + 72 + Y_OFFSET));
         mCanvas.drawBitmap(mCentralIcon, sourceRect, destRect, null);
     }
 
@@ -148,13 +477,18 @@ public class IBeaconMapLayout extends LinearLayout {
     public void draw() {
         // clear canvas
         mCanvas.drawColor(Color.WHITE);
+        // draw the coverage heatmap, as far as it has been computed
+        if (mHeatmap != null) {
+            drawHeatmap();
+        }
         // draw each beacon
         for (IBeacon iBeacon : mIBeaconList) {
             drawBeaconPosition(iBeacon);
         }
-        // draw central position
+        // draw central trail and position
+        drawCentralTrail();
         if (mIsCentralPositionSet) {
-            drawCentralPosition(mCentralPosition);
+            drawCentralPosition(mCentralX, mCentralY);
         }
         this.setBackgroundDrawable(new BitmapDrawable(mMapBitmap));
     }
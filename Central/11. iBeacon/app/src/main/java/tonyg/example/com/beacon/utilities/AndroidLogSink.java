@@ -0,0 +1,17 @@
+package tonyg.example.com.beacon.utilities;
+
+import android.util.Log;
+
+
+/**
+ * Write Logger messages to logcat
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class AndroidLogSink implements Logger.Sink {
+    @Override
+    public void println(int level, String tag, String message) {
+        Log.println(level, tag, message);
+    }
+}
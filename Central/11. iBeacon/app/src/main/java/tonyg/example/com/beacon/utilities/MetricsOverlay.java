@@ -0,0 +1,132 @@
+package tonyg.example.com.beacon.utilities;
+
+import android.os.Handler;
+import android.os.SystemClock;
+import android.view.View;
+import android.widget.TextView;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import tonyg.example.com.beacon.metrics.BeaconMetrics;
+import tonyg.example.com.beacon.metrics.MetricsCsvWriter;
+import tonyg.example.com.beacon.metrics.MetricsSnapshot;
+
+
+/**
+ * While shown, snapshot the pipeline metrics once a second, display them over the map,
+ * and append them to a CSV file for comparing devices.
+ *
+ * The CSV file is only touched on a background thread, so the main thread never waits on storage.
+ * Call release() when done with the overlay.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class MetricsOverlay {
+    private static final String TAG = MetricsOverlay.class.getSimpleName();
+    private static final long SNAPSHOT_INTERVAL_MILLIS = 1000;
+
+    private final TextView mTextView;
+    private final File mExportFile;
+    private final String mDevice;
+    private final Handler mHandler = new Handler();
+    private final ExecutorService mCsvExecutor = Executors.newSingleThreadExecutor();
+    private MetricsCsvWriter mCsvWriter; // only used on mCsvExecutor. Not null while shown, unless the file could not be opened
+
+    private final Runnable mSnapshotTask = new Runnable() {
+        @Override
+        public void run() {
+            update();
+            mHandler.postAtTime(this, SystemClock.uptimeMillis() + SNAPSHOT_INTERVAL_MILLIS);
+        }
+    };
+
+    /**
+     * Create an overlay
+     *
+     * @param textView where to show the metrics
+     * @param exportFile the CSV file to append to
+     * @param device identifies this device in the CSV file
+     */
+    public MetricsOverlay(TextView textView, File exportFile, String device) {
+        mTextView = textView;
+        mExportFile = exportFile;
+        mDevice = device;
+    }
+
+    public boolean isShown() {
+        return mTextView.getVisibility() == View.VISIBLE;
+    }
+
+    public void show() {
+        if (isShown()) {
+            return;
+        }
+        mCsvExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    mCsvWriter = MetricsCsvWriter.open(mExportFile, mDevice);
+                } catch (IOException e) {
+                    Logger.w(TAG, "Could not open " + mExportFile + ": " + e.getMessage());
+                }
+            }
+        });
+        BeaconMetrics.REGISTRY.snapshot(System.currentTimeMillis()); // start the first interval now
+        mTextView.setVisibility(View.VISIBLE);
+        mHandler.postDelayed(mSnapshotTask, SNAPSHOT_INTERVAL_MILLIS);
+    }
+
+    public void hide() {
+        mHandler.removeCallbacks(mSnapshotTask);
+        mTextView.setVisibility(View.GONE);
+        mCsvExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                closeCsvWriter();
+            }
+        });
+    }
+
+    /**
+     * Hide the overlay, and stop the CSV thread once the file is closed
+     */
+    public void release() {
+        hide();
+        mCsvExecutor.shutdown();
+    }
+
+    private void closeCsvWriter() {
+        if (mCsvWriter != null) {
+            try {
+                mCsvWriter.close();
+            } catch (IOException e) {
+                Logger.w(TAG, "Could not close " + mExportFile + ": " + e.getMessage());
+            }
+            mCsvWriter = null;
+        }
+    }
+
+    private void update() {
+        final MetricsSnapshot snapshot = BeaconMetrics.REGISTRY.snapshot(System.currentTimeMillis());
+        mTextView.setText(String.format(Locale.US, "%sregistry.hit_rate %.2f",
+                snapshot, BeaconMetrics.getDeduplicationHitRate(snapshot)));
+        mCsvExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (mCsvWriter != null) {
+                    try {
+                        mCsvWriter.write(snapshot);
+                    } catch (IOException e) {
+                        Logger.w(TAG, "Stopped exporting metrics: " + e.getMessage());
+                        closeCsvWriter();
+                    }
+                }
+            }
+        });
+    }
+}
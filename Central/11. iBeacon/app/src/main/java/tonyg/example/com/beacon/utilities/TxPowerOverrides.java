@@ -0,0 +1,89 @@
+package tonyg.example.com.beacon.utilities;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import tonyg.example.com.beacon.ble.IBeacon;
+import tonyg.example.com.beacon.pipeline.FilterStage;
+
+
+/**
+ * Calibrated TX Powers for individual iBeacons, used instead of the TX Power they advertise.
+ *
+ * The overrides are saved in SharedPreferences and loaded once, so applying them on discovery
+ * does not touch the disk.  Overrides are applied on the filter stage's thread and changed
+ * on the UI thread, so every method is synchronized.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class TxPowerOverrides implements FilterStage.NewIBeaconListener {
+    private static final String PREFERENCES_NAME = "tx_power_overrides";
+
+    private final SharedPreferences mPreferences;
+    private final HashMap<String, Integer> mOverrides = new HashMap<String, Integer>();
+
+    /**
+     * Load the saved overrides
+     *
+     * @param context the Activity context
+     */
+    public TxPowerOverrides(Context context) {
+        mPreferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        for (Map.Entry<String, ?> entry : mPreferences.getAll().entrySet()) {
+            if (entry.getValue() instanceof Integer) {
+                mOverrides.put(entry.getKey(), (Integer) entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Use an iBeacon's calibrated TX Power, if it has one
+     *
+     * @param iBeacon a newly discovered iBeacon
+     * @return <b>true</b> if the iBeacon has a calibrated TX Power
+     */
+    public synchronized boolean apply(IBeacon iBeacon) {
+        Integer transmissionPower = mOverrides.get(getKey(iBeacon));
+        if (transmissionPower == null) {
+            return false;
+        }
+        iBeacon.setTransmissionPower(transmissionPower);
+        return true;
+    }
+
+    /**
+     * Save an iBeacon's calibrated TX Power
+     *
+     * @param iBeacon the iBeacon
+     * @param transmissionPower the RSSI measured at 1 meter
+     */
+    public synchronized void put(IBeacon iBeacon, int transmissionPower) {
+        String key = getKey(iBeacon);
+        mOverrides.put(key, transmissionPower);
+        mPreferences.edit().putInt(key, transmissionPower).apply();
+    }
+
+    /**
+     * Go back to the TX Power an iBeacon advertises
+     *
+     * @param iBeacon the iBeacon
+     */
+    public synchronized void remove(IBeacon iBeacon) {
+        String key = getKey(iBeacon);
+        mOverrides.remove(key);
+        mPreferences.edit().remove(key).apply();
+    }
+
+    @Override
+    public void onNewIBeacon(IBeacon iBeacon) {
+        apply(iBeacon);
+    }
+
+    private static String getKey(IBeacon iBeacon) {
+        return iBeacon.getUuidString() + ":" + iBeacon.getMajor() + ":" + iBeacon.getMinor();
+    }
+}
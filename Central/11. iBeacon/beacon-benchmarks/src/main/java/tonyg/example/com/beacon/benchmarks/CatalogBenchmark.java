@@ -0,0 +1,84 @@
+package tonyg.example.com.beacon.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import tonyg.example.com.beacon.catalog.BeaconCatalog;
+import tonyg.example.com.beacon.catalog.BeaconCatalogWriter;
+import tonyg.example.com.beacon.catalog.CatalogEntry;
+
+
+/**
+ * Open a beacon catalog and look beacons up, as installations grow
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CatalogBenchmark {
+    private static final UUID UUID_1 = UUID.fromString("e20a39f4-73f5-4bc4-a12f-17d1ad07a961");
+    private static final int LOOKUP_COUNT = 4096;
+
+    @Param({ "100", "10000", "100000" })
+    public int beaconCount;
+
+    private File mFile;
+    private BeaconCatalog mCatalog;
+    private CatalogEntry mEntry;
+    private int[] mMinors;
+    private int mIndex = 0;
+
+    @Setup
+    public void setUp() throws Exception {
+        BeaconCatalogWriter writer = new BeaconCatalogWriter();
+        for (int index = 0; index < beaconCount; index++) {
+            writer.add(UUID_1, index >>> 16, index & 0xFFFF, index % 100, index / 100, 0,
+                    BeaconCatalogWriter.NO_TRANSMISSION_POWER, "Beacon " + index);
+        }
+        mFile = File.createTempFile("beacons", ".catalog");
+        writer.write(mFile);
+        mCatalog = BeaconCatalog.open(mFile);
+        mEntry = new CatalogEntry();
+
+        mMinors = new int[LOOKUP_COUNT];
+        for (int index = 0; index < LOOKUP_COUNT; index++) {
+            mMinors[index] = (int) ((index * 2654435761L) % beaconCount);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        mFile.delete();
+    }
+
+    /** Startup cost: should not grow with the number of beacons **/
+    @Benchmark
+    public BeaconCatalog open() throws Exception {
+        return BeaconCatalog.open(mFile);
+    }
+
+    @Benchmark
+    public boolean find() {
+        int index = mMinors[mIndex = (mIndex + 1) & (LOOKUP_COUNT - 1)];
+        return mCatalog.find(UUID_1, index >>> 16, index & 0xFFFF, mEntry);
+    }
+}
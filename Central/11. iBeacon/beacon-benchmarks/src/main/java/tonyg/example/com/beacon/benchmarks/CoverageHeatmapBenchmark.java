@@ -0,0 +1,85 @@
+package tonyg.example.com.beacon.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import tonyg.example.com.beacon.utilities.CoverageHeatmap;
+
+
+/**
+ * Recompute the coverage heatmap: every tile, as after the heatmap is switched on, and only the
+ * tiles around one beacon that moved, as after a typical snapshot
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CoverageHeatmapBenchmark {
+    private static final double SIZE_M = 20;
+    private static final double CELL_M = 0.1; // 200 x 200 cells
+    private static final int TILE_SIZE = 16;
+
+    @Param({ "3", "10", "30" })
+    public int beaconCount;
+
+    @Param({ "0", "1" }) // CoverageHeatmap.MODE_RSSI, MODE_POSITION_ERROR
+    public int mode;
+
+    private CoverageHeatmap mHeatmap;
+    private double[] mX, mY;
+    private int mMoves = 0;
+
+    @Setup
+    public void setUp() throws Exception {
+        mHeatmap = new CoverageHeatmap(0, 0, SIZE_M, SIZE_M, CELL_M, TILE_SIZE, mode);
+        Random random = new Random(42);
+        mX = new double[beaconCount];
+        mY = new double[beaconCount];
+        for (int beacon = 0; beacon < beaconCount; beacon++) {
+            mX[beacon] = random.nextDouble() * SIZE_M;
+            mY[beacon] = random.nextDouble() * SIZE_M;
+            // weaker beacons reach fewer tiles
+            mHeatmap.putBeacon(beacon, mX[beacon], mY[beacon], -70 - random.nextInt(20));
+        }
+        mHeatmap.update();
+    }
+
+    @TearDown
+    public void tearDown() {
+        mHeatmap.shutdown();
+    }
+
+    @Benchmark
+    public int updateEveryTile() throws Exception {
+        mHeatmap.setRssiDeviation(CoverageHeatmap.DEFAULT_RSSI_DEVIATION); // invalidates every tile
+        return mHeatmap.update();
+    }
+
+    @Benchmark
+    public int updateAfterOneBeaconMoved() throws Exception {
+        int beacon = mMoves % beaconCount;
+        // back and forth by 10 cm, so the layout never drifts
+        double offset = ((mMoves / beaconCount) & 1) == 0 ? CELL_M : 0;
+        mMoves++;
+        mHeatmap.putBeacon(beacon, mX[beacon] + offset, mY[beacon], -80);
+        return mHeatmap.update();
+    }
+}
@@ -0,0 +1,103 @@
+package tonyg.example.com.beacon.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+import tonyg.example.com.blecodec.DataConverter;
+
+
+/**
+ * The shared DataConverter against the per-app copies it replaced.  The legacy methods need the
+ * field copied out of the Scan Record first, so that copy is part of what they are charged for.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataConverterBenchmark {
+    private static final int SCAN_COUNT = 4096; // a power of two, so the index wraps with a mask
+    private static final int UUID_POSITION = 9; // after the flags and the iBeacon prefix
+    private static final int MAJOR_NUMBER_POSITION = 25;
+
+    private byte[][] mScanRecords;
+    private String[] mHexStrings;
+    private char[] mHexChars;
+    private byte[] mDecoded;
+    private int mIndex = 0;
+
+    @Setup
+    public void setUp() throws Exception {
+        mScanRecords = new SyntheticScans(400, SCAN_COUNT).scanRecords;
+        mHexStrings = new String[SCAN_COUNT];
+        mHexChars = new char[mScanRecords[0].length * 2];
+        mDecoded = new byte[mScanRecords[0].length];
+        for (int index = 0; index < SCAN_COUNT; index++) {
+            DataConverter.encodeHex(mScanRecords[index], 0, mScanRecords[index].length, mHexChars, 0);
+            mHexStrings[index] = new String(mHexChars);
+        }
+    }
+
+    private int next() {
+        return mIndex = (mIndex + 1) & (SCAN_COUNT - 1);
+    }
+
+    @Benchmark
+    public UUID legacyBytesToUuid() {
+        byte[] scanRecord = mScanRecords[next()];
+        return LegacyDataConverter.bytesToUuid(Arrays.copyOfRange(scanRecord, UUID_POSITION, UUID_POSITION + 16));
+    }
+
+    @Benchmark
+    public UUID readUuid() {
+        return DataConverter.readUuid(mScanRecords[next()], UUID_POSITION);
+    }
+
+    @Benchmark
+    public int legacyBytesToUnsignedInt() {
+        byte[] scanRecord = mScanRecords[next()];
+        return LegacyDataConverter.bytesToUnsignedInt(Arrays.copyOfRange(scanRecord, MAJOR_NUMBER_POSITION, MAJOR_NUMBER_POSITION + 2));
+    }
+
+    @Benchmark
+    public int readU16BE() {
+        return DataConverter.readU16BE(mScanRecords[next()], MAJOR_NUMBER_POSITION);
+    }
+
+    @Benchmark
+    public String legacyBytesToHex() {
+        return LegacyDataConverter.bytesToHex(mScanRecords[next()]);
+    }
+
+    @Benchmark
+    public char[] encodeHex() {
+        byte[] scanRecord = mScanRecords[next()];
+        DataConverter.encodeHex(scanRecord, 0, scanRecord.length, mHexChars, 0);
+        return mHexChars;
+    }
+
+    @Benchmark
+    public byte[] legacyHexToBytes() {
+        return LegacyDataConverter.hexToBytes(mHexStrings[next()]);
+    }
+
+    @Benchmark
+    public byte[] decodeHex() {
+        String hex = mHexStrings[next()];
+        DataConverter.decodeHex(hex, 0, hex.length(), mDecoded, 0);
+        return mDecoded;
+    }
+}
@@ -0,0 +1,76 @@
+package tonyg.example.com.beacon.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tonyg.example.com.beacon.ble.IBeacon;
+import tonyg.example.com.beacon.ble.IBeaconRegistry;
+import tonyg.example.com.blecodec.codecs.BeaconCodecRegistry;
+import tonyg.example.com.blecodec.codecs.BeaconFrame;
+
+
+/**
+ * Find the known iBeacon for a sighting, as fleets grow
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeduplicateBenchmark {
+    private static final int SCAN_COUNT = 4096;
+
+    @Param({ "10", "100", "1000" })
+    public int beaconCount;
+
+    private byte[][] mScanRecords;
+    private IBeacon[] mSightings;
+    private IBeaconRegistry mRegistry;
+    private BeaconCodecRegistry mCodecs;
+    private BeaconFrame mFrame;
+    private int mIndex = 0;
+
+    @Setup
+    public void setUp() throws Exception {
+        SyntheticScans scans = new SyntheticScans(beaconCount, SCAN_COUNT);
+        mScanRecords = scans.scanRecords;
+        mSightings = new IBeacon[SCAN_COUNT];
+        mRegistry = new IBeaconRegistry();
+        for (int index = 0; index < SCAN_COUNT; index++) {
+            mSightings[index] = IBeacon.fromScanRecord(mScanRecords[index]);
+            IBeacon known = IBeacon.fromScanRecord(mScanRecords[index]);
+            known.setRssi(scans.rssis[index]);
+            mRegistry.add(known);
+        }
+        mCodecs = BeaconCodecRegistry.createDefault();
+        mFrame = new BeaconFrame();
+    }
+
+    private int next() {
+        return mIndex = (mIndex + 1) & (SCAN_COUNT - 1);
+    }
+
+    /** The hash probe alone **/
+    @Benchmark
+    public IBeacon lookup() {
+        return mRegistry.get(mSightings[next()]);
+    }
+
+    /** From Scan Record to the known iBeacon **/
+    @Benchmark
+    public IBeacon decodeAndLookup() {
+        mCodecs.decode(mScanRecords[next()], mFrame);
+        return mRegistry.get(IBeacon.fromFrame(mFrame));
+    }
+}
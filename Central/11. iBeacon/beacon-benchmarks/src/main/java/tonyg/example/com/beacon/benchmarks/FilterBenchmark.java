@@ -0,0 +1,74 @@
+package tonyg.example.com.beacon.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+
+import tonyg.example.com.beacon.ble.IBeacon;
+import tonyg.example.com.beacon.ble.IBeaconRegistry;
+
+
+/**
+ * Smooth each new RSSI and keep the iBeacons ordered by distance
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterBenchmark {
+    private static final int SCAN_COUNT = 4096;
+
+    @Param({ "10", "100", "1000" })
+    public int beaconCount;
+
+    private IBeacon[] mKnownIBeacons; // the registry's entry for each scan
+    private int[] mRssis;
+    private IBeaconRegistry mRegistry;
+    private ArrayList<IBeacon> mNearest = new ArrayList<IBeacon>();
+    private int mIndex = 0;
+
+    @Setup
+    public void setUp() throws Exception {
+        SyntheticScans scans = new SyntheticScans(beaconCount, SCAN_COUNT);
+        mRssis = scans.rssis;
+        mKnownIBeacons = new IBeacon[SCAN_COUNT];
+        mRegistry = new IBeaconRegistry();
+        for (int index = 0; index < SCAN_COUNT; index++) {
+            IBeacon iBeacon = IBeacon.fromScanRecord(scans.scanRecords[index]);
+            iBeacon.setRssi(mRssis[index]);
+            mRegistry.add(iBeacon);
+            mKnownIBeacons[index] = mRegistry.get(iBeacon);
+        }
+    }
+
+    private int next() {
+        return mIndex = (mIndex + 1) & (SCAN_COUNT - 1);
+    }
+
+    @Benchmark
+    public IBeacon updateRssi() {
+        int index = next();
+        mRegistry.updateRssi(mKnownIBeacons[index], mRssis[index]);
+        return mKnownIBeacons[index];
+    }
+
+    @Benchmark
+    public ArrayList<IBeacon> updateRssiAndGetNearest() {
+        int index = next();
+        mRegistry.updateRssi(mKnownIBeacons[index], mRssis[index]);
+        return mRegistry.getNearest(3, mNearest);
+    }
+}
@@ -0,0 +1,57 @@
+package tonyg.example.com.beacon.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.UUID;
+
+/**
+ * The DataConverter that was copied into each app before the shared ble-codec library,
+ * kept here as the baseline for DataConverterBenchmark
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+class LegacyDataConverter {
+    final protected static char[] hexArray = "0123456789ABCDEF".toCharArray();
+
+    static String bytesToHex(byte[] bytes) {
+        char[] hexChars = new char[bytes.length * 3];
+        for ( int j = 0; j < bytes.length; j++ ) {
+            int v = bytes[j] & 0xFF;
+            hexChars[j * 3] = hexArray[v >>> 4];
+            hexChars[j * 3 + 1] = hexArray[v & 0x0F];
+            hexChars[j * 3 + 2] = 0x20; // space
+        }
+        return new String(hexChars);
+    }
+
+    static byte[] hexToBytes(String hexString) {
+        int len = hexString.length();
+        byte[] data = new byte[len / 2];
+        for (int i = 0; i < len; i += 2) {
+            data[i / 2] = (byte) ((Character.digit(hexString.charAt(i), 16) << 4)
+                    + Character.digit(hexString.charAt(i+1), 16));
+        }
+        return data;
+    }
+
+    static int bytesToUnsignedInt(byte[] bytes) {
+        if (bytes.length < 2) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.order(ByteOrder.BIG_ENDIAN);
+
+
+        int intValue = (int) buffer.getChar();
+        if (intValue < 0) intValue = intValue & 0xffffffff;
+        return intValue;
+    }
+
+    static UUID bytesToUuid(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        UUID uuid = new UUID(buffer.getLong(), buffer.getLong());
+        return uuid;
+    }
+}
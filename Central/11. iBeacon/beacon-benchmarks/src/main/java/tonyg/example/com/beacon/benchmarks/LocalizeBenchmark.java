@@ -0,0 +1,68 @@
+package tonyg.example.com.beacon.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import tonyg.example.com.beacon.ble.IBeacon;
+import tonyg.example.com.beacon.simulation.FloorPlan;
+import tonyg.example.com.beacon.utilities.IBeaconLocator;
+
+
+/**
+ * Trilaterate the Central from its three nearest iBeacons
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LocalizeBenchmark {
+    private static final int TRIPLET_COUNT = 1024;
+
+    private ArrayList<ArrayList<IBeacon>> mTriplets;
+    private int mIndex = 0;
+
+    @Setup
+    public void setUp() throws Exception {
+        // three beacons around random spots in the grid, with RSSIs from the radio model's noise-free path loss
+        FloorPlan floorPlan = new SyntheticScans(100, 1).floorPlan;
+        Random random = new Random(42);
+        mTriplets = new ArrayList<ArrayList<IBeacon>>(TRIPLET_COUNT);
+        for (int triplet = 0; triplet < TRIPLET_COUNT; triplet++) {
+            double centralX = random.nextDouble() * 40;
+            double centralY = random.nextDouble() * 40;
+            int column = (int) (centralX / SyntheticScans.BEACON_SPACING);
+            int row = (int) (centralY / SyntheticScans.BEACON_SPACING);
+            int[] beacons = { row * 10 + column, row * 10 + column + 1, (row + 1) * 10 + column };
+            ArrayList<IBeacon> iBeacons = new ArrayList<IBeacon>(3);
+            for (int beacon : beacons) {
+                IBeacon iBeacon = new IBeacon();
+                iBeacon.setTransmissionPower(floorPlan.getTransmissionPower(beacon));
+                iBeacon.setLocation(floorPlan.getX(beacon), floorPlan.getY(beacon));
+                double distance = Math.hypot(floorPlan.getX(beacon) - centralX, floorPlan.getY(beacon) - centralY);
+                iBeacon.setRssi((int) Math.round(iBeacon.getTransmissionPower() - 10 * IBeacon.RADIO_PROPAGATION_CONSTANT * Math.log10(Math.max(0.1, distance))));
+                iBeacons.add(iBeacon);
+            }
+            mTriplets.add(iBeacons);
+        }
+    }
+
+    @Benchmark
+    public double[] trilaterate() throws Exception {
+        mIndex = (mIndex + 1) & (TRIPLET_COUNT - 1);
+        return IBeaconLocator.trilaterate(mTriplets.get(mIndex));
+    }
+}
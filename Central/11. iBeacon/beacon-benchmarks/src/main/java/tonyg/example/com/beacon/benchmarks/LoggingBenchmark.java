@@ -0,0 +1,74 @@
+package tonyg.example.com.beacon.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tonyg.example.com.beacon.utilities.Logger;
+
+
+/**
+ * The per-advertisement logging in onIBeaconDiscovered, before and after the Logger.
+ * android.util.Log.v does not check the level before sending, so the concatenated message was
+ * always built; that is what concatenated() measures, whatever the level.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoggingBenchmark implements Logger.Sink {
+    private static final String TAG = LoggingBenchmark.class.getSimpleName();
+    private static final int SCAN_COUNT = 4096; // a power of two, so the index wraps with a mask
+
+    /** Logger.VERBOSE logs every advertisement, Logger.INFO is what release builds use **/
+    @Param({"2", "4"})
+    public int level;
+
+    private byte[][] mScanRecords;
+    private String mLastMessage;
+    private int mIndex = 0;
+
+    @Setup
+    public void setUp() throws Exception {
+        mScanRecords = new SyntheticScans(400, SCAN_COUNT).scanRecords;
+        Logger.configure(this, level);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Logger.configure(null, Logger.NONE);
+    }
+
+    @Override
+    public void println(int level, String tag, String message) {
+        mLastMessage = message;
+    }
+
+    private int next() {
+        return mIndex = (mIndex + 1) & (SCAN_COUNT - 1);
+    }
+
+    @Benchmark
+    public String concatenated() {
+        println(Logger.VERBOSE, TAG, "iBeacon discovered, GAP: " + LegacyDataConverter.bytesToHex(mScanRecords[next()]));
+        return mLastMessage;
+    }
+
+    @Benchmark
+    public String parameterized() {
+        Logger.v(TAG, "iBeacon discovered, GAP: {}", mScanRecords[next()]);
+        return mLastMessage;
+    }
+}
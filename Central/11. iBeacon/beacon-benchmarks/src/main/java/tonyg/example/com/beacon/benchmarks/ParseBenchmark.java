@@ -0,0 +1,82 @@
+package tonyg.example.com.beacon.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+import tonyg.example.com.beacon.ble.IBeacon;
+import tonyg.example.com.blecodec.codecs.BeaconCodecRegistry;
+import tonyg.example.com.blecodec.codecs.BeaconFrame;
+import tonyg.example.com.blecodec.DataConverter;
+
+
+/**
+ * Turn Scan Records into beacon identities
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+    private static final int SCAN_COUNT = 4096; // a power of two, so the index wraps with a mask
+    private static final int UUID_POSITION = 9; // after the flags and the iBeacon prefix
+
+    private byte[][] mScanRecords;
+    private byte[][] mUuidBytes;
+    private BeaconCodecRegistry mCodecs;
+    private BeaconFrame mFrame;
+    private int mIndex = 0;
+
+    @Setup
+    public void setUp() throws Exception {
+        mScanRecords = new SyntheticScans(400, SCAN_COUNT).scanRecords;
+        mUuidBytes = new byte[SCAN_COUNT][];
+        for (int index = 0; index < SCAN_COUNT; index++) {
+            mUuidBytes[index] = Arrays.copyOfRange(mScanRecords[index], UUID_POSITION, UUID_POSITION + 16);
+        }
+        mCodecs = BeaconCodecRegistry.createDefault();
+        mFrame = new BeaconFrame();
+    }
+
+    private int next() {
+        return mIndex = (mIndex + 1) & (SCAN_COUNT - 1);
+    }
+
+    /** What the app did per scan before the codec registry: allocate a frame and an IBeacon **/
+    @Benchmark
+    public IBeacon fromScanRecord() throws Exception {
+        return IBeacon.fromScanRecord(mScanRecords[next()]);
+    }
+
+    /** One pass over the Scan Record into a reused frame **/
+    @Benchmark
+    public int decodeIntoFrame() {
+        mCodecs.decode(mScanRecords[next()], mFrame);
+        return mFrame.getId3();
+    }
+
+    /** Decode, then build the IBeacon the registry is keyed by **/
+    @Benchmark
+    public IBeacon decodeAndBuild() {
+        mCodecs.decode(mScanRecords[next()], mFrame);
+        return IBeacon.fromFrame(mFrame);
+    }
+
+    @Benchmark
+    public UUID bytesToUuid() {
+        return DataConverter.bytesToUuid(mUuidBytes[next()]);
+    }
+}
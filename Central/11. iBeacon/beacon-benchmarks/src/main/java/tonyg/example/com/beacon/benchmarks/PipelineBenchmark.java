@@ -0,0 +1,85 @@
+package tonyg.example.com.beacon.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+
+import tonyg.example.com.beacon.ble.IBeacon;
+import tonyg.example.com.beacon.ble.IBeaconRegistry;
+import tonyg.example.com.beacon.utilities.IBeaconLocator;
+import tonyg.example.com.blecodec.codecs.BeaconCodecRegistry;
+import tonyg.example.com.blecodec.codecs.BeaconFrame;
+
+
+/**
+ * Scan to position: the work MainActivity.onIBeaconDiscovered() does for each scan result,
+ * without the UI.  Each invocation replays a whole recorded walk into an empty registry,
+ * so the score is scan results per second.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineBenchmark {
+    private static final int SCAN_COUNT = 10000;
+    private static final int MIN_IBEACONS_FOR_TRILATERATION = 3;
+
+    @Param({ "100", "1000" })
+    public int beaconCount;
+
+    private SyntheticScans mScans;
+    private BeaconCodecRegistry mCodecs;
+    private BeaconFrame mFrame;
+    private ArrayList<IBeacon> mNearest = new ArrayList<IBeacon>(MIN_IBEACONS_FOR_TRILATERATION);
+
+    @Setup
+    public void setUp() throws Exception {
+        mScans = new SyntheticScans(beaconCount, SCAN_COUNT);
+        mCodecs = BeaconCodecRegistry.createDefault();
+        mFrame = new BeaconFrame();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SCAN_COUNT)
+    public double scanToPosition() throws Exception {
+        IBeaconRegistry registry = new IBeaconRegistry();
+        double checksum = 0;
+        for (int index = 0; index < SCAN_COUNT; index++) {
+            if (!mCodecs.decode(mScans.scanRecords[index], mFrame) || !mFrame.hasIdentity()) {
+                continue;
+            }
+            IBeacon iBeacon = IBeacon.fromFrame(mFrame);
+            IBeacon knownIBeacon = registry.get(iBeacon);
+            if (knownIBeacon == null) {
+                iBeacon.setMacAddress(mScans.macAddresses[index]);
+                iBeacon.setRssi(mScans.rssis[index]);
+                int beacon = iBeacon.getMinor();
+                iBeacon.setLocation(mScans.floorPlan.getX(beacon), mScans.floorPlan.getY(beacon));
+                registry.add(iBeacon);
+            } else {
+                registry.updateRssi(knownIBeacon, mScans.rssis[index]);
+            }
+            if (registry.size() >= MIN_IBEACONS_FOR_TRILATERATION) {
+                double[] position = IBeaconLocator.trilaterate(registry.getNearest(MIN_IBEACONS_FOR_TRILATERATION, mNearest));
+                if (!Double.isNaN(position[0])) { // three beacons in a line give no position
+                    checksum += position[0];
+                }
+            }
+        }
+        return checksum;
+    }
+}
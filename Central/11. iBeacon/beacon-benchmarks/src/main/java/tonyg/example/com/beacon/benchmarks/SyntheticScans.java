@@ -0,0 +1,90 @@
+package tonyg.example.com.beacon.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import tonyg.example.com.beacon.simulation.FleetGenerator;
+import tonyg.example.com.beacon.simulation.FloorPlan;
+import tonyg.example.com.beacon.simulation.RadioModel;
+import tonyg.example.com.beacon.simulation.ScanRecordSink;
+import tonyg.example.com.beacon.simulation.SightingSink;
+import tonyg.example.com.beacon.simulation.Trajectory;
+
+
+/**
+ * Scan results recorded from a simulated walk through a grid of beacons, for the benchmarks to replay.
+ * The same seed always gives the same scans.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class SyntheticScans {
+    /** Constants **/
+    public static final UUID PROXIMITY_UUID = UUID.fromString("e20a39f4-73f5-4bc4-a12f-17d1ad07a961");
+    public static final int TRANSMISSION_POWER = -59;
+    public static final double BEACON_SPACING = 5; // meters
+    private static final long SEED = 42;
+
+    public final FloorPlan floorPlan;
+    public final String[] macAddresses;
+    public final byte[][] scanRecords;
+    public final int[] rssis;
+
+    /**
+     * Record scans
+     *
+     * @param beaconCount number of beacons, laid out in a square grid
+     * @param scanCount number of scan results to keep
+     * @throws Exception if the walk produced too few scans
+     */
+    public SyntheticScans(int beaconCount, final int scanCount) throws Exception {
+        int columns = (int) Math.ceil(Math.sqrt(beaconCount));
+        floorPlan = FloorPlan.createGrid(PROXIMITY_UUID, 1, columns, (beaconCount + columns - 1) / columns, BEACON_SPACING, TRANSMISSION_POWER);
+        double size = (columns - 1) * BEACON_SPACING;
+        List<Trajectory> trajectories = Collections.singletonList(
+                new Trajectory(new double[] { 0, 0, size, 0, size, size, 0, size }, Trajectory.WALKING_SPEED));
+
+        final ArrayList<String> macAddresses = new ArrayList<String>(scanCount);
+        final ArrayList<byte[]> scanRecords = new ArrayList<byte[]>(scanCount);
+        final ArrayList<Integer> rssis = new ArrayList<Integer>(scanCount);
+        final ScanRecordSink.Listener listener = new ScanRecordSink.Listener() {
+            @Override
+            public void onIBeaconDiscovered(String macAddress, byte[] scanRecord, int rssi) {
+                if (scanRecords.size() < scanCount) {
+                    macAddresses.add(macAddress);
+                    scanRecords.add(scanRecord.clone()); // a copy each, as a real scan delivers
+                    rssis.add(rssi);
+                }
+            }
+        };
+
+        FleetGenerator generator = new FleetGenerator(floorPlan, trajectories, new RadioModel());
+        generator.setSeed(SEED);
+        // one thread, so the listener is only called from one thread at a time
+        long durationMillis = 60 * 1000;
+        while (scanRecords.size() < scanCount && durationMillis <= 24 * 60 * 60 * 1000) {
+            scanRecords.clear();
+            macAddresses.clear();
+            rssis.clear();
+            generator.generate(durationMillis, 1, new SightingSink.Factory() {
+                @Override
+                public SightingSink createSink(int partition) {
+                    return new ScanRecordSink(floorPlan, listener);
+                }
+            });
+            durationMillis *= 4;
+        }
+        if (scanRecords.size() < scanCount) {
+            throw new Exception("Only " + scanRecords.size() + " scans generated");
+        }
+
+        this.macAddresses = macAddresses.toArray(new String[scanCount]);
+        this.scanRecords = scanRecords.toArray(new byte[scanCount][]);
+        this.rssis = new int[scanCount];
+        for (int index = 0; index < scanCount; index++) {
+            this.rssis[index] = rssis.get(index);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package tonyg.example.com.beacon.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import tonyg.example.com.beacon.simulation.FleetGenerator;
+import tonyg.example.com.beacon.simulation.FloorPlan;
+import tonyg.example.com.beacon.simulation.RadioModel;
+import tonyg.example.com.beacon.simulation.ScanRecordSink;
+import tonyg.example.com.beacon.simulation.SightingSink;
+import tonyg.example.com.beacon.simulation.TraceMerger;
+import tonyg.example.com.beacon.simulation.TraceReader;
+import tonyg.example.com.beacon.simulation.TraceWriter;
+import tonyg.example.com.beacon.simulation.Trajectory;
+import tonyg.example.com.blecodec.codecs.BeaconCodecRegistry;
+import tonyg.example.com.blecodec.codecs.BeaconFrame;
+
+
+/**
+ * Replay a recorded run of Centrals walking through a grid of beacons.  The run is generated
+ * into one trace per partition and merged once, in setup, so each invocation measures only
+ * reading the trace, and what is done with each sighting.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TraceReplayBenchmark {
+    private static final long DURATION_MILLIS = 5 * 60 * 1000;
+    private static final long SEED = 42;
+
+    @Param({ "1", "8" })
+    public int centralCount;
+
+    private byte[] mTrace;
+    private long mRssiSum;
+    private BeaconCodecRegistry mCodecs;
+    private BeaconFrame mFrame;
+
+    @Setup
+    public void setUp() throws Exception {
+        final FloorPlan floorPlan = FloorPlan.createGrid(SyntheticScans.PROXIMITY_UUID, 1, 10, 10, SyntheticScans.BEACON_SPACING, SyntheticScans.TRANSMISSION_POWER);
+        double size = 9 * SyntheticScans.BEACON_SPACING;
+        List<Trajectory> trajectories = new ArrayList<Trajectory>();
+        for (int central = 0; central < centralCount; central++) {
+            double offset = central * size / centralCount;
+            trajectories.add(new Trajectory(new double[] { offset, 0, size, offset, size - offset, size, 0, size - offset }, Trajectory.WALKING_SPEED));
+        }
+        FleetGenerator generator = new FleetGenerator(floorPlan, trajectories, new RadioModel());
+        generator.setSeed(SEED);
+
+        final ByteArrayOutputStream[] outputs = new ByteArrayOutputStream[generator.getPartitionCount(DURATION_MILLIS)];
+        generator.generate(DURATION_MILLIS, Runtime.getRuntime().availableProcessors(), new SightingSink.Factory() {
+            @Override
+            public SightingSink createSink(int partition) throws Exception {
+                outputs[partition] = new ByteArrayOutputStream();
+                return new TraceWriter(outputs[partition], floorPlan);
+            }
+        });
+        List<InputStream> partitions = new ArrayList<InputStream>(outputs.length);
+        for (ByteArrayOutputStream output : outputs) {
+            partitions.add(new ByteArrayInputStream(output.toByteArray()));
+        }
+        ByteArrayOutputStream merged = new ByteArrayOutputStream();
+        TraceMerger.merge(partitions, merged);
+        mTrace = merged.toByteArray();
+
+        mCodecs = BeaconCodecRegistry.createDefault();
+        mFrame = new BeaconFrame();
+    }
+
+    /** Decode the records alone **/
+    @Benchmark
+    public long readTrace() throws Exception {
+        mRssiSum = 0;
+        TraceReader reader = new TraceReader(new ByteArrayInputStream(mTrace));
+        reader.replay(new SightingSink() {
+            @Override
+            public void onSighting(long timeMillis, int observer, int beacon, int rssi) {
+                mRssiSum += rssi;
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        reader.close();
+        return mRssiSum;
+    }
+
+    /** Turn each record back into the Scan Record a Central receives, and decode it as the app does **/
+    @Benchmark
+    public long replayScanRecords() throws Exception {
+        mRssiSum = 0;
+        TraceReader reader = new TraceReader(new ByteArrayInputStream(mTrace));
+        reader.replay(new ScanRecordSink(reader.getFloorPlan(), new ScanRecordSink.Listener() {
+            @Override
+            public void onIBeaconDiscovered(String macAddress, byte[] scanRecord, int rssi) {
+                mCodecs.decode(scanRecord, mFrame);
+                mRssiSum += rssi + mFrame.getId3();
+            }
+        }));
+        reader.close();
+        return mRssiSum;
+    }
+}
@@ -0,0 +1,99 @@
+package tonyg.example.com.beacon.ble;
+
+import tonyg.example.com.blecodec.codecs.BeaconFrame;
+
+
+/**
+ * The latest telemetry received from one beacon.
+ *
+ * The TelemetryTracker updates it on the parse stage's thread.  Other threads get a copy(),
+ * which is never modified.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class BeaconTelemetry {
+    private int mBatteryMillivolts;
+    private double mTemperature = Double.NaN;
+    private long mAdvertisementCount;
+    private long mUptimeDeciseconds;
+    private long mReceivedAt;
+    private int mFrameCount = 0;
+    private int mRestartCount = 0;
+
+    // values from the previous frame, used to compute rates
+    private long mPreviousAdvertisementCount;
+    private long mPreviousUptimeDeciseconds;
+
+    private boolean mIsChanged = false; // since the last copy was taken
+
+    /**
+     * Record a telemetry frame
+     *
+     * @param frame an Eddystone-TLM frame
+     * @param timestampMillis when the frame was received
+     */
+    public void update(BeaconFrame frame, long timestampMillis) {
+        mReceivedAt = timestampMillis;
+        if (mFrameCount > 0 && frame.getUptimeDeciseconds() == mUptimeDeciseconds
+                && frame.getAdvertisementCount() == mAdvertisementCount
+                && frame.getBatteryMillivolts() == mBatteryMillivolts
+                && Double.compare(frame.getTemperature(), mTemperature) == 0) {
+            return; // the same frame again, as with every scan response until the beacon updates it
+        }
+        if (mFrameCount > 0 && frame.getUptimeDeciseconds() < mUptimeDeciseconds) {
+            mRestartCount++; // the uptime went backwards: the beacon restarted
+        }
+        mPreviousAdvertisementCount = mAdvertisementCount;
+        mPreviousUptimeDeciseconds = mUptimeDeciseconds;
+
+        mBatteryMillivolts = frame.getBatteryMillivolts();
+        mTemperature = frame.getTemperature();
+        mAdvertisementCount = frame.getAdvertisementCount();
+        mUptimeDeciseconds = frame.getUptimeDeciseconds();
+        mFrameCount++;
+        mIsChanged = true;
+    }
+
+    public int getBatteryMillivolts() { return mBatteryMillivolts; }
+    public double getTemperature() { return mTemperature; }
+    public long getAdvertisementCount() { return mAdvertisementCount; }
+    public long getUptimeDeciseconds() { return mUptimeDeciseconds; }
+    public long getReceivedAt() { return mReceivedAt; }
+    public int getFrameCount() { return mFrameCount; } // distinct frames
+    public int getRestartCount() { return mRestartCount; }
+    public boolean isChanged() { return mIsChanged; }
+
+    /**
+     * Get how many advertisements the beacon sends per second, from the last two frames
+     *
+     * @return advertisements per second, or NaN if not enough frames have been received
+     */
+    public double getAdvertisementRate() {
+        long uptime = mUptimeDeciseconds - mPreviousUptimeDeciseconds;
+        if (mFrameCount < 2 || uptime <= 0 || mAdvertisementCount < mPreviousAdvertisementCount) {
+            return Double.NaN;
+        }
+        return (mAdvertisementCount - mPreviousAdvertisementCount) * 10.0 / uptime;
+    }
+
+    /**
+     * Copy the telemetry, to hand to another thread, and mark it as unchanged
+     *
+     * @return the copy
+     */
+    public BeaconTelemetry copy() {
+        mIsChanged = false;
+        BeaconTelemetry copy = new BeaconTelemetry();
+        copy.mBatteryMillivolts = mBatteryMillivolts;
+        copy.mTemperature = mTemperature;
+        copy.mAdvertisementCount = mAdvertisementCount;
+        copy.mUptimeDeciseconds = mUptimeDeciseconds;
+        copy.mReceivedAt = mReceivedAt;
+        copy.mFrameCount = mFrameCount;
+        copy.mRestartCount = mRestartCount;
+        copy.mPreviousAdvertisementCount = mPreviousAdvertisementCount;
+        copy.mPreviousUptimeDeciseconds = mPreviousUptimeDeciseconds;
+        return copy;
+    }
+}
@@ -0,0 +1,172 @@
+package tonyg.example.com.beacon.ble;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.UUID;
+
+import tonyg.example.com.blecodec.EphemeralIdGenerator;
+
+
+/**
+ * Resolve the rotating identifiers advertised by registered beacons back to their fixed identity.
+ *
+ * The identifiers for the previous, current, and next few rotation periods of every registered
+ * beacon are computed ahead of time, so resolving a sighting is a hash lookup rather than an HMAC
+ * per advertisement.  The table is rolled forward lazily when a rotation period ends.
+ *
+ * Two beacons could derive the same 32-bit identifier in the same window.  The odds are
+ * negligible for small fleets; the later registration wins.
+ *
+ * Not thread safe.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class EphemeralIdResolver {
+    /** Constants **/
+    public static final int DEFAULT_LOOKAHEAD = 4; // upcoming periods precomputed, to tolerate a fast Peripheral clock
+
+    /**
+     * A registered beacon: its fixed identity and its key schedule
+     */
+    private static class Registration {
+        final UUID mUuid;
+        final int mMajor;
+        final int mMinor;
+        final EphemeralIdGenerator mGenerator;
+        final int[] mIdentifiers; // ring buffer indexed by counter
+        long mFirstCounter = -1; // oldest counter in the table
+        long mLastCounter = -1; // newest counter in the table
+
+        Registration(UUID uuid, int major, int minor, EphemeralIdGenerator generator, int windowSize) {
+            mUuid = uuid;
+            mMajor = major;
+            mMinor = minor;
+            mGenerator = generator;
+            mIdentifiers = new int[windowSize];
+        }
+    }
+
+    /**
+     * A precomputed identifier
+     */
+    private static class Entry {
+        final Registration mRegistration;
+        final long mCounter;
+
+        Entry(Registration registration, long counter) {
+            mRegistration = registration;
+            mCounter = counter;
+        }
+    }
+
+    private final int mLookahead;
+    private final ArrayList<Registration> mRegistrations = new ArrayList<Registration>();
+    private final HashMap<Integer, Entry> mTable = new HashMap<Integer, Entry>();
+    private long mNextRefreshTime = Long.MIN_VALUE;
+
+
+    public EphemeralIdResolver() {
+        this(DEFAULT_LOOKAHEAD);
+    }
+
+    /**
+     * Create a resolver
+     *
+     * @param lookahead how many upcoming rotation periods to precompute
+     */
+    public EphemeralIdResolver(int lookahead) {
+        if (lookahead < 1) {
+            throw new IllegalArgumentException("Lookahead must be at least 1");
+        }
+        mLookahead = lookahead;
+    }
+
+    /**
+     * Register a beacon that advertises rotating identifiers
+     *
+     * @param uuid the Proximity UUID it advertises
+     * @param major the fixed Major number to resolve it to
+     * @param minor the fixed Minor number to resolve it to
+     * @param secret the secret shared with the beacon
+     * @param rotationPeriodMillis how long the beacon advertises each identifier
+     */
+    public void register(UUID uuid, int major, int minor, byte[] secret, long rotationPeriodMillis) {
+        // the previous period is kept for a slow Peripheral clock
+        mRegistrations.add(new Registration(uuid, major, minor, new EphemeralIdGenerator(secret, rotationPeriodMillis), mLookahead + 2));
+        mNextRefreshTime = Long.MIN_VALUE;
+    }
+
+    /**
+     * Replace a sighting's rotating Major and Minor with the registered beacon's fixed ones
+     *
+     * @param iBeacon an iBeacon parsed from a Scan Record
+     * @param timeMillis wall clock time of the sighting, in milliseconds since the Unix epoch
+     * @return <b>true</b> if the iBeacon was resolved
+     */
+    public boolean resolve(IBeacon iBeacon, long timeMillis) {
+        if (mRegistrations.isEmpty()) {
+            return false;
+        }
+        if (timeMillis >= mNextRefreshTime) {
+            refresh(timeMillis);
+        }
+        Entry entry = mTable.get((iBeacon.getMajor() << 16) | iBeacon.getMinor());
+        if (entry == null || !entry.mRegistration.mUuid.equals(iBeacon.getUuid())) {
+            return false;
+        }
+        iBeacon.setMajor(entry.mRegistration.mMajor);
+        iBeacon.setMinor(entry.mRegistration.mMinor);
+        return true;
+    }
+
+    /**
+     * Roll every key schedule forward to a time: forget expired identifiers and compute upcoming ones
+     *
+     * @param timeMillis wall clock time, in milliseconds since the Unix epoch
+     */
+    public void refresh(long timeMillis) {
+        long nextRefreshTime = Long.MAX_VALUE;
+        for (Registration registration : mRegistrations) {
+            EphemeralIdGenerator generator = registration.mGenerator;
+            long counter = generator.getCounter(timeMillis);
+            long firstCounter = Math.max(0, counter - 1);
+            long lastCounter = counter + mLookahead;
+            int[] identifiers = registration.mIdentifiers;
+
+            // forget identifiers that have fallen out of the window, or all of them if the clock went back
+            boolean rewound = firstCounter < registration.mFirstCounter;
+            if (registration.mFirstCounter >= 0) {
+                long expiredCounter = rewound ? registration.mLastCounter + 1 : Math.min(firstCounter, registration.mLastCounter + 1);
+                for (long oldCounter = registration.mFirstCounter; oldCounter < expiredCounter; oldCounter++) {
+                    Integer key = identifiers[(int) (oldCounter % identifiers.length)];
+                    Entry entry = mTable.get(key);
+                    if (entry != null && entry.mRegistration == registration && entry.mCounter == oldCounter) {
+                        mTable.remove(key);
+                    }
+                }
+            }
+
+            // compute the ones that have come into it
+            long newCounter = (rewound || registration.mLastCounter < firstCounter) ? firstCounter : registration.mLastCounter + 1;
+            for (; newCounter <= lastCounter; newCounter++) {
+                int identifier = generator.getIdentifier(newCounter);
+                identifiers[(int) (newCounter % identifiers.length)] = identifier;
+                mTable.put(identifier, new Entry(registration, newCounter));
+            }
+            registration.mFirstCounter = firstCounter;
+            registration.mLastCounter = lastCounter;
+            nextRefreshTime = Math.min(nextRefreshTime, generator.getRotationTime(counter + 1));
+        }
+        mNextRefreshTime = nextRefreshTime;
+    }
+
+    /**
+     * Get the number of precomputed identifiers
+     *
+     * @return the table size
+     */
+    public int size() {
+        return mTable.size();
+    }
+}
@@ -0,0 +1,368 @@
+package tonyg.example.com.beacon.ble;
+
+import java.util.UUID;
+
+import tonyg.example.com.blecodec.codecs.BeaconCodecRegistry;
+import tonyg.example.com.blecodec.codecs.BeaconFrame;
+
+
+/**
+ * This class describes iBeacons
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2016-12-09
+ */
+public class IBeacon {
+    /** Constants **/
+    public static final double RADIO_PROPAGATION_CONSTANT = 3.5;
+
+    // weight of each new RSSI in the smoothed RSSI
+    public static final double RSSI_SMOOTHING_FACTOR = 0.25;
+
+    // distances
+    public static final int DISTANCE_UNKNOWN = 0;
+    public static final int DISTANCE_IMMEDIATE = 1;
+    public static final int DISTANCE_NEAR = 3;
+    public static final int DISTANCE_FAR = 10;
+
+    private static final int RANGE_UNKNOWN = 0;
+    private static final int RANGE_IMMEDIATE = 1;
+    private static final int RANGE_NEAR = 3;
+
+    /** Scan Record formats that identify a beacon: iBeacon, AltBeacon, and Eddystone-UID **/
+    private static final BeaconCodecRegistry CODECS = BeaconCodecRegistry.createDefault();
+
+    /** iBeacon Properties **/
+    private UUID mUuid;
+    private String mUuidString; // cached text of mUuid
+    private int mManufaturerId;
+    private int mMajor;
+    private int mMinor;
+    private int mTransmissionPower;
+    private int mRssi;
+    private double mSmoothedRssi;
+    private String mMacAddress;
+
+    private double mX = 0;
+    private double mY = 0;
+    private int mFloor = 0;
+    private boolean mHasLocation = false;
+
+    private PathLossModel mPathLoss; // null until a sighting at a known distance
+    private BeaconTelemetry mTelemetry; // a copy that is never modified, or null until telemetry arrives
+
+    // a ProximityTracker's state for this iBeacon
+    int mStableProximity = DISTANCE_UNKNOWN;
+    int mProximityCandidate = DISTANCE_UNKNOWN;
+    long mProximityCandidateSinceNanos;
+
+    /** Get and set iBeacon Properties **/
+    public void setUuid(UUID uuid) {  mUuid = uuid; mUuidString = null; }
+    public void setMajor(int major) { mMajor = major; }
+    public void setMinor(int minor) { mMinor = minor; }
+    public void setTransmissionPower(int transmissionPower) {
+        // a TX Power set on purpose replaces the fitted model
+        mTransmissionPower = transmissionPower;
+        mPathLoss = null;
+    }
+    public void setRssi(int rssi) {
+        mSmoothedRssi = (mRssi == 0) ? rssi : mSmoothedRssi + RSSI_SMOOTHING_FACTOR * (rssi - mSmoothedRssi);
+        mRssi = rssi;
+    }
+    public void setMacAddress(String macAddress) { mMacAddress = macAddress; }
+    public void setManufacturerId(int manufacturerId) { mManufaturerId = manufacturerId; }
+
+    public UUID getUuid() { return mUuid; }
+    public String getUuidString() {
+        if (mUuidString == null && mUuid != null) {
+            mUuidString = mUuid.toString();
+        }
+        return mUuidString;
+    }
+    public int getMajor() { return mMajor; }
+    public int getMinor() { return mMinor; }
+    public int getTransmissionPower() { return mTransmissionPower; }
+    public int getRssi() { return mRssi; }
+    public double getSmoothedRssi() { return mSmoothedRssi; }
+    public String getMacAddress() { return mMacAddress; }
+
+    /**
+     * Get the latest battery, temperature, and uptime the beacon advertised
+     *
+     * @return the telemetry, or <b>null</b> if none has been received
+     */
+    public BeaconTelemetry getTelemetry() { return mTelemetry; }
+
+    /**
+     * @param telemetry a copy, which must not be modified afterwards
+     */
+    public void setTelemetry(BeaconTelemetry telemetry) { mTelemetry = telemetry; }
+    public int getManufacturerId() { return mManufaturerId; }
+
+    /**
+     * Set the X and Y location of the BleBeacon
+     *
+     * @param x x location
+     * @param y y location
+     */
+    public void setLocation(double x, double y) {
+        setXLocation(x);
+        setYLocation(y);
+    }
+
+    /**
+     * Set the X location of the BleBeacon
+     *
+     * @param x x location
+     */
+    public void setXLocation(double x) {
+        mX = x;
+        mHasLocation = true;
+    }
+
+    /**
+     * Get the X location
+     *
+     * @return x location
+     */
+    public double getXLocation()  {
+        return mX;
+    }
+
+    /**
+     * Set the Y location of the BleBeacon
+     *
+     * @param y y location
+     */
+    public void setYLocation(double y) {
+        mY = y;
+        mHasLocation = true;
+    }
+
+    /**
+     * Get the Y location
+     *
+     * @return y location
+     */
+    public double getYLocation() {
+        return mY;
+    }
+
+    /**
+     * Test if the location has been set, such as from a catalog
+     */
+    public boolean hasLocation() {
+        return mHasLocation;
+    }
+
+
+    /**
+     * Set the floor the BleBeacon is installed on
+     *
+     * @param floor floor number
+     */
+    public void setFloor(int floor) {
+        mFloor = floor;
+    }
+
+    public int getFloor() {
+        return mFloor;
+    }
+
+
+    /**
+     * Test if two iBeacons are the same
+     *
+     * @param otherBeacon another iBeacon
+     * @return <strong>true</strong> if two beacons are the same
+     */
+    public boolean equals(IBeacon otherBeacon) {
+        // iBeacons are the same if they have the same UUID, Major, Minor, and Manufacturer ID
+        boolean isSameBeacon = ((mUuid.equals(otherBeacon.getUuid())) && (mMajor == otherBeacon.getMajor()) && (mMinor == otherBeacon.mMinor) && (mManufaturerId == otherBeacon.getManufacturerId()));
+        return isSameBeacon;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return (other instanceof IBeacon) && equals((IBeacon) other);
+    }
+
+    @Override
+    public int hashCode() {
+        long stableId = getStableId();
+        return (int) (stableId ^ (stableId >>> 32));
+    }
+
+    /**
+     * Get an ID derived from the iBeacon's identity, which stays the same across sightings.
+     * Suitable for stable list item IDs.
+     *
+     * @return a 64-bit hash of the UUID, Major, Minor, and Manufacturer ID
+     */
+    public long getStableId() {
+        long hash = (mUuid == null) ? 0 : mUuid.getMostSignificantBits() * 31 + mUuid.getLeastSignificantBits();
+        hash = hash * 31 + ((long) mMajor << 16 | mMinor);
+        hash = hash * 31 + mManufaturerId;
+        // spread the bits so that nearby identities don't produce nearby IDs
+        hash ^= (hash >>> 33);
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= (hash >>> 33);
+        return hash;
+    }
+
+    /**
+     * Determine if a discovered Peripheral's Scan Record identifies a beacon in any supported format
+     *
+     * @param scanRecord the byte array of the Peripheral's GAP Scan Record
+     * @return <strong>true</strong> if Scan Record belongs to an iBeacon
+     */
+    static public boolean isIBeacon(final byte[] scanRecord) {
+        BeaconFrame frame = new BeaconFrame();
+        return CODECS.decode(scanRecord, frame) && frame.hasIdentity();
+    }
+
+    /**
+     * Create an iBeacon from a GAP Scan Record.  AltBeacon and Eddystone-UID Scan Records are also accepted.
+     *
+     * example: 0201061AFF 4C00 02 15 B9407F30F5F8466EAFF925556B57FE6D ED4E 8931 B6
+     *
+     * @param scanRecord an incoming Scan Record
+     * @return IBeacon
+     */
+    static public IBeacon fromScanRecord(byte[] scanRecord) throws Exception {
+        BeaconFrame frame = new BeaconFrame();
+        if (!CODECS.decode(scanRecord, frame) || !frame.hasIdentity()) {
+            throw new Exception("Scan Record does not represent an iBeacon");
+        }
+        return fromFrame(frame);
+    }
+
+    /**
+     * Create an iBeacon from a decoded beacon frame
+     *
+     * @param frame an iBeacon, AltBeacon, or Eddystone-UID frame
+     * @return IBeacon
+     */
+    static public IBeacon fromFrame(BeaconFrame frame) {
+        IBeacon iBeacon = new IBeacon();
+
+        iBeacon.setUuid(frame.getIdentifier());
+        iBeacon.setManufacturerId(frame.getCompanyId());
+        iBeacon.setMajor(frame.getId2());
+        iBeacon.setMinor(frame.getId3());
+        iBeacon.setTransmissionPower(frame.getTransmissionPower());
+
+        return iBeacon;
+    }
+
+    /**
+     * Copy every value, including the smoothed RSSI, so that the copy can be handed to another thread
+     *
+     * @return the copy
+     */
+    public IBeacon copy() {
+        IBeacon copy = new IBeacon();
+        copy.mUuid = mUuid;
+        copy.mUuidString = mUuidString;
+        copy.mManufaturerId = mManufaturerId;
+        copy.mMajor = mMajor;
+        copy.mMinor = mMinor;
+        copy.mTransmissionPower = mTransmissionPower;
+        copy.mRssi = mRssi;
+        copy.mSmoothedRssi = mSmoothedRssi;
+        copy.mMacAddress = mMacAddress;
+        copy.mX = mX;
+        copy.mY = mY;
+        copy.mFloor = mFloor;
+        copy.mHasLocation = mHasLocation;
+        copy.mPathLoss = (mPathLoss == null) ? null : mPathLoss.copy();
+        copy.mTelemetry = mTelemetry;
+        copy.mStableProximity = mStableProximity;
+        copy.mProximityCandidate = mProximityCandidate;
+        copy.mProximityCandidateSinceNanos = mProximityCandidateSinceNanos;
+        return copy;
+    }
+
+    /**
+     * Refit this iBeacon's distance model with an RSSI received at a known distance.  Until the
+     * first one, distances use the TX Power and RADIO_PROPAGATION_CONSTANT.
+     *
+     * @param distanceMeters the distance between the iBeacon and the Central
+     * @param rssi the RSSI
+     */
+    public void addPathLossSample(double distanceMeters, int rssi) {
+        if (mPathLoss == null) {
+            mPathLoss = new PathLossModel(mTransmissionPower);
+        }
+        mPathLoss.addSample(distanceMeters, rssi);
+    }
+
+    /**
+     * @return the fitted distance model, or <b>null</b> if there have been no samples
+     */
+    public PathLossModel getPathLossModel() {
+        return mPathLoss;
+    }
+
+    /**
+     * Get iBeacon's distance from central based on an RSSI
+     *
+     * @return Minor number
+     */
+    public double getDistance() {
+        if (mRssi == 0) {
+            return -1.0; // if we cannot determine accuracy, return -1.
+        }
+        if (mPathLoss != null) {
+            return mPathLoss.getDistance(mRssi);
+        }
+        double ratio = (mTransmissionPower - mRssi)/(10 * RADIO_PROPAGATION_CONSTANT);
+        double distance = Math.pow(10, ratio);
+        return distance;
+    }
+
+    /**
+     * Get iBeacon's distance from central based on the smoothed RSSI, which is steadier than getDistance()
+     *
+     * @return distance in meters, or -1 if unknown
+     */
+    public double getSmoothedDistance() {
+        if (mRssi == 0) {
+            return -1.0; // if we cannot determine accuracy, return -1.
+        }
+        if (mPathLoss != null) {
+            return mPathLoss.getDistance(mSmoothedRssi);
+        }
+        double ratio = (mTransmissionPower - mSmoothedRssi)/(10 * RADIO_PROPAGATION_CONSTANT);
+        return Math.pow(10, ratio);
+    }
+
+    /**
+     * Get iBeacon's proximity range from a Central, from the latest RSSI alone.  It flips back
+     * and forth near a range's edge; getStableProximity() does not.
+     *
+     * @return One of DISTANCE_UNKNOWN, DISTANCE_IMMEDIATE, DISTANCE_NEAR, or DISTANCE_FAR
+     */
+    public int getProximity() {
+        double distance = getDistance();
+        if (distance <= RANGE_UNKNOWN) {
+            return DISTANCE_UNKNOWN;
+        }
+        if (distance < RANGE_IMMEDIATE) {
+            return DISTANCE_IMMEDIATE;
+        }
+        if (distance < RANGE_NEAR) {
+            return DISTANCE_NEAR;
+        }
+        return DISTANCE_FAR;
+    }
+
+    /**
+     * Get iBeacon's proximity range as last decided by a ProximityTracker
+     *
+     * @return One of DISTANCE_UNKNOWN, DISTANCE_IMMEDIATE, DISTANCE_NEAR, or DISTANCE_FAR
+     */
+    public int getStableProximity() {
+        return mStableProximity;
+    }
+}
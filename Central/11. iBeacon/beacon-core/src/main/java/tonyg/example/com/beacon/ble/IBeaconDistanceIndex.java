@@ -0,0 +1,125 @@
+package tonyg.example.com.beacon.ble;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+
+
+/**
+ * Keep iBeacons sorted by smoothed distance, nearest first.
+ *
+ * The order is kept in a balanced tree, so a new RSSI only moves one iBeacon, in O(log n),
+ * instead of re-sorting every iBeacon.  iBeacons with an unknown distance sort last.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class IBeaconDistanceIndex {
+
+    /**
+     * An iBeacon's position in the tree.  The distance is only changed while the entry is out of the tree.
+     */
+    private static class Entry {
+        final IBeacon iBeacon;
+        final long stableId;
+        double distance;
+
+        Entry(IBeacon iBeacon) {
+            this.iBeacon = iBeacon;
+            this.stableId = iBeacon.getStableId();
+        }
+    }
+
+    private static final Comparator<Entry> NEAREST_FIRST = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry a, Entry b) {
+            int byDistance = Double.compare(a.distance, b.distance);
+            if (byDistance != 0) {
+                return byDistance;
+            }
+            // stable IDs break ties between iBeacons at the same distance
+            return (a.stableId < b.stableId) ? -1 : ((a.stableId == b.stableId) ? 0 : 1);
+        }
+    };
+
+    private TreeSet<Entry> mOrder = new TreeSet<Entry>(NEAREST_FIRST);
+    private HashMap<IBeacon, Entry> mEntries = new HashMap<IBeacon, Entry>();
+
+
+    /**
+     * Add an iBeacon, or move it after its distance changed
+     *
+     * @param iBeacon the iBeacon
+     */
+    public void update(IBeacon iBeacon) {
+        Entry entry = mEntries.get(iBeacon);
+        if (entry == null) {
+            entry = new Entry(iBeacon);
+            mEntries.put(iBeacon, entry);
+        } else {
+            double distance = getSortDistance(iBeacon);
+            if (distance == entry.distance) {
+                return;
+            }
+            mOrder.remove(entry);
+        }
+        entry.distance = getSortDistance(iBeacon);
+        mOrder.add(entry);
+    }
+
+    /**
+     * Remove an iBeacon
+     *
+     * @param iBeacon the iBeacon
+     */
+    public void remove(IBeacon iBeacon) {
+        Entry entry = mEntries.remove(iBeacon);
+        if (entry != null) {
+            mOrder.remove(entry);
+        }
+    }
+
+    /**
+     * Remove every iBeacon
+     */
+    public void clear() {
+        mOrder.clear();
+        mEntries.clear();
+    }
+
+    /**
+     * Number of iBeacons
+     *
+     * @return number of iBeacons
+     */
+    public int size() {
+        return mEntries.size();
+    }
+
+    /**
+     * Get the nearest iBeacons, nearest first
+     *
+     * @param count the most iBeacons to return
+     * @param nearest a list to receive the iBeacons.  It is cleared first.
+     * @param <T> the list type
+     * @return the list
+     */
+    public <T extends List<IBeacon>> T getNearest(int count, T nearest) {
+        nearest.clear();
+        Iterator<Entry> iterator = mOrder.iterator();
+        while (nearest.size() < count && iterator.hasNext()) {
+            nearest.add(iterator.next().iBeacon);
+        }
+        return nearest;
+    }
+
+    /**
+     * The distance an iBeacon is sorted by
+     */
+    private static double getSortDistance(IBeacon iBeacon) {
+        double distance = iBeacon.getSmoothedDistance();
+        return (distance < 0) ? Double.POSITIVE_INFINITY : distance;
+    }
+}
@@ -0,0 +1,124 @@
+package tonyg.example.com.beacon.ble;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+
+/**
+ * Keep track of the iBeacons that have been discovered, one entry per iBeacon identity.
+ *
+ * Looking up a sighting is a single hash probe instead of a scan through every known iBeacon.
+ * The iBeacons are also kept sorted by smoothed distance, updated incrementally on each sighting.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class IBeaconRegistry {
+    // in discovery order, so removing a lost iBeacon does not shift a list
+    private LinkedHashMap<IBeacon, IBeacon> mIBeacons = new LinkedHashMap<IBeacon, IBeacon>();
+    private IBeaconDistanceIndex mDistanceIndex = new IBeaconDistanceIndex();
+
+    /**
+     * Get the known iBeacon with the same identity as a sighting
+     *
+     * @param iBeacon an iBeacon parsed from a Scan Record
+     * @return the known iBeacon, or <b>null</b> if it has not been seen before
+     */
+    public IBeacon get(IBeacon iBeacon) {
+        return mIBeacons.get(iBeacon);
+    }
+
+    /**
+     * Add a newly discovered iBeacon
+     *
+     * @param iBeacon the iBeacon
+     * @return <b>false</b> if an iBeacon with the same identity is already known
+     */
+    public boolean add(IBeacon iBeacon) {
+        if (mIBeacons.containsKey(iBeacon)) {
+            return false;
+        }
+        mIBeacons.put(iBeacon, iBeacon);
+        mDistanceIndex.update(iBeacon);
+        return true;
+    }
+
+    /**
+     * Record a new RSSI for a known iBeacon and move it to its new place in the distance order
+     *
+     * @param iBeacon the known iBeacon
+     * @param rssi the new RSSI
+     */
+    public void updateRssi(IBeacon iBeacon, int rssi) {
+        iBeacon.setRssi(rssi);
+        if (mIBeacons.containsKey(iBeacon)) {
+            mDistanceIndex.update(iBeacon);
+        }
+    }
+
+    /**
+     * Use a different TX Power for a known iBeacon, such as a calibrated one, and move it to its new place in the distance order
+     *
+     * @param iBeacon the known iBeacon
+     * @param transmissionPower the RSSI at 1 meter
+     */
+    public void updateTransmissionPower(IBeacon iBeacon, int transmissionPower) {
+        iBeacon.setTransmissionPower(transmissionPower);
+        if (mIBeacons.containsKey(iBeacon)) {
+            mDistanceIndex.update(iBeacon);
+        }
+    }
+
+    /**
+     * Forget an iBeacon
+     *
+     * @param iBeacon the iBeacon
+     * @return the forgotten iBeacon, or <b>null</b> if it was not known
+     */
+    public IBeacon remove(IBeacon iBeacon) {
+        IBeacon removed = mIBeacons.remove(iBeacon);
+        if (removed != null) {
+            mDistanceIndex.remove(removed);
+        }
+        return removed;
+    }
+
+    /**
+     * Forget every iBeacon
+     */
+    public void clear() {
+        mIBeacons.clear();
+        mDistanceIndex.clear();
+    }
+
+    /**
+     * Number of known iBeacons
+     *
+     * @return number of iBeacons
+     */
+    public int size() {
+        return mIBeacons.size();
+    }
+
+    /**
+     * Get the known iBeacons, in the order they were discovered.  Do not modify them.
+     *
+     * @return the known iBeacons
+     */
+    public Collection<IBeacon> getIBeacons() {
+        return mIBeacons.values();
+    }
+
+    /**
+     * Get the nearest iBeacons by smoothed distance, nearest first
+     *
+     * @param count the most iBeacons to return
+     * @param nearest a list to receive the iBeacons.  It is cleared first.
+     * @param <T> the list type
+     * @return the list
+     */
+    public <T extends List<IBeacon>> T getNearest(int count, T nearest) {
+        return mDistanceIndex.getNearest(count, nearest);
+    }
+}
@@ -0,0 +1,168 @@
+package tonyg.example.com.beacon.ble;
+
+
+/**
+ * One beacon's distance model, refit as sightings at known distances arrive.
+ *
+ * RSSI falls off as rssi = referenceRssi - 10 * exponent * log10(distance), where referenceRssi
+ * is the RSSI at 1 meter and exponent is the path-loss exponent.  Both depend on the beacon and
+ * where it is installed.  Each sample updates them by recursive least squares, which is O(1) and
+ * keeps only a 2x2 covariance.  Older samples are slowly forgotten, so the fit follows changes
+ * such as furniture being moved.  The model starts from the advertised TX Power and
+ * IBeacon.RADIO_PROPAGATION_CONSTANT, and the starting covariance keeps a few samples at one
+ * distance from pulling the exponent far from it.
+ *
+ * Distances come from a table indexed by RSSI instead of Math.pow().  The table is only rebuilt,
+ * on the next lookup, once the parameters have moved more than a small tolerance.
+ *
+ * Not thread safe.  Hand copies to other threads.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class PathLossModel {
+    /** Constants **/
+    public static final double DEFAULT_FORGETTING_FACTOR = 0.995; // remembers about the last 200 samples
+    public static final double MIN_EXPONENT = 1.5;
+    public static final double MAX_EXPONENT = 6;
+
+    private static final double REFERENCE_RSSI_VARIANCE = 25; // how far off the TX Power may be, in dB squared
+    private static final double EXPONENT_VARIANCE = 1;
+    // how far the parameters move before the table is rebuilt
+    private static final double REFERENCE_RSSI_TOLERANCE = 0.25;
+    private static final double EXPONENT_TOLERANCE = 0.02;
+    // the table covers every RSSI Android reports
+    private static final int MIN_RSSI = -127;
+    private static final int MAX_RSSI = 20;
+
+    private final double mForgettingFactor;
+
+    // the fit, and its covariance
+    private double mReferenceRssi;
+    private double mExponent;
+    private double mCovariance00, mCovariance01, mCovariance11;
+    private int mSampleCount = 0;
+
+    // distance by RSSI - MIN_RSSI, for the parameters it was built with.  Never modified once built
+    private double[] mDistanceTable;
+    private double mTableReferenceRssi;
+    private double mTableExponent;
+
+
+    /**
+     * Create a model with the default forgetting factor
+     *
+     * @param transmissionPower the advertised RSSI at 1 meter, to start from
+     */
+    public PathLossModel(int transmissionPower) {
+        this(transmissionPower, IBeacon.RADIO_PROPAGATION_CONSTANT, DEFAULT_FORGETTING_FACTOR);
+    }
+
+    /**
+     * Create a model
+     *
+     * @param referenceRssi the RSSI at 1 meter to start from
+     * @param exponent the path-loss exponent to start from
+     * @param forgettingFactor the weight left on older samples after each new one, 0 to 1
+     */
+    public PathLossModel(double referenceRssi, double exponent, double forgettingFactor) {
+        if (forgettingFactor <= 0 || forgettingFactor > 1) {
+            throw new IllegalArgumentException("Forgetting factor must be from 0 to 1");
+        }
+        mForgettingFactor = forgettingFactor;
+        mReferenceRssi = referenceRssi;
+        mExponent = exponent;
+        mCovariance00 = REFERENCE_RSSI_VARIANCE;
+        mCovariance01 = 0;
+        mCovariance11 = EXPONENT_VARIANCE;
+    }
+
+    public double getReferenceRssi() { return mReferenceRssi; }
+    public double getExponent() { return mExponent; }
+    public int getSampleCount() { return mSampleCount; }
+
+    /**
+     * Refit the model with an RSSI received at a known distance
+     *
+     * @param distanceMeters the distance between the beacon and the Central
+     * @param rssi the RSSI
+     */
+    public void addSample(double distanceMeters, int rssi) {
+        if (rssi == 0 || !(distanceMeters > 0)) {
+            return; // 0 means the RSSI is unknown
+        }
+        // rssi = referenceRssi + exponent * x, linear in both parameters
+        double x = -10 * Math.log10(distanceMeters);
+        double error = rssi - (mReferenceRssi + mExponent * x);
+
+        double covarianceX0 = mCovariance00 + mCovariance01 * x;
+        double covarianceX1 = mCovariance01 + mCovariance11 * x;
+        double denominator = mForgettingFactor + covarianceX0 + covarianceX1 * x;
+        double gain0 = covarianceX0 / denominator;
+        double gain1 = covarianceX1 / denominator;
+
+        mReferenceRssi += gain0 * error;
+        mExponent = Math.min(MAX_EXPONENT, Math.max(MIN_EXPONENT, mExponent + gain1 * error));
+        mCovariance00 = (mCovariance00 - gain0 * covarianceX0) / mForgettingFactor;
+        mCovariance01 = (mCovariance01 - gain0 * covarianceX1) / mForgettingFactor;
+        mCovariance11 = (mCovariance11 - gain1 * covarianceX1) / mForgettingFactor;
+        // samples all at one distance never pin down the exponent, so its variance would grow without
+        // bound and a few odd samples would swing it.  Never let it grow past where it started
+        double scale = Math.min(1, Math.min(REFERENCE_RSSI_VARIANCE / mCovariance00, EXPONENT_VARIANCE / mCovariance11));
+        mCovariance00 *= scale;
+        mCovariance01 *= scale;
+        mCovariance11 *= scale;
+        mSampleCount++;
+    }
+
+    /**
+     * Get the distance for an RSSI
+     *
+     * @param rssi the RSSI, which may be smoothed
+     * @return distance in meters, or -1 if the RSSI is unknown
+     */
+    public double getDistance(double rssi) {
+        if (rssi == 0) {
+            return -1.0;
+        }
+        double[] table = getDistanceTable();
+        double position = Math.min(MAX_RSSI, Math.max(MIN_RSSI, rssi)) - MIN_RSSI;
+        int index = (int) position;
+        if (index >= table.length - 1) {
+            return table[table.length - 1];
+        }
+        // neighbouring entries are only a few percent apart
+        double fraction = position - index;
+        return table[index] + fraction * (table[index + 1] - table[index]);
+    }
+
+    /**
+     * Copy the fit.  The copy shares the current table, which is never modified.
+     */
+    public PathLossModel copy() {
+        PathLossModel copy = new PathLossModel(mReferenceRssi, mExponent, mForgettingFactor);
+        copy.mCovariance00 = mCovariance00;
+        copy.mCovariance01 = mCovariance01;
+        copy.mCovariance11 = mCovariance11;
+        copy.mSampleCount = mSampleCount;
+        copy.mDistanceTable = mDistanceTable;
+        copy.mTableReferenceRssi = mTableReferenceRssi;
+        copy.mTableExponent = mTableExponent;
+        return copy;
+    }
+
+    private double[] getDistanceTable() {
+        if (mDistanceTable == null
+                || Math.abs(mReferenceRssi - mTableReferenceRssi) > REFERENCE_RSSI_TOLERANCE
+                || Math.abs(mExponent - mTableExponent) > EXPONENT_TOLERANCE) {
+            double[] table = new double[MAX_RSSI - MIN_RSSI + 1];
+            for (int index = 0; index < table.length; index++) {
+                table[index] = Math.pow(10, (mReferenceRssi - (MIN_RSSI + index)) / (10 * mExponent));
+            }
+            mDistanceTable = table;
+            mTableReferenceRssi = mReferenceRssi;
+            mTableExponent = mExponent;
+        }
+        return mDistanceTable;
+    }
+}
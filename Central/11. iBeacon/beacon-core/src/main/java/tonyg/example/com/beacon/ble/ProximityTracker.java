@@ -0,0 +1,140 @@
+package tonyg.example.com.beacon.ble;
+
+
+/**
+ * Decide each iBeacon's proximity range so that it only changes on a real move.
+ *
+ * IBeacon.getProximity() compares one distance against each range's edge, so an iBeacon near an
+ * edge flips range on almost every sighting.  Here, an iBeacon has to be well past an edge, by
+ * the hysteresis fraction of the edge's distance, before another range is even considered.  That
+ * range then has to hold for the dwell time, which can be longer for moving away than for moving
+ * closer, before it replaces the current one.  The first range an iBeacon is seen in is taken
+ * straight away.
+ *
+ * The state lives in primitive fields of each IBeacon, so tracking allocates nothing.
+ * Not thread safe: update each iBeacon from one thread.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class ProximityTracker {
+    /** Constants **/
+    public static final double DEFAULT_IMMEDIATE_METERS = 1;
+    public static final double DEFAULT_NEAR_METERS = 3;
+    public static final double DEFAULT_HYSTERESIS = 0.25;
+    public static final long DEFAULT_APPROACH_DWELL_NANOS = 1000 * 1000000L;
+    public static final long DEFAULT_RETREAT_DWELL_NANOS = 2000 * 1000000L;
+
+    // closest first
+    private static final int[] PROXIMITIES = { IBeacon.DISTANCE_IMMEDIATE, IBeacon.DISTANCE_NEAR, IBeacon.DISTANCE_FAR };
+
+    private final double[] mEdgeMeters; // between range i and i + 1
+    private final double[] mEnterBelowMeters; // move in past edge i when closer than this
+    private final double[] mLeaveAboveMeters; // move out past edge i when farther than this
+    private final long mApproachDwellNanos;
+    private final long mRetreatDwellNanos;
+
+
+    /**
+     * Create a tracker with the default ranges, hysteresis, and dwell times
+     */
+    public ProximityTracker() {
+        this(DEFAULT_IMMEDIATE_METERS, DEFAULT_NEAR_METERS, DEFAULT_HYSTERESIS,
+                DEFAULT_APPROACH_DWELL_NANOS, DEFAULT_RETREAT_DWELL_NANOS);
+    }
+
+    /**
+     * Create a tracker
+     *
+     * @param immediateMeters the edge between immediate and near
+     * @param nearMeters the edge between near and far
+     * @param hysteresis how far past an edge to go, as a fraction of the edge's distance, 0 to 1
+     * @param approachDwellNanos how long a closer range must hold before it is taken
+     * @param retreatDwellNanos how long a farther range must hold before it is taken
+     */
+    public ProximityTracker(double immediateMeters, double nearMeters, double hysteresis,
+                            long approachDwellNanos, long retreatDwellNanos) {
+        if (immediateMeters <= 0 || nearMeters <= immediateMeters) {
+            throw new IllegalArgumentException("Ranges must be positive and increasing");
+        }
+        if (hysteresis < 0 || hysteresis >= 1) {
+            throw new IllegalArgumentException("Hysteresis must be from 0 to 1");
+        }
+        if (nearMeters * (1 - hysteresis) <= immediateMeters * (1 + hysteresis)) {
+            throw new IllegalArgumentException("Hysteresis bands must not overlap");
+        }
+        mEdgeMeters = new double[] { immediateMeters, nearMeters };
+        mEnterBelowMeters = new double[] { immediateMeters * (1 - hysteresis), nearMeters * (1 - hysteresis) };
+        mLeaveAboveMeters = new double[] { immediateMeters * (1 + hysteresis), nearMeters * (1 + hysteresis) };
+        mApproachDwellNanos = approachDwellNanos;
+        mRetreatDwellNanos = retreatDwellNanos;
+    }
+
+    /**
+     * Update an iBeacon's proximity from its smoothed distance, after a sighting
+     *
+     * @param iBeacon the iBeacon.  Its new range is in getStableProximity().
+     * @param nowNanos the time now, from System.nanoTime()
+     * @return <b>true</b> if the range changed
+     */
+    public boolean update(IBeacon iBeacon, long nowNanos) {
+        double distance = iBeacon.getSmoothedDistance();
+        if (distance <= 0) {
+            return false; // no RSSI yet
+        }
+
+        int current = iBeacon.mStableProximity;
+        if (current == IBeacon.DISTANCE_UNKNOWN) {
+            iBeacon.mStableProximity = PROXIMITIES[findIndex(distance, 0, mEdgeMeters, mEdgeMeters)];
+            iBeacon.mProximityCandidate = iBeacon.mStableProximity;
+            return true;
+        }
+
+        int currentIndex = indexOf(current);
+        int candidate = PROXIMITIES[findIndex(distance, currentIndex, mEnterBelowMeters, mLeaveAboveMeters)];
+        if (candidate == current) {
+            iBeacon.mProximityCandidate = current;
+            return false;
+        }
+        if (candidate != iBeacon.mProximityCandidate) {
+            iBeacon.mProximityCandidate = candidate;
+            iBeacon.mProximityCandidateSinceNanos = nowNanos;
+        }
+        long dwellNanos = indexOf(candidate) < currentIndex ? mApproachDwellNanos : mRetreatDwellNanos;
+        if (nowNanos - iBeacon.mProximityCandidateSinceNanos < dwellNanos) {
+            return false;
+        }
+        iBeacon.mStableProximity = candidate;
+        return true;
+    }
+
+    /**
+     * Forget an iBeacon's proximity, such as when it is lost
+     */
+    public void reset(IBeacon iBeacon) {
+        iBeacon.mStableProximity = IBeacon.DISTANCE_UNKNOWN;
+        iBeacon.mProximityCandidate = IBeacon.DISTANCE_UNKNOWN;
+    }
+
+    /**
+     * Find the range a distance is in, starting from a range and crossing edges only past their bands
+     */
+    private static int findIndex(double distance, int index, double[] enterBelowMeters, double[] leaveAboveMeters) {
+        while (index < PROXIMITIES.length - 1 && distance > leaveAboveMeters[index]) {
+            index++;
+        }
+        while (index > 0 && distance < enterBelowMeters[index - 1]) {
+            index--;
+        }
+        return index;
+    }
+
+    private static int indexOf(int proximity) {
+        for (int index = 0; index < PROXIMITIES.length; index++) {
+            if (PROXIMITIES[index] == proximity) {
+                return index;
+            }
+        }
+        throw new IllegalArgumentException("Not a proximity: " + proximity);
+    }
+}
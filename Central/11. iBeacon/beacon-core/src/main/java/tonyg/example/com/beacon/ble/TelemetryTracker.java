@@ -0,0 +1,109 @@
+package tonyg.example.com.beacon.ble;
+
+import java.util.HashMap;
+
+import tonyg.example.com.blecodec.codecs.BeaconFrame;
+
+
+/**
+ * Keep track of the telemetry of each beacon, by its identity.
+ *
+ * Telemetry frames do not carry the beacon's identity.  The Peripheral advertises its telemetry
+ * from its own advertising set, with the iBeacon frame as the scan response, so a Central that
+ * scans actively gets both in one Scan Record.  Telemetry that arrives on its own, as in a passive
+ * scan, is matched through the identity last seen from the same address.
+ *
+ * Not thread safe: the parse stage owns it.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class TelemetryTracker {
+    private HashMap<IBeacon, BeaconTelemetry> mTelemetry = new HashMap<IBeacon, BeaconTelemetry>();
+    private HashMap<String, IBeacon> mIdentities = new HashMap<String, IBeacon>(); // by MAC address
+
+    /**
+     * Remember the identity advertised from an address, for telemetry that arrives on its own
+     *
+     * @param macAddress the address the identity frame was advertised from
+     * @param iBeacon the iBeacon, with its fixed identity
+     */
+    public void putIdentity(String macAddress, IBeacon iBeacon) {
+        IBeacon known = mIdentities.get(macAddress);
+        if (known == null || !known.equals(iBeacon)) {
+            mIdentities.put(macAddress, iBeacon.copy()); // the sighting moves on to another stage
+        }
+    }
+
+    /**
+     * Record a telemetry frame from the same Scan Record as an iBeacon
+     *
+     * @param iBeacon the iBeacon, with its fixed identity
+     * @param frame an Eddystone-TLM frame
+     * @param timestampMillis when the frame was received
+     * @return the beacon's telemetry
+     */
+    public BeaconTelemetry update(IBeacon iBeacon, BeaconFrame frame, long timestampMillis) {
+        if (frame.getFormat() != BeaconFrame.FORMAT_EDDYSTONE_TLM) {
+            throw new IllegalArgumentException("Not a telemetry frame");
+        }
+        BeaconTelemetry telemetry = mTelemetry.get(iBeacon);
+        if (telemetry == null) {
+            telemetry = new BeaconTelemetry();
+            mTelemetry.put(iBeacon.copy(), telemetry);
+        }
+        telemetry.update(frame, timestampMillis);
+        return telemetry;
+    }
+
+    /**
+     * Record a telemetry frame that was advertised on its own
+     *
+     * @param macAddress the address the frame was advertised from
+     * @param frame an Eddystone-TLM frame
+     * @param timestampMillis when the frame was received
+     * @return the beacon's telemetry, or <b>null</b> if no identity has been seen from the address
+     */
+    public BeaconTelemetry update(String macAddress, BeaconFrame frame, long timestampMillis) {
+        IBeacon iBeacon = mIdentities.get(macAddress);
+        return (iBeacon == null) ? null : update(iBeacon, frame, timestampMillis);
+    }
+
+    /**
+     * Get an iBeacon's telemetry
+     *
+     * @param iBeacon any iBeacon with the same identity
+     * @return the telemetry, or <b>null</b> if none has been received
+     */
+    public BeaconTelemetry get(IBeacon iBeacon) {
+        return mTelemetry.get(iBeacon);
+    }
+
+    /**
+     * Get a copy of an iBeacon's telemetry if it changed since the last copy
+     *
+     * @param iBeacon any iBeacon with the same identity
+     * @return the copy, or <b>null</b> if nothing new has been received
+     */
+    public BeaconTelemetry takeChanged(IBeacon iBeacon) {
+        BeaconTelemetry telemetry = mTelemetry.get(iBeacon);
+        return (telemetry == null || !telemetry.isChanged()) ? null : telemetry.copy();
+    }
+
+    /**
+     * Forget all telemetry
+     */
+    public void clear() {
+        mTelemetry.clear();
+        mIdentities.clear();
+    }
+
+    /**
+     * Number of beacons with telemetry
+     *
+     * @return number of beacons
+     */
+    public int size() {
+        return mTelemetry.size();
+    }
+}
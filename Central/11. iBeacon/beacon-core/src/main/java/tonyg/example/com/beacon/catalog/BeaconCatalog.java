@@ -0,0 +1,293 @@
+package tonyg.example.com.beacon.catalog;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.UUID;
+
+import tonyg.example.com.beacon.ble.IBeacon;
+
+
+/**
+ * Installed beacons and their positions, read straight from a memory-mapped file.
+ *
+ * The file is an open-addressing hash table of fixed-size records, keyed by UUID, Major, and
+ * Minor, followed by the metadata strings.  Opening it only maps the file and checks the header,
+ * so it takes the same time for 10 beacons or 100,000; a lookup reads one or two records and
+ * allocates nothing.  Pages are read from disk the first time they are touched.
+ *
+ * Files are written by BeaconCatalogWriter.  A record flagged as removed is a tombstone: it hides
+ * the beacon in older layers of a CatalogStore.  Everything is Big Endian:
+ *
+ *   header (32 bytes): magic "BCAT", version, record size, slot count, entry count,
+ *                      metadata offset, metadata length, reserved
+ *   slots (slot count x 40 bytes): UUID (16), Major (2), Minor (2), flags (1),
+ *                      TX Power (1), floor (2), x (4, float), y (4, float),
+ *                      metadata position (4), metadata length (2), reserved (2)
+ *   metadata: UTF-8 strings, one after the other
+ *
+ * A catalog never changes once opened, and lookups only use absolute reads, so once it has been
+ * safely published it can be read from any thread.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class BeaconCatalog {
+    /** File format **/
+    static final int MAGIC = 0x42434154; // "BCAT"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int RECORD_SIZE = 40;
+
+    static final int HEADER_MAGIC = 0;
+    static final int HEADER_VERSION = 4;
+    static final int HEADER_RECORD_SIZE = 6;
+    static final int HEADER_SLOT_COUNT = 8;
+    static final int HEADER_ENTRY_COUNT = 12;
+    static final int HEADER_METADATA_OFFSET = 16;
+    static final int HEADER_METADATA_LENGTH = 20;
+
+    static final int RECORD_UUID_MOST = 0;
+    static final int RECORD_UUID_LEAST = 8;
+    static final int RECORD_MAJOR = 16;
+    static final int RECORD_MINOR = 18;
+    static final int RECORD_FLAGS = 20;
+    static final int RECORD_TRANSMISSION_POWER = 21;
+    static final int RECORD_FLOOR = 22;
+    static final int RECORD_X = 24;
+    static final int RECORD_Y = 28;
+    static final int RECORD_METADATA_POSITION = 32;
+    static final int RECORD_METADATA_LENGTH = 36;
+
+    static final int FLAG_OCCUPIED = 0x01;
+    static final int FLAG_TRANSMISSION_POWER = 0x02;
+    static final int FLAG_REMOVED = 0x04;
+
+    /** Results of lookup() **/
+    static final int MISSING = 0;
+    static final int FOUND = 1;
+    static final int REMOVED = 2;
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final ByteBuffer mBuffer;
+    private final int mSlotMask;
+    private final int mEntryCount;
+    private final int mMetadataOffset;
+    private final int mMetadataLength;
+
+
+    /**
+     * Map a catalog file
+     *
+     * @param file a file written by BeaconCatalogWriter
+     * @return the catalog
+     * @throws IOException if the file can not be read or is not a catalog
+     */
+    public static BeaconCatalog open(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            // the mapping stays valid after the file is closed
+            return wrap(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * Read a catalog that is already in memory
+     *
+     * @param buffer the catalog's bytes, from position 0.  Do not modify it afterwards.
+     * @return the catalog
+     * @throws IOException if the bytes are not a catalog
+     */
+    public static BeaconCatalog wrap(ByteBuffer buffer) throws IOException {
+        return new BeaconCatalog(buffer.duplicate().order(ByteOrder.BIG_ENDIAN));
+    }
+
+    private BeaconCatalog(ByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(HEADER_MAGIC) != MAGIC) {
+            throw new IOException("Not a beacon catalog");
+        }
+        int version = buffer.getShort(HEADER_VERSION);
+        if (version != VERSION) {
+            throw new IOException("Unsupported beacon catalog version " + version);
+        }
+        if (buffer.getShort(HEADER_RECORD_SIZE) != RECORD_SIZE) {
+            throw new IOException("Unexpected record size " + buffer.getShort(HEADER_RECORD_SIZE));
+        }
+        int slotCount = buffer.getInt(HEADER_SLOT_COUNT);
+        mEntryCount = buffer.getInt(HEADER_ENTRY_COUNT);
+        mMetadataOffset = buffer.getInt(HEADER_METADATA_OFFSET);
+        mMetadataLength = buffer.getInt(HEADER_METADATA_LENGTH);
+        if (slotCount <= 0 || Integer.bitCount(slotCount) != 1 || mEntryCount < 0 || mEntryCount >= slotCount) {
+            throw new IOException("Corrupt beacon catalog: " + mEntryCount + " entries in " + slotCount + " slots");
+        }
+        long slotsEnd = HEADER_SIZE + (long) slotCount * RECORD_SIZE;
+        if (mMetadataOffset < slotsEnd || mMetadataLength < 0 || (long) mMetadataOffset + mMetadataLength > buffer.capacity()) {
+            throw new IOException("Truncated beacon catalog");
+        }
+        mBuffer = buffer;
+        mSlotMask = slotCount - 1;
+    }
+
+    /**
+     * Get the number of records in the catalog, including removals
+     */
+    public int size() {
+        return mEntryCount;
+    }
+
+    /**
+     * Look up an installed beacon
+     *
+     * @param uuid its Proximity UUID
+     * @param major its Major number
+     * @param minor its Minor number
+     * @param entry receives the beacon's details, if found
+     * @return <b>true</b> if the beacon is in the catalog
+     */
+    public boolean find(UUID uuid, int major, int minor, CatalogEntry entry) {
+        return lookup(uuid, major, minor, entry) == FOUND;
+    }
+
+    public boolean find(IBeacon iBeacon, CatalogEntry entry) {
+        return find(iBeacon.getUuid(), iBeacon.getMajor(), iBeacon.getMinor(), entry);
+    }
+
+    /**
+     * Look up a beacon, telling a tombstone apart from a beacon that is not in the catalog
+     *
+     * @return FOUND, REMOVED, or MISSING
+     */
+    int lookup(UUID uuid, int major, int minor, CatalogEntry entry) {
+        long mostSignificantBits = uuid.getMostSignificantBits();
+        long leastSignificantBits = uuid.getLeastSignificantBits();
+        major &= 0xFFFF;
+        minor &= 0xFFFF;
+        // there is always an empty slot, so the probe ends
+        for (int slot = hash(mostSignificantBits, leastSignificantBits, major, minor) & mSlotMask; ; slot = (slot + 1) & mSlotMask) {
+            int record = HEADER_SIZE + slot * RECORD_SIZE;
+            int flags = mBuffer.get(record + RECORD_FLAGS);
+            if ((flags & FLAG_OCCUPIED) == 0) {
+                return MISSING;
+            }
+            if (mBuffer.getLong(record + RECORD_UUID_MOST) == mostSignificantBits
+                    && mBuffer.getLong(record + RECORD_UUID_LEAST) == leastSignificantBits
+                    && (mBuffer.getShort(record + RECORD_MAJOR) & 0xFFFF) == major
+                    && (mBuffer.getShort(record + RECORD_MINOR) & 0xFFFF) == minor) {
+                if ((flags & FLAG_REMOVED) != 0) {
+                    return REMOVED;
+                }
+                read(record, entry);
+                return FOUND;
+            }
+        }
+    }
+
+    /**
+     * Give an iBeacon its installed position, floor, and calibrated TX Power, if it is in the catalog
+     *
+     * @param iBeacon the iBeacon
+     * @param entry reused to read the catalog
+     * @return <b>true</b> if the iBeacon is in the catalog
+     */
+    public boolean apply(IBeacon iBeacon, CatalogEntry entry) {
+        if (!find(iBeacon, entry)) {
+            return false;
+        }
+        entry.applyTo(iBeacon);
+        return true;
+    }
+
+    /**
+     * Decode a beacon's metadata.  This allocates, so only call it for beacons being shown.
+     *
+     * @param entry an entry found in this catalog
+     * @return the metadata, or an empty String
+     */
+    public String getMetadata(CatalogEntry entry) {
+        if (entry.mCatalog != this) {
+            throw new IllegalArgumentException("Entry was not found in this catalog");
+        }
+        if (entry.mMetadataLength == 0) {
+            return "";
+        }
+        byte[] bytes = new byte[entry.mMetadataLength];
+        ByteBuffer metadata = mBuffer.duplicate();
+        metadata.position(mMetadataOffset + entry.mMetadataPosition);
+        metadata.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * Add every record, including tombstones, to a writer, replacing any it already has
+     *
+     * @param writer the writer
+     */
+    void copyTo(BeaconCatalogWriter writer) {
+        CatalogEntry entry = new CatalogEntry();
+        byte[] metadata = new byte[0];
+        for (int slot = 0; slot <= mSlotMask; slot++) {
+            int record = HEADER_SIZE + slot * RECORD_SIZE;
+            int flags = mBuffer.get(record + RECORD_FLAGS);
+            if ((flags & FLAG_OCCUPIED) == 0) {
+                continue;
+            }
+            UUID uuid = new UUID(mBuffer.getLong(record + RECORD_UUID_MOST), mBuffer.getLong(record + RECORD_UUID_LEAST));
+            int major = mBuffer.getShort(record + RECORD_MAJOR) & 0xFFFF;
+            int minor = mBuffer.getShort(record + RECORD_MINOR) & 0xFFFF;
+            if ((flags & FLAG_REMOVED) != 0) {
+                writer.put(uuid, major, minor, 0, 0, 0, BeaconCatalogWriter.NO_TRANSMISSION_POWER, metadata, true);
+                continue;
+            }
+            read(record, entry);
+            if (entry.mMetadataLength > 0) {
+                metadata = new byte[entry.mMetadataLength];
+                ByteBuffer source = mBuffer.duplicate();
+                source.position(mMetadataOffset + entry.mMetadataPosition);
+                source.get(metadata);
+            } else {
+                metadata = new byte[0];
+            }
+            writer.put(uuid, major, minor, entry.mX, entry.mY, entry.mFloor,
+                    entry.mHasTransmissionPower ? entry.mTransmissionPower : BeaconCatalogWriter.NO_TRANSMISSION_POWER,
+                    metadata, false);
+        }
+    }
+
+    private void read(int record, CatalogEntry entry) {
+        entry.mCatalog = this;
+        int flags = mBuffer.get(record + RECORD_FLAGS);
+        entry.mHasTransmissionPower = (flags & FLAG_TRANSMISSION_POWER) != 0;
+        entry.mTransmissionPower = mBuffer.get(record + RECORD_TRANSMISSION_POWER);
+        entry.mFloor = mBuffer.getShort(record + RECORD_FLOOR);
+        entry.mX = mBuffer.getFloat(record + RECORD_X);
+        entry.mY = mBuffer.getFloat(record + RECORD_Y);
+        entry.mMetadataPosition = mBuffer.getInt(record + RECORD_METADATA_POSITION);
+        entry.mMetadataLength = mBuffer.getShort(record + RECORD_METADATA_LENGTH) & 0xFFFF;
+        if ((long) entry.mMetadataPosition + entry.mMetadataLength > mMetadataLength) {
+            entry.mMetadataLength = 0; // corrupt, rather than reading another beacon's
+        }
+    }
+
+    /**
+     * Spread a beacon's identity over the slots.  The writer uses the same function.
+     */
+    static int hash(long mostSignificantBits, long leastSignificantBits, int major, int minor) {
+        long hash = mostSignificantBits * 31 + leastSignificantBits;
+        hash = hash * 31 + ((major << 16) | minor);
+        // MurmurHash3's finalizer, so that sequential Minors do not cluster
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return (int) hash;
+    }
+}
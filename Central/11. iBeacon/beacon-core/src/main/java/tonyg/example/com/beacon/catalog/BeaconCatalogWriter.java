@@ -0,0 +1,254 @@
+package tonyg.example.com.beacon.catalog;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.UUID;
+
+import static tonyg.example.com.beacon.catalog.BeaconCatalog.*;
+
+
+/**
+ * Build a BeaconCatalog file from a survey of installed beacons, or a delta segment for a CatalogStore.
+ *
+ * The hash table is sized to at most half full, so probes stay short.  Removals are written as
+ * tombstones.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class BeaconCatalogWriter {
+    /** Constants **/
+    public static final int NO_TRANSMISSION_POWER = Integer.MIN_VALUE; // use the advertised TX Power
+    public static final int MAX_METADATA_LENGTH = 0xFFFF; // UTF-8 bytes
+
+    /**
+     * A beacon's identity
+     */
+    private static class Key {
+        final UUID mUuid;
+        final int mMajor;
+        final int mMinor;
+
+        Key(UUID uuid, int major, int minor) {
+            mUuid = uuid;
+            mMajor = major;
+            mMinor = minor;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return mMajor == key.mMajor && mMinor == key.mMinor && mUuid.equals(key.mUuid);
+        }
+
+        @Override
+        public int hashCode() {
+            return (mUuid.hashCode() * 31 + mMajor) * 31 + mMinor;
+        }
+    }
+
+    private static class Beacon {
+        final UUID mUuid;
+        final int mMajor;
+        final int mMinor;
+        final float mX;
+        final float mY;
+        final int mFloor;
+        final int mTransmissionPower;
+        final byte[] mMetadata;
+        final boolean mIsRemoved;
+
+        Beacon(UUID uuid, int major, int minor, float x, float y, int floor, int transmissionPower, byte[] metadata, boolean isRemoved) {
+            mUuid = uuid;
+            mMajor = major;
+            mMinor = minor;
+            mX = x;
+            mY = y;
+            mFloor = floor;
+            mTransmissionPower = transmissionPower;
+            mMetadata = metadata;
+            mIsRemoved = isRemoved;
+        }
+    }
+
+    // in the order added, so the same survey always gives the same file
+    private final LinkedHashMap<Key, Beacon> mBeacons = new LinkedHashMap<Key, Beacon>();
+
+
+    /**
+     * Add an installed beacon
+     *
+     * @param uuid its Proximity UUID
+     * @param major its Major number
+     * @param minor its Minor number
+     * @param x x location
+     * @param y y location
+     * @param floor floor number
+     * @param transmissionPower the RSSI measured at 1 meter, or NO_TRANSMISSION_POWER
+     * @param metadata a description, such as the room, or null
+     * @return this writer
+     * @throws IllegalArgumentException if a value is out of range, or the beacon was already added
+     */
+    public BeaconCatalogWriter add(UUID uuid, int major, int minor, double x, double y, int floor,
+                                   int transmissionPower, String metadata) {
+        if (major < 0 || major > 0xFFFF || minor < 0 || minor > 0xFFFF) {
+            throw new IllegalArgumentException("Major and Minor must be 16 bit unsigned numbers");
+        }
+        if (floor < Short.MIN_VALUE || floor > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Floor out of range: " + floor);
+        }
+        if (transmissionPower != NO_TRANSMISSION_POWER && (transmissionPower < Byte.MIN_VALUE || transmissionPower > Byte.MAX_VALUE)) {
+            throw new IllegalArgumentException("TX Power out of range: " + transmissionPower);
+        }
+        byte[] metadataBytes = metadata == null ? new byte[0] : metadata.getBytes(UTF_8);
+        if (metadataBytes.length > MAX_METADATA_LENGTH) {
+            throw new IllegalArgumentException("Metadata longer than " + MAX_METADATA_LENGTH + " bytes");
+        }
+        checkNotAdded(uuid, major, minor);
+        put(uuid, major, minor, (float) x, (float) y, floor, transmissionPower, metadataBytes, false);
+        return this;
+    }
+
+    /**
+     * Remove a beacon that is in an older layer of a CatalogStore
+     *
+     * @param uuid its Proximity UUID
+     * @param major its Major number
+     * @param minor its Minor number
+     * @return this writer
+     * @throws IllegalArgumentException if the beacon was already added
+     */
+    public BeaconCatalogWriter remove(UUID uuid, int major, int minor) {
+        checkNotAdded(uuid, major, minor);
+        put(uuid, major, minor, 0, 0, 0, NO_TRANSMISSION_POWER, new byte[0], true);
+        return this;
+    }
+
+    private void checkNotAdded(UUID uuid, int major, int minor) {
+        if (mBeacons.containsKey(new Key(uuid, major, minor))) {
+            throw new IllegalArgumentException("Beacon added twice: " + uuid + " " + major + " " + minor);
+        }
+    }
+
+    /**
+     * Add or replace a beacon, without checking it
+     */
+    void put(UUID uuid, int major, int minor, float x, float y, int floor, int transmissionPower, byte[] metadata, boolean isRemoved) {
+        Key key = new Key(uuid, major, minor);
+        // removed first, so a replaced beacon moves to the end like a new one
+        mBeacons.remove(key);
+        mBeacons.put(key, new Beacon(uuid, major, minor, x, y, floor, transmissionPower, metadata, isRemoved));
+    }
+
+    /**
+     * Forget the removals, once there is no older layer for them to hide beacons in
+     */
+    void dropRemovals() {
+        Iterator<Beacon> beacons = mBeacons.values().iterator();
+        while (beacons.hasNext()) {
+            if (beacons.next().mIsRemoved) {
+                beacons.remove();
+            }
+        }
+    }
+
+    /**
+     * Get the number of beacons added or removed
+     */
+    public int size() {
+        return mBeacons.size();
+    }
+
+    /**
+     * Lay out the catalog
+     *
+     * @return the catalog's bytes, ready for BeaconCatalog.wrap()
+     */
+    public ByteBuffer toByteBuffer() {
+        int metadataLength = 0;
+        for (Beacon beacon : mBeacons.values()) {
+            metadataLength += beacon.mMetadata.length;
+        }
+        int slotCount = Integer.highestOneBit(Math.max(mBeacons.size(), 4) * 2 - 1) << 1; // at most half full
+        int slotMask = slotCount - 1;
+        int metadataOffset = HEADER_SIZE + slotCount * RECORD_SIZE;
+        ByteBuffer buffer = ByteBuffer.allocate(metadataOffset + metadataLength);
+
+        buffer.putInt(HEADER_MAGIC, MAGIC);
+        buffer.putShort(HEADER_VERSION, (short) VERSION);
+        buffer.putShort(HEADER_RECORD_SIZE, (short) RECORD_SIZE);
+        buffer.putInt(HEADER_SLOT_COUNT, slotCount);
+        buffer.putInt(HEADER_ENTRY_COUNT, mBeacons.size());
+        buffer.putInt(HEADER_METADATA_OFFSET, metadataOffset);
+        buffer.putInt(HEADER_METADATA_LENGTH, metadataLength);
+
+        int metadataPosition = 0;
+        for (Beacon beacon : mBeacons.values()) {
+            long mostSignificantBits = beacon.mUuid.getMostSignificantBits();
+            long leastSignificantBits = beacon.mUuid.getLeastSignificantBits();
+            int slot = hash(mostSignificantBits, leastSignificantBits, beacon.mMajor, beacon.mMinor) & slotMask;
+            int record = HEADER_SIZE + slot * RECORD_SIZE;
+            // every identity is unique, so the first empty slot is the one
+            while ((buffer.get(record + RECORD_FLAGS) & FLAG_OCCUPIED) != 0) {
+                slot = (slot + 1) & slotMask;
+                record = HEADER_SIZE + slot * RECORD_SIZE;
+            }
+
+            int flags = FLAG_OCCUPIED;
+            if (beacon.mIsRemoved) {
+                flags |= FLAG_REMOVED;
+            }
+            if (beacon.mTransmissionPower != NO_TRANSMISSION_POWER) {
+                flags |= FLAG_TRANSMISSION_POWER;
+                buffer.put(record + RECORD_TRANSMISSION_POWER, (byte) beacon.mTransmissionPower);
+            }
+            buffer.putLong(record + RECORD_UUID_MOST, mostSignificantBits);
+            buffer.putLong(record + RECORD_UUID_LEAST, leastSignificantBits);
+            buffer.putShort(record + RECORD_MAJOR, (short) beacon.mMajor);
+            buffer.putShort(record + RECORD_MINOR, (short) beacon.mMinor);
+            buffer.put(record + RECORD_FLAGS, (byte) flags);
+            buffer.putShort(record + RECORD_FLOOR, (short) beacon.mFloor);
+            buffer.putFloat(record + RECORD_X, beacon.mX);
+            buffer.putFloat(record + RECORD_Y, beacon.mY);
+            buffer.putInt(record + RECORD_METADATA_POSITION, metadataPosition);
+            buffer.putShort(record + RECORD_METADATA_LENGTH, (short) beacon.mMetadata.length);
+
+            buffer.position(metadataOffset + metadataPosition);
+            buffer.put(beacon.mMetadata);
+            metadataPosition += beacon.mMetadata.length;
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Write the catalog.  It is written to a temporary file first, so a reader never maps half a file.
+     *
+     * @param file where to write the catalog
+     * @throws IOException if the file can not be written
+     */
+    public void write(File file) throws IOException {
+        ByteBuffer buffer = toByteBuffer();
+        File temporaryFile = new File(file.getPath() + ".tmp");
+        FileOutputStream outputStream = new FileOutputStream(temporaryFile);
+        try {
+            while (buffer.hasRemaining()) {
+                outputStream.getChannel().write(buffer);
+            }
+            outputStream.getFD().sync();
+        } finally {
+            outputStream.close();
+        }
+        if (!temporaryFile.renameTo(file)) {
+            temporaryFile.delete();
+            throw new IOException("Could not replace " + file);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package tonyg.example.com.beacon.catalog;
+
+import tonyg.example.com.beacon.ble.IBeacon;
+
+/**
+ * One installed beacon, read from a BeaconCatalog.
+ *
+ * Reuse one entry for every lookup, so that lookups do not allocate.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class CatalogEntry {
+    BeaconCatalog mCatalog; // the catalog the entry was read from
+    float mX;
+    float mY;
+    int mFloor;
+    boolean mHasTransmissionPower;
+    int mTransmissionPower;
+    int mMetadataPosition;
+    int mMetadataLength;
+
+    public double getX() { return mX; }
+    public double getY() { return mY; }
+    public int getFloor() { return mFloor; }
+
+    /**
+     * Check if the beacon's TX Power was measured when it was installed
+     */
+    public boolean hasTransmissionPower() { return mHasTransmissionPower; }
+
+    /**
+     * Get the measured RSSI at 1 meter.  Only valid if hasTransmissionPower().
+     */
+    public int getTransmissionPower() { return mTransmissionPower; }
+
+    /**
+     * Decode the beacon's metadata.  This allocates, so only call it for beacons being shown.
+     *
+     * @return the metadata, or an empty String
+     */
+    public String getMetadata() {
+        return mCatalog == null ? "" : mCatalog.getMetadata(this);
+    }
+
+    /**
+     * Give an iBeacon the installed position, floor, and calibrated TX Power
+     *
+     * @param iBeacon the iBeacon
+     */
+    void applyTo(IBeacon iBeacon) {
+        iBeacon.setLocation(mX, mY);
+        iBeacon.setFloor(mFloor);
+        if (mHasTransmissionPower) {
+            iBeacon.setTransmissionPower(mTransmissionPower);
+        }
+    }
+}
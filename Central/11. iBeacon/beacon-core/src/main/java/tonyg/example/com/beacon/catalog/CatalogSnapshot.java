@@ -0,0 +1,88 @@
+package tonyg.example.com.beacon.catalog;
+
+import java.util.UUID;
+
+import tonyg.example.com.beacon.ble.IBeacon;
+
+
+/**
+ * A base catalog and the delta segments on top of it, at one moment.
+ *
+ * A snapshot never changes: a CatalogStore publishes a new one for every update, so a lookup
+ * always sees one consistent version of the catalog.  Newer segments win, and a removal in a
+ * segment hides the beacon in every older one.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public final class CatalogSnapshot {
+    private final BeaconCatalog mBase;
+    private final BeaconCatalog[] mDeltas; // oldest first
+    private final long mVersion;
+
+    CatalogSnapshot(BeaconCatalog base, BeaconCatalog[] deltas, long version) {
+        mBase = base;
+        mDeltas = deltas;
+        mVersion = version;
+    }
+
+    /**
+     * Get the version, which goes up with every update, so users can tell when to look beacons up again
+     */
+    public long getVersion() { return mVersion; }
+
+    public int getDeltaCount() { return mDeltas.length; }
+
+    /**
+     * Get the number of records in the base catalog, which is the number of beacons after a compaction
+     */
+    public int getBaseSize() { return mBase.size(); }
+
+    /**
+     * Look up an installed beacon, newest segment first
+     *
+     * @param uuid its Proximity UUID
+     * @param major its Major number
+     * @param minor its Minor number
+     * @param entry receives the beacon's details, if found
+     * @return <b>true</b> if the beacon is in the catalog
+     */
+    public boolean find(UUID uuid, int major, int minor, CatalogEntry entry) {
+        for (int index = mDeltas.length - 1; index >= 0; index--) {
+            int result = mDeltas[index].lookup(uuid, major, minor, entry);
+            if (result != BeaconCatalog.MISSING) {
+                return result == BeaconCatalog.FOUND;
+            }
+        }
+        return mBase.find(uuid, major, minor, entry);
+    }
+
+    public boolean find(IBeacon iBeacon, CatalogEntry entry) {
+        return find(iBeacon.getUuid(), iBeacon.getMajor(), iBeacon.getMinor(), entry);
+    }
+
+    /**
+     * Give an iBeacon its installed position, floor, and calibrated TX Power, if it is in the catalog
+     *
+     * @param iBeacon the iBeacon
+     * @param entry reused to read the catalog
+     * @return <b>true</b> if the iBeacon is in the catalog
+     */
+    public boolean apply(IBeacon iBeacon, CatalogEntry entry) {
+        if (!find(iBeacon, entry)) {
+            return false;
+        }
+        entry.applyTo(iBeacon);
+        return true;
+    }
+
+    BeaconCatalog getBase() { return mBase; }
+    BeaconCatalog[] getDeltas() { return mDeltas; }
+
+    CatalogSnapshot withDelta(BeaconCatalog delta) {
+        BeaconCatalog[] deltas = new BeaconCatalog[mDeltas.length + 1];
+        System.arraycopy(mDeltas, 0, deltas, 0, mDeltas.length);
+        deltas[mDeltas.length] = delta;
+        return new CatalogSnapshot(mBase, deltas, mVersion + 1);
+    }
+}
@@ -0,0 +1,158 @@
+package tonyg.example.com.beacon.catalog;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import tonyg.example.com.beacon.ble.IBeacon;
+
+
+/**
+ * A beacon catalog that can be edited without rewriting it.
+ *
+ * Site edits are appended as small delta segments next to the base catalog file, named
+ * [base].delta.[sequence].  Once there are more than maxDeltas segments, they are merged into a new
+ * base, and removed beacons are dropped.  Every file is written to a temporary file and renamed,
+ * and applying the same segments twice gives the same catalog, so a crash during compaction loses
+ * nothing.
+ *
+ * Readers get the current CatalogSnapshot from an AtomicReference, so lookups never wait for an
+ * update.  Updates are serialized, and are slow (a compaction rewrites the catalog), so make them
+ * off the UI thread.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class CatalogStore {
+    /** Constants **/
+    public static final int DEFAULT_MAX_DELTAS = 8;
+    private static final String DELTA_INFIX = ".delta.";
+
+    private final File mBaseFile;
+    private final int mMaxDeltas;
+    private final AtomicReference<CatalogSnapshot> mSnapshot;
+    private final ArrayList<File> mDeltaFiles = new ArrayList<File>(); // oldest first
+    private long mNextSequence;
+
+
+    /**
+     * Map a base catalog and its delta segments
+     *
+     * @param baseFile the base catalog.  If it does not exist, the catalog starts empty.
+     * @param maxDeltas how many segments to allow before compacting
+     * @return the store
+     * @throws IOException if a file can not be read or is not a catalog
+     */
+    public static CatalogStore open(File baseFile, int maxDeltas) throws IOException {
+        return new CatalogStore(baseFile, maxDeltas);
+    }
+
+    private CatalogStore(File baseFile, int maxDeltas) throws IOException {
+        if (maxDeltas < 1) {
+            throw new IllegalArgumentException("Must allow at least one delta segment");
+        }
+        mBaseFile = baseFile;
+        mMaxDeltas = maxDeltas;
+
+        BeaconCatalog base = baseFile.exists() ? BeaconCatalog.open(baseFile) : BeaconCatalog.wrap(new BeaconCatalogWriter().toByteBuffer());
+        ArrayList<Long> sequences = findDeltaSequences();
+        BeaconCatalog[] deltas = new BeaconCatalog[sequences.size()];
+        for (int index = 0; index < deltas.length; index++) {
+            File deltaFile = getDeltaFile(sequences.get(index));
+            deltas[index] = BeaconCatalog.open(deltaFile);
+            mDeltaFiles.add(deltaFile);
+        }
+        mNextSequence = sequences.isEmpty() ? 0 : sequences.get(sequences.size() - 1) + 1;
+        mSnapshot = new AtomicReference<CatalogSnapshot>(new CatalogSnapshot(base, deltas, 0));
+    }
+
+    /**
+     * Get the current version of the catalog.  Never blocks.
+     */
+    public CatalogSnapshot getSnapshot() {
+        return mSnapshot.get();
+    }
+
+    public boolean find(UUID uuid, int major, int minor, CatalogEntry entry) {
+        return mSnapshot.get().find(uuid, major, minor, entry);
+    }
+
+    public boolean apply(IBeacon iBeacon, CatalogEntry entry) {
+        return mSnapshot.get().apply(iBeacon, entry);
+    }
+
+    /**
+     * Add a site edit: beacons added, moved, or removed
+     *
+     * @param delta the changes
+     * @throws IOException if the segment, or a compacted catalog, can not be written
+     */
+    public synchronized void append(BeaconCatalogWriter delta) throws IOException {
+        File deltaFile = getDeltaFile(mNextSequence);
+        delta.write(deltaFile);
+        mNextSequence++;
+        mDeltaFiles.add(deltaFile);
+        mSnapshot.set(mSnapshot.get().withDelta(BeaconCatalog.open(deltaFile)));
+
+        if (mDeltaFiles.size() > mMaxDeltas) {
+            compact();
+        }
+    }
+
+    /**
+     * Merge every delta segment into a new base catalog
+     *
+     * @throws IOException if the new base can not be written
+     */
+    public synchronized void compact() throws IOException {
+        CatalogSnapshot snapshot = mSnapshot.get();
+        if (snapshot.getDeltaCount() == 0) {
+            return;
+        }
+        BeaconCatalogWriter writer = new BeaconCatalogWriter();
+        snapshot.getBase().copyTo(writer);
+        for (BeaconCatalog delta : snapshot.getDeltas()) {
+            delta.copyTo(writer);
+        }
+        writer.dropRemovals();
+        writer.write(mBaseFile);
+
+        // readers still using the old snapshot keep their mappings of the replaced files
+        mSnapshot.set(new CatalogSnapshot(BeaconCatalog.open(mBaseFile), new BeaconCatalog[0], snapshot.getVersion() + 1));
+        for (File deltaFile : mDeltaFiles) {
+            deltaFile.delete();
+        }
+        mDeltaFiles.clear();
+    }
+
+    private File getDeltaFile(long sequence) {
+        return new File(mBaseFile.getPath() + DELTA_INFIX + sequence);
+    }
+
+    /**
+     * Find the sequence numbers of the existing delta segments, oldest first
+     */
+    private ArrayList<Long> findDeltaSequences() {
+        ArrayList<Long> sequences = new ArrayList<Long>();
+        File directory = mBaseFile.getAbsoluteFile().getParentFile();
+        String[] names = directory == null ? null : directory.list();
+        if (names == null) {
+            return sequences;
+        }
+        String prefix = mBaseFile.getName() + DELTA_INFIX;
+        for (String name : names) {
+            if (name.startsWith(prefix)) {
+                try {
+                    sequences.add(Long.parseLong(name.substring(prefix.length())));
+                } catch (NumberFormatException e) {
+                    // an unfinished temporary file
+                }
+            }
+        }
+        Collections.sort(sequences);
+        return sequences;
+    }
+}
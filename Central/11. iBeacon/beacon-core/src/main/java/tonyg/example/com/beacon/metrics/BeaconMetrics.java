@@ -0,0 +1,53 @@
+package tonyg.example.com.beacon.metrics;
+
+/**
+ * The names of the metrics that the scan pipeline records, and the registry the app records them into.
+ *
+ * Only the pipeline stages record: each one creates its instruments, by these names, in the
+ * registry it is given.  The beacon types the stages call do no bookkeeping of their own.
+ *
+ * Rejected advertisements are split by reason: a structure ran past the end of the Scan Record,
+ * no codec recognized it, a codec recognized it but could not decode it, or it decoded but was
+ * not a usable iBeacon.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public final class BeaconMetrics {
+    public static final MetricsRegistry REGISTRY = new MetricsRegistry();
+
+    public static final String ADVERTISEMENTS = "scan.advertisements";
+    public static final String DECODED = "parse.decoded";
+    public static final String REJECTED_TRUNCATED = "parse.rejected.truncated";
+    public static final String REJECTED_UNKNOWN_FORMAT = "parse.rejected.unknown_format";
+    public static final String REJECTED_MALFORMED = "parse.rejected.malformed";
+    public static final String REJECTED_INVALID = "parse.rejected.invalid";
+    public static final String DEDUPLICATION_HITS = "registry.hits";
+    public static final String DEDUPLICATION_MISSES = "registry.misses";
+    public static final String LOST = "registry.lost";
+    public static final String PATH_LOSS_SAMPLES = "registry.path_loss_samples";
+    public static final String PROXIMITY_CHANGES = "proximity.changes";
+    public static final String REGION_ENTERS = "region.enters";
+    public static final String REGION_EXITS = "region.exits";
+    public static final String LOCALIZATION_FAILURES = "locate.failures";
+    public static final String LOCALIZATION_LATENCY = "locate.latency";
+
+    private BeaconMetrics() {}
+
+    /**
+     * Fraction of registry lookups that found a known iBeacon
+     *
+     * @param snapshot a snapshot of the registry the pipeline records into
+     * @return the hit rate over the snapshot's interval, or 0 if there were no lookups
+     */
+    public static double getDeduplicationHitRate(MetricsSnapshot snapshot) {
+        int hitsIndex = snapshot.indexOfCounter(DEDUPLICATION_HITS);
+        int missesIndex = snapshot.indexOfCounter(DEDUPLICATION_MISSES);
+        if (hitsIndex < 0 || missesIndex < 0) {
+            return 0; // no filter stage records into this registry
+        }
+        long hits = snapshot.getCounterDelta(hitsIndex);
+        long misses = snapshot.getCounterDelta(missesIndex);
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+}
@@ -0,0 +1,16 @@
+package tonyg.example.com.beacon.metrics;
+
+/**
+ * A value that is read when a snapshot is taken, such as a queue depth
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public interface Gauge {
+    /**
+     * Read the current value.  Called from the thread taking the snapshot.
+     *
+     * @return the value
+     */
+    long getValue();
+}
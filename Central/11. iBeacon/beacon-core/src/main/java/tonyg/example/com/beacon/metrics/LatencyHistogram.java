@@ -0,0 +1,81 @@
+package tonyg.example.com.beacon.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count durations in fixed, power of two buckets, without locking.
+ *
+ * Bucket 0 holds durations under 1024 ns.  Bucket n holds durations from 2^(n+9) ns up to
+ * 2^(n+10) ns, and the last bucket also holds everything longer, so percentiles are accurate
+ * to within a factor of 2.  Each thread records into its own stripe of buckets.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class LatencyHistogram {
+    /** Constants **/
+    public static final int BUCKET_COUNT = 24; // the last bucket starts at about 4.3 s
+    private static final int FIRST_BUCKET_BITS = 10;
+    private static final int SUM = BUCKET_COUNT; // the total duration, after the buckets
+    private static final int STRIPE_LENGTH = (BUCKET_COUNT + 1 + Stripes.PADDING - 1) / Stripes.PADDING * Stripes.PADDING;
+
+    private final String mName;
+    private final AtomicLongArray mCells = new AtomicLongArray(Stripes.COUNT * STRIPE_LENGTH);
+
+    LatencyHistogram(String name) {
+        mName = name;
+    }
+
+    public String getName() { return mName; }
+
+    /**
+     * Record a duration
+     *
+     * @param nanos the duration, from System.nanoTime()
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        int stripe = Stripes.current() * STRIPE_LENGTH;
+        mCells.getAndIncrement(stripe + getBucket(nanos));
+        mCells.getAndAdd(stripe + SUM, nanos);
+    }
+
+    /**
+     * Record the time since a start time
+     *
+     * @param startNanos the start, from System.nanoTime()
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Add the counts of every bucket to an array
+     *
+     * @param counts BUCKET_COUNT + 1 totals: the count of each bucket, then the total nanoseconds
+     */
+    void addTo(long[] counts) {
+        for (int stripe = 0; stripe < Stripes.COUNT * STRIPE_LENGTH; stripe += STRIPE_LENGTH) {
+            for (int bucket = 0; bucket <= SUM; bucket++) {
+                counts[bucket] += mCells.get(stripe + bucket);
+            }
+        }
+    }
+
+    static int getBucket(long nanos) {
+        int bucket = 64 - Long.numberOfLeadingZeros(nanos) - FIRST_BUCKET_BITS;
+        return bucket < 0 ? 0 : (bucket >= BUCKET_COUNT ? BUCKET_COUNT - 1 : bucket);
+    }
+
+    /**
+     * Get the longest duration that a bucket holds
+     *
+     * @param bucket the bucket
+     * @return nanoseconds, or Long.MAX_VALUE for the last bucket
+     */
+    public static long getUpperBoundNanos(int bucket) {
+        return bucket >= BUCKET_COUNT - 1 ? Long.MAX_VALUE : (1L << (bucket + FIRST_BUCKET_BITS)) - 1;
+    }
+}
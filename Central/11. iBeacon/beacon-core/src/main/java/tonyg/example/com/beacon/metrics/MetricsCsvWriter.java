@@ -0,0 +1,93 @@
+package tonyg.example.com.beacon.metrics;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * Append snapshots to a CSV file, one row per instrument per snapshot, so that files from
+ * different devices can be concatenated and compared.
+ *
+ * Counter rows have the count and rate over the interval and the running total.
+ * Gauge rows have the value in the total column.
+ * Histogram rows have the number of samples, the rate, and the mean and percentiles in microseconds.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class MetricsCsvWriter implements Closeable {
+    /** Constants **/
+    public static final String HEADER = "device,time_ms,metric,count,per_second,total,mean_us,p50_us,p90_us,p99_us";
+
+    private final Writer mWriter;
+    private final String mDevice;
+
+    /**
+     * Write to a stream
+     *
+     * @param writer where to write
+     * @param device identifies the device in every row
+     */
+    public MetricsCsvWriter(Writer writer, String device) {
+        mWriter = writer;
+        mDevice = device.replace(',', ' ');
+    }
+
+    /**
+     * Append to a file, writing the header if the file is new
+     *
+     * @param file the file
+     * @param device identifies the device in every row
+     * @return the writer
+     * @throws IOException if the file cannot be opened
+     */
+    public static MetricsCsvWriter open(File file, String device) throws IOException {
+        boolean isNew = !file.exists() || file.length() == 0;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), "UTF-8"));
+        if (isNew) {
+            writer.write(HEADER);
+            writer.write('\n');
+        }
+        return new MetricsCsvWriter(writer, device);
+    }
+
+    /**
+     * Write a snapshot and flush it
+     *
+     * @param snapshot the snapshot
+     * @throws IOException if the write fails
+     */
+    public void write(MetricsSnapshot snapshot) throws IOException {
+        for (int counter = 0; counter < snapshot.getCounterCount(); counter++) {
+            mWriter.write(String.format(Locale.US, "%s,%d,%s,%d,%.3f,%d,,,,\n",
+                    mDevice, snapshot.getTimeMillis(), snapshot.getCounterName(counter),
+                    snapshot.getCounterDelta(counter), snapshot.getCounterRate(counter),
+                    snapshot.getCounterTotal(counter)));
+        }
+        for (int gauge = 0; gauge < snapshot.getGaugeCount(); gauge++) {
+            mWriter.write(String.format(Locale.US, "%s,%d,%s,,,%d,,,,\n",
+                    mDevice, snapshot.getTimeMillis(), snapshot.getGaugeName(gauge), snapshot.getGaugeValue(gauge)));
+        }
+        for (int histogram = 0; histogram < snapshot.getHistogramCount(); histogram++) {
+            long count = snapshot.getHistogramSampleCount(histogram);
+            mWriter.write(String.format(Locale.US, "%s,%d,%s,%d,%.3f,,%.1f,%d,%d,%d\n",
+                    mDevice, snapshot.getTimeMillis(), snapshot.getHistogramName(histogram),
+                    count, count / snapshot.getIntervalSeconds(),
+                    snapshot.getHistogramMeanNanos(histogram) / 1000,
+                    MetricsSnapshot.toMicros(snapshot.getHistogramPercentileNanos(histogram, 0.5)),
+                    MetricsSnapshot.toMicros(snapshot.getHistogramPercentileNanos(histogram, 0.9)),
+                    MetricsSnapshot.toMicros(snapshot.getHistogramPercentileNanos(histogram, 0.99))));
+        }
+        mWriter.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        mWriter.close();
+    }
+}
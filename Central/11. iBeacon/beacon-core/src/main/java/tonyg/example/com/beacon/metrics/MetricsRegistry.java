@@ -0,0 +1,127 @@
+package tonyg.example.com.beacon.metrics;
+
+import java.util.ArrayList;
+
+/**
+ * A set of named counters, gauges, and histograms, and the snapshots taken of them.
+ *
+ * Creating an instrument and taking a snapshot lock the registry.  Recording into an instrument
+ * never does, so create instruments up front and keep the references.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class MetricsRegistry {
+    private final ArrayList<StripedCounter> mCounters = new ArrayList<StripedCounter>();
+    private final ArrayList<LatencyHistogram> mHistograms = new ArrayList<LatencyHistogram>();
+    private final ArrayList<String> mGaugeNames = new ArrayList<String>();
+    private final ArrayList<Gauge> mGauges = new ArrayList<Gauge>();
+
+    // totals at the last snapshot, so each snapshot can report what happened since
+    private long[] mLastCounts = new long[0];
+    private long[][] mLastBuckets = new long[0][];
+    private long mLastSnapshotNanos = System.nanoTime();
+
+    /**
+     * Get a counter, creating it the first time
+     *
+     * @param name the counter name
+     * @return the counter
+     */
+    public synchronized StripedCounter counter(String name) {
+        for (StripedCounter counter : mCounters) {
+            if (counter.getName().equals(name)) {
+                return counter;
+            }
+        }
+        StripedCounter counter = new StripedCounter(name);
+        mCounters.add(counter);
+        return counter;
+    }
+
+    /**
+     * Add a gauge, replacing any gauge with the same name
+     *
+     * @param name the gauge name
+     * @param gauge reads the value
+     */
+    public synchronized void gauge(String name, Gauge gauge) {
+        int index = mGaugeNames.indexOf(name);
+        if (index < 0) {
+            mGaugeNames.add(name);
+            mGauges.add(gauge);
+        } else {
+            mGauges.set(index, gauge);
+        }
+    }
+
+    /**
+     * Get a latency histogram, creating it the first time
+     *
+     * @param name the histogram name
+     * @return the histogram
+     */
+    public synchronized LatencyHistogram histogram(String name) {
+        for (LatencyHistogram histogram : mHistograms) {
+            if (histogram.getName().equals(name)) {
+                return histogram;
+            }
+        }
+        LatencyHistogram histogram = new LatencyHistogram(name);
+        mHistograms.add(histogram);
+        return histogram;
+    }
+
+    /**
+     * Read every instrument, and work out what changed since the last snapshot
+     *
+     * @param timeMillis wall clock time to stamp the snapshot with
+     * @return the snapshot
+     */
+    public synchronized MetricsSnapshot snapshot(long timeMillis) {
+        long nowNanos = System.nanoTime();
+        double intervalSeconds = Math.max(nowNanos - mLastSnapshotNanos, 1) / 1e9;
+        mLastSnapshotNanos = nowNanos;
+
+        int counterCount = mCounters.size();
+        String[] counterNames = new String[counterCount];
+        long[] totals = new long[counterCount];
+        long[] deltas = new long[counterCount];
+        long[] lastCounts = new long[counterCount];
+        for (int index = 0; index < counterCount; index++) {
+            counterNames[index] = mCounters.get(index).getName();
+            totals[index] = mCounters.get(index).sum();
+            deltas[index] = totals[index] - (index < mLastCounts.length ? mLastCounts[index] : 0);
+            lastCounts[index] = totals[index];
+        }
+        mLastCounts = lastCounts;
+
+        String[] gaugeNames = mGaugeNames.toArray(new String[mGaugeNames.size()]);
+        long[] gaugeValues = new long[gaugeNames.length];
+        for (int index = 0; index < gaugeValues.length; index++) {
+            gaugeValues[index] = mGauges.get(index).getValue();
+        }
+
+        int histogramCount = mHistograms.size();
+        String[] histogramNames = new String[histogramCount];
+        long[][] buckets = new long[histogramCount][];
+        long[][] lastBuckets = new long[histogramCount][];
+        for (int index = 0; index < histogramCount; index++) {
+            histogramNames[index] = mHistograms.get(index).getName();
+            long[] total = new long[LatencyHistogram.BUCKET_COUNT + 1];
+            mHistograms.get(index).addTo(total);
+            long[] interval = total.clone();
+            if (index < mLastBuckets.length) {
+                for (int bucket = 0; bucket < interval.length; bucket++) {
+                    interval[bucket] -= mLastBuckets[index][bucket];
+                }
+            }
+            buckets[index] = interval;
+            lastBuckets[index] = total;
+        }
+        mLastBuckets = lastBuckets;
+
+        return new MetricsSnapshot(timeMillis, intervalSeconds, counterNames, totals, deltas,
+                gaugeNames, gaugeValues, histogramNames, buckets);
+    }
+}
@@ -0,0 +1,151 @@
+package tonyg.example.com.beacon.metrics;
+
+import java.util.Locale;
+
+/**
+ * The metrics at one moment, and what changed since the snapshot before.
+ *
+ * Counters have a running total and the change over the interval.  Gauges have the value when
+ * the snapshot was taken.  Histograms only cover the
+ * interval, so their percentiles describe recent behaviour.  Snapshots never change, so they
+ * can be handed to the UI thread.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class MetricsSnapshot {
+    private final long mTimeMillis;
+    private final double mIntervalSeconds;
+    private final String[] mCounterNames;
+    private final long[] mCounterTotals;
+    private final long[] mCounterDeltas;
+    private final String[] mGaugeNames;
+    private final long[] mGaugeValues;
+    private final String[] mHistogramNames;
+    private final long[][] mHistogramBuckets; // each is the bucket counts, then the total nanoseconds
+
+    MetricsSnapshot(long timeMillis, double intervalSeconds, String[] counterNames, long[] counterTotals,
+                    long[] counterDeltas, String[] gaugeNames, long[] gaugeValues,
+                    String[] histogramNames, long[][] histogramBuckets) {
+        mTimeMillis = timeMillis;
+        mIntervalSeconds = intervalSeconds;
+        mCounterNames = counterNames;
+        mCounterTotals = counterTotals;
+        mCounterDeltas = counterDeltas;
+        mGaugeNames = gaugeNames;
+        mGaugeValues = gaugeValues;
+        mHistogramNames = histogramNames;
+        mHistogramBuckets = histogramBuckets;
+    }
+
+    public long getTimeMillis() { return mTimeMillis; }
+    public double getIntervalSeconds() { return mIntervalSeconds; }
+
+    /** Counters **/
+
+    public int getCounterCount() { return mCounterNames.length; }
+    public String getCounterName(int counter) { return mCounterNames[counter]; }
+    public long getCounterTotal(int counter) { return mCounterTotals[counter]; }
+    public long getCounterDelta(int counter) { return mCounterDeltas[counter]; }
+
+    public double getCounterRate(int counter) {
+        return mCounterDeltas[counter] / mIntervalSeconds;
+    }
+
+    /**
+     * Find a counter by name
+     *
+     * @param name the counter name
+     * @return the counter's index, or -1 if there is none
+     */
+    public int indexOfCounter(String name) {
+        for (int index = 0; index < mCounterNames.length; index++) {
+            if (mCounterNames[index].equals(name)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /** Gauges **/
+
+    public int getGaugeCount() { return mGaugeNames.length; }
+    public String getGaugeName(int gauge) { return mGaugeNames[gauge]; }
+    public long getGaugeValue(int gauge) { return mGaugeValues[gauge]; }
+
+    /** Histograms **/
+
+    public int getHistogramCount() { return mHistogramNames.length; }
+    public String getHistogramName(int histogram) { return mHistogramNames[histogram]; }
+
+    /**
+     * Number of durations recorded in the interval
+     */
+    public long getHistogramSampleCount(int histogram) {
+        long count = 0;
+        for (int bucket = 0; bucket < LatencyHistogram.BUCKET_COUNT; bucket++) {
+            count += mHistogramBuckets[histogram][bucket];
+        }
+        return count;
+    }
+
+    /**
+     * Mean duration in the interval
+     *
+     * @return nanoseconds, or 0 if nothing was recorded
+     */
+    public double getHistogramMeanNanos(int histogram) {
+        long count = getHistogramSampleCount(histogram);
+        return count == 0 ? 0 : (double) mHistogramBuckets[histogram][LatencyHistogram.BUCKET_COUNT] / count;
+    }
+
+    /**
+     * Estimate a percentile of the durations in the interval
+     *
+     * @param histogram the histogram
+     * @param fraction the percentile, from 0 to 1
+     * @return the upper bound of the bucket the percentile falls in, in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getHistogramPercentileNanos(int histogram, double fraction) {
+        long count = getHistogramSampleCount(histogram);
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < LatencyHistogram.BUCKET_COUNT; bucket++) {
+            seen += mHistogramBuckets[histogram][bucket];
+            if (seen >= rank) {
+                return LatencyHistogram.getUpperBoundNanos(bucket);
+            }
+        }
+        return LatencyHistogram.getUpperBoundNanos(LatencyHistogram.BUCKET_COUNT - 1);
+    }
+
+    /**
+     * One line per instrument, for a debug overlay
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (int counter = 0; counter < mCounterNames.length; counter++) {
+            text.append(String.format(Locale.US, "%s %d (%.1f/s)\n",
+                    mCounterNames[counter], mCounterTotals[counter], getCounterRate(counter)));
+        }
+        for (int gauge = 0; gauge < mGaugeNames.length; gauge++) {
+            text.append(mGaugeNames[gauge]).append(' ').append(mGaugeValues[gauge]).append('\n');
+        }
+        for (int histogram = 0; histogram < mHistogramNames.length; histogram++) {
+            text.append(String.format(Locale.US, "%s n=%d mean=%.0f us p50<%d us p99<%d us\n",
+                    mHistogramNames[histogram], getHistogramSampleCount(histogram),
+                    getHistogramMeanNanos(histogram) / 1000,
+                    toMicros(getHistogramPercentileNanos(histogram, 0.5)),
+                    toMicros(getHistogramPercentileNanos(histogram, 0.99))));
+        }
+        return text.toString();
+    }
+
+    static long toMicros(long nanos) {
+        return nanos == Long.MAX_VALUE ? nanos : (nanos + 1) / 1000;
+    }
+}
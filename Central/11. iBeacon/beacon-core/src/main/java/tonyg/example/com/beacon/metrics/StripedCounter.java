@@ -0,0 +1,45 @@
+package tonyg.example.com.beacon.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter that many threads can add to without locking, in the style of Java 8's LongAdder.
+ *
+ * Each thread adds to one of several padded cells, so the scan, parse, and locate threads do not
+ * fight over one cache line.  Reading the total sums the cells, so it is slower than adding and
+ * is not an atomic snapshot: adds that race with sum() may or may not be included.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class StripedCounter {
+    private final String mName;
+    private final AtomicLongArray mCells = new AtomicLongArray(Stripes.COUNT * Stripes.PADDING);
+
+    StripedCounter(String name) {
+        mName = name;
+    }
+
+    public String getName() { return mName; }
+
+    public void increment() {
+        add(1);
+    }
+
+    public void add(long value) {
+        mCells.getAndAdd(Stripes.current() * Stripes.PADDING, value);
+    }
+
+    /**
+     * Get the total of every add so far
+     *
+     * @return the total
+     */
+    public long sum() {
+        long sum = 0;
+        for (int stripe = 0; stripe < Stripes.COUNT; stripe++) {
+            sum += mCells.get(stripe * Stripes.PADDING);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,33 @@
+package tonyg.example.com.beacon.metrics;
+
+/**
+ * Pick a stripe for the current thread.
+ *
+ * Threads are spread over the stripes by a hash of their id, so two threads only share a
+ * stripe, and contend on it, when their hashes collide.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+final class Stripes {
+    /** Longs between stripes, so that each stripe has its own 64-byte cache line **/
+    static final int PADDING = 8;
+
+    static final int COUNT = count(Runtime.getRuntime().availableProcessors());
+
+    private Stripes() {}
+
+    /**
+     * Twice the number of processors, rounded up to a power of two, up to 64
+     */
+    static int count(int processors) {
+        int stripes = Math.max(1, Math.min(processors * 2, 64));
+        return Integer.highestOneBit(stripes * 2 - 1);
+    }
+
+    static int current() {
+        long id = Thread.currentThread().getId();
+        int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (COUNT - 1);
+    }
+}
@@ -0,0 +1,21 @@
+package tonyg.example.com.beacon.pipeline;
+
+/**
+ * One scan result, as received from the Bluetooth stack
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public final class Advertisement {
+    public final String macAddress;
+    public final byte[] scanRecord; // owned by the pipeline once submitted
+    public final int rssi;
+    public final long timeMillis; // wall clock, for rotating identifiers
+
+    public Advertisement(String macAddress, byte[] scanRecord, int rssi, long timeMillis) {
+        this.macAddress = macAddress;
+        this.scanRecord = scanRecord;
+        this.rssi = rssi;
+        this.timeMillis = timeMillis;
+    }
+}
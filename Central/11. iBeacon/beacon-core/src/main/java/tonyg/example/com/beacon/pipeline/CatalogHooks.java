@@ -0,0 +1,44 @@
+package tonyg.example.com.beacon.pipeline;
+
+import tonyg.example.com.beacon.ble.IBeacon;
+
+
+/**
+ * The FilterStage's calls out to the app when an iBeacon is first seen and when it is lost,
+ * such as to look it up in, or note it in, the BeaconCatalog.
+ *
+ * Not thread safe: set the listeners before starting the stage, and call only on its thread.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+class CatalogHooks {
+    private FilterStage.NewIBeaconListener mNewIBeaconListener;
+    private FilterStage.IBeaconLostListener mIBeaconLostListener;
+
+    void setNewIBeaconListener(FilterStage.NewIBeaconListener listener) {
+        mNewIBeaconListener = listener;
+    }
+
+    void setIBeaconLostListener(FilterStage.IBeaconLostListener listener) {
+        mIBeaconLostListener = listener;
+    }
+
+    /**
+     * An iBeacon was seen for the first time, before it joins the registry
+     */
+    void onNewIBeacon(IBeacon iBeacon) {
+        if (mNewIBeaconListener != null) {
+            mNewIBeaconListener.onNewIBeacon(iBeacon);
+        }
+    }
+
+    /**
+     * An iBeacon was lost, after it left the registry
+     */
+    void onIBeaconLost(IBeacon iBeacon) {
+        if (mIBeaconLostListener != null) {
+            mIBeaconLostListener.onIBeaconLost(iBeacon);
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package tonyg.example.com.beacon.pipeline;
+
+import java.util.List;
+
+import tonyg.example.com.beacon.ble.IBeacon;
+import tonyg.example.com.beacon.ble.IBeaconRegistry;
+import tonyg.example.com.beacon.ble.ProximityTracker;
+import tonyg.example.com.beacon.metrics.BeaconMetrics;
+import tonyg.example.com.beacon.metrics.MetricsRegistry;
+import tonyg.example.com.beacon.metrics.StripedCounter;
+import tonyg.example.com.beacon.region.Region;
+import tonyg.example.com.beacon.utilities.TimingWheel;
+import tonyg.example.com.beacon.utilities.TxPowerCalibrator;
+
+
+/**
+ * Deduplicate Sightings into the registry of known iBeacons and smooth their RSSI.
+ *
+ * The registry belongs to this stage's thread.  Other stages and the UI get copies: a
+ * NearestPublisher publishes the nearest iBeacons to the RenderStage, at most every publish
+ * interval and whenever the queue empties, and sends the few nearest on to the LocateStage.
+ *
+ * Each sighting is also handed to the stage's collaborators, which all run on its thread:
+ *
+ * IBeaconExpiry:       while scanning, forgets an iBeacon not seen for the lost timeout, so it
+ *                      no longer shows or skews the position.  iBeacons added with add() never
+ *                      expire.
+ * RegionNotifier:      region enters and exits, timed the same way
+ * ProximityNotifier:   the iBeacon's stable proximity; only real changes are sent on
+ * PathLossSurvey:      while the phone is held at a surveyed position, refits the PathLossModel
+ *                      of each iBeacon with a known location
+ * TxPowerCalibration:  collects the RSSIs of the iBeacon being calibrated
+ * CatalogHooks:        tells the app when an iBeacon is first seen and when it is lost
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class FilterStage extends PipelineStage<Sighting> {
+    /** Constants **/
+    public static final long DEFAULT_PUBLISH_INTERVAL_NANOS = 100 * 1000000L;
+    public static final long DEFAULT_LOST_TIMEOUT_NANOS = 3000 * 1000000L;
+    public static final long EXPIRY_TICK_NANOS = 100 * 1000000L; // how late a lost iBeacon can be noticed
+
+    /**
+     * Set up an iBeacon the first time it is seen, such as looking up its position or TX Power.
+     * Called on the filter stage's thread.
+     */
+    public interface NewIBeaconListener {
+        void onNewIBeacon(IBeacon iBeacon);
+    }
+
+    /**
+     * Told when an iBeacon has not been seen for the lost timeout, after it is forgotten.
+     * Called on the filter stage's thread.
+     */
+    public interface IBeaconLostListener {
+        void onIBeaconLost(IBeacon iBeacon);
+    }
+
+    /**
+     * Told when an iBeacon's stable proximity changes, on the UI thread
+     */
+    public interface ProximityListener {
+        /**
+         * @param iBeacon a copy of the iBeacon, with its new getStableProximity()
+         * @param previousProximity its proximity before
+         */
+        void onProximityChanged(IBeacon iBeacon, int previousProximity);
+    }
+
+    /**
+     * Receives region events, on the UI thread
+     */
+    public interface RegionListener {
+        void onEnterRegion(Region region);
+        void onExitRegion(Region region);
+    }
+
+    /**
+     * Receives the result of a calibration, on the UI thread
+     */
+    public interface CalibrationListener {
+        /**
+         * @param target the calibrated iBeacon
+         * @param calibrator the samples, or <b>null</b> if calibration was not started
+         */
+        void onCalibrationFinished(IBeacon target, TxPowerCalibrator calibrator);
+    }
+
+    private final IBeaconRegistry mIBeacons = new IBeaconRegistry();
+    private final NearestPublisher mPublisher;
+    private final RenderStage mRender;
+    private final IBeaconExpiry mExpiry;
+    private final RegionNotifier mRegions;
+    private final ProximityNotifier mProximity;
+    private final PathLossSurvey mSurvey;
+    private final TxPowerCalibration mCalibration = new TxPowerCalibration();
+    private final CatalogHooks mHooks = new CatalogHooks();
+    private boolean mIsScanning = false;
+
+    private final StripedCounter mDeduplicationHits;
+    private final StripedCounter mDeduplicationMisses;
+    private final StripedCounter mLost;
+
+    /**
+     * Create the stage
+     *
+     * @param capacity the most Sightings that can wait
+     * @param maxPublished the most iBeacons published, nearest first
+     * @param minForLocation the fewest iBeacons that a position can be found from
+     * @param publishIntervalNanos the shortest time between publishes while busy
+     * @param locate where to send the nearest iBeacons
+     * @param render where to publish the nearest iBeacons
+     * @param metrics where to record the stage's metrics
+     */
+    public FilterStage(int capacity, int maxPublished, int minForLocation, long publishIntervalNanos,
+                       LocateStage locate, RenderStage render, MetricsRegistry metrics) {
+        super("filter", capacity, metrics);
+        mRender = render;
+        mPublisher = new NearestPublisher(mIBeacons, maxPublished, minForLocation, publishIntervalNanos, locate, render);
+        long nowNanos = System.nanoTime();
+        mExpiry = new IBeaconExpiry(EXPIRY_TICK_NANOS, nowNanos, mExpiryListener);
+        mRegions = new RegionNotifier(EXPIRY_TICK_NANOS, nowNanos, render,
+                metrics.counter(BeaconMetrics.REGION_ENTERS), metrics.counter(BeaconMetrics.REGION_EXITS));
+        mProximity = new ProximityNotifier(render, metrics.counter(BeaconMetrics.PROXIMITY_CHANGES));
+        mSurvey = new PathLossSurvey(metrics.counter(BeaconMetrics.PATH_LOSS_SAMPLES));
+        mDeduplicationHits = metrics.counter(BeaconMetrics.DEDUPLICATION_HITS);
+        mDeduplicationMisses = metrics.counter(BeaconMetrics.DEDUPLICATION_MISSES);
+        mLost = metrics.counter(BeaconMetrics.LOST);
+        setTickInterval(EXPIRY_TICK_NANOS);
+    }
+
+    /**
+     * Set before starting the stage
+     */
+    public void setNewIBeaconListener(NewIBeaconListener listener) {
+        mHooks.setNewIBeaconListener(listener);
+    }
+
+    /**
+     * Set before starting the stage
+     */
+    public void setIBeaconLostListener(IBeaconLostListener listener) {
+        mHooks.setIBeaconLostListener(listener);
+    }
+
+    /**
+     * Set before starting the stage
+     *
+     * @param lostTimeoutNanos how long an iBeacon can go unseen, while scanning, before it is forgotten
+     */
+    public void setLostTimeout(long lostTimeoutNanos) {
+        mExpiry.setLostTimeout(lostTimeoutNanos);
+    }
+
+    /**
+     * Set before starting the stage
+     *
+     * @param proximity decides when an iBeacon's proximity has really changed
+     */
+    public void setProximityTracker(ProximityTracker proximity) {
+        mProximity.setTracker(proximity);
+    }
+
+    /**
+     * Set before starting the stage
+     */
+    public void setProximityListener(ProximityListener listener) {
+        mProximity.setListener(listener);
+    }
+
+    /**
+     * Set before starting the stage
+     *
+     * @param exitTimeoutNanos how long none of a region's iBeacons can go unseen, while scanning, before it is left
+     */
+    public void setRegionExitTimeout(long exitTimeoutNanos) {
+        mRegions.setExitTimeout(exitTimeoutNanos);
+    }
+
+    /**
+     * Set before starting the stage
+     */
+    public void setRegionListener(RegionListener listener) {
+        mRegions.setListener(listener);
+    }
+
+    /**
+     * Start monitoring a region, replacing any with the same identifier
+     */
+    public void startMonitoring(final Region region) {
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                mRegions.startMonitoring(region);
+            }
+        });
+    }
+
+    /**
+     * Stop monitoring a region.  No exit is reported for it.
+     */
+    public void stopMonitoring(final Region region) {
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                mRegions.stopMonitoring(region);
+            }
+        });
+    }
+
+    /**
+     * Only look for lost iBeacons while scanning, so the last scan's iBeacons stay listed after it ends
+     *
+     * @param isScanning <b>true</b> when a scan starts, <b>false</b> when it ends
+     */
+    public void setScanning(final boolean isScanning) {
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                if (isScanning && !mIsScanning) {
+                    // time spent not scanning does not count
+                    long nowNanos = System.nanoTime();
+                    mExpiry.resume(nowNanos);
+                    mRegions.resume(nowNanos);
+                }
+                mIsScanning = isScanning;
+            }
+        });
+    }
+
+    /**
+     * Refit the distance model of every iBeacon with a known location from its sightings, until
+     * stopSurvey().  Hold the phone still at the position.
+     *
+     * @param x the phone's X position, in meters
+     * @param y the phone's Y position, in meters
+     */
+    public void startSurvey(final double x, final double y) {
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                mSurvey.start(x, y);
+            }
+        });
+    }
+
+    public void stopSurvey() {
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                mSurvey.stop();
+            }
+        });
+    }
+
+    /**
+     * Forget every iBeacon
+     */
+    public void clear() {
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                mIBeacons.clear();
+                mExpiry.clear();
+                mPublisher.publish();
+            }
+        });
+    }
+
+    /**
+     * Add iBeacons with known positions and RSSIs, such as simulated ones
+     *
+     * @param iBeacons the iBeacons.  They are owned by the stage from now on.
+     */
+    public void add(final List<IBeacon> iBeacons) {
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                for (IBeacon iBeacon : iBeacons) {
+                    mIBeacons.add(iBeacon);
+                }
+                mPublisher.publish();
+            }
+        });
+    }
+
+    /**
+     * Use a different TX Power for a known iBeacon
+     *
+     * @param identity any iBeacon with the same identity
+     * @param transmissionPower the RSSI at 1 meter
+     */
+    public void updateTransmissionPower(final IBeacon identity, final int transmissionPower) {
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                IBeacon known = mIBeacons.get(identity);
+                if (known != null) {
+                    mIBeacons.updateTransmissionPower(known, transmissionPower);
+                    mPublisher.publish();
+                }
+            }
+        });
+    }
+
+    /**
+     * Collect the RSSIs of one iBeacon until finishCalibration()
+     *
+     * @param target the iBeacon to calibrate
+     */
+    public void startCalibration(final IBeacon target) {
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                mCalibration.start(target);
+            }
+        });
+    }
+
+    /**
+     * Stop collecting RSSIs, and hand the samples to the UI thread
+     *
+     * @param listener receives the result
+     */
+    public void finishCalibration(final CalibrationListener listener) {
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                mCalibration.finish(mRender, listener);
+            }
+        });
+    }
+
+    @Override
+    protected void process(Sighting sighting) {
+        IBeacon iBeacon = sighting.iBeacon;
+        mCalibration.onSighting(iBeacon, sighting.rssi);
+
+        IBeacon known = mIBeacons.get(iBeacon);
+        if (known == null) {
+            mDeduplicationMisses.increment();
+            iBeacon.setMacAddress(sighting.macAddress);
+            mHooks.onNewIBeacon(iBeacon);
+            mSurvey.onSighting(iBeacon, sighting.rssi);
+            iBeacon.setRssi(sighting.rssi);
+            mIBeacons.add(iBeacon);
+            known = iBeacon;
+        } else {
+            mDeduplicationHits.increment();
+            // before the RSSI update, which moves it to its place in the distance order
+            mSurvey.onSighting(known, sighting.rssi);
+            mIBeacons.updateRssi(known, sighting.rssi);
+        }
+        if (sighting.telemetry != null) {
+            known.setTelemetry(sighting.telemetry);
+        }
+        long nowNanos = System.nanoTime();
+        mExpiry.onSighting(known, nowNanos);
+        mRegions.onSighting(iBeacon, nowNanos);
+        mProximity.onSighting(known, nowNanos);
+        mPublisher.onChanged(nowNanos);
+    }
+
+    @Override
+    protected void onTick(long nowNanos) {
+        if (!mIsScanning) {
+            return;
+        }
+        mRegions.advance(nowNanos);
+        if (mExpiry.advance(nowNanos) > 0) {
+            mPublisher.publish();
+        }
+    }
+
+    private final TimingWheel.Listener<IBeacon> mExpiryListener = new TimingWheel.Listener<IBeacon>() {
+        @Override
+        public void onExpired(IBeacon iBeacon) {
+            mIBeacons.remove(iBeacon);
+            mLost.increment();
+            mHooks.onIBeaconLost(iBeacon);
+        }
+    };
+
+    @Override
+    protected void onIdle() {
+        mPublisher.flush();
+    }
+}
@@ -0,0 +1,84 @@
+package tonyg.example.com.beacon.pipeline;
+
+import java.util.HashMap;
+
+import tonyg.example.com.beacon.ble.IBeacon;
+import tonyg.example.com.beacon.utilities.TimingWheel;
+
+
+/**
+ * Notice iBeacons that have not been seen for the lost timeout, for the FilterStage.
+ *
+ * Each sighting pushes the iBeacon's timer back in a TimingWheel, which is O(1), and the wheel
+ * is advanced every tick.  iBeacons that were never seen have no timer, so they never expire.
+ * Time spent not scanning does not count.
+ *
+ * Not thread safe: used only on the filter stage's thread.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+class IBeaconExpiry {
+    private final TimingWheel<IBeacon> mWheel;
+    private final TimingWheel.Listener<IBeacon> mListener;
+    private final HashMap<IBeacon, TimingWheel.Timer<IBeacon>> mTimers = new HashMap<IBeacon, TimingWheel.Timer<IBeacon>>();
+    private long mLostTimeoutNanos = FilterStage.DEFAULT_LOST_TIMEOUT_NANOS;
+
+    /**
+     * @param tickNanos how late a lost iBeacon can be noticed
+     * @param nowNanos the time now, from System.nanoTime()
+     * @param listener told of each lost iBeacon, after its timer is forgotten
+     */
+    IBeaconExpiry(long tickNanos, long nowNanos, TimingWheel.Listener<IBeacon> listener) {
+        mWheel = new TimingWheel<IBeacon>(tickNanos, nowNanos);
+        mListener = listener;
+    }
+
+    void setLostTimeout(long lostTimeoutNanos) {
+        mLostTimeoutNanos = lostTimeoutNanos;
+    }
+
+    /**
+     * The iBeacon was seen: restart its timer
+     */
+    void onSighting(IBeacon iBeacon, long nowNanos) {
+        TimingWheel.Timer<IBeacon> timer = mTimers.get(iBeacon);
+        if (timer == null) {
+            timer = mWheel.newTimer(iBeacon);
+            mTimers.put(iBeacon, timer);
+        }
+        mWheel.schedule(timer, nowNanos + mLostTimeoutNanos);
+    }
+
+    /**
+     * A scan started: give every iBeacon the whole lost timeout again
+     */
+    void resume(long nowNanos) {
+        for (TimingWheel.Timer<IBeacon> timer : mTimers.values()) {
+            mWheel.schedule(timer, nowNanos + mLostTimeoutNanos);
+        }
+    }
+
+    /**
+     * Forget the iBeacons whose timers ran out
+     *
+     * @param nowNanos the time now, from System.nanoTime()
+     * @return the number of lost iBeacons
+     */
+    int advance(long nowNanos) {
+        return mWheel.advance(nowNanos, mWheelListener);
+    }
+
+    private final TimingWheel.Listener<IBeacon> mWheelListener = new TimingWheel.Listener<IBeacon>() {
+        @Override
+        public void onExpired(IBeacon iBeacon) {
+            mTimers.remove(iBeacon);
+            mListener.onExpired(iBeacon);
+        }
+    };
+
+    void clear() {
+        mWheel.clear();
+        mTimers.clear();
+    }
+}
@@ -0,0 +1,62 @@
+package tonyg.example.com.beacon.pipeline;
+
+import java.util.ArrayList;
+
+import tonyg.example.com.beacon.ble.IBeacon;
+import tonyg.example.com.beacon.metrics.BeaconMetrics;
+import tonyg.example.com.beacon.metrics.LatencyHistogram;
+import tonyg.example.com.beacon.metrics.MetricsRegistry;
+import tonyg.example.com.beacon.metrics.StripedCounter;
+import tonyg.example.com.beacon.utilities.IBeaconLocator;
+import tonyg.example.com.beacon.utilities.Logger;
+
+
+/**
+ * Find the Central's position from the nearest iBeacons.
+ *
+ * Only the newest set of iBeacons matters, so the FilterStage replaces whatever is waiting
+ * rather than queueing behind it.  However slow a position is to find, it never holds up intake.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class LocateStage extends PipelineStage<ArrayList<IBeacon>> {
+    private static final String TAG = LocateStage.class.getSimpleName();
+
+    private final RenderStage mRender;
+    private final StripedCounter mFailures;
+    private final LatencyHistogram mLatency;
+
+    /**
+     * Create the stage
+     *
+     * @param render where to publish positions
+     * @param metrics where to record the stage's metrics
+     */
+    public LocateStage(RenderStage render, MetricsRegistry metrics) {
+        super("locate", 1, metrics);
+        mRender = render;
+        mFailures = metrics.counter(BeaconMetrics.LOCALIZATION_FAILURES);
+        mLatency = metrics.histogram(BeaconMetrics.LOCALIZATION_LATENCY);
+    }
+
+    @Override
+    protected void process(ArrayList<IBeacon> nearest) {
+        long startNanos = System.nanoTime();
+        try {
+            double[] centralPosition = IBeaconLocator.trilaterate(nearest);
+            mLatency.recordSince(startNanos);
+            if (Double.isNaN(centralPosition[0]) || Double.isNaN(centralPosition[1])) {
+                return; // the iBeacons are in a line
+            }
+            if (Logger.isLoggable(Logger.DEBUG)) {
+                Logger.d(TAG, "Central at " + centralPosition[0] + ", " + centralPosition[1]);
+            }
+            mRender.publishPosition(centralPosition[0], centralPosition[1]);
+        } catch (Exception e) {
+            mLatency.recordSince(startNanos);
+            mFailures.increment();
+            Logger.d(TAG, "Could not perform a triangulation with {} iBeacons", nearest.size());
+        }
+    }
+}
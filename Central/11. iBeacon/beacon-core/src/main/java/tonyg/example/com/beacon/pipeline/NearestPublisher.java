@@ -0,0 +1,97 @@
+package tonyg.example.com.beacon.pipeline;
+
+import java.util.ArrayList;
+
+import tonyg.example.com.beacon.ble.IBeacon;
+import tonyg.example.com.beacon.ble.IBeaconRegistry;
+
+
+/**
+ * Publish copies of the FilterStage's nearest iBeacons: all of them to the RenderStage, and the
+ * few nearest to the LocateStage.  While sightings keep arriving, publishes are at most one
+ * publish interval apart.
+ *
+ * Not thread safe: used only on the filter stage's thread.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+class NearestPublisher {
+    private final IBeaconRegistry mIBeacons;
+    private final ArrayList<IBeacon> mNearest;
+    private final ArrayList<IBeacon> mTrilaterationIBeacons;
+    private final int mMaxPublished;
+    private final int mMinForLocation;
+    private final long mPublishIntervalNanos;
+    private final LocateStage mLocate;
+    private final RenderStage mRender;
+
+    private boolean mIsChanged = false; // since the last publish
+    private long mLastPublishNanos;
+
+    /**
+     * @param iBeacons the registry to publish from
+     * @param maxPublished the most iBeacons published, nearest first
+     * @param minForLocation the fewest iBeacons that a position can be found from
+     * @param publishIntervalNanos the shortest time between publishes while busy
+     * @param locate where to send the nearest iBeacons
+     * @param render where to publish the nearest iBeacons
+     */
+    NearestPublisher(IBeaconRegistry iBeacons, int maxPublished, int minForLocation, long publishIntervalNanos,
+                     LocateStage locate, RenderStage render) {
+        mIBeacons = iBeacons;
+        mMaxPublished = maxPublished;
+        mMinForLocation = minForLocation;
+        mPublishIntervalNanos = publishIntervalNanos;
+        mNearest = new ArrayList<IBeacon>(maxPublished);
+        mTrilaterationIBeacons = new ArrayList<IBeacon>(minForLocation);
+        mLocate = locate;
+        mRender = render;
+    }
+
+    /**
+     * The registry changed: publish if the last publish was at least an interval ago
+     */
+    void onChanged(long nowNanos) {
+        mIsChanged = true;
+        if (nowNanos - mLastPublishNanos >= mPublishIntervalNanos) {
+            publish();
+        }
+    }
+
+    /**
+     * Publish any change not yet published
+     */
+    void flush() {
+        if (mIsChanged) {
+            publish();
+        }
+    }
+
+    /**
+     * Send copies of the nearest iBeacons to the render and locate stages
+     */
+    void publish() {
+        mIsChanged = false;
+        mLastPublishNanos = System.nanoTime();
+
+        mIBeacons.getNearest(mMaxPublished, mNearest);
+        ArrayList<IBeacon> copies = new ArrayList<IBeacon>(mNearest.size());
+        for (IBeacon iBeacon : mNearest) {
+            copies.add(iBeacon.copy());
+        }
+        mRender.publishIBeacons(copies, mIBeacons.size());
+
+        if (mIBeacons.size() >= mMinForLocation) {
+            // the nearest iBeacons have the most reliable distances
+            mIBeacons.getNearest(mMinForLocation, mTrilaterationIBeacons);
+            ArrayList<IBeacon> locateCopies = new ArrayList<IBeacon>(mMinForLocation);
+            for (IBeacon iBeacon : mTrilaterationIBeacons) {
+                locateCopies.add(iBeacon.copy());
+            }
+            mLocate.offerLatest(locateCopies);
+        } else {
+            mRender.clearPosition();
+        }
+    }
+}
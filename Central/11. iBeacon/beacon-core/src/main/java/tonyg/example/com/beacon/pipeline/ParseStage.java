@@ -0,0 +1,166 @@
+package tonyg.example.com.beacon.pipeline;
+
+import tonyg.example.com.beacon.ble.EphemeralIdResolver;
+import tonyg.example.com.beacon.ble.IBeacon;
+import tonyg.example.com.beacon.ble.TelemetryTracker;
+import tonyg.example.com.beacon.metrics.BeaconMetrics;
+import tonyg.example.com.beacon.metrics.MetricsRegistry;
+import tonyg.example.com.beacon.metrics.StripedCounter;
+import tonyg.example.com.beacon.utilities.Logger;
+import tonyg.example.com.blecodec.codecs.BeaconCodecRegistry;
+import tonyg.example.com.blecodec.codecs.BeaconFrame;
+
+
+/**
+ * Turn Advertisements into Sightings.  Rotating identifiers are replaced with their fixed ones.
+ *
+ * Telemetry is kept here, by beacon identity.  A telemetry frame and an identity frame in the same
+ * Scan Record, as in an active scan of an advertisement and its scan response, belong together in
+ * either order.  The Peripheral advertises telemetry from its own advertising set, with the iBeacon
+ * frame as the scan response; that identity only links the telemetry and is not a Sighting.
+ * A telemetry frame on its own is matched by the address an identity was last seen from.
+ * Each Sighting carries a copy of its beacon's telemetry when it has changed.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class ParseStage extends PipelineStage<Advertisement> {
+    private static final String TAG = ParseStage.class.getSimpleName();
+
+    private final BeaconCodecRegistry mCodecs = BeaconCodecRegistry.createDefault();
+    private final BeaconFrame mFrame = new BeaconFrame(); // reused for every Scan Record
+    private final BeaconFrame mScanResponse = new BeaconFrame(); // the frame after mFrame, if any
+    private final TelemetryTracker mTelemetry = new TelemetryTracker();
+    private final EphemeralIdResolver mEphemeralIds;
+    private final FilterStage mFilter;
+    private final StripedCounter mDecoded;
+    private final StripedCounter mRejectedTruncated;
+    private final StripedCounter mRejectedUnknownFormat;
+    private final StripedCounter mRejectedMalformed;
+    private final StripedCounter mRejectedInvalid;
+
+    /**
+     * Create the stage
+     *
+     * @param capacity the most Advertisements that can wait
+     * @param ephemeralIds resolves rotating identifiers.  Register every beacon before starting the stage.
+     * @param filter where to send Sightings
+     * @param metrics where to record the stage's metrics
+     */
+    public ParseStage(int capacity, EphemeralIdResolver ephemeralIds, FilterStage filter, MetricsRegistry metrics) {
+        super("parse", capacity, metrics);
+        mEphemeralIds = ephemeralIds;
+        mFilter = filter;
+        mDecoded = metrics.counter(BeaconMetrics.DECODED);
+        mRejectedTruncated = metrics.counter(BeaconMetrics.REJECTED_TRUNCATED);
+        mRejectedUnknownFormat = metrics.counter(BeaconMetrics.REJECTED_UNKNOWN_FORMAT);
+        mRejectedMalformed = metrics.counter(BeaconMetrics.REJECTED_MALFORMED);
+        mRejectedInvalid = metrics.counter(BeaconMetrics.REJECTED_INVALID);
+    }
+
+    /**
+     * Forget all telemetry.  Runs on the stage's thread.
+     */
+    public void clear() {
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                mTelemetry.clear();
+            }
+        });
+    }
+
+    @Override
+    protected void process(Advertisement advertisement) {
+        Logger.v(TAG, "iBeacon discovered, GAP: {}", advertisement.scanRecord);
+
+        // one pass over the Scan Record recognizes any supported beacon format
+        byte[] scanRecord = advertisement.scanRecord;
+        int result = mCodecs.decodeWithResult(scanRecord, 0, scanRecord.length, mFrame);
+        if (result != BeaconCodecRegistry.RESULT_DECODED) {
+            countRejection(result);
+            Logger.d(TAG, "Not a beacon");
+            return;
+        }
+        mDecoded.increment();
+        boolean hasScanResponse = decodeScanResponse(scanRecord);
+        if (mFrame.getFormat() == BeaconFrame.FORMAT_EDDYSTONE_TLM) {
+            // telemetry only updates the tracker.  The next Sighting picks it up
+            if (hasScanResponse && mScanResponse.hasIdentity()) {
+                IBeacon iBeacon = toIBeacon(mScanResponse, advertisement);
+                if (iBeacon != null) {
+                    mTelemetry.putIdentity(advertisement.macAddress, iBeacon);
+                    mTelemetry.update(iBeacon, mFrame, advertisement.timeMillis);
+                    logTelemetry(advertisement.macAddress, mFrame);
+                }
+            } else if (mTelemetry.update(advertisement.macAddress, mFrame, advertisement.timeMillis) != null) {
+                logTelemetry(advertisement.macAddress, mFrame);
+            }
+            return;
+        }
+
+        IBeacon iBeacon = toIBeacon(mFrame, advertisement);
+        if (iBeacon == null) {
+            return;
+        }
+        mTelemetry.putIdentity(advertisement.macAddress, iBeacon);
+        if (hasScanResponse && mScanResponse.getFormat() == BeaconFrame.FORMAT_EDDYSTONE_TLM) {
+            mTelemetry.update(iBeacon, mScanResponse, advertisement.timeMillis);
+            logTelemetry(advertisement.macAddress, mScanResponse);
+        }
+        mFilter.offer(new Sighting(iBeacon, advertisement.macAddress, advertisement.rssi, mTelemetry.takeChanged(iBeacon)));
+    }
+
+    /**
+     * Decode the frame after mFrame into mScanResponse.  The scan response follows the advertisement
+     * in the Scan Record, after any padding
+     *
+     * @return <b>true</b> if a frame was decoded
+     */
+    private boolean decodeScanResponse(byte[] scanRecord) {
+        int position = mFrame.getEndPosition();
+        while (position < scanRecord.length && scanRecord[position] == 0) {
+            position++;
+        }
+        return position < scanRecord.length
+                && mCodecs.decodeWithResult(scanRecord, position, scanRecord.length - position, mScanResponse) == BeaconCodecRegistry.RESULT_DECODED;
+    }
+
+    /**
+     * Convert an identity frame to an iBeacon with its fixed identity
+     *
+     * @return the iBeacon, or <b>null</b> if the frame is not a valid iBeacon
+     */
+    private IBeacon toIBeacon(BeaconFrame frame, Advertisement advertisement) {
+        IBeacon iBeacon;
+        try {
+            iBeacon = IBeacon.fromFrame(frame);
+        } catch (Exception e) {
+            mRejectedInvalid.increment();
+            Logger.d(TAG, "Could not convert scanRecord into iBeacon");
+            return null;
+        }
+        // a rotating identifier is replaced with its fixed one, so it stays the same beacon across rotations
+        mEphemeralIds.resolve(iBeacon, advertisement.timeMillis);
+        return iBeacon;
+    }
+
+    private void logTelemetry(String macAddress, BeaconFrame frame) {
+        if (Logger.isLoggable(Logger.VERBOSE)) {
+            Logger.v(TAG, "Telemetry from " + macAddress + ": " + frame.getBatteryMillivolts() + " mV, " + frame.getTemperature() + " C");
+        }
+    }
+
+    private void countRejection(int result) {
+        switch (result) {
+            case BeaconCodecRegistry.RESULT_TRUNCATED:
+                mRejectedTruncated.increment();
+                break;
+            case BeaconCodecRegistry.RESULT_MALFORMED:
+                mRejectedMalformed.increment();
+                break;
+            default:
+                mRejectedUnknownFormat.increment();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package tonyg.example.com.beacon.pipeline;
+
+import tonyg.example.com.beacon.ble.IBeacon;
+import tonyg.example.com.beacon.metrics.StripedCounter;
+
+
+/**
+ * While the phone is held at a surveyed position, turn each sighting of an iBeacon with a known
+ * location into a sample at a known distance, and refit that iBeacon's PathLossModel.
+ *
+ * Not thread safe: used only on the filter stage's thread.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+class PathLossSurvey {
+    private final StripedCounter mSamples;
+    private boolean mIsSurveying = false;
+    private double mX, mY;
+
+    /**
+     * @param samples counts the samples taken
+     */
+    PathLossSurvey(StripedCounter samples) {
+        mSamples = samples;
+    }
+
+    /**
+     * @param x the phone's X position, in meters
+     * @param y the phone's Y position, in meters
+     */
+    void start(double x, double y) {
+        mIsSurveying = true;
+        mX = x;
+        mY = y;
+    }
+
+    void stop() {
+        mIsSurveying = false;
+    }
+
+    /**
+     * Refit an iBeacon's distance model, if surveying and its location is known
+     */
+    void onSighting(IBeacon iBeacon, int rssi) {
+        if (mIsSurveying && iBeacon.hasLocation()) {
+            double dx = iBeacon.getXLocation() - mX;
+            double dy = iBeacon.getYLocation() - mY;
+            iBeacon.addPathLossSample(Math.sqrt(dx * dx + dy * dy), rssi);
+            mSamples.increment();
+        }
+    }
+}
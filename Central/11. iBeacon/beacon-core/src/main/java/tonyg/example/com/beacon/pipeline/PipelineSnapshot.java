@@ -0,0 +1,54 @@
+package tonyg.example.com.beacon.pipeline;
+
+import java.util.Collections;
+import java.util.List;
+
+import tonyg.example.com.beacon.ble.IBeacon;
+
+/**
+ * What the UI shows: the nearest iBeacons and the Central's position, at one moment.
+ *
+ * The iBeacons are copies that no stage touches again.  Do not modify them.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public final class PipelineSnapshot {
+    public static final PipelineSnapshot EMPTY = new PipelineSnapshot(Collections.<IBeacon>emptyList(), 0, false, 0, 0);
+
+    private final List<IBeacon> mNearestIBeacons;
+    private final int mIBeaconCount;
+    private final boolean mHasPosition;
+    private final double mX;
+    private final double mY;
+
+    PipelineSnapshot(List<IBeacon> nearestIBeacons, int iBeaconCount, boolean hasPosition, double x, double y) {
+        mNearestIBeacons = Collections.unmodifiableList(nearestIBeacons);
+        mIBeaconCount = iBeaconCount;
+        mHasPosition = hasPosition;
+        mX = x;
+        mY = y;
+    }
+
+    /**
+     * Get the nearest iBeacons, nearest first
+     */
+    public List<IBeacon> getNearestIBeacons() { return mNearestIBeacons; }
+
+    /**
+     * Get the number of known iBeacons, which may be more than were listed
+     */
+    public int getIBeaconCount() { return mIBeaconCount; }
+
+    public boolean hasPosition() { return mHasPosition; }
+    public double getX() { return mX; }
+    public double getY() { return mY; }
+
+    PipelineSnapshot withIBeacons(List<IBeacon> nearestIBeacons, int iBeaconCount) {
+        return new PipelineSnapshot(nearestIBeacons, iBeaconCount, mHasPosition, mX, mY);
+    }
+
+    PipelineSnapshot withPosition(boolean hasPosition, double x, double y) {
+        return new PipelineSnapshot(mNearestIBeacons, mIBeaconCount, hasPosition, x, y);
+    }
+}
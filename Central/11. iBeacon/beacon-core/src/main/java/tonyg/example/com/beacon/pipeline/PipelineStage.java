@@ -0,0 +1,250 @@
+package tonyg.example.com.beacon.pipeline;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import tonyg.example.com.beacon.metrics.Gauge;
+import tonyg.example.com.beacon.metrics.LatencyHistogram;
+import tonyg.example.com.beacon.metrics.MetricsRegistry;
+import tonyg.example.com.beacon.metrics.StripedCounter;
+import tonyg.example.com.beacon.utilities.Logger;
+
+
+/**
+ * One step of the scan pipeline: a thread that takes items from a bounded queue and processes them.
+ *
+ * The stage's state belongs to its thread.  Other threads only offer items, which never blocks:
+ * when the queue is full the item is dropped and counted, so a slow stage sheds load instead of
+ * holding up the stage before it.  Commands, such as clearing the state, are never dropped, and
+ * run on the stage's thread before the next item.  A stage can also ask for a regular onTick(),
+ * which is called even when no items arrive.
+ *
+ * An exception thrown while processing an item, ticking or running a command is logged and
+ * counted, and the stage carries on with the next item.
+ *
+ * Each stage records the time spent processing each item, the items processed, dropped and
+ * failed, and its queue depth, named stage.[name].*
+ *
+ * @param <T> the item type
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public abstract class PipelineStage<T> implements Runnable {
+    private static final String TAG = PipelineStage.class.getSimpleName();
+    private static final Object WAKE_UP = new Object(); // queued so the thread notices a new command
+
+    private final String mName;
+    private final ArrayBlockingQueue<Object> mQueue;
+    private final ConcurrentLinkedQueue<Runnable> mCommands = new ConcurrentLinkedQueue<Runnable>();
+    private final AtomicInteger mWakeUpCount = new AtomicInteger(); // WAKE_UPs in the queue, which are not items
+    private final StripedCounter mProcessed;
+    private final StripedCounter mDropped;
+    private final StripedCounter mFailed;
+    private final LatencyHistogram mLatency;
+    private long mTickIntervalNanos = 0; // 0 for no ticks
+    private Thread mThread;
+
+    /**
+     * Create a stage
+     *
+     * @param name names the thread and the metrics
+     * @param capacity the most items that can wait in the queue
+     * @param metrics where to record the stage's metrics
+     */
+    protected PipelineStage(String name, int capacity, MetricsRegistry metrics) {
+        mName = name;
+        mQueue = new ArrayBlockingQueue<Object>(capacity);
+        mProcessed = metrics.counter("stage." + name + ".processed");
+        mDropped = metrics.counter("stage." + name + ".dropped");
+        mFailed = metrics.counter("stage." + name + ".failed");
+        mLatency = metrics.histogram("stage." + name + ".latency");
+        metrics.gauge("stage." + name + ".queue_depth", new Gauge() {
+            @Override
+            public long getValue() {
+                return getQueueDepth();
+            }
+        });
+    }
+
+    public String getName() { return mName; }
+
+    public int getQueueDepth() {
+        return Math.max(0, mQueue.size() - mWakeUpCount.get());
+    }
+
+    /**
+     * Get the number of items, ticks and commands that threw an exception
+     *
+     * @return the number of failures
+     */
+    public long getFailedCount() {
+        return mFailed.sum();
+    }
+
+    /**
+     * Process one item, on the stage's thread
+     *
+     * @param item the item
+     */
+    protected abstract void process(T item);
+
+    /**
+     * Called on the stage's thread when the queue has been emptied
+     */
+    protected void onIdle() {}
+
+    /**
+     * Call onTick() about this often, whether or not items arrive.  Set before starting the stage.
+     *
+     * @param tickIntervalNanos the time between ticks, or 0 for no ticks
+     */
+    protected void setTickInterval(long tickIntervalNanos) {
+        mTickIntervalNanos = tickIntervalNanos;
+    }
+
+    /**
+     * Called on the stage's thread about every tick interval
+     *
+     * @param nowNanos the time now, from System.nanoTime()
+     */
+    protected void onTick(long nowNanos) {}
+
+    /**
+     * Queue an item, or drop it if the queue is full.  Never blocks.
+     *
+     * @param item the item
+     * @return <b>false</b> if the item was dropped
+     */
+    public boolean offer(T item) {
+        if (!mQueue.offer(item)) {
+            mDropped.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Queue an item, dropping the oldest items to make room.  For stages where only the newest input matters.
+     *
+     * @param item the item
+     */
+    public void offerLatest(T item) {
+        while (!mQueue.offer(item)) {
+            Object dropped = mQueue.poll();
+            if (dropped == WAKE_UP) {
+                mWakeUpCount.decrementAndGet(); // the item wakes the thread instead
+            } else if (dropped != null) {
+                mDropped.increment();
+            }
+        }
+    }
+
+    /**
+     * Run a command on the stage's thread, before the next item.  Never blocks.
+     *
+     * @param command the command
+     */
+    public void execute(Runnable command) {
+        mCommands.add(command);
+        // if the queue is full, the thread is busy and will see the command anyway
+        mWakeUpCount.incrementAndGet();
+        if (!mQueue.offer(WAKE_UP)) {
+            mWakeUpCount.decrementAndGet();
+        }
+    }
+
+    public synchronized void start() {
+        if (mThread == null) {
+            mThread = new Thread(this, "beacon-" + mName);
+            mThread.start();
+        }
+    }
+
+    /**
+     * Stop the thread, and discard any queued items and commands
+     */
+    public void stop() {
+        Thread thread;
+        synchronized (this) {
+            thread = mThread;
+            mThread = null;
+        }
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        mQueue.clear();
+        mWakeUpCount.set(0);
+        mCommands.clear();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void run() {
+        try {
+            long nextTickNanos = System.nanoTime() + mTickIntervalNanos;
+            while (!Thread.currentThread().isInterrupted()) {
+                runCommands();
+                Object item = mTickIntervalNanos > 0
+                        ? mQueue.poll(nextTickNanos - System.nanoTime(), TimeUnit.NANOSECONDS)
+                        : mQueue.take();
+                if (item == WAKE_UP) {
+                    mWakeUpCount.decrementAndGet();
+                }
+                runCommands();
+                if (item != null && item != WAKE_UP) {
+                    long startNanos = System.nanoTime();
+                    try {
+                        process((T) item);
+                        mProcessed.increment();
+                    } catch (RuntimeException e) {
+                        onFailure("processing " + item, e);
+                    }
+                    mLatency.recordSince(startNanos);
+                }
+                if (mTickIntervalNanos > 0) {
+                    long nowNanos = System.nanoTime();
+                    if (nowNanos - nextTickNanos >= 0) {
+                        try {
+                            onTick(nowNanos);
+                        } catch (RuntimeException e) {
+                            onFailure("ticking", e);
+                        }
+                        nextTickNanos = nowNanos + mTickIntervalNanos;
+                    }
+                }
+                if (item != null && mQueue.isEmpty()) {
+                    try {
+                        onIdle();
+                    } catch (RuntimeException e) {
+                        onFailure("going idle", e);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            // stopped
+        }
+    }
+
+    private void runCommands() {
+        Runnable command;
+        while ((command = mCommands.poll()) != null) {
+            try {
+                command.run();
+            } catch (RuntimeException e) {
+                onFailure("running a command", e);
+            }
+        }
+    }
+
+    private void onFailure(String what, RuntimeException e) {
+        mFailed.increment();
+        Logger.e(TAG, "Stage " + mName + " failed " + what + ": " + e);
+    }
+}
@@ -0,0 +1,60 @@
+package tonyg.example.com.beacon.pipeline;
+
+import tonyg.example.com.beacon.ble.IBeacon;
+import tonyg.example.com.beacon.ble.ProximityTracker;
+import tonyg.example.com.beacon.metrics.StripedCounter;
+
+
+/**
+ * Update each seen iBeacon's stable proximity for the FilterStage, and send only real changes
+ * to the UI thread.
+ *
+ * Not thread safe: set up before starting the stage, and used only on its thread.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+class ProximityNotifier {
+    private final RenderStage mRender;
+    private final StripedCounter mChanges;
+    private ProximityTracker mTracker = new ProximityTracker();
+    private FilterStage.ProximityListener mListener;
+
+    /**
+     * @param render runs the listener on the UI thread
+     * @param changes counts the changes
+     */
+    ProximityNotifier(RenderStage render, StripedCounter changes) {
+        mRender = render;
+        mChanges = changes;
+    }
+
+    void setTracker(ProximityTracker tracker) {
+        mTracker = tracker;
+    }
+
+    void setListener(FilterStage.ProximityListener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Send an iBeacon on if its proximity has really changed
+     */
+    void onSighting(IBeacon iBeacon, long nowNanos) {
+        final int previousProximity = iBeacon.getStableProximity();
+        if (!mTracker.update(iBeacon, nowNanos)) {
+            return;
+        }
+        mChanges.increment();
+        final FilterStage.ProximityListener listener = mListener;
+        if (listener != null) {
+            final IBeacon copy = iBeacon.copy();
+            mRender.runOnUiExecutor(new Runnable() {
+                @Override
+                public void run() {
+                    listener.onProximityChanged(copy, previousProximity);
+                }
+            });
+        }
+    }
+}
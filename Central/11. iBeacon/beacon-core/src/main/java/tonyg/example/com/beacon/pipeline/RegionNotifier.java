@@ -0,0 +1,100 @@
+package tonyg.example.com.beacon.pipeline;
+
+import tonyg.example.com.beacon.ble.IBeacon;
+import tonyg.example.com.beacon.metrics.StripedCounter;
+import tonyg.example.com.beacon.region.Region;
+import tonyg.example.com.beacon.region.RegionMonitor;
+
+
+/**
+ * Monitor regions for the FilterStage with a RegionMonitor that sees every real sighting, and
+ * send the enters and exits to the UI thread.
+ *
+ * Not thread safe: set up before starting the stage, and used only on its thread.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+class RegionNotifier {
+    private final RegionMonitor mMonitor;
+    private final RenderStage mRender;
+    private final StripedCounter mEnters;
+    private final StripedCounter mExits;
+    private FilterStage.RegionListener mListener;
+
+    /**
+     * @param tickNanos how late an exit can be noticed
+     * @param nowNanos the time now, from System.nanoTime()
+     * @param render runs the listener on the UI thread
+     * @param enters counts the enters
+     * @param exits counts the exits
+     */
+    RegionNotifier(long tickNanos, long nowNanos, RenderStage render, StripedCounter enters, StripedCounter exits) {
+        mMonitor = new RegionMonitor(tickNanos, nowNanos);
+        mRender = render;
+        mEnters = enters;
+        mExits = exits;
+        mMonitor.setListener(mMonitorListener);
+    }
+
+    void setExitTimeout(long exitTimeoutNanos) {
+        mMonitor.setExitTimeout(exitTimeoutNanos);
+    }
+
+    void setListener(FilterStage.RegionListener listener) {
+        mListener = listener;
+    }
+
+    void startMonitoring(Region region) {
+        mMonitor.startMonitoring(region);
+    }
+
+    void stopMonitoring(Region region) {
+        mMonitor.stopMonitoring(region);
+    }
+
+    void onSighting(IBeacon iBeacon, long nowNanos) {
+        mMonitor.onSighting(iBeacon, nowNanos);
+    }
+
+    /**
+     * A scan started: time spent not scanning does not count towards exits
+     */
+    void resume(long nowNanos) {
+        mMonitor.resume(nowNanos);
+    }
+
+    void advance(long nowNanos) {
+        mMonitor.advance(nowNanos);
+    }
+
+    private final RegionMonitor.Listener mMonitorListener = new RegionMonitor.Listener() {
+        @Override
+        public void onEnterRegion(final Region region) {
+            mEnters.increment();
+            final FilterStage.RegionListener listener = mListener;
+            if (listener != null) {
+                mRender.runOnUiExecutor(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onEnterRegion(region);
+                    }
+                });
+            }
+        }
+
+        @Override
+        public void onExitRegion(final Region region) {
+            mExits.increment();
+            final FilterStage.RegionListener listener = mListener;
+            if (listener != null) {
+                mRender.runOnUiExecutor(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onExitRegion(region);
+                    }
+                });
+            }
+        }
+    };
+}
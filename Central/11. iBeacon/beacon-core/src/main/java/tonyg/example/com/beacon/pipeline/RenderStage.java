@@ -0,0 +1,127 @@
+package tonyg.example.com.beacon.pipeline;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import tonyg.example.com.beacon.ble.IBeacon;
+import tonyg.example.com.beacon.metrics.LatencyHistogram;
+import tonyg.example.com.beacon.metrics.MetricsRegistry;
+import tonyg.example.com.beacon.metrics.StripedCounter;
+
+
+/**
+ * Hand PipelineSnapshots to the UI thread.
+ *
+ * The filter and locate stages each update their half of the latest snapshot.  At most one
+ * delivery is waiting on the UI thread at a time, and it delivers whatever is latest when it
+ * runs, so a busy UI skips snapshots instead of falling behind.  Its queue is the one waiting
+ * delivery.  Latency is the time from the first unseen update to its delivery.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class RenderStage {
+    /**
+     * Receives snapshots on the UI thread
+     */
+    public interface Listener {
+        void onSnapshot(PipelineSnapshot snapshot);
+    }
+
+    private final Executor mUiExecutor;
+    private final Listener mListener;
+    private final AtomicBoolean mIsDeliveryScheduled = new AtomicBoolean(false);
+    private final StripedCounter mProcessed;
+    private final StripedCounter mDropped;
+    private final LatencyHistogram mLatency;
+
+    private PipelineSnapshot mLatest = PipelineSnapshot.EMPTY; // guarded by this
+    private long mFirstUpdateNanos; // guarded by this
+    private boolean mIsPending = false; // guarded by this: updated since the last delivery
+
+    /**
+     * Create the stage
+     *
+     * @param uiExecutor runs tasks on the UI thread
+     * @param listener receives snapshots
+     * @param metrics where to record the stage's metrics
+     */
+    public RenderStage(Executor uiExecutor, Listener listener, MetricsRegistry metrics) {
+        mUiExecutor = uiExecutor;
+        mListener = listener;
+        mProcessed = metrics.counter("stage.render.processed");
+        mDropped = metrics.counter("stage.render.dropped");
+        mLatency = metrics.histogram("stage.render.latency");
+    }
+
+    public synchronized PipelineSnapshot getLatest() {
+        return mLatest;
+    }
+
+    void publishIBeacons(List<IBeacon> nearestIBeacons, int iBeaconCount) {
+        synchronized (this) {
+            mLatest = mLatest.withIBeacons(nearestIBeacons, iBeaconCount);
+            markPending();
+        }
+        scheduleDelivery();
+    }
+
+    void publishPosition(double x, double y) {
+        synchronized (this) {
+            mLatest = mLatest.withPosition(true, x, y);
+            markPending();
+        }
+        scheduleDelivery();
+    }
+
+    void clearPosition() {
+        synchronized (this) {
+            if (!mLatest.hasPosition()) {
+                return;
+            }
+            mLatest = mLatest.withPosition(false, 0, 0);
+            markPending();
+        }
+        scheduleDelivery();
+    }
+
+    void runOnUiExecutor(Runnable task) {
+        mUiExecutor.execute(task);
+    }
+
+    private void markPending() {
+        if (mIsPending) {
+            mDropped.increment(); // the previous update will never be delivered on its own
+        } else {
+            mIsPending = true;
+            mFirstUpdateNanos = System.nanoTime();
+        }
+    }
+
+    private void scheduleDelivery() {
+        if (mIsDeliveryScheduled.compareAndSet(false, true)) {
+            mUiExecutor.execute(mDeliveryTask);
+        }
+    }
+
+    private final Runnable mDeliveryTask = new Runnable() {
+        @Override
+        public void run() {
+            mIsDeliveryScheduled.set(false);
+            PipelineSnapshot snapshot;
+            long firstUpdateNanos;
+            synchronized (RenderStage.this) {
+                if (!mIsPending) {
+                    return;
+                }
+                mIsPending = false;
+                snapshot = mLatest;
+                firstUpdateNanos = mFirstUpdateNanos;
+            }
+            mListener.onSnapshot(snapshot);
+            mLatency.recordSince(firstUpdateNanos);
+            mProcessed.increment();
+        }
+    };
+}
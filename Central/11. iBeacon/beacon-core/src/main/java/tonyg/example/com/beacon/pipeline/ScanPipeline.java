@@ -0,0 +1,219 @@
+package tonyg.example.com.beacon.pipeline;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import tonyg.example.com.beacon.ble.EphemeralIdResolver;
+import tonyg.example.com.beacon.ble.IBeacon;
+import tonyg.example.com.beacon.ble.ProximityTracker;
+import tonyg.example.com.beacon.metrics.BeaconMetrics;
+import tonyg.example.com.beacon.metrics.MetricsRegistry;
+import tonyg.example.com.beacon.metrics.StripedCounter;
+import tonyg.example.com.beacon.region.Region;
+
+
+/**
+ * Scan results in, PipelineSnapshots out.
+ *
+ *   scan callback -> [parse] -> [filter] -> [locate]
+ *                                  |           |
+ *                                  +-> [render] <-+ -> UI thread
+ *
+ * Each bracketed stage owns its state and runs on its own thread, connected by bounded queues.
+ * submit() only queues the Advertisement, so the Bluetooth callback thread is never held up;
+ * if parsing falls behind, Advertisements are dropped and counted.  Trilateration only ever
+ * works on the newest set of iBeacons, and the UI only receives immutable snapshots.
+ *
+ * Every metric is recorded in the registry given: stage metrics named stage.[parse|filter|locate|render].*,
+ * and the BeaconMetrics counters, each recorded by the stage that does the work.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class ScanPipeline {
+    /** Constants **/
+    public static final int DEFAULT_PARSE_CAPACITY = 256;
+    public static final int DEFAULT_FILTER_CAPACITY = 256;
+
+    private final ParseStage mParse;
+    private final FilterStage mFilter;
+    private final LocateStage mLocate;
+    private final RenderStage mRender;
+    private final StripedCounter mAdvertisements;
+
+    /**
+     * Create a pipeline.  Nothing runs until start().
+     *
+     * @param maxPublished the most iBeacons in each snapshot, nearest first
+     * @param minForLocation the fewest iBeacons that a position can be found from
+     * @param ephemeralIds resolves rotating identifiers.  Register every beacon before starting.
+     * @param uiExecutor runs tasks on the UI thread
+     * @param listener receives snapshots on the UI thread
+     * @param metrics where to record stage metrics
+     */
+    public ScanPipeline(int maxPublished, int minForLocation, EphemeralIdResolver ephemeralIds,
+                        Executor uiExecutor, RenderStage.Listener listener, MetricsRegistry metrics) {
+        mRender = new RenderStage(uiExecutor, listener, metrics);
+        mLocate = new LocateStage(mRender, metrics);
+        mFilter = new FilterStage(DEFAULT_FILTER_CAPACITY, maxPublished, minForLocation,
+                FilterStage.DEFAULT_PUBLISH_INTERVAL_NANOS, mLocate, mRender, metrics);
+        mParse = new ParseStage(DEFAULT_PARSE_CAPACITY, ephemeralIds, mFilter, metrics);
+        mAdvertisements = metrics.counter(BeaconMetrics.ADVERTISEMENTS);
+    }
+
+    /**
+     * Set before starting the pipeline
+     */
+    public void setNewIBeaconListener(FilterStage.NewIBeaconListener listener) {
+        mFilter.setNewIBeaconListener(listener);
+    }
+
+    /**
+     * Set before starting the pipeline
+     */
+    public void setIBeaconLostListener(FilterStage.IBeaconLostListener listener) {
+        mFilter.setIBeaconLostListener(listener);
+    }
+
+    /**
+     * Set before starting the pipeline
+     *
+     * @param lostTimeoutNanos how long an iBeacon can go unseen, while scanning, before it is forgotten
+     */
+    public void setLostTimeout(long lostTimeoutNanos) {
+        mFilter.setLostTimeout(lostTimeoutNanos);
+    }
+
+    /**
+     * Set before starting the pipeline
+     *
+     * @param proximity decides when an iBeacon's proximity has really changed
+     */
+    public void setProximityTracker(ProximityTracker proximity) {
+        mFilter.setProximityTracker(proximity);
+    }
+
+    /**
+     * Set before starting the pipeline
+     *
+     * @param listener receives iBeacons whose stable proximity changed, on the UI thread
+     */
+    public void setProximityListener(FilterStage.ProximityListener listener) {
+        mFilter.setProximityListener(listener);
+    }
+
+    /**
+     * Set before starting the pipeline
+     *
+     * @param listener receives region enters and exits on the UI thread
+     */
+    public void setRegionListener(FilterStage.RegionListener listener) {
+        mFilter.setRegionListener(listener);
+    }
+
+    /**
+     * Set before starting the pipeline
+     *
+     * @param exitTimeoutNanos how long none of a region's iBeacons can go unseen, while scanning, before it is left
+     */
+    public void setRegionExitTimeout(long exitTimeoutNanos) {
+        mFilter.setRegionExitTimeout(exitTimeoutNanos);
+    }
+
+    public void startMonitoring(Region region) {
+        mFilter.startMonitoring(region);
+    }
+
+    public void stopMonitoring(Region region) {
+        mFilter.stopMonitoring(region);
+    }
+
+    /**
+     * Tell the pipeline when scans start and stop.  iBeacons are only lost, and regions left, while scanning.
+     */
+    public void setScanning(boolean isScanning) {
+        mFilter.setScanning(isScanning);
+    }
+
+    /**
+     * Fit each iBeacon's distance model from sightings at a known position, until stopSurvey()
+     *
+     * @param x the phone's X position, in meters
+     * @param y the phone's Y position, in meters
+     */
+    public void startSurvey(double x, double y) {
+        mFilter.startSurvey(x, y);
+    }
+
+    public void stopSurvey() {
+        mFilter.stopSurvey();
+    }
+
+    public void start() {
+        mLocate.start();
+        mFilter.start();
+        mParse.start();
+    }
+
+    /**
+     * Stop every stage's thread.  Queued work is discarded.
+     */
+    public void stop() {
+        mParse.stop();
+        mFilter.stop();
+        mLocate.stop();
+    }
+
+    /**
+     * Queue a scan result.  Never blocks: call it straight from the scan callback.
+     *
+     * @param macAddress the Peripheral's MAC address
+     * @param scanRecord the Peripheral's Scan Record.  Do not modify it afterwards.
+     * @param rssi the Peripheral's RSSI
+     * @return <b>false</b> if the pipeline is full and the scan result was dropped
+     */
+    public boolean submit(String macAddress, byte[] scanRecord, int rssi) {
+        mAdvertisements.increment();
+        return mParse.offer(new Advertisement(macAddress, scanRecord, rssi, System.currentTimeMillis()));
+    }
+
+    /**
+     * Forget every iBeacon and all telemetry
+     */
+    public void clear() {
+        mParse.clear();
+        mFilter.clear();
+    }
+
+    /**
+     * Add iBeacons with known positions and RSSIs, such as simulated ones
+     *
+     * @param iBeacons the iBeacons.  Do not use them afterwards.
+     */
+    public void add(List<IBeacon> iBeacons) {
+        mFilter.add(iBeacons);
+    }
+
+    public void updateTransmissionPower(IBeacon identity, int transmissionPower) {
+        mFilter.updateTransmissionPower(identity, transmissionPower);
+    }
+
+    public void startCalibration(IBeacon target) {
+        mFilter.startCalibration(target);
+    }
+
+    public void finishCalibration(FilterStage.CalibrationListener listener) {
+        mFilter.finishCalibration(listener);
+    }
+
+    /**
+     * Get the latest snapshot, which may not have reached the UI thread yet
+     */
+    public PipelineSnapshot getLatestSnapshot() {
+        return mRender.getLatest();
+    }
+
+    public int getParseQueueDepth() { return mParse.getQueueDepth(); }
+    public int getFilterQueueDepth() { return mFilter.getQueueDepth(); }
+    public int getLocateQueueDepth() { return mLocate.getQueueDepth(); }
+}
@@ -0,0 +1,28 @@
+package tonyg.example.com.beacon.pipeline;
+
+import tonyg.example.com.beacon.ble.BeaconTelemetry;
+import tonyg.example.com.beacon.ble.IBeacon;
+
+/**
+ * An iBeacon identity parsed from an Advertisement, with the RSSI it was heard at, and any new telemetry
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public final class Sighting {
+    public final IBeacon iBeacon; // newly created, owned by whichever stage receives it
+    public final String macAddress;
+    public final int rssi;
+    public final BeaconTelemetry telemetry; // a copy, or null if there is nothing new
+
+    public Sighting(IBeacon iBeacon, String macAddress, int rssi) {
+        this(iBeacon, macAddress, rssi, null);
+    }
+
+    public Sighting(IBeacon iBeacon, String macAddress, int rssi, BeaconTelemetry telemetry) {
+        this.iBeacon = iBeacon;
+        this.macAddress = macAddress;
+        this.rssi = rssi;
+        this.telemetry = telemetry;
+    }
+}
@@ -0,0 +1,52 @@
+package tonyg.example.com.beacon.pipeline;
+
+import tonyg.example.com.beacon.ble.IBeacon;
+import tonyg.example.com.beacon.utilities.TxPowerCalibrator;
+
+
+/**
+ * Collect the RSSIs of one iBeacon for the FilterStage, between start() and finish().
+ *
+ * Not thread safe: used only on the filter stage's thread.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+class TxPowerCalibration {
+    // not null while calibrating
+    private TxPowerCalibrator mCalibrator;
+    private IBeacon mTarget;
+
+    void start(IBeacon target) {
+        mTarget = target;
+        mCalibrator = new TxPowerCalibrator();
+    }
+
+    /**
+     * Add a sighting's RSSI, if it is of the iBeacon being calibrated
+     */
+    void onSighting(IBeacon iBeacon, int rssi) {
+        if (mCalibrator != null && iBeacon.equals(mTarget)) {
+            mCalibrator.addSample(rssi);
+        }
+    }
+
+    /**
+     * Stop collecting RSSIs, and hand the samples to the UI thread
+     *
+     * @param render runs the listener on the UI thread
+     * @param listener receives the samples, or <b>null</b> if calibration was not started
+     */
+    void finish(RenderStage render, final FilterStage.CalibrationListener listener) {
+        final IBeacon target = mTarget;
+        final TxPowerCalibrator calibrator = mCalibrator;
+        mTarget = null;
+        mCalibrator = null;
+        render.runOnUiExecutor(new Runnable() {
+            @Override
+            public void run() {
+                listener.onCalibrationFinished(target, calibrator);
+            }
+        });
+    }
+}
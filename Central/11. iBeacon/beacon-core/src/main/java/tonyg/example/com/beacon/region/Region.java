@@ -0,0 +1,96 @@
+package tonyg.example.com.beacon.region;
+
+import java.util.UUID;
+
+import tonyg.example.com.beacon.ble.IBeacon;
+
+
+/**
+ * A set of iBeacons to monitor: every iBeacon with a UUID, with a UUID and Major, or one
+ * UUID, Major, and Minor.  A missing Major or Minor is a wildcard.
+ *
+ * Regions are told apart by their identifier, so monitoring a region with the same identifier
+ * as another replaces it.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public final class Region {
+    /** Constants **/
+    public static final int ANY = -1;
+
+    private final String mIdentifier;
+    private final UUID mUuid;
+    private final int mMajor;
+    private final int mMinor;
+
+
+    /**
+     * Every iBeacon with a UUID
+     */
+    public Region(String identifier, UUID uuid) {
+        this(identifier, uuid, ANY, ANY);
+    }
+
+    /**
+     * Every iBeacon with a UUID and Major
+     */
+    public Region(String identifier, UUID uuid, int major) {
+        this(identifier, uuid, major, ANY);
+    }
+
+    /**
+     * One iBeacon
+     *
+     * @param identifier names the region
+     * @param uuid the UUID
+     * @param major the Major, or ANY
+     * @param minor the Minor, or ANY.  Must be ANY if the Major is.
+     */
+    public Region(String identifier, UUID uuid, int major, int minor) {
+        if (identifier == null || uuid == null) {
+            throw new IllegalArgumentException("A region needs an identifier and a UUID");
+        }
+        if (major < ANY || major > 0xffff || minor < ANY || minor > 0xffff) {
+            throw new IllegalArgumentException("Major and Minor must be 0-65535, or ANY");
+        }
+        if (major == ANY && minor != ANY) {
+            throw new IllegalArgumentException("A region with a Minor needs a Major");
+        }
+        mIdentifier = identifier;
+        mUuid = uuid;
+        mMajor = major;
+        mMinor = minor;
+    }
+
+    public String getIdentifier() { return mIdentifier; }
+    public UUID getUuid() { return mUuid; }
+    public int getMajor() { return mMajor; }
+    public int getMinor() { return mMinor; }
+
+    /**
+     * Test if an iBeacon is in this region
+     */
+    public boolean matches(IBeacon iBeacon) {
+        return mUuid.equals(iBeacon.getUuid())
+                && (mMajor == ANY || mMajor == iBeacon.getMajor())
+                && (mMinor == ANY || mMinor == iBeacon.getMinor());
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return (other instanceof Region) && mIdentifier.equals(((Region) other).mIdentifier);
+    }
+
+    @Override
+    public int hashCode() {
+        return mIdentifier.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return mIdentifier + " [" + mUuid
+                + (mMajor == ANY ? "" : " " + mMajor)
+                + (mMinor == ANY ? "" : " " + mMinor) + "]";
+    }
+}
@@ -0,0 +1,264 @@
+package tonyg.example.com.beacon.region;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.UUID;
+
+import tonyg.example.com.beacon.ble.IBeacon;
+import tonyg.example.com.beacon.utilities.TimingWheel;
+
+
+/**
+ * Tell when the phone enters and leaves Regions, like iOS region monitoring.
+ *
+ * Regions are indexed by UUID, then Major, then Minor, and each level keeps the regions with a
+ * wildcard below it.  Matching a sighting takes at most three hash probes, however many regions
+ * are monitored, and only visits the regions it is in.
+ *
+ * A region is entered on the first sighting of any of its iBeacons.  It is left once none of them
+ * has been seen for the exit timeout, so a few missed advertisements do not cause an exit and a
+ * re-entry.  Each sighting pushes the region's timer back in a TimingWheel.
+ *
+ * Not thread safe.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class RegionMonitor {
+    /** Constants **/
+    public static final long DEFAULT_EXIT_TIMEOUT_NANOS = 10000 * 1000000L;
+
+    /**
+     * Receives region events, on the thread that calls onSighting() and advance()
+     */
+    public interface Listener {
+        void onEnterRegion(Region region);
+        void onExitRegion(Region region);
+    }
+
+    /**
+     * A monitored region, and whether the phone is in it
+     */
+    private static final class RegionState {
+        final Region region;
+        TimingWheel.Timer<RegionState> timer;
+        boolean isInside = false;
+
+        RegionState(Region region) {
+            this.region = region;
+        }
+    }
+
+    /**
+     * The regions for one UUID: those for any Major, and those for each Major
+     */
+    private static final class UuidNode {
+        final ArrayList<RegionState> anyMajor = new ArrayList<RegionState>();
+        final HashMap<Integer, MajorNode> majors = new HashMap<Integer, MajorNode>();
+
+        boolean isEmpty() { return anyMajor.isEmpty() && majors.isEmpty(); }
+    }
+
+    /**
+     * The regions for one UUID and Major: those for any Minor, and those for each Minor
+     */
+    private static final class MajorNode {
+        final ArrayList<RegionState> anyMinor = new ArrayList<RegionState>();
+        final HashMap<Integer, ArrayList<RegionState>> minors = new HashMap<Integer, ArrayList<RegionState>>();
+
+        boolean isEmpty() { return anyMinor.isEmpty() && minors.isEmpty(); }
+    }
+
+    private final HashMap<UUID, UuidNode> mIndex = new HashMap<UUID, UuidNode>();
+    private final HashMap<String, RegionState> mRegions = new HashMap<String, RegionState>();
+    private final TimingWheel<RegionState> mExitTimers;
+    private long mExitTimeoutNanos = DEFAULT_EXIT_TIMEOUT_NANOS;
+    private Listener mListener;
+
+
+    /**
+     * Create a monitor
+     *
+     * @param tickNanos how often advance() will be called, which is how late an exit can be noticed
+     * @param startNanos the time now, from System.nanoTime()
+     */
+    public RegionMonitor(long tickNanos, long startNanos) {
+        mExitTimers = new TimingWheel<RegionState>(tickNanos, startNanos);
+    }
+
+    public void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * @param exitTimeoutNanos how long none of a region's iBeacons can go unseen before the region is left
+     */
+    public void setExitTimeout(long exitTimeoutNanos) {
+        mExitTimeoutNanos = exitTimeoutNanos;
+    }
+
+    /**
+     * Start monitoring a region, replacing any with the same identifier.  It starts outside.
+     */
+    public void startMonitoring(Region region) {
+        stopMonitoring(region);
+        RegionState state = new RegionState(region);
+        state.timer = mExitTimers.newTimer(state);
+        mRegions.put(region.getIdentifier(), state);
+
+        UuidNode uuidNode = mIndex.get(region.getUuid());
+        if (uuidNode == null) {
+            uuidNode = new UuidNode();
+            mIndex.put(region.getUuid(), uuidNode);
+        }
+        if (region.getMajor() == Region.ANY) {
+            uuidNode.anyMajor.add(state);
+            return;
+        }
+        MajorNode majorNode = uuidNode.majors.get(region.getMajor());
+        if (majorNode == null) {
+            majorNode = new MajorNode();
+            uuidNode.majors.put(region.getMajor(), majorNode);
+        }
+        if (region.getMinor() == Region.ANY) {
+            majorNode.anyMinor.add(state);
+            return;
+        }
+        ArrayList<RegionState> minorStates = majorNode.minors.get(region.getMinor());
+        if (minorStates == null) {
+            minorStates = new ArrayList<RegionState>(1);
+            majorNode.minors.put(region.getMinor(), minorStates);
+        }
+        minorStates.add(state);
+    }
+
+    /**
+     * Stop monitoring a region.  No exit is reported for it.
+     *
+     * @param region any region with the same identifier
+     */
+    public void stopMonitoring(Region region) {
+        RegionState state = mRegions.remove(region.getIdentifier());
+        if (state == null) {
+            return;
+        }
+        mExitTimers.cancel(state.timer);
+
+        Region removed = state.region;
+        UuidNode uuidNode = mIndex.get(removed.getUuid());
+        if (removed.getMajor() == Region.ANY) {
+            uuidNode.anyMajor.remove(state);
+        } else {
+            MajorNode majorNode = uuidNode.majors.get(removed.getMajor());
+            if (removed.getMinor() == Region.ANY) {
+                majorNode.anyMinor.remove(state);
+            } else {
+                ArrayList<RegionState> minorStates = majorNode.minors.get(removed.getMinor());
+                minorStates.remove(state);
+                if (minorStates.isEmpty()) {
+                    majorNode.minors.remove(removed.getMinor());
+                }
+            }
+            if (majorNode.isEmpty()) {
+                uuidNode.majors.remove(removed.getMajor());
+            }
+        }
+        if (uuidNode.isEmpty()) {
+            mIndex.remove(removed.getUuid());
+        }
+    }
+
+    /**
+     * Get the monitored regions
+     */
+    public Collection<Region> getRegions() {
+        ArrayList<Region> regions = new ArrayList<Region>(mRegions.size());
+        for (RegionState state : mRegions.values()) {
+            regions.add(state.region);
+        }
+        return regions;
+    }
+
+    /**
+     * Test if the phone is in a region
+     *
+     * @param region any region with the same identifier
+     * @return <b>false</b> if outside, or if the region is not monitored
+     */
+    public boolean isInside(Region region) {
+        RegionState state = mRegions.get(region.getIdentifier());
+        return state != null && state.isInside;
+    }
+
+    /**
+     * Record a sighting, entering any regions it is in
+     *
+     * @param iBeacon the iBeacon seen
+     * @param nowNanos the time now, from System.nanoTime()
+     */
+    public void onSighting(IBeacon iBeacon, long nowNanos) {
+        UuidNode uuidNode = mIndex.get(iBeacon.getUuid());
+        if (uuidNode == null) {
+            return;
+        }
+        long exitNanos = nowNanos + mExitTimeoutNanos;
+        see(uuidNode.anyMajor, exitNanos);
+        MajorNode majorNode = uuidNode.majors.get(iBeacon.getMajor());
+        if (majorNode != null) {
+            see(majorNode.anyMinor, exitNanos);
+            ArrayList<RegionState> minorStates = majorNode.minors.get(iBeacon.getMinor());
+            if (minorStates != null) {
+                see(minorStates, exitNanos);
+            }
+        }
+    }
+
+    /**
+     * Leave every region whose iBeacons have all gone unseen for the exit timeout
+     *
+     * @param nowNanos the time now, from System.nanoTime()
+     * @return the number of regions left
+     */
+    public int advance(long nowNanos) {
+        return mExitTimers.advance(nowNanos, mExitListener);
+    }
+
+    /**
+     * Restart the exit timers of the regions the phone is in, so that time spent not looking
+     * for iBeacons does not count towards leaving them
+     *
+     * @param nowNanos the time now, from System.nanoTime()
+     */
+    public void resume(long nowNanos) {
+        long exitNanos = nowNanos + mExitTimeoutNanos;
+        for (RegionState state : mRegions.values()) {
+            if (state.isInside) {
+                mExitTimers.schedule(state.timer, exitNanos);
+            }
+        }
+    }
+
+    private void see(ArrayList<RegionState> states, long exitNanos) {
+        for (int index = 0; index < states.size(); index++) {
+            RegionState state = states.get(index);
+            mExitTimers.schedule(state.timer, exitNanos);
+            if (!state.isInside) {
+                state.isInside = true;
+                if (mListener != null) {
+                    mListener.onEnterRegion(state.region);
+                }
+            }
+        }
+    }
+
+    private final TimingWheel.Listener<RegionState> mExitListener = new TimingWheel.Listener<RegionState>() {
+        @Override
+        public void onExpired(RegionState state) {
+            state.isInside = false;
+            if (mListener != null) {
+                mListener.onExitRegion(state.region);
+            }
+        }
+    };
+}
@@ -0,0 +1,185 @@
+package tonyg.example.com.beacon.simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+/**
+ * Generate the advertisements a fleet of beacons would produce while Centrals walk through it,
+ * for load tests and benchmarks.
+ *
+ * Every beacon advertises once per advertising interval, at its own phase plus the up to 10 ms
+ * of random delay that BLE adds to each advertisement.  Each trajectory is a Central; its
+ * walk is cut into time slices that are generated in parallel, one sink per slice.  Each slice
+ * seeds its own random number generator, so a run is repeatable for a given seed no matter how
+ * many threads generate it.
+ *
+ * Written with a TraceWriter per partition, a run is one trace per partition.  TraceMerger
+ * merges them into a single trace in time order.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class FleetGenerator {
+    /** Constants **/
+    public static final long DEFAULT_ADVERTISING_INTERVAL_MILLIS = 100;
+    public static final long DEFAULT_SLICE_MILLIS = 60 * 1000;
+    private static final int MAX_ADVERTISING_DELAY_MILLIS = 10;
+    private static final double SHADOWING_MARGIN = 3; // standard deviations of shadowing considered in range
+
+    private final FloorPlan mFloorPlan;
+    private final List<Trajectory> mTrajectories;
+    private final RadioModel mRadioModel;
+    private long mAdvertisingIntervalMillis = DEFAULT_ADVERTISING_INTERVAL_MILLIS;
+    private long mSliceMillis = DEFAULT_SLICE_MILLIS;
+    private long mSeed = 0;
+
+    /**
+     * Create a generator
+     *
+     * @param floorPlan the beacons
+     * @param trajectories one walk per Central
+     * @param radioModel how the signal reaches each Central
+     */
+    public FleetGenerator(FloorPlan floorPlan, List<Trajectory> trajectories, RadioModel radioModel) {
+        if (floorPlan.size() == 0 || trajectories.isEmpty()) {
+            throw new IllegalArgumentException("Need at least one beacon and one trajectory");
+        }
+        mFloorPlan = floorPlan;
+        mTrajectories = new ArrayList<Trajectory>(trajectories);
+        mRadioModel = radioModel;
+    }
+
+    public void setAdvertisingIntervalMillis(long advertisingIntervalMillis) {
+        if (advertisingIntervalMillis < 20) {
+            throw new IllegalArgumentException("BLE advertises at most every 20 ms");
+        }
+        mAdvertisingIntervalMillis = advertisingIntervalMillis;
+    }
+
+    public void setSliceMillis(long sliceMillis) {
+        if (sliceMillis < 1) {
+            throw new IllegalArgumentException("Slices must be at least 1 ms");
+        }
+        mSliceMillis = sliceMillis;
+    }
+
+    public void setSeed(long seed) { mSeed = seed; }
+
+    /**
+     * Get the number of partitions a run is cut into, one sink each
+     *
+     * @param durationMillis length of the run
+     * @return the number of partitions
+     */
+    public int getPartitionCount(long durationMillis) {
+        return mTrajectories.size() * getSliceCount(durationMillis);
+    }
+
+    /**
+     * Generate a run
+     *
+     * @param durationMillis length of the run
+     * @param threadCount number of threads to generate with
+     * @param sinkFactory creates the sink for each partition
+     * @return the number of sightings generated
+     * @throws Exception the first exception thrown by a sink
+     */
+    public long generate(long durationMillis, int threadCount, final SightingSink.Factory sinkFactory) throws Exception {
+        final int sliceCount = getSliceCount(durationMillis);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threadCount));
+        try {
+            List<Future<Long>> results = new ArrayList<Future<Long>>();
+            for (int observer = 0; observer < mTrajectories.size(); observer++) {
+                for (int slice = 0; slice < sliceCount; slice++) {
+                    final int partition = observer * sliceCount + slice;
+                    final int partitionObserver = observer;
+                    final long start = slice * mSliceMillis;
+                    final long end = Math.min(durationMillis, start + mSliceMillis);
+                    results.add(executor.submit(new Callable<Long>() {
+                        @Override
+                        public Long call() throws Exception {
+                            SightingSink sink = sinkFactory.createSink(partition);
+                            try {
+                                return generate(partitionObserver, start, end, new Random(mSeed * 31 + partition), sink);
+                            } finally {
+                                sink.close();
+                            }
+                        }
+                    }));
+                }
+            }
+            long sightingCount = 0;
+            for (Future<Long> result : results) {
+                try {
+                    sightingCount += result.get();
+                } catch (ExecutionException e) {
+                    throw (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+                }
+            }
+            return sightingCount;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Generate one partition: one Central's walk over a span of time
+     *
+     * @param observer index of the trajectory
+     * @param start first time in the span
+     * @param end time the span ends, exclusive
+     * @param random this partition's random number generator
+     * @param sink receives the sightings
+     * @return the number of sightings
+     */
+    private long generate(int observer, long start, long end, Random random, SightingSink sink) {
+        FloorPlan floorPlan = mFloorPlan;
+        int beaconCount = floorPlan.size();
+        long interval = mAdvertisingIntervalMillis;
+
+        // beacons out of range, even with lucky shadowing, are skipped without any math
+        double[] maxDistanceSquared = new double[beaconCount];
+        long[] phases = new long[beaconCount];
+        for (int beacon = 0; beacon < beaconCount; beacon++) {
+            double range = mRadioModel.getRange(floorPlan.getTransmissionPower(beacon) + (int) Math.ceil(SHADOWING_MARGIN * mRadioModel.getShadowingDb()));
+            maxDistanceSquared[beacon] = range * range;
+            phases[beacon] = beacon * interval / beaconCount;
+        }
+
+        Trajectory trajectory = mTrajectories.get(observer);
+        double[] position = new double[2];
+        long sightingCount = 0;
+        for (long intervalStart = (start / interval) * interval; intervalStart < end; intervalStart += interval) {
+            trajectory.getPosition(intervalStart, position);
+            for (int beacon = 0; beacon < beaconCount; beacon++) {
+                long time = intervalStart + phases[beacon];
+                if (time < start || time >= end) {
+                    continue;
+                }
+                double dx = floorPlan.getX(beacon) - position[0];
+                double dy = floorPlan.getY(beacon) - position[1];
+                double distanceSquared = dx * dx + dy * dy;
+                if (distanceSquared > maxDistanceSquared[beacon]) {
+                    continue;
+                }
+                int rssi = mRadioModel.getRssi(floorPlan.getTransmissionPower(beacon), Math.sqrt(distanceSquared), random);
+                if (rssi != RadioModel.RSSI_NONE) {
+                    sink.onSighting(time + random.nextInt(MAX_ADVERTISING_DELAY_MILLIS + 1), observer, beacon, rssi);
+                    sightingCount++;
+                }
+            }
+        }
+        return sightingCount;
+    }
+
+    private int getSliceCount(long durationMillis) {
+        return (int) Math.max(1, (durationMillis + mSliceMillis - 1) / mSliceMillis);
+    }
+}
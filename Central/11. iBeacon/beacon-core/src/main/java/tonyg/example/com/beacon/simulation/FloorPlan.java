@@ -0,0 +1,93 @@
+package tonyg.example.com.beacon.simulation;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+
+/**
+ * The beacons of a simulated site: their identities, TX Power, and positions in meters.
+ *
+ * Beacons are stored in parallel arrays and referred to by index, so the generator's inner
+ * loop touches no objects.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class FloorPlan {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int mSize = 0;
+    private long[] mUuidMostSignificantBits = new long[INITIAL_CAPACITY];
+    private long[] mUuidLeastSignificantBits = new long[INITIAL_CAPACITY];
+    private int[] mMajors = new int[INITIAL_CAPACITY];
+    private int[] mMinors = new int[INITIAL_CAPACITY];
+    private int[] mTransmissionPowers = new int[INITIAL_CAPACITY];
+    private double[] mXs = new double[INITIAL_CAPACITY];
+    private double[] mYs = new double[INITIAL_CAPACITY];
+
+    /**
+     * Place a beacon
+     *
+     * @param uuid Proximity UUID
+     * @param major Major number
+     * @param minor Minor number
+     * @param transmissionPower RSSI at 1 meter
+     * @param x position in meters
+     * @param y position in meters
+     * @return the beacon's index
+     */
+    public int addBeacon(UUID uuid, int major, int minor, int transmissionPower, double x, double y) {
+        if (mSize == mXs.length) {
+            int capacity = mSize * 2;
+            mUuidMostSignificantBits = Arrays.copyOf(mUuidMostSignificantBits, capacity);
+            mUuidLeastSignificantBits = Arrays.copyOf(mUuidLeastSignificantBits, capacity);
+            mMajors = Arrays.copyOf(mMajors, capacity);
+            mMinors = Arrays.copyOf(mMinors, capacity);
+            mTransmissionPowers = Arrays.copyOf(mTransmissionPowers, capacity);
+            mXs = Arrays.copyOf(mXs, capacity);
+            mYs = Arrays.copyOf(mYs, capacity);
+        }
+        mUuidMostSignificantBits[mSize] = uuid.getMostSignificantBits();
+        mUuidLeastSignificantBits[mSize] = uuid.getLeastSignificantBits();
+        mMajors[mSize] = major;
+        mMinors[mSize] = minor;
+        mTransmissionPowers[mSize] = transmissionPower;
+        mXs[mSize] = x;
+        mYs[mSize] = y;
+        return mSize++;
+    }
+
+    /**
+     * Lay out beacons in a grid, numbered by Minor from 0, row by row
+     *
+     * @param uuid Proximity UUID of every beacon
+     * @param major Major number of every beacon
+     * @param columns beacons per row
+     * @param rows number of rows
+     * @param spacing distance between neighbouring beacons, in meters
+     * @param transmissionPower RSSI at 1 meter
+     * @return the floor plan
+     */
+    public static FloorPlan createGrid(UUID uuid, int major, int columns, int rows, double spacing, int transmissionPower) {
+        if (columns * rows > 0x10000) {
+            throw new IllegalArgumentException("A Major number holds at most 65536 Minor numbers");
+        }
+        FloorPlan floorPlan = new FloorPlan();
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                floorPlan.addBeacon(uuid, major, row * columns + column, transmissionPower, column * spacing, row * spacing);
+            }
+        }
+        return floorPlan;
+    }
+
+    public int size() { return mSize; }
+    public UUID getUuid(int beacon) { return new UUID(mUuidMostSignificantBits[beacon], mUuidLeastSignificantBits[beacon]); }
+    public long getUuidMostSignificantBits(int beacon) { return mUuidMostSignificantBits[beacon]; }
+    public long getUuidLeastSignificantBits(int beacon) { return mUuidLeastSignificantBits[beacon]; }
+    public int getMajor(int beacon) { return mMajors[beacon]; }
+    public int getMinor(int beacon) { return mMinors[beacon]; }
+    public int getTransmissionPower(int beacon) { return mTransmissionPowers[beacon]; }
+    public double getX(int beacon) { return mXs[beacon]; }
+    public double getY(int beacon) { return mYs[beacon]; }
+}
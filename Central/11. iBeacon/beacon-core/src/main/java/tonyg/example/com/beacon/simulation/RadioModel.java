@@ -0,0 +1,88 @@
+package tonyg.example.com.beacon.simulation;
+
+import java.util.Random;
+
+import tonyg.example.com.beacon.ble.IBeacon;
+
+
+/**
+ * How an advertisement's signal reaches the Central:
+ *
+ * RSSI = TX Power - 10 n log10(distance) + shadowing
+ *
+ * where n is the path loss exponent and shadowing is Gaussian noise in dB.  Some advertisements
+ * are lost outright, and none are heard below the receiver's sensitivity.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class RadioModel {
+    /** Constants **/
+    public static final int RSSI_NONE = 0; // the advertisement was not received
+    public static final double DEFAULT_SHADOWING_DB = 4;
+    public static final double DEFAULT_DROPOUT_PROBABILITY = 0.1;
+    public static final int DEFAULT_SENSITIVITY_DBM = -100;
+    private static final double MIN_DISTANCE = 0.1; // meters, keeps log10 finite
+
+    private final double mPathLossExponent;
+    private final double mShadowingDb;
+    private final double mDropoutProbability;
+    private final int mSensitivity;
+
+    public RadioModel() {
+        this(IBeacon.RADIO_PROPAGATION_CONSTANT, DEFAULT_SHADOWING_DB, DEFAULT_DROPOUT_PROBABILITY, DEFAULT_SENSITIVITY_DBM);
+    }
+
+    /**
+     * Create a radio model
+     *
+     * @param pathLossExponent how fast the signal falls off with distance; 2 in free space
+     * @param shadowingDb standard deviation of the noise, in dB
+     * @param dropoutProbability chance that an advertisement is lost, 0 to 1
+     * @param sensitivity weakest RSSI the Central can receive
+     */
+    public RadioModel(double pathLossExponent, double shadowingDb, double dropoutProbability, int sensitivity) {
+        if (pathLossExponent <= 0 || shadowingDb < 0 || dropoutProbability < 0 || dropoutProbability > 1) {
+            throw new IllegalArgumentException("Invalid radio model");
+        }
+        mPathLossExponent = pathLossExponent;
+        mShadowingDb = shadowingDb;
+        mDropoutProbability = dropoutProbability;
+        mSensitivity = sensitivity;
+    }
+
+    public double getShadowingDb() { return mShadowingDb; }
+
+    /**
+     * Get the RSSI of one advertisement
+     *
+     * @param transmissionPower the beacon's RSSI at 1 meter
+     * @param distance distance from the beacon, in meters
+     * @param random the caller's random number generator
+     * @return the RSSI, or RSSI_NONE if the advertisement was not received
+     */
+    public int getRssi(int transmissionPower, double distance, Random random) {
+        if (random.nextDouble() < mDropoutProbability) {
+            return RSSI_NONE;
+        }
+        double rssi = transmissionPower - 10 * mPathLossExponent * Math.log10(Math.max(MIN_DISTANCE, distance));
+        if (mShadowingDb > 0) {
+            rssi += random.nextGaussian() * mShadowingDb;
+        }
+        int roundedRssi = (int) Math.round(rssi);
+        if (roundedRssi < mSensitivity) {
+            return RSSI_NONE;
+        }
+        return Math.min(-1, roundedRssi); // RSSI is always negative
+    }
+
+    /**
+     * Get the farthest distance a beacon can be heard from, ignoring shadowing
+     *
+     * @param transmissionPower the beacon's RSSI at 1 meter
+     * @return distance in meters
+     */
+    public double getRange(int transmissionPower) {
+        return Math.pow(10, (transmissionPower - mSensitivity) / (10 * mPathLossExponent));
+    }
+}
@@ -0,0 +1,68 @@
+package tonyg.example.com.beacon.simulation;
+
+import java.util.Locale;
+
+import tonyg.example.com.blecodec.codecs.BeaconFrame;
+import tonyg.example.com.blecodec.codecs.IBeaconCodec;
+
+
+/**
+ * Feed simulated sightings into the same entry point as real scan results, as the
+ * Scan Record and MAC address a Central would receive.
+ *
+ * Each beacon's Scan Record is encoded once up front and shared between its sightings,
+ * so listeners must not modify it.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class ScanRecordSink implements SightingSink {
+    /** Constants **/
+    private static final int SCAN_RECORD_LENGTH = 62; // advertisement and scan response, as Android reports it
+    private static final byte[] FLAGS = { 0x02, 0x01, 0x06 }; // LE General Discoverable, BR/EDR not supported
+
+    /**
+     * Receives each sighting as a scan result
+     */
+    public interface Listener {
+        void onIBeaconDiscovered(String macAddress, byte[] scanRecord, int rssi);
+    }
+
+    private final Listener mListener;
+    private final byte[][] mScanRecords;
+    private final String[] mMacAddresses;
+
+    /**
+     * Encode the Scan Record of every beacon
+     *
+     * @param floorPlan the beacons
+     * @param listener receives the sightings
+     */
+    public ScanRecordSink(FloorPlan floorPlan, Listener listener) {
+        mListener = listener;
+        mScanRecords = new byte[floorPlan.size()][];
+        mMacAddresses = new String[floorPlan.size()];
+        IBeaconCodec codec = new IBeaconCodec();
+        BeaconFrame frame = new BeaconFrame();
+        for (int beacon = 0; beacon < floorPlan.size(); beacon++) {
+            frame.setIdentity(BeaconFrame.FORMAT_IBEACON, IBeaconCodec.APPLE_COMPANY_ID,
+                    floorPlan.getUuidMostSignificantBits(beacon), floorPlan.getUuidLeastSignificantBits(beacon),
+                    floorPlan.getMajor(beacon), floorPlan.getMinor(beacon), floorPlan.getTransmissionPower(beacon));
+            byte[] scanRecord = new byte[SCAN_RECORD_LENGTH];
+            System.arraycopy(FLAGS, 0, scanRecord, 0, FLAGS.length);
+            codec.encode(frame, scanRecord, FLAGS.length);
+            mScanRecords[beacon] = scanRecord;
+            // locally administered addresses, so they never clash with a real device
+            mMacAddresses[beacon] = String.format(Locale.US, "02:00:00:%02X:%02X:%02X", (beacon >> 16) & 0xFF, (beacon >> 8) & 0xFF, beacon & 0xFF);
+        }
+    }
+
+    @Override
+    public void onSighting(long timeMillis, int observer, int beacon, int rssi) {
+        mListener.onIBeaconDiscovered(mMacAddresses[beacon], mScanRecords[beacon], rssi);
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,35 @@
+package tonyg.example.com.beacon.simulation;
+
+
+/**
+ * Receives the advertisements heard by a simulated Central.
+ * Each generator thread has its own sink, so sinks need not be thread safe.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public interface SightingSink {
+    /**
+     * An advertisement was heard
+     *
+     * @param timeMillis time since the simulation began
+     * @param observer index of the trajectory that heard it
+     * @param beacon index of the beacon in the floor plan
+     * @param rssi the RSSI
+     */
+    void onSighting(long timeMillis, int observer, int beacon, int rssi);
+
+    /**
+     * No more sightings will be sent
+     *
+     * @throws Exception if the sink could not finish
+     */
+    void close() throws Exception;
+
+    /**
+     * Creates one sink per partition of the work
+     */
+    interface Factory {
+        SightingSink createSink(int partition) throws Exception;
+    }
+}
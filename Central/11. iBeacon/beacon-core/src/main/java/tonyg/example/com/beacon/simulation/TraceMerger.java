@@ -0,0 +1,101 @@
+package tonyg.example.com.beacon.simulation;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+
+/**
+ * Merge the traces of a FleetGenerator run, one per partition, into a single trace.
+ *
+ * FleetGenerator gives each partition its own sink, so a run written with TraceWriters is one
+ * trace per partition, each with its own header.  The merge reads every partition at once and
+ * writes the sightings in time order, under one header.  Within a partition, advertising delay
+ * may put a sighting up to 10 ms before the one ahead of it, and the merge keeps that order.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class TraceMerger {
+    private static final Comparator<TraceReader> BY_TIME = new Comparator<TraceReader>() {
+        @Override
+        public int compare(TraceReader first, TraceReader second) {
+            return (first.getTimeMillis() < second.getTimeMillis()) ? -1 : ((first.getTimeMillis() == second.getTimeMillis()) ? 0 : 1);
+        }
+    };
+
+    private TraceMerger() {
+    }
+
+    /**
+     * Merge partition traces
+     *
+     * @param partitions the traces, which must all have the same floor plan.  Each is closed.
+     * @param output where to write the merged trace; closed when done
+     * @return the number of sightings written
+     * @throws IOException if a trace is unreadable, or the floor plans differ
+     */
+    public static long merge(List<? extends InputStream> partitions, OutputStream output) throws IOException {
+        if (partitions.isEmpty()) {
+            throw new IllegalArgumentException("Need at least one trace");
+        }
+        List<TraceReader> readers = new ArrayList<TraceReader>(partitions.size());
+        TraceWriter writer = null;
+        try {
+            for (InputStream partition : partitions) {
+                readers.add(new TraceReader(partition));
+            }
+            FloorPlan floorPlan = readers.get(0).getFloorPlan();
+            PriorityQueue<TraceReader> queue = new PriorityQueue<TraceReader>(readers.size(), BY_TIME);
+            for (TraceReader reader : readers) {
+                if (!isSameFloorPlan(floorPlan, reader.getFloorPlan())) {
+                    throw new IOException("Traces are of different floor plans");
+                }
+                if (reader.next()) {
+                    queue.add(reader);
+                }
+            }
+
+            writer = new TraceWriter(output, floorPlan);
+            while (!queue.isEmpty()) {
+                TraceReader reader = queue.poll();
+                writer.onSighting(reader.getTimeMillis(), reader.getObserver(), reader.getBeacon(), reader.getRssi());
+                if (reader.next()) {
+                    queue.add(reader);
+                }
+            }
+            return writer.getRecordCount();
+        } finally {
+            for (TraceReader reader : readers) {
+                reader.close();
+            }
+            if (writer != null) {
+                writer.close();
+            } else {
+                output.close();
+            }
+        }
+    }
+
+    private static boolean isSameFloorPlan(FloorPlan first, FloorPlan second) {
+        if (first.size() != second.size()) {
+            return false;
+        }
+        for (int beacon = 0; beacon < first.size(); beacon++) {
+            if (first.getUuidMostSignificantBits(beacon) != second.getUuidMostSignificantBits(beacon)
+                    || first.getUuidLeastSignificantBits(beacon) != second.getUuidLeastSignificantBits(beacon)
+                    || first.getMajor(beacon) != second.getMajor(beacon)
+                    || first.getMinor(beacon) != second.getMinor(beacon)
+                    || first.getTransmissionPower(beacon) != second.getTransmissionPower(beacon)
+                    || first.getX(beacon) != second.getX(beacon)
+                    || first.getY(beacon) != second.getY(beacon)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
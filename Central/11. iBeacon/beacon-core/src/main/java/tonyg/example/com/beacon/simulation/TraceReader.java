@@ -0,0 +1,128 @@
+package tonyg.example.com.beacon.simulation;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.UUID;
+
+
+/**
+ * Replay a trace written by TraceWriter, all at once into a sink, or one record at a time
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class TraceReader {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final DataInputStream mInput;
+    private final FloorPlan mFloorPlan = new FloorPlan();
+
+    // the record last read by next()
+    private long mTimeMillis = 0;
+    private int mObserver;
+    private int mBeacon;
+    private int mRssi;
+
+    /**
+     * Open a trace and read its header
+     *
+     * @param input the trace; closed by close()
+     * @throws IOException if the header is missing or not a supported trace
+     */
+    public TraceReader(InputStream input) throws IOException {
+        mInput = new DataInputStream(new BufferedInputStream(input, BUFFER_SIZE));
+        if (mInput.readInt() != TraceWriter.MAGIC) {
+            throw new IOException("Not a beacon trace");
+        }
+        int version = mInput.readUnsignedShort();
+        if (version != TraceWriter.VERSION) {
+            throw new IOException("Unsupported trace version " + version);
+        }
+        int beaconCount = mInput.readInt();
+        for (int beacon = 0; beacon < beaconCount; beacon++) {
+            UUID uuid = new UUID(mInput.readLong(), mInput.readLong());
+            int major = mInput.readUnsignedShort();
+            int minor = mInput.readUnsignedShort();
+            int transmissionPower = mInput.readByte();
+            mFloorPlan.addBeacon(uuid, major, minor, transmissionPower, mInput.readDouble(), mInput.readDouble());
+        }
+    }
+
+    /**
+     * Get the beacons the trace's sightings refer to
+     *
+     * @return the floor plan
+     */
+    public FloorPlan getFloorPlan() {
+        return mFloorPlan;
+    }
+
+    /**
+     * Send every remaining sighting to a sink.  The sink is not closed.
+     *
+     * @param sink receives the sightings
+     * @return the number of sightings
+     * @throws IOException if the trace is truncated or unreadable
+     */
+    public long replay(SightingSink sink) throws IOException {
+        long recordCount = 0;
+        while (next()) {
+            sink.onSighting(mTimeMillis, mObserver, mBeacon, mRssi);
+            recordCount++;
+        }
+        return recordCount;
+    }
+
+    /**
+     * Read the next sighting
+     *
+     * @return <b>false</b> at the end of the trace
+     * @throws IOException if the trace is truncated or unreadable
+     */
+    public boolean next() throws IOException {
+        int firstByte = mInput.read();
+        if (firstByte < 0) {
+            return false;
+        }
+        long zigzag = readVarLong(firstByte);
+        mTimeMillis += (zigzag >>> 1) ^ -(zigzag & 1);
+        mBeacon = (int) readVarLong(mInput.readUnsignedByte());
+        mObserver = (int) readVarLong(mInput.readUnsignedByte());
+        mRssi = mInput.readByte();
+        if (mBeacon >= mFloorPlan.size()) {
+            throw new IOException("Sighting of unknown beacon " + mBeacon);
+        }
+        return true;
+    }
+
+    /** The sighting last read by next() **/
+    public long getTimeMillis() { return mTimeMillis; }
+    public int getObserver() { return mObserver; }
+    public int getBeacon() { return mBeacon; }
+    public int getRssi() { return mRssi; }
+
+    public void close() throws IOException {
+        mInput.close();
+    }
+
+    private long readVarLong(int firstByte) throws IOException {
+        long value = firstByte & 0x7F;
+        int shift = 7;
+        int nextByte = firstByte;
+        while ((nextByte & 0x80) != 0) {
+            if (shift > 63) {
+                throw new IOException("Malformed trace");
+            }
+            nextByte = mInput.read();
+            if (nextByte < 0) {
+                throw new EOFException("Truncated trace");
+            }
+            value |= (long) (nextByte & 0x7F) << shift;
+            shift += 7;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,104 @@
+package tonyg.example.com.beacon.simulation;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+
+/**
+ * Record sightings in a compact binary trace, which TraceReader replays.
+ *
+ * A trace is a header followed by one record per sighting:
+ *
+ * header:  magic "BTRC", version (u16), beacon count (u32),
+ *          then per beacon: UUID (2 x s64), Major (u16), Minor (u16), TX Power (s8), x, y (f64)
+ * record:  time since the previous record (zigzag varint, ms), beacon index (varint),
+ *          observer index (varint), RSSI (s8)
+ *
+ * All fixed-width values are big-endian.  A typical record is 4 bytes.
+ *
+ * A FleetGenerator run gives each partition its own sink, so one TraceWriter per partition
+ * writes one trace per partition.  TraceMerger merges them into one.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class TraceWriter implements SightingSink {
+    /** Constants **/
+    public static final int MAGIC = 0x42545243; // "BTRC"
+    public static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final DataOutputStream mOutput;
+    private long mPreviousTimeMillis = 0;
+    private long mRecordCount = 0;
+    private IOException mError; // onSighting() cannot throw, so the first failure is kept for close()
+
+    /**
+     * Start a trace
+     *
+     * @param output where to write the trace; closed by close()
+     * @param floorPlan the beacons the sightings refer to
+     * @throws IOException if the header could not be written
+     */
+    public TraceWriter(OutputStream output, FloorPlan floorPlan) throws IOException {
+        mOutput = new DataOutputStream(new BufferedOutputStream(output, BUFFER_SIZE));
+        mOutput.writeInt(MAGIC);
+        mOutput.writeShort(VERSION);
+        mOutput.writeInt(floorPlan.size());
+        for (int beacon = 0; beacon < floorPlan.size(); beacon++) {
+            mOutput.writeLong(floorPlan.getUuidMostSignificantBits(beacon));
+            mOutput.writeLong(floorPlan.getUuidLeastSignificantBits(beacon));
+            mOutput.writeShort(floorPlan.getMajor(beacon));
+            mOutput.writeShort(floorPlan.getMinor(beacon));
+            mOutput.writeByte(floorPlan.getTransmissionPower(beacon));
+            mOutput.writeDouble(floorPlan.getX(beacon));
+            mOutput.writeDouble(floorPlan.getY(beacon));
+        }
+    }
+
+    @Override
+    public void onSighting(long timeMillis, int observer, int beacon, int rssi) {
+        if (mError != null) {
+            return;
+        }
+        try {
+            long delta = timeMillis - mPreviousTimeMillis;
+            writeVarLong((delta << 1) ^ (delta >> 63)); // zigzag, since advertising delay can reorder sightings
+            writeVarLong(beacon);
+            writeVarLong(observer);
+            mOutput.writeByte(rssi);
+            mPreviousTimeMillis = timeMillis;
+            mRecordCount++;
+        } catch (IOException e) {
+            mError = e;
+        }
+    }
+
+    public long getRecordCount() { return mRecordCount; }
+
+    /**
+     * Finish the trace
+     *
+     * @throws IOException if any record could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            mOutput.close();
+        } finally {
+            if (mError != null) {
+                throw mError;
+            }
+        }
+    }
+
+    private void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            mOutput.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        mOutput.writeByte((int) value);
+    }
+}
@@ -0,0 +1,89 @@
+package tonyg.example.com.beacon.simulation;
+
+import java.util.Arrays;
+
+
+/**
+ * A walk through a floor plan: a path of waypoints followed at a constant speed,
+ * starting over from the first waypoint after the last.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class Trajectory {
+    /** Constants **/
+    public static final double WALKING_SPEED = 1.4; // meters per second
+
+    private final double[] mXs;
+    private final double[] mYs;
+    private final double[] mDistances; // distance along the path to each waypoint, and back to the first
+    private final double mSpeedMetersPerMilli;
+
+    /**
+     * Create a walk
+     *
+     * @param waypoints x and y of each waypoint in turn, in meters
+     * @param speed walking speed in meters per second
+     */
+    public Trajectory(double[] waypoints, double speed) {
+        if (waypoints.length < 2 || waypoints.length % 2 != 0) {
+            throw new IllegalArgumentException("Waypoints must be pairs of x and y");
+        }
+        if (speed <= 0) {
+            throw new IllegalArgumentException("Speed must be positive");
+        }
+        int count = waypoints.length / 2;
+        mXs = new double[count];
+        mYs = new double[count];
+        mDistances = new double[count + 1];
+        for (int index = 0; index < count; index++) {
+            mXs[index] = waypoints[index * 2];
+            mYs[index] = waypoints[index * 2 + 1];
+        }
+        for (int index = 1; index <= count; index++) {
+            int previous = index - 1;
+            int next = index % count;
+            mDistances[index] = mDistances[previous] + Math.hypot(mXs[next] - mXs[previous], mYs[next] - mYs[previous]);
+        }
+        mSpeedMetersPerMilli = speed / 1000;
+    }
+
+    /**
+     * Stand still at one spot
+     *
+     * @param x position in meters
+     * @param y position in meters
+     * @return the trajectory
+     */
+    public static Trajectory createStationary(double x, double y) {
+        return new Trajectory(new double[] { x, y }, WALKING_SPEED);
+    }
+
+    /**
+     * Get the position at a time since the walk began
+     *
+     * @param timeMillis time since the walk began
+     * @param position receives x and y, in meters
+     */
+    public void getPosition(long timeMillis, double[] position) {
+        double length = mDistances[mDistances.length - 1];
+        if (length == 0) {
+            position[0] = mXs[0];
+            position[1] = mYs[0];
+            return;
+        }
+        double distance = (timeMillis * mSpeedMetersPerMilli) % length;
+        int index = Arrays.binarySearch(mDistances, distance);
+        if (index < 0) {
+            index = -index - 2; // the waypoint before
+        }
+        if (index >= mXs.length) {
+            index = mXs.length - 1;
+        }
+        int next = (index + 1) % mXs.length;
+        double segment = mDistances[index + 1] - mDistances[index];
+        double fraction = (segment == 0) ? 0 : (distance - mDistances[index]) / segment;
+        position[0] = mXs[index] + (mXs[next] - mXs[index]) * fraction;
+        position[1] = mYs[index] + (mYs[next] - mYs[index]) * fraction;
+    }
+}
@@ -0,0 +1,471 @@
+package tonyg.example.com.beacon.utilities;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import tonyg.example.com.beacon.ble.IBeacon;
+
+
+/**
+ * Compute the expected signal coverage of a set of beacons over a grid.
+ *
+ * The grid is split into square tiles.  Tiles are computed in parallel and cached, and only the
+ * tiles within radio range of an added, moved or removed beacon are recomputed on the next update.
+ *
+ * Each cell holds either the strongest expected RSSI, or the expected positioning error in meters
+ * given the geometry of the beacons in range.
+ *
+ * This class has no Android dependencies, so that it can be benchmarked off-device.
+ * It is not thread safe: update() and the getters must be called from the same thread.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class CoverageHeatmap {
+    /** Constants **/
+    public static final int MODE_RSSI = 0;
+    public static final int MODE_POSITION_ERROR = 1;
+
+    // weakest RSSI a Central can still hear
+    public static final double DEFAULT_RSSI_FLOOR = -100;
+    // standard deviation of the RSSI caused by shadowing, in dB
+    public static final double DEFAULT_RSSI_DEVIATION = 4;
+
+    // fewest beacons in range to estimate a position
+    private static final int MIN_BEACONS_FOR_POSITION = 3;
+
+    /** Grid properties **/
+    private final double mOriginX, mOriginY;
+    private final double mCellSize_m;
+    private final int mTileSize; // cells along each edge of a tile
+    private final int mColumns, mRows;
+    private final int mTileColumns, mTileRows;
+    private final int mMode;
+
+    /** Radio model **/
+    private double mRssiFloor = DEFAULT_RSSI_FLOOR;
+    private double mRssiDeviation = DEFAULT_RSSI_DEVIATION;
+
+    /** Tile cache **/
+    private final float[][] mTiles;
+    private final int[] mTileVersions;
+    private final boolean[] mDirtyTiles;
+    private int mDirtyTileCount;
+
+    private final HashMap<Object, BeaconSource> mBeacons = new HashMap<Object, BeaconSource>();
+    private final ExecutorService mExecutor;
+
+
+    /**
+     * A beacon as seen by the heatmap
+     */
+    private static class BeaconSource {
+        final double x, y;
+        final int transmissionPower;
+        final double range_m;
+
+        BeaconSource(double x, double y, int transmissionPower, double range_m) {
+            this.x = x;
+            this.y = y;
+            this.transmissionPower = transmissionPower;
+            this.range_m = range_m;
+        }
+
+        boolean isAt(double x, double y, int transmissionPower) {
+            return this.x == x && this.y == y && this.transmissionPower == transmissionPower;
+        }
+    }
+
+
+    /**
+     * Create a CoverageHeatmap
+     *
+     * @param originX x location of the top left corner of the grid, in meters
+     * @param originY y location of the top left corner of the grid, in meters
+     * @param width_m width of the grid in meters
+     * @param height_m height of the grid in meters
+     * @param cellSize_m size of each cell in meters
+     * @param tileSize number of cells along each edge of a tile
+     * @param mode one of MODE_RSSI or MODE_POSITION_ERROR
+     */
+    public CoverageHeatmap(double originX, double originY, double width_m, double height_m, double cellSize_m, int tileSize, int mode) {
+        this(originX, originY, width_m, height_m, cellSize_m, tileSize, mode, createDefaultExecutor());
+    }
+
+    /**
+     * Create a CoverageHeatmap that computes its tiles on a given executor
+     *
+     * @param originX x location of the top left corner of the grid, in meters
+     * @param originY y location of the top left corner of the grid, in meters
+     * @param width_m width of the grid in meters
+     * @param height_m height of the grid in meters
+     * @param cellSize_m size of each cell in meters
+     * @param tileSize number of cells along each edge of a tile
+     * @param mode one of MODE_RSSI or MODE_POSITION_ERROR
+     * @param executor the executor that computes the tiles
+     */
+    public CoverageHeatmap(double originX, double originY, double width_m, double height_m, double cellSize_m, int tileSize, int mode, ExecutorService executor) {
+        if (cellSize_m <= 0 || tileSize <= 0) {
+            throw new IllegalArgumentException("Cell size and tile size must be positive");
+        }
+        mOriginX = originX;
+        mOriginY = originY;
+        mCellSize_m = cellSize_m;
+        mTileSize = tileSize;
+        mMode = mode;
+        mColumns = (int) Math.ceil(width_m / cellSize_m);
+        mRows = (int) Math.ceil(height_m / cellSize_m);
+        mTileColumns = (mColumns + tileSize - 1) / tileSize;
+        mTileRows = (mRows + tileSize - 1) / tileSize;
+
+        int tileCount = mTileColumns * mTileRows;
+        mTiles = new float[tileCount][tileSize * tileSize];
+        mTileVersions = new int[tileCount];
+        mDirtyTiles = new boolean[tileCount];
+        mExecutor = executor;
+        invalidateAll();
+    }
+
+    private static ExecutorService createDefaultExecutor() {
+        return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "CoverageHeatmap");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Set the weakest RSSI that counts as coverage.  Invalidates every tile.
+     *
+     * @param rssiFloor RSSI in dB
+     */
+    public void setRssiFloor(double rssiFloor) {
+        mRssiFloor = rssiFloor;
+        refreshRanges();
+    }
+
+    /**
+     * Set the expected RSSI deviation used to estimate the positioning error.  Invalidates every tile.
+     *
+     * @param rssiDeviation standard deviation in dB
+     */
+    public void setRssiDeviation(double rssiDeviation) {
+        mRssiDeviation = rssiDeviation;
+        invalidateAll();
+    }
+
+    /**
+     * Add or move a beacon.  Nothing is invalidated if the beacon has not changed.
+     *
+     * @param key an object identifying the beacon, such as its IBeacon
+     * @param x x location in meters
+     * @param y y location in meters
+     * @param transmissionPower the beacon's transmission power at 1 meter
+     */
+    public void putBeacon(Object key, double x, double y, int transmissionPower) {
+        BeaconSource previous = mBeacons.get(key);
+        if (previous != null) {
+            if (previous.isAt(x, y, transmissionPower)) {
+                return;
+            }
+            invalidateArea(previous);
+        }
+        BeaconSource beacon = new BeaconSource(x, y, transmissionPower, getRange(transmissionPower));
+        mBeacons.put(key, beacon);
+        invalidateArea(beacon);
+    }
+
+    /**
+     * Add or move an iBeacon
+     *
+     * @param iBeacon the iBeacon
+     */
+    public void putBeacon(IBeacon iBeacon) {
+        putBeacon(iBeacon, iBeacon.getXLocation(), iBeacon.getYLocation(), iBeacon.getTransmissionPower());
+    }
+
+    /**
+     * Remove a beacon
+     *
+     * @param key the object identifying the beacon
+     */
+    public void removeBeacon(Object key) {
+        BeaconSource previous = mBeacons.remove(key);
+        if (previous != null) {
+            invalidateArea(previous);
+        }
+    }
+
+    /**
+     * Remove every beacon
+     */
+    public void clear() {
+        mBeacons.clear();
+        invalidateAll();
+    }
+
+    /**
+     * Recompute the dirty tiles in parallel.  Blocks until every tile is done.
+     *
+     * A tile stays dirty until it has been computed, so a tile that failed, or was not computed
+     * because the update was interrupted, is computed again on the next update.
+     *
+     * @return the number of tiles recomputed
+     * @throws InterruptedException if interrupted while waiting for the tiles
+     * @throws RuntimeException the first exception thrown while computing a tile
+     */
+    public int update() throws InterruptedException {
+        if (mDirtyTileCount == 0) {
+            return 0;
+        }
+        final BeaconSource[] beacons = mBeacons.values().toArray(new BeaconSource[mBeacons.size()]);
+
+        int[] tiles = new int[mDirtyTileCount];
+        List<Callable<Void>> jobs = new ArrayList<Callable<Void>>(mDirtyTileCount);
+        for (int tile = 0; tile < mDirtyTiles.length; tile++) {
+            if (mDirtyTiles[tile]) {
+                final int tileIndex = tile;
+                tiles[jobs.size()] = tile;
+                jobs.add(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        computeTile(tileIndex, beacons);
+                        return null;
+                    }
+                });
+            }
+        }
+        List<Future<Void>> results = mExecutor.invokeAll(jobs);
+
+        int computedCount = 0;
+        Throwable failure = null;
+        for (int job = 0; job < results.size(); job++) {
+            try {
+                results.get(job).get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+                continue; // still dirty
+            }
+            int tile = tiles[job];
+            mDirtyTiles[tile] = false;
+            mTileVersions[tile]++;
+            mDirtyTileCount--;
+            computedCount++;
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure != null) {
+            throw new RuntimeException(failure);
+        }
+        return computedCount;
+    }
+
+    /**
+     * Stop the worker threads
+     */
+    public void shutdown() {
+        mExecutor.shutdown();
+    }
+
+    /** Grid accessors **/
+    public int getMode() { return mMode; }
+    public int getColumns() { return mColumns; }
+    public int getRows() { return mRows; }
+    public int getTileSize() { return mTileSize; }
+    public int getTileColumns() { return mTileColumns; }
+    public int getTileRows() { return mTileRows; }
+    public double getCellSize() { return mCellSize_m; }
+    public double getOriginX() { return mOriginX; }
+    public double getOriginY() { return mOriginY; }
+    public int getDirtyTileCount() { return mDirtyTileCount; }
+
+    /**
+     * Get the values of a tile, row by row.  Do not modify the array.
+     *
+     * @param tileColumn tile column
+     * @param tileRow tile row
+     * @return RSSI or positioning error of each cell in the tile
+     */
+    public float[] getTile(int tileColumn, int tileRow) {
+        return mTiles[tileRow * mTileColumns + tileColumn];
+    }
+
+    /**
+     * Get the version of a tile, which changes every time the tile is recomputed
+     *
+     * @param tileColumn tile column
+     * @param tileRow tile row
+     * @return tile version
+     */
+    public int getTileVersion(int tileColumn, int tileRow) {
+        return mTileVersions[tileRow * mTileColumns + tileColumn];
+    }
+
+    /**
+     * Get the value of one cell
+     *
+     * @param column cell column
+     * @param row cell row
+     * @return RSSI in dB, or positioning error in meters
+     */
+    public float getValue(int column, int row) {
+        float[] tile = mTiles[(row / mTileSize) * mTileColumns + (column / mTileSize)];
+        return tile[(row % mTileSize) * mTileSize + (column % mTileSize)];
+    }
+
+    /**
+     * Expected RSSI from a beacon at some distance, using the log-distance path loss model
+     *
+     * @param transmissionPower the beacon's transmission power at 1 meter
+     * @param distance_m distance in meters
+     * @return RSSI in dB
+     */
+    public static double getExpectedRssi(int transmissionPower, double distance_m) {
+        if (distance_m < 1) {
+            return transmissionPower;
+        }
+        return transmissionPower - 10 * IBeacon.RADIO_PROPAGATION_CONSTANT * Math.log10(distance_m);
+    }
+
+    /**
+     * Distance at which a beacon's RSSI drops below the floor
+     */
+    private double getRange(int transmissionPower) {
+        return Math.pow(10, (transmissionPower - mRssiFloor) / (10 * IBeacon.RADIO_PROPAGATION_CONSTANT));
+    }
+
+    private void refreshRanges() {
+        for (Map.Entry<Object, BeaconSource> entry : mBeacons.entrySet()) {
+            BeaconSource beacon = entry.getValue();
+            entry.setValue(new BeaconSource(beacon.x, beacon.y, beacon.transmissionPower, getRange(beacon.transmissionPower)));
+        }
+        invalidateAll();
+    }
+
+    private void invalidateAll() {
+        for (int tile = 0; tile < mDirtyTiles.length; tile++) {
+            mDirtyTiles[tile] = true;
+        }
+        mDirtyTileCount = mDirtyTiles.length;
+    }
+
+    /**
+     * Mark every tile within range of a beacon as dirty
+     */
+    private void invalidateArea(BeaconSource beacon) {
+        double tileSize_m = mTileSize * mCellSize_m;
+        int firstColumn = Math.max(0, (int) Math.floor((beacon.x - beacon.range_m - mOriginX) / tileSize_m));
+        int lastColumn = Math.min(mTileColumns - 1, (int) Math.floor((beacon.x + beacon.range_m - mOriginX) / tileSize_m));
+        int firstRow = Math.max(0, (int) Math.floor((beacon.y - beacon.range_m - mOriginY) / tileSize_m));
+        int lastRow = Math.min(mTileRows - 1, (int) Math.floor((beacon.y + beacon.range_m - mOriginY) / tileSize_m));
+
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int tile = row * mTileColumns + column;
+                if (!mDirtyTiles[tile]) {
+                    mDirtyTiles[tile] = true;
+                    mDirtyTileCount++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Compute every cell of a tile.  Only reads shared state, and only writes this tile.
+     */
+    private void computeTile(int tileIndex, BeaconSource[] beacons) {
+        int tileColumn = tileIndex % mTileColumns;
+        int tileRow = tileIndex / mTileColumns;
+        double tileSize_m = mTileSize * mCellSize_m;
+        double left = mOriginX + tileColumn * tileSize_m;
+        double top = mOriginY + tileRow * tileSize_m;
+
+        // only the beacons that reach this tile can affect it
+        BeaconSource[] nearby = new BeaconSource[beacons.length];
+        int nearbyCount = 0;
+        for (BeaconSource beacon : beacons) {
+            double dx = Math.max(0, Math.max(left - beacon.x, beacon.x - (left + tileSize_m)));
+            double dy = Math.max(0, Math.max(top - beacon.y, beacon.y - (top + tileSize_m)));
+            if (dx * dx + dy * dy <= beacon.range_m * beacon.range_m) {
+                nearby[nearbyCount++] = beacon;
+            }
+        }
+
+        float[] tile = mTiles[tileIndex];
+        for (int row = 0; row < mTileSize; row++) {
+            double y = top + (row + 0.5) * mCellSize_m;
+            for (int column = 0; column < mTileSize; column++) {
+                double x = left + (column + 0.5) * mCellSize_m;
+                tile[row * mTileSize + column] = (mMode == MODE_RSSI)
+                        ? computeRssi(x, y, nearby, nearbyCount)
+                        : computePositionError(x, y, nearby, nearbyCount);
+            }
+        }
+    }
+
+    /**
+     * Strongest expected RSSI at a point
+     */
+    private float computeRssi(double x, double y, BeaconSource[] beacons, int count) {
+        double strongest = mRssiFloor;
+        for (int b = 0; b < count; b++) {
+            BeaconSource beacon = beacons[b];
+            double dx = x - beacon.x;
+            double dy = y - beacon.y;
+            double rssi = getExpectedRssi(beacon.transmissionPower, Math.sqrt(dx * dx + dy * dy));
+            if (rssi > strongest) {
+                strongest = rssi;
+            }
+        }
+        return (float) strongest;
+    }
+
+    /**
+     * Expected positioning error at a point, from the weighted geometry of the beacons in range.
+     * Each distance estimate has a standard deviation proportional to its distance, so
+     * the error is the square root of the trace of the inverse of the weighted Fisher matrix.
+     */
+    private float computePositionError(double x, double y, BeaconSource[] beacons, int count) {
+        double sigmaFactor = Math.log(10) * mRssiDeviation / (10 * IBeacon.RADIO_PROPAGATION_CONSTANT);
+        double hxx = 0, hxy = 0, hyy = 0;
+        int inRange = 0;
+        for (int b = 0; b < count; b++) {
+            BeaconSource beacon = beacons[b];
+            double dx = x - beacon.x;
+            double dy = y - beacon.y;
+            double distance = Math.sqrt(dx * dx + dy * dy);
+            if (distance > beacon.range_m) {
+                continue;
+            }
+            inRange++;
+            distance = Math.max(distance, mCellSize_m);
+            double sigma = sigmaFactor * distance;
+            double weight = 1 / (sigma * sigma * distance * distance);
+            hxx += weight * dx * dx;
+            hxy += weight * dx * dy;
+            hyy += weight * dy * dy;
+        }
+        double determinant = hxx * hyy - hxy * hxy;
+        if (inRange < MIN_BEACONS_FOR_POSITION || determinant <= 0) {
+            return Float.POSITIVE_INFINITY;
+        }
+        return (float) Math.sqrt((hxx + hyy) / determinant);
+    }
+}
@@ -0,0 +1,128 @@
+package tonyg.example.com.beacon.utilities;
+
+
+/**
+ * Format numbers into a char array without allocating
+ *
+ * Decimal numbers are first scaled to fixed point, for example 12.345 with 1 decimal becomes 123,
+ * so that values can be compared at display precision before they are formatted.
+ *
+ * The text matches String.format("%.1f") and friends, with one exception: fixed point has no
+ * negative zero, so a negative value that rounds to zero is written "0.0" rather than "-0.0".
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class FixedPointFormatter {
+    // longest formatted long, with sign and decimal point
+    public static final int MAX_LENGTH = 21;
+
+    /** Fixed point values of numbers that are not finite **/
+    public static final long NOT_A_NUMBER = Long.MIN_VALUE;
+    public static final long POSITIVE_INFINITY = Long.MAX_VALUE;
+    public static final long NEGATIVE_INFINITY = -Long.MAX_VALUE;
+
+    private static final long MAX_FINITE = Long.MAX_VALUE - 1;
+    private static final double MAX_EXACT_SCALED = (1L << 53) / 10.0; // half-way points are exact doubles below this
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L
+    };
+
+    /**
+     * Scale a decimal number to a fixed point integer, rounding like String.format("%.1f") does.
+     *
+     * String.format rounds the shortest decimal that identifies the double, such as 0.15, half
+     * away from zero, rather than the double's exact binary value, 0.1499999... So a value is
+     * half-way when the decimal half-way point converts to exactly this double.  Multiplying by
+     * the power of ten can round across a half-way point, so the result is checked against them.
+     *
+     * @param value the decimal number
+     * @param decimals number of decimal places, up to 6
+     * @return the scaled value, clamped to the range of a long, or NOT_A_NUMBER, POSITIVE_INFINITY, or NEGATIVE_INFINITY
+     */
+    public static long toFixedPoint(double value, int decimals) {
+        if (Double.isNaN(value)) {
+            return NOT_A_NUMBER;
+        }
+        if (Double.isInfinite(value)) {
+            return (value > 0) ? POSITIVE_INFINITY : NEGATIVE_INFINITY;
+        }
+        double magnitude = Math.abs(value);
+        long power = POWERS_OF_TEN[decimals];
+        double scaled = magnitude * power;
+        long fixedPoint;
+        if (scaled < MAX_EXACT_SCALED) {
+            fixedPoint = Math.round(scaled);
+            double halfWayPower = power * 10.0;
+            if (magnitude < (fixedPoint * 10 - 5) / halfWayPower) {
+                fixedPoint--;
+            } else if (magnitude >= (fixedPoint * 10 + 5) / halfWayPower) {
+                fixedPoint++;
+            }
+        } else {
+            fixedPoint = Math.min(Math.round(scaled), MAX_FINITE);
+        }
+        return (value < 0) ? -fixedPoint : fixedPoint;
+    }
+
+    /**
+     * Write an integer into a char array.  Long.MIN_VALUE and Long.MAX_VALUE are written as
+     * NaN and Infinity, like the fixed point values.
+     *
+     * @param buffer the char array, with room for at least MAX_LENGTH more characters
+     * @param position where to start writing
+     * @param value the integer
+     * @return the position after the last character written
+     */
+    public static int appendInt(char[] buffer, int position, long value) {
+        return appendFixedPoint(buffer, position, value, 0);
+    }
+
+    /**
+     * Write a fixed point number into a char array as a decimal number, for example 123 with 1 decimal as "12.3".
+     * Numbers that are not finite are written "NaN", "Infinity", and "-Infinity", as String.format does.
+     *
+     * @param buffer the char array, with room for at least MAX_LENGTH more characters
+     * @param position where to start writing
+     * @param fixedPoint the scaled value from toFixedPoint()
+     * @param decimals number of decimal places, up to 6
+     * @return the position after the last character written
+     */
+    public static int appendFixedPoint(char[] buffer, int position, long fixedPoint, int decimals) {
+        if (fixedPoint == NOT_A_NUMBER) {
+            return appendText(buffer, position, "NaN");
+        }
+        if (fixedPoint < 0) {
+            buffer[position++] = '-';
+            fixedPoint = -fixedPoint;
+        }
+        if (fixedPoint == POSITIVE_INFINITY) {
+            return appendText(buffer, position, "Infinity");
+        }
+
+        // count the digits, keeping at least one digit before the decimal point
+        int digits = decimals + 1;
+        for (long remaining = fixedPoint / POWERS_OF_TEN[decimals]; remaining >= 10; remaining /= 10) {
+            digits++;
+        }
+        int length = (decimals > 0) ? digits + 1 : digits;
+
+        // write the digits from right to left
+        int end = position + length;
+        int cursor = end;
+        for (int digit = 0; digit < digits; digit++) {
+            if (decimals > 0 && digit == decimals) {
+                buffer[--cursor] = '.';
+            }
+            buffer[--cursor] = (char) ('0' + (fixedPoint % 10));
+            fixedPoint /= 10;
+        }
+        return end;
+    }
+
+    private static int appendText(char[] buffer, int position, String text) {
+        text.getChars(0, text.length(), buffer, position);
+        return position + text.length();
+    }
+}
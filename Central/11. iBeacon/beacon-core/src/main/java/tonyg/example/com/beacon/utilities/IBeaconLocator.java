@@ -2,7 +2,6 @@ package tonyg.example.com.beacon.utilities;
 
 import java.util.ArrayList;
 
-import tonyg.example.com.beacon.ble.BleBeacon;
 import tonyg.example.com.beacon.ble.IBeacon;
 
 
@@ -55,7 +54,7 @@ public class IBeaconLocator {
                 );
 
         //the signed magnitude of the y component
-        double j = eyx * (p2.getXLocation() - p3.getYLocation()) + eyy * (p3.getYLocation() - p1.getYLocation());
+        double j = eyx * (p3.getXLocation() - p1.getXLocation()) + eyy * (p3.getYLocation() - p1.getYLocation());
 
         //double jx = eyx * (p3.getXLocation() - p1.getXLocation());
         //double jy = eyy * (p3.getYLocation() - p1.getYLocation());
@@ -0,0 +1,196 @@
+package tonyg.example.com.beacon.utilities;
+
+import java.util.HashMap;
+import java.util.List;
+
+
+/**
+ * Calculate the updates that turn one snapshot of a list into another.
+ *
+ * Items are matched by a stable ID.  The result is a sequence of removals, moves and
+ * insertions, followed by changes for items whose contents differ.  Each position refers to the
+ * list as it is after the previous updates, so the updates can be dispatched to a list view in order.
+ *
+ * IDs should be unique.  If one repeats, its occurrences are matched in order, and the extra ones
+ * are removed or inserted, so the updates still produce the new list.
+ *
+ * This class has no Android dependencies, so the diff can be calculated on any thread.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class ListDiff {
+    /** Update types **/
+    public static final int REMOVE = 0;
+    public static final int INSERT = 1;
+    public static final int MOVE = 2;
+    public static final int CHANGE = 3;
+
+    private static final int OPERATION_SIZE = 3; // type, from, to
+
+    private int[] mOperations = new int[OPERATION_SIZE * 8];
+    private int mSize = 0;
+
+
+    /**
+     * Identify and compare list items
+     *
+     * @param <T> the list item type
+     */
+    public interface Callback<T> {
+        long getId(T item);
+        boolean areContentsTheSame(T oldItem, T newItem);
+    }
+
+    /**
+     * Receive the list updates
+     */
+    public interface Receiver {
+        void onRemoved(int position);
+        void onInserted(int position);
+        void onMoved(int fromPosition, int toPosition);
+        void onChanged(int position);
+    }
+
+
+    /**
+     * Calculate the updates from one list to another
+     *
+     * @param oldList the current list
+     * @param newList the new list
+     * @param callback identifies and compares items
+     * @param <T> the list item type
+     * @return the updates
+     */
+    public static <T> ListDiff calculate(List<T> oldList, List<T> newList, Callback<T> callback) {
+        ListDiff diff = new ListDiff();
+
+        int oldSize = oldList.size();
+        int newSize = newList.size();
+
+        // how many times each ID is in the new list
+        HashMap<Long, Integer> newCounts = new HashMap<Long, Integer>(newSize * 2);
+        long[] newIds = new long[newSize];
+        for (int index = 0; index < newSize; index++) {
+            newIds[index] = callback.getId(newList.get(index));
+            Integer newCount = newCounts.get(newIds[index]);
+            newCounts.put(newIds[index], (newCount == null) ? 1 : newCount + 1);
+        }
+
+        // keep the first occurrences of each ID, as many as the new list has
+        HashMap<Long, Integer> keptCounts = new HashMap<Long, Integer>(oldSize * 2);
+        long[] current = new long[Math.max(oldSize, newSize)];
+        int[] origins = new int[current.length]; // position in the old list, or -1 once inserted
+        boolean[] kept = new boolean[oldSize];
+        int count = 0;
+        for (int index = 0; index < oldSize; index++) {
+            long id = callback.getId(oldList.get(index));
+            origins[count] = index;
+            current[count++] = id;
+            Integer newCount = newCounts.get(id);
+            Integer keptCount = keptCounts.get(id);
+            int keptSoFar = (keptCount == null) ? 0 : keptCount;
+            if (newCount != null && keptSoFar < newCount) {
+                kept[index] = true;
+                keptCounts.put(id, keptSoFar + 1);
+            }
+        }
+
+        // remove the rest, from the end so that positions stay valid
+        for (int index = count - 1; index >= 0; index--) {
+            if (!kept[index]) {
+                diff.add(REMOVE, index, index);
+                System.arraycopy(current, index + 1, current, index, count - index - 1);
+                System.arraycopy(origins, index + 1, origins, index, count - index - 1);
+                count--;
+            }
+        }
+
+        // move or insert items until the list matches the new order
+        for (int index = 0; index < newSize; index++) {
+            long id = newIds[index];
+            if (index < count && current[index] == id) {
+                continue;
+            }
+            int from = -1;
+            if (keptCounts.containsKey(id)) {
+                for (int search = index + 1; search < count; search++) {
+                    if (current[search] == id) {
+                        from = search;
+                        break;
+                    }
+                }
+            }
+            int origin = -1;
+            if (from >= 0) {
+                diff.add(MOVE, from, index);
+                origin = origins[from];
+                System.arraycopy(current, index, current, index + 1, from - index);
+                System.arraycopy(origins, index, origins, index + 1, from - index);
+            } else {
+                diff.add(INSERT, index, index);
+                System.arraycopy(current, index, current, index + 1, count - index);
+                System.arraycopy(origins, index, origins, index + 1, count - index);
+                count++;
+            }
+            current[index] = id;
+            origins[index] = origin;
+        }
+
+        // items that stayed but look different
+        for (int index = 0; index < newSize; index++) {
+            if (origins[index] >= 0 && !callback.areContentsTheSame(oldList.get(origins[index]), newList.get(index))) {
+                diff.add(CHANGE, index, index);
+            }
+        }
+
+        return diff;
+    }
+
+    private void add(int type, int from, int to) {
+        if (mSize * OPERATION_SIZE == mOperations.length) {
+            int[] operations = new int[mOperations.length * 2];
+            System.arraycopy(mOperations, 0, operations, 0, mOperations.length);
+            mOperations = operations;
+        }
+        int offset = mSize * OPERATION_SIZE;
+        mOperations[offset] = type;
+        mOperations[offset + 1] = from;
+        mOperations[offset + 2] = to;
+        mSize++;
+    }
+
+    /**
+     * Get the number of updates
+     *
+     * @return number of updates
+     */
+    public int size() { return mSize; }
+
+    public int getType(int index) { return mOperations[index * OPERATION_SIZE]; }
+    public int getFromPosition(int index) { return mOperations[index * OPERATION_SIZE + 1]; }
+    public int getToPosition(int index) { return mOperations[index * OPERATION_SIZE + 2]; }
+
+    /**
+     * Send every update, in order, to a Receiver
+     *
+     * @param receiver the Receiver
+     */
+    public void dispatch(Receiver receiver) {
+        for (int index = 0; index < mSize; index++) {
+            switch (getType(index)) {
+                case REMOVE:
+                    receiver.onRemoved(getFromPosition(index));
+                    break;
+                case INSERT:
+                    receiver.onInserted(getToPosition(index));
+                    break;
+                case MOVE:
+                    receiver.onMoved(getFromPosition(index), getToPosition(index));
+                    break;
+                default: // CHANGE
+                    receiver.onChanged(getToPosition(index));
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package tonyg.example.com.beacon.utilities;
+
+import tonyg.example.com.blecodec.DataConverter;
+
+/**
+ * Logging for code that runs on every advertisement.
+ *
+ * Messages are templates with {} placeholders, filled in only if the level is enabled, so a
+ * disabled call builds no String and does no hex dump.  There are fixed-arity overloads instead
+ * of varargs, and a long overload so int arguments are widened rather than boxed.  Calls that
+ * need more arguments, or primitives that are not integers, should check isLoggable() first.
+ *
+ * Release builds strip v() and d() calls entirely with ProGuard's -assumenosideeffects.
+ *
+ * Levels have the same values as android.util.Log, so a Sink can pass them straight through.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public final class Logger {
+    /** Levels **/
+    public static final int VERBOSE = 2;
+    public static final int DEBUG = 3;
+    public static final int INFO = 4;
+    public static final int WARN = 5;
+    public static final int ERROR = 6;
+    public static final int NONE = Integer.MAX_VALUE;
+
+    private static final String PLACEHOLDER = "{}";
+
+    /**
+     * Where enabled messages are written
+     */
+    public interface Sink {
+        void println(int level, String tag, String message);
+    }
+
+    private static volatile int sLevel = NONE;
+    private static volatile Sink sSink;
+
+    private Logger() {}
+
+    /**
+     * Send messages at or above a level to a Sink
+     *
+     * @param sink where to write messages, or null to discard them
+     * @param level the lowest level written
+     */
+    public static void configure(Sink sink, int level) {
+        sSink = sink;
+        sLevel = sink == null ? NONE : level;
+    }
+
+    public static boolean isLoggable(int level) {
+        return level >= sLevel;
+    }
+
+    /** Verbose **/
+
+    public static void v(String tag, String message) {
+        if (VERBOSE >= sLevel) println(VERBOSE, tag, message);
+    }
+
+    public static void v(String tag, String template, Object argument) {
+        if (VERBOSE >= sLevel) println(VERBOSE, tag, format(template, argument, null, 1));
+    }
+
+    public static void v(String tag, String template, long argument) {
+        if (VERBOSE >= sLevel) println(VERBOSE, tag, format(template, argument, null, 1));
+    }
+
+    public static void v(String tag, String template, Object first, Object second) {
+        if (VERBOSE >= sLevel) println(VERBOSE, tag, format(template, first, second, 2));
+    }
+
+    /** Debug **/
+
+    public static void d(String tag, String message) {
+        if (DEBUG >= sLevel) println(DEBUG, tag, message);
+    }
+
+    public static void d(String tag, String template, Object argument) {
+        if (DEBUG >= sLevel) println(DEBUG, tag, format(template, argument, null, 1));
+    }
+
+    public static void d(String tag, String template, long argument) {
+        if (DEBUG >= sLevel) println(DEBUG, tag, format(template, argument, null, 1));
+    }
+
+    public static void d(String tag, String template, Object first, Object second) {
+        if (DEBUG >= sLevel) println(DEBUG, tag, format(template, first, second, 2));
+    }
+
+    /** Info and above are rare, and are never stripped **/
+
+    public static void i(String tag, String message) {
+        if (INFO >= sLevel) println(INFO, tag, message);
+    }
+
+    public static void w(String tag, String message) {
+        if (WARN >= sLevel) println(WARN, tag, message);
+    }
+
+    public static void e(String tag, String message) {
+        if (ERROR >= sLevel) println(ERROR, tag, message);
+    }
+
+    private static void println(int level, String tag, String message) {
+        Sink sink = sSink;
+        if (sink != null) {
+            sink.println(level, tag, message);
+        }
+    }
+
+    /**
+     * Fill the placeholders of a template.  byte arrays are written as hex.
+     *
+     * @param template the message, with a {} for each argument
+     * @param first the first argument
+     * @param second the second argument, if any
+     * @param argumentCount number of arguments
+     * @return the message
+     */
+    static String format(String template, Object first, Object second, int argumentCount) {
+        StringBuilder message = new StringBuilder(template.length() + 32);
+        int start = 0;
+        for (int argument = 0; argument < argumentCount; argument++) {
+            int placeholder = template.indexOf(PLACEHOLDER, start);
+            if (placeholder < 0) {
+                break;
+            }
+            message.append(template, start, placeholder);
+            append(message, argument == 0 ? first : second);
+            start = placeholder + PLACEHOLDER.length();
+        }
+        return message.append(template, start, template.length()).toString();
+    }
+
+    private static void append(StringBuilder message, Object argument) {
+        if (argument instanceof byte[]) {
+            byte[] bytes = (byte[]) argument;
+            char[] hex = new char[bytes.length * 2];
+            DataConverter.encodeHex(bytes, 0, bytes.length, hex, 0);
+            message.append(hex);
+        } else {
+            message.append(argument);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package tonyg.example.com.beacon.utilities;
+
+
+/**
+ * A fixed-size history of Central positions.
+ *
+ * Positions are stored in a ring of primitive arrays, so appending is O(1) and never allocates.
+ * Once the history is full, each new position replaces the oldest one.
+ *
+ * Positions are indexed from the oldest (0) to the newest (size() - 1).
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class PositionHistory {
+    private final long[] mTimestamps;
+    private final double[] mX;
+    private final double[] mY;
+    private int mHead = 0; // next slot to write
+    private int mSize = 0;
+
+    /**
+     * Create a PositionHistory
+     *
+     * @param capacity the number of positions to remember
+     */
+    public PositionHistory(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1");
+        }
+        mTimestamps = new long[capacity];
+        mX = new double[capacity];
+        mY = new double[capacity];
+    }
+
+    /**
+     * Add a position.  Positions older than the newest one are ignored.
+     *
+     * @param timestamp time of the position in milliseconds
+     * @param x x location
+     * @param y y location
+     * @return <b>true</b> if the position was added
+     */
+    public boolean append(long timestamp, double x, double y) {
+        if (mSize > 0 && timestamp < getTimestamp(mSize - 1)) {
+            return false;
+        }
+        mTimestamps[mHead] = timestamp;
+        mX[mHead] = x;
+        mY[mHead] = y;
+        mHead = (mHead + 1) % mTimestamps.length;
+        if (mSize < mTimestamps.length) {
+            mSize++;
+        }
+        return true;
+    }
+
+    /**
+     * Forget every position
+     */
+    public void clear() {
+        mHead = 0;
+        mSize = 0;
+    }
+
+    public int size() { return mSize; }
+    public int capacity() { return mTimestamps.length; }
+    public boolean isEmpty() { return mSize == 0; }
+
+    public long getTimestamp(int index) { return mTimestamps[slot(index)]; }
+    public double getX(int index) { return mX[slot(index)]; }
+    public double getY(int index) { return mY[slot(index)]; }
+
+    /**
+     * Get the position at some time, interpolating between the two nearest positions.
+     * Times outside of the history return the oldest or newest position.
+     *
+     * @param timestamp time in milliseconds
+     * @param position a 2-element array to receive the x and y location
+     * @return <b>false</b> if the history is empty
+     */
+    public boolean getPositionAt(long timestamp, double[] position) {
+        if (mSize == 0) {
+            return false;
+        }
+        if (timestamp <= getTimestamp(0)) {
+            position[0] = getX(0);
+            position[1] = getY(0);
+            return true;
+        }
+        if (timestamp >= getTimestamp(mSize - 1)) {
+            position[0] = getX(mSize - 1);
+            position[1] = getY(mSize - 1);
+            return true;
+        }
+
+        // binary search for the last position at or before the timestamp
+        int low = 0;
+        int high = mSize - 1;
+        while (high - low > 1) {
+            int middle = (low + high) >>> 1;
+            if (getTimestamp(middle) <= timestamp) {
+                low = middle;
+            } else {
+                high = middle;
+            }
+        }
+
+        int before = slot(low);
+        int after = slot(high);
+        long span = mTimestamps[after] - mTimestamps[before];
+        double fraction = (span == 0) ? 0 : (double) (timestamp - mTimestamps[before]) / span;
+        position[0] = mX[before] + (mX[after] - mX[before]) * fraction;
+        position[1] = mY[before] + (mY[after] - mY[before]) * fraction;
+        return true;
+    }
+
+    /**
+     * Convert an index, counted from the oldest position, into a slot in the ring
+     */
+    private int slot(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of " + mSize);
+        }
+        int slot = mHead - mSize + index;
+        return (slot < 0) ? slot + mTimestamps.length : slot;
+    }
+}
@@ -0,0 +1,128 @@
+package tonyg.example.com.beacon.utilities;
+
+import java.util.ArrayList;
+
+
+/**
+ * A format String, such as "X: %1$s m, Y: %2$s m", split into literal text and argument slots
+ *
+ * The format String is parsed once.  Each text is then built by writing the literals and the
+ * arguments into a char array, instead of calling String.format() every time.
+ *
+ * Supports the %s and %d conversions, with or without an argument index, and %%.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class TextTemplate {
+    private final char[][] mLiterals; // literal text before each slot, then the trailing text
+    private final int[] mArgumentIndices; // argument used by each slot
+
+    /**
+     * Parse a format String
+     *
+     * @param format the format String
+     */
+    public TextTemplate(String format) {
+        ArrayList<String> literals = new ArrayList<String>();
+        ArrayList<Integer> argumentIndices = new ArrayList<Integer>();
+        StringBuilder literal = new StringBuilder();
+        int nextArgument = 0;
+
+        int position = 0;
+        while (position < format.length()) {
+            char character = format.charAt(position++);
+            if (character != '%' || position >= format.length()) {
+                literal.append(character);
+                continue;
+            }
+            if (format.charAt(position) == '%') {
+                literal.append('%');
+                position++;
+                continue;
+            }
+
+            // optional explicit argument index, such as 2$.  Like String.format, it does not
+            // move on the index of the slots without one
+            int argument;
+            int digitsEnd = position;
+            while (digitsEnd < format.length() && Character.isDigit(format.charAt(digitsEnd))) {
+                digitsEnd++;
+            }
+            if (digitsEnd > position && digitsEnd < format.length() && format.charAt(digitsEnd) == '$') {
+                argument = Integer.parseInt(format.substring(position, digitsEnd)) - 1;
+                if (argument < 0) {
+                    throw new IllegalArgumentException("Unsupported format: " + format);
+                }
+                position = digitsEnd + 1;
+            } else {
+                argument = nextArgument++;
+            }
+            if (position >= format.length() || (format.charAt(position) != 's' && format.charAt(position) != 'd')) {
+                throw new IllegalArgumentException("Unsupported format: " + format);
+            }
+            position++; // conversion
+
+            literals.add(literal.toString());
+            argumentIndices.add(argument);
+            literal.setLength(0);
+        }
+        literals.add(literal.toString());
+
+        mLiterals = new char[literals.size()][];
+        for (int index = 0; index < mLiterals.length; index++) {
+            mLiterals[index] = literals.get(index).toCharArray();
+        }
+        mArgumentIndices = new int[argumentIndices.size()];
+        for (int index = 0; index < mArgumentIndices.length; index++) {
+            mArgumentIndices[index] = argumentIndices.get(index);
+        }
+    }
+
+    /**
+     * Number of argument slots
+     *
+     * @return number of slots
+     */
+    public int getSlotCount() {
+        return mArgumentIndices.length;
+    }
+
+    /**
+     * Get the argument that fills a slot.  Translations may reorder the arguments.
+     *
+     * @param slot the slot
+     * @return zero-based argument index
+     */
+    public int getArgumentIndex(int slot) {
+        return mArgumentIndices[slot];
+    }
+
+    /**
+     * Longest text this template can build
+     *
+     * @param maxArgumentLength the longest text of any argument
+     * @return maximum length in characters
+     */
+    public int getMaxLength(int maxArgumentLength) {
+        int length = mArgumentIndices.length * maxArgumentLength;
+        for (char[] literal : mLiterals) {
+            length += literal.length;
+        }
+        return length;
+    }
+
+    /**
+     * Write the literal text that comes before a slot.  The literal after the last slot is getSlotCount().
+     *
+     * @param slot the slot
+     * @param buffer the char array
+     * @param position where to start writing
+     * @return the position after the last character written
+     */
+    public int appendLiteral(int slot, char[] buffer, int position) {
+        char[] literal = mLiterals[slot];
+        System.arraycopy(literal, 0, buffer, position, literal.length);
+        return position + literal.length;
+    }
+}
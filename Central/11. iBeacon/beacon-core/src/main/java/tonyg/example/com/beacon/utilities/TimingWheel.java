@@ -0,0 +1,210 @@
+package tonyg.example.com.beacon.utilities;
+
+/**
+ * Timers for many items that are pushed back far more often than they expire, such as
+ * "this beacon has not been seen for a while".
+ *
+ * A hierarchical hashed timing wheel: four wheels of 64 slots each, where every slot of a wheel
+ * spans a whole turn of the wheel below.  A timer is linked into the slot for its deadline, so
+ * scheduling, rescheduling, and cancelling are O(1) and never allocate.  Each tick expires one slot
+ * of the lowest wheel, and when that wheel comes round, one slot of the wheel above is moved down.
+ * A tick costs O(1) plus the timers expired or moved; rescheduled timers are never touched.
+ *
+ * Deadlines are rounded up to the next tick, and can be at most 64^4 ticks away.
+ *
+ * Not thread safe.
+ *
+ * @param <T> the item each timer is for
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class TimingWheel<T> {
+    /** Constants **/
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    public static final long MAX_TICKS = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+    /**
+     * Receives expired items
+     */
+    public interface Listener<T> {
+        void onExpired(T item);
+    }
+
+    /**
+     * One item's timer.  Keep it with the item, and reschedule it instead of creating another.
+     */
+    public static final class Timer<T> {
+        private final T mItem;
+        private long mDeadlineTick;
+        private Timer<T> mPrevious;
+        private Timer<T> mNext;
+
+        private Timer(T item) {
+            mItem = item;
+        }
+
+        public T getItem() { return mItem; }
+
+        public boolean isScheduled() { return mNext != null; }
+
+        private void unlink() {
+            mPrevious.mNext = mNext;
+            mNext.mPrevious = mPrevious;
+            mPrevious = null;
+            mNext = null;
+        }
+    }
+
+    private final long mTickNanos;
+    private final long mStartNanos;
+    private final Timer<T>[] mSlots; // the head of each slot's circular list
+    private long mTick = 0; // ticks up to and including this one have expired
+    private int mSize = 0;
+
+
+    /**
+     * Create a wheel
+     *
+     * @param tickNanos how often timers are checked, which is how late they can expire
+     * @param startNanos the time now, from System.nanoTime()
+     */
+    public TimingWheel(long tickNanos, long startNanos) {
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException("Tick must be positive");
+        }
+        mTickNanos = tickNanos;
+        mStartNanos = startNanos;
+        mSlots = newSlots(LEVELS * SLOTS);
+        for (int index = 0; index < mSlots.length; index++) {
+            Timer<T> head = new Timer<T>(null);
+            head.mPrevious = head;
+            head.mNext = head;
+            mSlots[index] = head;
+        }
+    }
+
+    /**
+     * Create the slot array.  Java cannot create an array of a generic type, so the raw array is cast once here.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T> Timer<T>[] newSlots(int length) {
+        return new Timer[length];
+    }
+
+    public long getTickNanos() { return mTickNanos; }
+
+    /**
+     * Get the number of scheduled timers
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Create a timer for an item.  It is not scheduled.
+     */
+    public Timer<T> newTimer(T item) {
+        return new Timer<T>(item);
+    }
+
+    /**
+     * Schedule a timer, replacing its previous deadline
+     *
+     * @param timer the timer
+     * @param deadlineNanos when the item expires, from System.nanoTime()
+     */
+    public void schedule(Timer<T> timer, long deadlineNanos) {
+        long elapsedNanos = deadlineNanos - mStartNanos;
+        long deadlineTick = elapsedNanos <= 0 ? 0 : (elapsedNanos + mTickNanos - 1) / mTickNanos;
+        cancel(timer);
+        timer.mDeadlineTick = Math.min(Math.max(deadlineTick, mTick + 1), mTick + MAX_TICKS);
+        insert(timer);
+        mSize++;
+    }
+
+    /**
+     * Cancel a timer, if it is scheduled
+     */
+    public void cancel(Timer<T> timer) {
+        if (timer.isScheduled()) {
+            timer.unlink();
+            mSize--;
+        }
+    }
+
+    /**
+     * Cancel every timer
+     */
+    public void clear() {
+        for (Timer<T> head : mSlots) {
+            while (head.mNext != head) {
+                head.mNext.unlink();
+            }
+        }
+        mSize = 0;
+    }
+
+    /**
+     * Expire every timer whose deadline has passed
+     *
+     * @param nowNanos the time now, from System.nanoTime()
+     * @param listener receives the expired items.  It may schedule and cancel timers.
+     * @return the number of items expired
+     */
+    public int advance(long nowNanos, Listener<T> listener) {
+        long targetTick = (nowNanos - mStartNanos) / mTickNanos;
+        int expiredCount = 0;
+        while (mTick < targetTick) {
+            if (mSize == 0) {
+                mTick = targetTick; // nothing to expire on the way
+                break;
+            }
+            mTick++;
+            // when a wheel comes round, move the next slot of the wheel above down
+            for (int level = 1; level < LEVELS && getSlot(level - 1, mTick) == 0; level++) {
+                cascade(level, getSlot(level, mTick));
+            }
+            Timer<T> head = mSlots[getSlot(0, mTick)];
+            while (head.mNext != head) {
+                Timer<T> timer = head.mNext;
+                timer.unlink();
+                mSize--;
+                expiredCount++;
+                listener.onExpired(timer.mItem);
+            }
+        }
+        return expiredCount;
+    }
+
+    private static int getSlot(int level, long tick) {
+        return (int) (tick >>> (SLOT_BITS * level)) & SLOT_MASK;
+    }
+
+    /**
+     * Link a timer into the slot for its deadline, on the lowest wheel whose turn reaches it
+     */
+    private void insert(Timer<T> timer) {
+        long ticksLeft = timer.mDeadlineTick - mTick;
+        int level = 0;
+        while (level < LEVELS - 1 && ticksLeft >= (1L << (SLOT_BITS * (level + 1)))) {
+            level++;
+        }
+        Timer<T> head = mSlots[level * SLOTS + getSlot(level, timer.mDeadlineTick)];
+        timer.mPrevious = head.mPrevious;
+        timer.mNext = head;
+        head.mPrevious.mNext = timer;
+        head.mPrevious = timer;
+    }
+
+    private void cascade(int level, int slot) {
+        Timer<T> head = mSlots[level * SLOTS + slot];
+        while (head.mNext != head) {
+            Timer<T> timer = head.mNext;
+            timer.unlink();
+            insert(timer);
+        }
+    }
+}
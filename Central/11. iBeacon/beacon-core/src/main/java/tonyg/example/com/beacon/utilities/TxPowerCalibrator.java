@@ -0,0 +1,127 @@
+package tonyg.example.com.beacon.utilities;
+
+import java.util.Arrays;
+
+
+/**
+ * Measure a beacon's RSSI at 1 meter, the value an iBeacon advertises as its TX Power.
+ *
+ * Hold the Central 1 meter from the beacon and add every RSSI sample received from it.
+ * Single samples swing by several dB, so the measured power is a trimmed mean: the strongest
+ * and weakest samples are dropped before averaging.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class TxPowerCalibrator {
+    /** Constants **/
+    public static final int MIN_SAMPLES = 10;
+    public static final int DEFAULT_MAX_SAMPLES = 200;
+    public static final double DEFAULT_TRIM_FRACTION = 0.1; // dropped from each end
+
+    private final int[] mSamples;
+    private final double mTrimFraction;
+    private int mSampleCount = 0;
+
+    public TxPowerCalibrator() {
+        this(DEFAULT_MAX_SAMPLES, DEFAULT_TRIM_FRACTION);
+    }
+
+    /**
+     * Create a calibrator
+     *
+     * @param maxSamples the most samples kept; later samples are ignored
+     * @param trimFraction fraction of samples dropped from each end, 0 to less than 0.5
+     */
+    public TxPowerCalibrator(int maxSamples, double trimFraction) {
+        if (maxSamples < MIN_SAMPLES) {
+            throw new IllegalArgumentException("At least " + MIN_SAMPLES + " samples are needed");
+        }
+        if (trimFraction < 0 || trimFraction >= 0.5) {
+            throw new IllegalArgumentException("Trim fraction must be from 0 to less than 0.5");
+        }
+        mSamples = new int[maxSamples];
+        mTrimFraction = trimFraction;
+    }
+
+    /**
+     * Add an RSSI sample
+     *
+     * @param rssi the RSSI
+     * @return <b>false</b> once the calibrator is full
+     */
+    public boolean addSample(int rssi) {
+        if (rssi == 0 || mSampleCount >= mSamples.length) {
+            return false; // 0 means the RSSI is unknown
+        }
+        mSamples[mSampleCount++] = rssi;
+        return true;
+    }
+
+    public int getSampleCount() { return mSampleCount; }
+
+    /**
+     * Test if enough samples have been collected
+     *
+     * @return <b>true</b> if the measured power can be computed
+     */
+    public boolean hasEnoughSamples() {
+        return mSampleCount >= MIN_SAMPLES;
+    }
+
+    /**
+     * Test if no more samples can be added
+     *
+     * @return <b>true</b> if the calibrator is full
+     */
+    public boolean isFull() {
+        return mSampleCount >= mSamples.length;
+    }
+
+    /**
+     * Get the trimmed mean of the samples
+     *
+     * @return the measured power in dBm, rounded to the nearest dB
+     * @throws IllegalStateException if there are not enough samples
+     */
+    public int getMeasuredPower() {
+        int[] sorted = getSortedSamples();
+        int trim = (int) (sorted.length * mTrimFraction);
+        long sum = 0;
+        for (int index = trim; index < sorted.length - trim; index++) {
+            sum += sorted[index];
+        }
+        return (int) Math.round((double) sum / (sorted.length - 2 * trim));
+    }
+
+    /**
+     * Get the median of the samples
+     *
+     * @return the median in dBm, rounded to the nearest dB
+     * @throws IllegalStateException if there are not enough samples
+     */
+    public int getMedian() {
+        int[] sorted = getSortedSamples();
+        int middle = sorted.length / 2;
+        if (sorted.length % 2 == 1) {
+            return sorted[middle];
+        }
+        return (int) Math.round((sorted[middle - 1] + sorted[middle]) / 2.0);
+    }
+
+    /**
+     * Forget every sample
+     */
+    public void reset() {
+        mSampleCount = 0;
+    }
+
+    private int[] getSortedSamples() {
+        if (!hasEnoughSamples()) {
+            throw new IllegalStateException("Only " + mSampleCount + " of " + MIN_SAMPLES + " samples");
+        }
+        int[] sorted = Arrays.copyOf(mSamples, mSampleCount);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+}
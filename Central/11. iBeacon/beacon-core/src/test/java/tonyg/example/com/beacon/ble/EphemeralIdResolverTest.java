@@ -0,0 +1,104 @@
+package tonyg.example.com.beacon.ble;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.UUID;
+
+import tonyg.example.com.blecodec.DataConverter;
+import tonyg.example.com.blecodec.EphemeralIdGenerator;
+import tonyg.example.com.blecodec.codecs.BeaconCodec;
+import tonyg.example.com.blecodec.codecs.BeaconFrame;
+import tonyg.example.com.blecodec.codecs.IBeaconCodec;
+
+import static org.junit.Assert.*;
+
+/**
+ * Resolve rotating identifiers from the precomputed table
+ */
+public class EphemeralIdResolverTest {
+    private static final UUID UUID_1 = UUID.fromString("e20a39f4-73f5-4bc4-a12f-17d1ad07a961");
+    private static final byte[] SECRET = DataConverter.hexToBytes("5d1f0c7a9b3e48f2a6c4e1d7b8093f6a");
+    private static final long PERIOD_MILLIS = 15 * 60 * 1000;
+    private static final long NOW = 1960000 * PERIOD_MILLIS + 5000;
+
+    private EphemeralIdResolver mResolver;
+    private EphemeralIdGenerator mGenerator;
+
+    private IBeacon createSighting(long counter) {
+        int identifier = mGenerator.getIdentifier(counter);
+        IBeacon iBeacon = new IBeacon();
+        iBeacon.setUuid(UUID_1);
+        iBeacon.setMajor(EphemeralIdGenerator.getMajor(identifier));
+        iBeacon.setMinor(EphemeralIdGenerator.getMinor(identifier));
+        return iBeacon;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        mResolver = new EphemeralIdResolver(4);
+        mResolver.register(UUID_1, 1122, 3344, SECRET, PERIOD_MILLIS);
+        mGenerator = new EphemeralIdGenerator(SECRET, PERIOD_MILLIS);
+    }
+
+    @Test
+    public void identifiersInTheWindow_resolve() throws Exception {
+        for (long counter = 1959999; counter <= 1960004; counter++) {
+            IBeacon iBeacon = createSighting(counter);
+            assertTrue("counter " + counter, mResolver.resolve(iBeacon, NOW));
+            assertEquals(1122, iBeacon.getMajor());
+            assertEquals(3344, iBeacon.getMinor());
+        }
+        assertEquals(6, mResolver.size());
+    }
+
+    @Test
+    public void identifiersOutsideTheWindow_doNotResolve() throws Exception {
+        assertFalse(mResolver.resolve(createSighting(1959998), NOW));
+        assertFalse(mResolver.resolve(createSighting(1960005), NOW));
+    }
+
+    @Test
+    public void otherUuids_doNotResolve() throws Exception {
+        IBeacon iBeacon = createSighting(1960000);
+        iBeacon.setUuid(UUID.randomUUID());
+        assertFalse(mResolver.resolve(iBeacon, NOW));
+    }
+
+    @Test
+    public void table_rollsForward() throws Exception {
+        long later = NOW + 10 * PERIOD_MILLIS;
+        assertTrue(mResolver.resolve(createSighting(1960010), later));
+        assertFalse(mResolver.resolve(createSighting(1960000), later));
+        assertEquals(6, mResolver.size());
+    }
+
+    @Test
+    public void peripheralAdvertisement_resolves() throws Exception {
+        // what the Peripheral advertises now: the current identifier, encoded like its IBeaconPayload
+        EphemeralIdGenerator peripheral = new EphemeralIdGenerator(SECRET, PERIOD_MILLIS);
+        int identifier = peripheral.getIdentifier(peripheral.getCounter(NOW));
+        BeaconFrame frame = new BeaconFrame();
+        frame.setIdentity(BeaconFrame.FORMAT_IBEACON, IBeaconCodec.APPLE_COMPANY_ID,
+                UUID_1.getMostSignificantBits(), UUID_1.getLeastSignificantBits(),
+                EphemeralIdGenerator.getMajor(identifier), EphemeralIdGenerator.getMinor(identifier), -59);
+        byte[] manufacturerData = new IBeaconCodec().encodePayload(frame);
+
+        // and the Scan Record Android builds around it: flags, then the manufacturer data
+        byte[] scanRecord = new byte[3 + 2 + BeaconCodec.ID_LENGTH + manufacturerData.length];
+        scanRecord[0] = 0x02;
+        scanRecord[1] = 0x01;
+        scanRecord[2] = 0x06;
+        scanRecord[3] = (byte) (1 + BeaconCodec.ID_LENGTH + manufacturerData.length);
+        scanRecord[4] = (byte) BeaconCodec.AD_TYPE_MANUFACTURER_DATA;
+        scanRecord[5] = (byte) IBeaconCodec.APPLE_COMPANY_ID;
+        scanRecord[6] = (byte) (IBeaconCodec.APPLE_COMPANY_ID >> 8);
+        System.arraycopy(manufacturerData, 0, scanRecord, 7, manufacturerData.length);
+
+        IBeacon iBeacon = IBeacon.fromScanRecord(scanRecord);
+        assertTrue(mResolver.resolve(iBeacon, NOW));
+        assertEquals(UUID_1, iBeacon.getUuid());
+        assertEquals(1122, iBeacon.getMajor());
+        assertEquals(3344, iBeacon.getMinor());
+    }
+}
@@ -0,0 +1,81 @@
+package tonyg.example.com.beacon.ble;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+/**
+ * Keep one entry per iBeacon, ordered by smoothed distance
+ */
+public class IBeaconRegistryTest {
+    private static final UUID UUID_1 = UUID.fromString("e20a39f4-73f5-4bc4-a12f-17d1ad07a961");
+
+    private IBeaconRegistry mRegistry;
+
+    private static IBeacon createIBeacon(int minor, int rssi) {
+        IBeacon iBeacon = new IBeacon();
+        iBeacon.setUuid(UUID_1);
+        iBeacon.setMajor(1);
+        iBeacon.setMinor(minor);
+        iBeacon.setTransmissionPower(-59);
+        iBeacon.setRssi(rssi);
+        return iBeacon;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        mRegistry = new IBeaconRegistry();
+    }
+
+    @Test
+    public void add_keepsOneEntryPerIdentity() throws Exception {
+        IBeacon iBeacon = createIBeacon(1, -60);
+        assertTrue(mRegistry.add(iBeacon));
+        assertFalse(mRegistry.add(createIBeacon(1, -70)));
+        assertEquals(1, mRegistry.size());
+        assertSame(iBeacon, mRegistry.get(createIBeacon(1, -80)));
+        assertNull(mRegistry.get(createIBeacon(2, -80)));
+    }
+
+    @Test
+    public void getNearest_ordersBySmoothedDistance() throws Exception {
+        for (int minor = 0; minor < 10; minor++) {
+            mRegistry.add(createIBeacon(minor, -50 - minor * 3));
+        }
+        ArrayList<IBeacon> nearest = mRegistry.getNearest(3, new ArrayList<IBeacon>());
+        assertEquals(3, nearest.size());
+        assertEquals(0, nearest.get(0).getMinor());
+        assertEquals(1, nearest.get(1).getMinor());
+        assertEquals(2, nearest.get(2).getMinor());
+    }
+
+    @Test
+    public void updateRssi_movesTheIBeacon() throws Exception {
+        IBeacon far = createIBeacon(1, -90);
+        mRegistry.add(far);
+        mRegistry.add(createIBeacon(2, -60));
+
+        // the smoothed RSSI needs several sightings to overtake
+        for (int sighting = 0; sighting < 20; sighting++) {
+            mRegistry.updateRssi(far, -40);
+        }
+        ArrayList<IBeacon> nearest = mRegistry.getNearest(1, new ArrayList<IBeacon>());
+        assertSame(far, nearest.get(0));
+    }
+
+    @Test
+    public void remove_forgetsTheIBeacon() throws Exception {
+        mRegistry.add(createIBeacon(1, -60));
+        mRegistry.add(createIBeacon(2, -70));
+        assertNotNull(mRegistry.remove(createIBeacon(1, 0)));
+        assertNull(mRegistry.remove(createIBeacon(1, 0)));
+
+        assertEquals(1, mRegistry.size());
+        assertEquals(1, mRegistry.getIBeacons().size());
+        assertEquals(2, mRegistry.getNearest(10, new ArrayList<IBeacon>()).get(0).getMinor());
+    }
+}
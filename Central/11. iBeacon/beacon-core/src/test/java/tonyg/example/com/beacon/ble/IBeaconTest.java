@@ -0,0 +1,84 @@
+package tonyg.example.com.beacon.ble;
+
+import org.junit.Test;
+
+import java.util.UUID;
+
+import tonyg.example.com.blecodec.DataConverter;
+
+import static org.junit.Assert.*;
+
+/**
+ * Parse iBeacons from Scan Records and estimate their distance
+ */
+public class IBeaconTest {
+    private static final String SCAN_RECORD = "0201061AFF4C000215E20A39F473F54BC4A12F17D1AD07A96104610D10C8";
+
+    private static IBeacon createIBeacon(int major, int minor, int transmissionPower) {
+        IBeacon iBeacon = new IBeacon();
+        iBeacon.setUuid(UUID.fromString("e20a39f4-73f5-4bc4-a12f-17d1ad07a961"));
+        iBeacon.setManufacturerId(0x004C);
+        iBeacon.setMajor(major);
+        iBeacon.setMinor(minor);
+        iBeacon.setTransmissionPower(transmissionPower);
+        return iBeacon;
+    }
+
+    @Test
+    public void fromScanRecord_readsTheIdentity() throws Exception {
+        byte[] scanRecord = DataConverter.hexToBytes(SCAN_RECORD);
+        assertTrue(IBeacon.isIBeacon(scanRecord));
+
+        IBeacon iBeacon = IBeacon.fromScanRecord(scanRecord);
+        assertEquals("e20a39f4-73f5-4bc4-a12f-17d1ad07a961", iBeacon.getUuidString());
+        assertEquals(1121, iBeacon.getMajor());
+        assertEquals(3344, iBeacon.getMinor());
+        assertEquals(-56, iBeacon.getTransmissionPower());
+    }
+
+    @Test(expected = Exception.class)
+    public void fromScanRecord_rejectsOtherAdvertisements() throws Exception {
+        IBeacon.fromScanRecord(DataConverter.hexToBytes("020106050948656C6C6F"));
+    }
+
+    @Test
+    public void identity_decidesEquality() throws Exception {
+        IBeacon iBeacon = createIBeacon(1, 2, -59);
+        IBeacon sameIBeacon = createIBeacon(1, 2, -70);
+        sameIBeacon.setRssi(-80);
+        assertEquals(iBeacon, sameIBeacon);
+        assertEquals(iBeacon.hashCode(), sameIBeacon.hashCode());
+        assertEquals(iBeacon.getStableId(), sameIBeacon.getStableId());
+
+        assertNotEquals(iBeacon, createIBeacon(1, 3, -59));
+        assertNotEquals(iBeacon.getStableId(), createIBeacon(2, 2, -59).getStableId());
+    }
+
+    @Test
+    public void distance_isOneMeterAtTransmissionPower() throws Exception {
+        IBeacon iBeacon = createIBeacon(1, 2, -59);
+        assertEquals(-1, iBeacon.getDistance(), 0);
+        assertEquals(IBeacon.DISTANCE_UNKNOWN, iBeacon.getProximity());
+
+        iBeacon.setRssi(-59);
+        assertEquals(1, iBeacon.getDistance(), 0.0001);
+        assertEquals(IBeacon.DISTANCE_NEAR, iBeacon.getProximity());
+
+        // 35 dB weaker is 10 times as far with a propagation constant of 3.5
+        iBeacon.setRssi(-94);
+        assertEquals(10, iBeacon.getDistance(), 0.0001);
+        assertEquals(IBeacon.DISTANCE_FAR, iBeacon.getProximity());
+    }
+
+    @Test
+    public void smoothedRssi_followsSlowly() throws Exception {
+        IBeacon iBeacon = createIBeacon(1, 2, -59);
+        iBeacon.setRssi(-60);
+        assertEquals(-60, iBeacon.getSmoothedRssi(), 0);
+
+        iBeacon.setRssi(-80);
+        assertEquals(-60 - 20 * IBeacon.RSSI_SMOOTHING_FACTOR, iBeacon.getSmoothedRssi(), 0.0001);
+        assertEquals(-80, iBeacon.getRssi());
+        assertTrue(iBeacon.getSmoothedDistance() < iBeacon.getDistance());
+    }
+}
@@ -0,0 +1,96 @@
+package tonyg.example.com.beacon.ble;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+/**
+ * Fit the reference RSSI and path-loss exponent from sightings at known distances
+ */
+public class PathLossModelTest {
+    private static int getRssi(double referenceRssi, double exponent, double distance) {
+        return (int) Math.round(referenceRssi - 10 * exponent * Math.log10(distance));
+    }
+
+    @Test
+    public void addSample_convergesOnTheTrueParameters() throws Exception {
+        PathLossModel model = new PathLossModel(-59);
+        Random random = new Random(7);
+        for (int sample = 0; sample < 3000; sample++) {
+            double distance = 0.5 + random.nextDouble() * 15;
+            model.addSample(distance, getRssi(-66, 2.2, distance) + (int) Math.round(random.nextGaussian() * 2));
+        }
+        assertEquals(-66, model.getReferenceRssi(), 1);
+        assertEquals(2.2, model.getExponent(), 0.15);
+        assertEquals(3000, model.getSampleCount());
+        assertEquals(10, model.getDistance(getRssi(-66, 2.2, 10)), 1.5);
+    }
+
+    @Test
+    public void addSample_followsAChangedEnvironment() throws Exception {
+        PathLossModel model = new PathLossModel(-59);
+        Random random = new Random(8);
+        for (int sample = 0; sample < 2000; sample++) {
+            double distance = 1 + random.nextDouble() * 10;
+            model.addSample(distance, getRssi(-59, 2, distance));
+        }
+        assertEquals(2, model.getExponent(), 0.1);
+        // the room fills up
+        for (int sample = 0; sample < 2000; sample++) {
+            double distance = 1 + random.nextDouble() * 10;
+            model.addSample(distance, getRssi(-59, 4, distance));
+        }
+        assertEquals(4, model.getExponent(), 0.1);
+    }
+
+    @Test
+    public void samplesAtOneDistance_leaveTheExponentNearItsStart() throws Exception {
+        PathLossModel model = new PathLossModel(-59);
+        Random random = new Random(9);
+        for (int sample = 0; sample < 5000; sample++) {
+            model.addSample(1, -62 + (int) Math.round(random.nextGaussian() * 3));
+        }
+        assertEquals(-62, model.getReferenceRssi(), 1);
+        assertEquals(IBeacon.RADIO_PROPAGATION_CONSTANT, model.getExponent(), 0.01);
+    }
+
+    @Test
+    public void getDistance_matchesTheModel() throws Exception {
+        PathLossModel model = new PathLossModel(-61.5, 2.7, PathLossModel.DEFAULT_FORGETTING_FACTOR);
+        for (double rssi = -100; rssi <= -30; rssi += 0.37) {
+            double expected = Math.pow(10, (-61.5 - rssi) / 27);
+            assertEquals(expected, model.getDistance(rssi), expected * 0.002);
+        }
+        assertEquals(-1, model.getDistance(0), 0);
+        assertTrue(model.getDistance(-200) > model.getDistance(-100));
+    }
+
+    @Test
+    public void iBeacon_usesItsFittedModel() throws Exception {
+        IBeacon iBeacon = new IBeacon();
+        iBeacon.setUuid(UUID.fromString("e20a39f4-73f5-4bc4-a12f-17d1ad07a961"));
+        iBeacon.setTransmissionPower(-59);
+        iBeacon.setRssi(-79);
+        assertNull(iBeacon.getPathLossModel());
+        double before = iBeacon.getDistance();
+
+        // the iBeacon is really 10 meters away
+        for (int sample = 0; sample < 200; sample++) {
+            iBeacon.addPathLossSample(10, -79);
+        }
+        assertEquals(10, iBeacon.getDistance(), 1);
+        assertTrue(Math.abs(iBeacon.getDistance() - before) > 2);
+
+        IBeacon copy = iBeacon.copy();
+        iBeacon.addPathLossSample(1, -40);
+        assertEquals(200, copy.getPathLossModel().getSampleCount());
+
+        // a TX Power set on purpose starts the fit again
+        iBeacon.setTransmissionPower(-59);
+        assertNull(iBeacon.getPathLossModel());
+        assertEquals(before, iBeacon.getDistance(), 0);
+    }
+}
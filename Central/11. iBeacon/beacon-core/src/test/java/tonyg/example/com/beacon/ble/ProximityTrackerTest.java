@@ -0,0 +1,113 @@
+package tonyg.example.com.beacon.ble;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+/**
+ * Change proximity only on real moves: past the hysteresis band, and for the dwell time
+ */
+public class ProximityTrackerTest {
+    private static final long SAMPLE_NANOS = 100 * 1000000L;
+    // with a TX Power of -59
+    private static final int RSSI_AT_HALF_METER = -48;
+    private static final int RSSI_AT_2_7_METERS = -74;
+    private static final int RSSI_AT_3_3_METERS = -77;
+    private static final int RSSI_AT_10_METERS = -94;
+
+    private ProximityTracker mTracker;
+    private IBeacon mIBeacon;
+
+    @Before
+    public void setUp() throws Exception {
+        mTracker = new ProximityTracker();
+        mIBeacon = new IBeacon();
+        mIBeacon.setUuid(UUID.fromString("e20a39f4-73f5-4bc4-a12f-17d1ad07a961"));
+        mIBeacon.setTransmissionPower(-59);
+    }
+
+    @Test
+    public void firstSighting_setsProximityStraightAway() throws Exception {
+        assertEquals(IBeacon.DISTANCE_UNKNOWN, mIBeacon.getStableProximity());
+        assertFalse(mTracker.update(mIBeacon, 0)); // no RSSI yet
+
+        mIBeacon.setRssi(RSSI_AT_HALF_METER);
+        assertTrue(mTracker.update(mIBeacon, 0));
+        assertEquals(IBeacon.DISTANCE_IMMEDIATE, mIBeacon.getStableProximity());
+    }
+
+    @Test
+    public void jitterAtAnEdge_neverChangesProximity() throws Exception {
+        int rawChanges = 0;
+        int changes = 0;
+        int lastRaw = IBeacon.DISTANCE_UNKNOWN;
+        for (int sample = 0; sample < 1000; sample++) {
+            mIBeacon.setRssi(sample % 2 == 0 ? RSSI_AT_2_7_METERS : RSSI_AT_3_3_METERS);
+            if (mTracker.update(mIBeacon, sample * SAMPLE_NANOS)) {
+                changes++;
+            }
+            if (mIBeacon.getProximity() != lastRaw) {
+                lastRaw = mIBeacon.getProximity();
+                rawChanges++;
+            }
+        }
+        assertEquals(1, changes);
+        assertEquals(IBeacon.DISTANCE_NEAR, mIBeacon.getStableProximity());
+        assertTrue(rawChanges > 500);
+    }
+
+    @Test
+    public void movingAway_waitsForTheRetreatDwell() throws Exception {
+        mIBeacon.setRssi(RSSI_AT_2_7_METERS);
+        mTracker.update(mIBeacon, 0);
+
+        long changedNanos = -1;
+        for (int sample = 1; sample < 50 && changedNanos < 0; sample++) {
+            mIBeacon.setRssi(RSSI_AT_10_METERS);
+            if (mTracker.update(mIBeacon, sample * SAMPLE_NANOS)) {
+                changedNanos = sample * SAMPLE_NANOS;
+            }
+        }
+        assertEquals(IBeacon.DISTANCE_FAR, mIBeacon.getStableProximity());
+        assertTrue(changedNanos >= SAMPLE_NANOS + ProximityTracker.DEFAULT_RETREAT_DWELL_NANOS);
+        assertTrue(changedNanos <= 5 * SAMPLE_NANOS + ProximityTracker.DEFAULT_RETREAT_DWELL_NANOS);
+    }
+
+    @Test
+    public void shortExcursion_isIgnored() throws Exception {
+        mIBeacon.setRssi(RSSI_AT_2_7_METERS);
+        mTracker.update(mIBeacon, 0);
+        long nowNanos = 0;
+        for (int excursion = 0; excursion < 10; excursion++) {
+            // a second of being close, then back
+            for (int sample = 0; sample < 10; sample++) {
+                nowNanos += SAMPLE_NANOS / 2;
+                mIBeacon.setRssi(RSSI_AT_HALF_METER);
+                assertFalse(mTracker.update(mIBeacon, nowNanos));
+            }
+            for (int sample = 0; sample < 20; sample++) {
+                nowNanos += SAMPLE_NANOS;
+                mIBeacon.setRssi(RSSI_AT_2_7_METERS);
+                assertFalse(mTracker.update(mIBeacon, nowNanos));
+            }
+        }
+        assertEquals(IBeacon.DISTANCE_NEAR, mIBeacon.getStableProximity());
+    }
+
+    @Test
+    public void reset_forgetsProximity() throws Exception {
+        mIBeacon.setRssi(RSSI_AT_10_METERS);
+        mTracker.update(mIBeacon, 0);
+        assertEquals(IBeacon.DISTANCE_FAR, mIBeacon.copy().getStableProximity());
+        mTracker.reset(mIBeacon);
+        assertEquals(IBeacon.DISTANCE_UNKNOWN, mIBeacon.getStableProximity());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void overlappingBands_areRejected() throws Exception {
+        new ProximityTracker(1, 1.5, 0.25, 0, 0);
+    }
+}
@@ -0,0 +1,103 @@
+package tonyg.example.com.beacon.ble;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.UUID;
+
+import tonyg.example.com.blecodec.codecs.BeaconFrame;
+import tonyg.example.com.blecodec.codecs.EddystoneUidCodec;
+
+import static org.junit.Assert.*;
+
+/**
+ * Match telemetry to beacon identities, and hand out copies only when it changed
+ */
+public class TelemetryTrackerTest {
+    private static final UUID UUID_UNDER_TEST = UUID.fromString("e20a39f4-73f5-4bc4-a12f-17d1ad07a961");
+
+    private TelemetryTracker mTracker;
+    private IBeacon mIBeacon;
+
+    private static BeaconFrame createFrame(int batteryMillivolts, long advertisementCount, long uptimeDeciseconds) {
+        BeaconFrame frame = new BeaconFrame();
+        frame.setTelemetry(EddystoneUidCodec.EDDYSTONE_SERVICE_UUID, 0, batteryMillivolts, 0x1780, advertisementCount, uptimeDeciseconds);
+        return frame;
+    }
+
+    private static IBeacon createIBeacon(int minor) {
+        IBeacon iBeacon = new IBeacon();
+        iBeacon.setUuid(UUID_UNDER_TEST);
+        iBeacon.setMajor(1);
+        iBeacon.setMinor(minor);
+        return iBeacon;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        mTracker = new TelemetryTracker();
+        mIBeacon = createIBeacon(7);
+    }
+
+    @Test
+    public void update_isKeptByIdentity() throws Exception {
+        mTracker.update(mIBeacon, createFrame(3700, 100, 1000), 0);
+
+        BeaconTelemetry telemetry = mTracker.get(createIBeacon(7));
+        assertNotNull(telemetry);
+        assertEquals(3700, telemetry.getBatteryMillivolts());
+        assertEquals(23.5, telemetry.getTemperature(), 0.001);
+        assertEquals(1000, telemetry.getUptimeDeciseconds());
+        assertNull(mTracker.get(createIBeacon(8)));
+        assertEquals(1, mTracker.size());
+    }
+
+    @Test
+    public void standaloneFrame_isMatchedByTheIdentitysAddress() throws Exception {
+        assertNull(mTracker.update("00:00:00:00:00:01", createFrame(3700, 100, 1000), 0));
+
+        mTracker.putIdentity("00:00:00:00:00:01", mIBeacon);
+        mIBeacon.setMinor(9); // the caller's iBeacon moves on
+        assertNotNull(mTracker.update("00:00:00:00:00:01", createFrame(3700, 100, 1000), 0));
+        assertNotNull(mTracker.get(createIBeacon(7)));
+        assertNull(mTracker.get(createIBeacon(9)));
+    }
+
+    @Test
+    public void takeChanged_copiesOnlyNewTelemetry() throws Exception {
+        assertNull(mTracker.takeChanged(mIBeacon));
+        mTracker.update(mIBeacon, createFrame(3700, 100, 1000), 0);
+
+        BeaconTelemetry copy = mTracker.takeChanged(mIBeacon);
+        assertNotNull(copy);
+        assertNotSame(copy, mTracker.get(mIBeacon));
+        assertNull(mTracker.takeChanged(mIBeacon));
+
+        // the same scan response again
+        mTracker.update(mIBeacon, createFrame(3700, 100, 1000), 1000);
+        assertNull(mTracker.takeChanged(mIBeacon));
+        assertEquals(1, mTracker.get(mIBeacon).getFrameCount());
+
+        mTracker.update(mIBeacon, createFrame(3650, 200, 1100), 2000);
+        copy = mTracker.takeChanged(mIBeacon);
+        assertEquals(3650, copy.getBatteryMillivolts());
+        assertEquals(10, copy.getAdvertisementRate(), 0.001);
+        assertEquals(2, mTracker.get(mIBeacon).getFrameCount());
+    }
+
+    @Test
+    public void uptimeGoingBackwards_countsARestart() throws Exception {
+        mTracker.update(mIBeacon, createFrame(3700, 100, 1000), 0);
+        mTracker.update(mIBeacon, createFrame(3700, 5, 50), 1000);
+        BeaconTelemetry telemetry = mTracker.get(mIBeacon);
+        assertEquals(1, telemetry.getRestartCount());
+        assertTrue(Double.isNaN(telemetry.getAdvertisementRate()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void identityFrame_isRejected() throws Exception {
+        BeaconFrame frame = new BeaconFrame();
+        frame.setIdentity(BeaconFrame.FORMAT_IBEACON, 0x004C, 0, 0, 1, 7, -59);
+        mTracker.update(mIBeacon, frame, 0);
+    }
+}
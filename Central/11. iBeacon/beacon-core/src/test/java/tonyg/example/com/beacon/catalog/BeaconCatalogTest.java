@@ -0,0 +1,116 @@
+package tonyg.example.com.beacon.catalog;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+import tonyg.example.com.beacon.ble.IBeacon;
+
+import static org.junit.Assert.*;
+
+/**
+ * Write catalogs, map them back, and look beacons up
+ */
+public class BeaconCatalogTest {
+    private static final UUID UUID_1 = UUID.fromString("e20a39f4-73f5-4bc4-a12f-17d1ad07a961");
+    private static final UUID UUID_2 = UUID.fromString("f7826da6-4fa2-4e98-8024-bc5b71e0893e");
+
+    private File mFile;
+    private CatalogEntry mEntry;
+
+    @Before
+    public void setUp() throws Exception {
+        mFile = File.createTempFile("beacons", ".catalog");
+        mEntry = new CatalogEntry();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mFile.delete();
+    }
+
+    @Test
+    public void open_findsEveryBeaconWritten() throws Exception {
+        BeaconCatalogWriter writer = new BeaconCatalogWriter();
+        for (int minor = 0; minor < 1000; minor++) {
+            writer.add(UUID_1, 7, minor, minor, minor * 0.5, minor % 3, BeaconCatalogWriter.NO_TRANSMISSION_POWER, null);
+        }
+        writer.add(UUID_2, 0xFFFF, 0xFFFF, 1.5, 2.5, -1, -61, "Lobby \u00e9ast");
+        writer.write(mFile);
+
+        BeaconCatalog catalog = BeaconCatalog.open(mFile);
+        assertEquals(1001, catalog.size());
+        for (int minor = 0; minor < 1000; minor++) {
+            assertTrue(catalog.find(UUID_1, 7, minor, mEntry));
+            assertEquals(minor, mEntry.getX(), 0);
+            assertEquals(minor * 0.5, mEntry.getY(), 0);
+            assertEquals(minor % 3, mEntry.getFloor());
+            assertFalse(mEntry.hasTransmissionPower());
+            assertEquals("", catalog.getMetadata(mEntry));
+        }
+
+        assertTrue(catalog.find(UUID_2, 0xFFFF, 0xFFFF, mEntry));
+        assertEquals(-1, mEntry.getFloor());
+        assertTrue(mEntry.hasTransmissionPower());
+        assertEquals(-61, mEntry.getTransmissionPower());
+        assertEquals("Lobby \u00e9ast", catalog.getMetadata(mEntry));
+
+        assertFalse(catalog.find(UUID_1, 8, 0, mEntry));
+        assertFalse(catalog.find(UUID_2, 7, 1, mEntry));
+    }
+
+    @Test
+    public void apply_setsPositionAndMeasuredPower() throws Exception {
+        BeaconCatalog catalog = BeaconCatalog.wrap(new BeaconCatalogWriter()
+                .add(UUID_1, 1, 2, 10, 20, 3, -65, "Room 3.01")
+                .toByteBuffer());
+
+        IBeacon iBeacon = new IBeacon();
+        iBeacon.setUuid(UUID_1);
+        iBeacon.setMajor(1);
+        iBeacon.setMinor(2);
+        iBeacon.setTransmissionPower(-59);
+        assertTrue(catalog.apply(iBeacon, mEntry));
+        assertEquals(10, iBeacon.getXLocation(), 0);
+        assertEquals(20, iBeacon.getYLocation(), 0);
+        assertEquals(3, iBeacon.getFloor());
+        assertEquals(-65, iBeacon.getTransmissionPower());
+
+        iBeacon.setMinor(3);
+        assertFalse(catalog.apply(iBeacon, mEntry));
+    }
+
+    @Test
+    public void emptyCatalog_findsNothing() throws Exception {
+        BeaconCatalog catalog = BeaconCatalog.wrap(new BeaconCatalogWriter().toByteBuffer());
+        assertEquals(0, catalog.size());
+        assertFalse(catalog.find(UUID_1, 1, 2, mEntry));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void writer_rejectsDuplicates() throws Exception {
+        new BeaconCatalogWriter()
+                .add(UUID_1, 1, 2, 0, 0, 0, BeaconCatalogWriter.NO_TRANSMISSION_POWER, null)
+                .add(UUID_1, 1, 2, 5, 5, 0, BeaconCatalogWriter.NO_TRANSMISSION_POWER, null)
+                .toByteBuffer();
+    }
+
+    @Test(expected = IOException.class)
+    public void wrap_rejectsOtherFiles() throws Exception {
+        BeaconCatalog.wrap(ByteBuffer.wrap(new byte[64]));
+    }
+
+    @Test(expected = IOException.class)
+    public void wrap_rejectsTruncatedFiles() throws Exception {
+        ByteBuffer buffer = new BeaconCatalogWriter()
+                .add(UUID_1, 1, 2, 0, 0, 0, BeaconCatalogWriter.NO_TRANSMISSION_POWER, "Metadata")
+                .toByteBuffer();
+        buffer.limit(buffer.capacity() - 1);
+        BeaconCatalog.wrap(buffer.slice());
+    }
+}
@@ -0,0 +1,168 @@
+package tonyg.example.com.beacon.catalog;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Apply site edits as delta segments, compact them, and reopen the result
+ */
+public class CatalogStoreTest {
+    private static final UUID UUID_1 = UUID.fromString("e20a39f4-73f5-4bc4-a12f-17d1ad07a961");
+
+    private File mDirectory;
+    private File mBaseFile;
+    private CatalogEntry mEntry;
+
+    private static BeaconCatalogWriter place(int minor, double x) {
+        return new BeaconCatalogWriter().add(UUID_1, 1, minor, x, 0, 0, BeaconCatalogWriter.NO_TRANSMISSION_POWER, "Beacon " + minor);
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        mDirectory = File.createTempFile("catalog", "");
+        mDirectory.delete();
+        mDirectory.mkdir();
+        mBaseFile = new File(mDirectory, "beacons.catalog");
+        mEntry = new CatalogEntry();
+
+        BeaconCatalogWriter survey = new BeaconCatalogWriter();
+        for (int minor = 0; minor < 100; minor++) {
+            survey.add(UUID_1, 1, minor, minor, 0, 0, BeaconCatalogWriter.NO_TRANSMISSION_POWER, null);
+        }
+        survey.write(mBaseFile);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (File file : mDirectory.listFiles()) {
+            file.delete();
+        }
+        mDirectory.delete();
+    }
+
+    @Test
+    public void append_movesAddsAndRemovesBeacons() throws Exception {
+        CatalogStore store = CatalogStore.open(mBaseFile, 4);
+        CatalogSnapshot before = store.getSnapshot();
+
+        store.append(place(5, 500));
+        store.append(place(200, 2));
+        store.append(new BeaconCatalogWriter().remove(UUID_1, 1, 7));
+
+        assertTrue(store.find(UUID_1, 1, 5, mEntry));
+        assertEquals(500, mEntry.getX(), 0);
+        assertEquals("Beacon 5", mEntry.getMetadata());
+        assertTrue(store.find(UUID_1, 1, 200, mEntry));
+        assertFalse(store.find(UUID_1, 1, 7, mEntry));
+        assertTrue(store.find(UUID_1, 1, 8, mEntry));
+        assertEquals(3, store.getSnapshot().getDeltaCount());
+        assertEquals(3, store.getSnapshot().getVersion());
+
+        // a snapshot taken earlier does not see the edits
+        assertTrue(before.find(UUID_1, 1, 5, mEntry));
+        assertEquals(5, mEntry.getX(), 0);
+        assertTrue(before.find(UUID_1, 1, 7, mEntry));
+        assertFalse(before.find(UUID_1, 1, 200, mEntry));
+    }
+
+    @Test
+    public void newerDelta_winsOverRemoval() throws Exception {
+        CatalogStore store = CatalogStore.open(mBaseFile, 4);
+        store.append(new BeaconCatalogWriter().remove(UUID_1, 1, 7));
+        store.append(place(7, 70));
+        assertTrue(store.find(UUID_1, 1, 7, mEntry));
+        assertEquals(70, mEntry.getX(), 0);
+    }
+
+    @Test
+    public void compact_mergesDeltasIntoBase() throws Exception {
+        CatalogStore store = CatalogStore.open(mBaseFile, 2);
+        store.append(place(5, 500));
+        store.append(new BeaconCatalogWriter().remove(UUID_1, 1, 7));
+        CatalogSnapshot beforeCompaction = store.getSnapshot();
+        store.append(place(200, 2));
+
+        CatalogSnapshot snapshot = store.getSnapshot();
+        assertEquals(0, snapshot.getDeltaCount());
+        assertEquals(100, snapshot.getBaseSize()); // 100 surveyed, one added, one removed
+        assertTrue(snapshot.find(UUID_1, 1, 5, mEntry));
+        assertEquals(500, mEntry.getX(), 0);
+        assertEquals("Beacon 5", mEntry.getMetadata());
+        assertFalse(snapshot.find(UUID_1, 1, 7, mEntry));
+        assertTrue(snapshot.find(UUID_1, 1, 200, mEntry));
+        assertEquals(1, mDirectory.list().length);
+
+        // the replaced files stay mapped for readers that still have the old snapshot
+        assertTrue(beforeCompaction.find(UUID_1, 1, 5, mEntry));
+        assertEquals("Beacon 5", mEntry.getMetadata());
+    }
+
+    @Test
+    public void open_replaysDeltasInOrder() throws Exception {
+        CatalogStore store = CatalogStore.open(mBaseFile, 20);
+        for (int edit = 0; edit < 12; edit++) {
+            store.append(place(5, edit));
+        }
+
+        CatalogStore reopened = CatalogStore.open(mBaseFile, 20);
+        assertEquals(12, reopened.getSnapshot().getDeltaCount());
+        assertTrue(reopened.find(UUID_1, 1, 5, mEntry));
+        assertEquals(11, mEntry.getX(), 0);
+
+        reopened.append(place(6, 66));
+        reopened.compact();
+        assertTrue(CatalogStore.open(mBaseFile, 20).find(UUID_1, 1, 6, mEntry));
+        assertEquals(66, mEntry.getX(), 0);
+    }
+
+    @Test
+    public void open_startsEmptyWithoutBase() throws Exception {
+        mBaseFile.delete();
+        CatalogStore store = CatalogStore.open(mBaseFile, 4);
+        assertFalse(store.find(UUID_1, 1, 1, mEntry));
+        store.append(place(1, 10));
+        assertTrue(store.find(UUID_1, 1, 1, mEntry));
+    }
+
+    @Test
+    public void readers_neverSeeHalfAnUpdate() throws Exception {
+        final CatalogStore store = CatalogStore.open(mBaseFile, 3);
+        final AtomicBoolean isInconsistent = new AtomicBoolean(false);
+        final AtomicBoolean isDone = new AtomicBoolean(false);
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                CatalogEntry entry = new CatalogEntry();
+                while (!isDone.get()) {
+                    // every edit moves beacons 10 and 11 together
+                    CatalogSnapshot snapshot = store.getSnapshot();
+                    snapshot.find(UUID_1, 1, 10, entry);
+                    double x = entry.getX();
+                    snapshot.find(UUID_1, 1, 11, entry);
+                    if (entry.getX() != x + 1) {
+                        isInconsistent.set(true);
+                    }
+                }
+            }
+        });
+        store.append(new BeaconCatalogWriter()
+                .add(UUID_1, 1, 10, 0, 0, 0, BeaconCatalogWriter.NO_TRANSMISSION_POWER, null)
+                .add(UUID_1, 1, 11, 1, 0, 0, BeaconCatalogWriter.NO_TRANSMISSION_POWER, null));
+        reader.start();
+        for (int edit = 1; edit < 50; edit++) {
+            store.append(new BeaconCatalogWriter()
+                    .add(UUID_1, 1, 10, edit * 10, 0, 0, BeaconCatalogWriter.NO_TRANSMISSION_POWER, null)
+                    .add(UUID_1, 1, 11, edit * 10 + 1, 0, 0, BeaconCatalogWriter.NO_TRANSMISSION_POWER, null));
+        }
+        isDone.set(true);
+        reader.join();
+        assertFalse(isInconsistent.get());
+    }
+}
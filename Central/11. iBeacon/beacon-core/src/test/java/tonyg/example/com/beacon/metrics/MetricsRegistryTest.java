@@ -0,0 +1,96 @@
+package tonyg.example.com.beacon.metrics;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+/**
+ * Check counting from several threads, histogram buckets, and snapshot intervals
+ */
+public class MetricsRegistryTest {
+    private MetricsRegistry mRegistry;
+
+    @Before
+    public void setUp() throws Exception {
+        mRegistry = new MetricsRegistry();
+    }
+
+    @Test
+    public void counter_sumsAddsFromEveryThread() throws Exception {
+        final StripedCounter counter = mRegistry.counter("adds");
+        Thread[] threads = new Thread[4];
+        for (int index = 0; index < threads.length; index++) {
+            threads[index] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int add = 0; add < 10000; add++) {
+                        counter.increment();
+                    }
+                }
+            });
+            threads[index].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(40000, counter.sum());
+        assertSame(counter, mRegistry.counter("adds"));
+    }
+
+    @Test
+    public void histogram_bucketsByPowerOfTwo() throws Exception {
+        assertEquals(0, LatencyHistogram.getBucket(0));
+        assertEquals(0, LatencyHistogram.getBucket(1023));
+        assertEquals(1, LatencyHistogram.getBucket(1024));
+        assertEquals(1, LatencyHistogram.getBucket(2047));
+        assertEquals(2, LatencyHistogram.getBucket(2048));
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.getBucket(Long.MAX_VALUE));
+        assertEquals(2047, LatencyHistogram.getUpperBoundNanos(1));
+    }
+
+    @Test
+    public void snapshot_reportsTheIntervalSinceTheLastOne() throws Exception {
+        StripedCounter counter = mRegistry.counter("scans");
+        LatencyHistogram histogram = mRegistry.histogram("latency");
+        counter.add(5);
+        for (int sample = 0; sample < 99; sample++) {
+            histogram.record(1500);
+        }
+        histogram.record(50000);
+
+        MetricsSnapshot first = mRegistry.snapshot(1000);
+        assertEquals(5, first.getCounterTotal(0));
+        assertEquals(5, first.getCounterDelta(0));
+        assertEquals(100, first.getHistogramSampleCount(0));
+        assertEquals(2047, first.getHistogramPercentileNanos(0, 0.5));
+        assertEquals(65535, first.getHistogramPercentileNanos(0, 1));
+        assertEquals((99 * 1500 + 50000) / 100.0, first.getHistogramMeanNanos(0), 1e-9);
+
+        counter.add(2);
+        MetricsSnapshot second = mRegistry.snapshot(2000);
+        assertEquals(7, second.getCounterTotal(0));
+        assertEquals(2, second.getCounterDelta(0));
+        assertEquals(0, second.getHistogramSampleCount(0));
+        assertEquals(0, second.getHistogramPercentileNanos(0, 0.5));
+        assertEquals(-1, second.indexOfCounter("missing"));
+    }
+
+    @Test
+    public void csv_hasOneRowPerInstrument() throws Exception {
+        mRegistry.counter("scans").add(3);
+        mRegistry.histogram("latency").record(1500);
+        StringWriter output = new StringWriter();
+        new MetricsCsvWriter(output, "Acme, Phone").write(mRegistry.snapshot(1234));
+
+        String[] rows = output.toString().split("\n");
+        assertEquals(2, rows.length);
+        assertTrue(rows[0].startsWith("Acme  Phone,1234,scans,3,"));
+        assertTrue(rows[0].endsWith(",3,,,,"));
+        assertTrue(rows[1].startsWith("Acme  Phone,1234,latency,1,"));
+        assertTrue(rows[1].endsWith(",1.5,2,2,2"));
+        assertEquals(MetricsCsvWriter.HEADER.split(",").length, rows[1].split(",").length);
+    }
+}
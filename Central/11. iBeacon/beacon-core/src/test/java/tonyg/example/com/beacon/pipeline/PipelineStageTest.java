@@ -0,0 +1,109 @@
+package tonyg.example.com.beacon.pipeline;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import tonyg.example.com.beacon.metrics.MetricsRegistry;
+
+import static org.junit.Assert.*;
+
+/**
+ * Count only real items in the queue, and keep a stage running when processing an item fails
+ */
+public class PipelineStageTest {
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    /**
+     * Processes integers, and fails on negative ones.  Blocks on the first item until released.
+     */
+    private static class TestStage extends PipelineStage<Integer> {
+        final CountDownLatch release = new CountDownLatch(1);
+        final LinkedBlockingQueue<Integer> processed = new LinkedBlockingQueue<Integer>();
+
+        TestStage(MetricsRegistry metrics) {
+            super("test", 8, metrics);
+        }
+
+        @Override
+        protected void process(Integer item) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (item < 0) {
+                throw new IllegalStateException("negative");
+            }
+            processed.add(item);
+        }
+    }
+
+    private final MetricsRegistry mMetrics = new MetricsRegistry();
+    private final TestStage mStage = new TestStage(mMetrics);
+
+    @After
+    public void tearDown() throws Exception {
+        mStage.release.countDown();
+        mStage.stop();
+    }
+
+    @Test
+    public void queueDepth_doesNotCountCommands() throws Exception {
+        final CountDownLatch commandsRun = new CountDownLatch(2);
+        Runnable command = new Runnable() {
+            @Override
+            public void run() {
+                commandsRun.countDown();
+            }
+        };
+        mStage.execute(command);
+        mStage.execute(command);
+        mStage.offer(1);
+        mStage.offer(2);
+        assertEquals(2, mStage.getQueueDepth());
+
+        // making room for items drops the commands' wake ups first, and they are not counted as drops
+        for (int item = 3; item <= 8; item++) {
+            mStage.offerLatest(item);
+        }
+        assertEquals(8, mStage.getQueueDepth());
+        assertEquals(0, mMetrics.counter("stage.test.dropped").sum());
+        mStage.offerLatest(9);
+        assertEquals(8, mStage.getQueueDepth());
+        assertEquals(1, mMetrics.counter("stage.test.dropped").sum());
+
+        mStage.release.countDown();
+        mStage.start();
+        assertTrue(commandsRun.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        for (int item = 2; item <= 9; item++) {
+            assertEquals(Integer.valueOf(item), mStage.processed.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        }
+        assertEquals(0, mStage.getQueueDepth());
+    }
+
+    @Test
+    public void failingItem_isCountedAndTheStageCarriesOn() throws Exception {
+        mStage.release.countDown();
+        mStage.start();
+        mStage.offer(1);
+        mStage.offer(-1);
+        mStage.execute(new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException("command");
+            }
+        });
+        mStage.offer(2);
+
+        assertEquals(Integer.valueOf(1), mStage.processed.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        assertEquals(Integer.valueOf(2), mStage.processed.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        mStage.stop(); // so the counts are final
+        assertEquals(2, mStage.getFailedCount());
+        assertEquals(2, mMetrics.counter("stage.test.failed").sum());
+        assertEquals(2, mMetrics.counter("stage.test.processed").sum());
+    }
+}
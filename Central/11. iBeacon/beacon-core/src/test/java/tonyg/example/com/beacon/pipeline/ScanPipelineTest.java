@@ -0,0 +1,251 @@
+package tonyg.example.com.beacon.pipeline;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import tonyg.example.com.beacon.ble.BeaconTelemetry;
+import tonyg.example.com.beacon.ble.EphemeralIdResolver;
+import tonyg.example.com.beacon.ble.IBeacon;
+import tonyg.example.com.beacon.metrics.BeaconMetrics;
+import tonyg.example.com.beacon.metrics.MetricsRegistry;
+import tonyg.example.com.beacon.region.Region;
+import tonyg.example.com.blecodec.DataConverter;
+
+import static org.junit.Assert.*;
+
+/**
+ * Run scan results through every stage, and check what reaches the UI
+ */
+public class ScanPipelineTest {
+    private static final String SCAN_RECORD_PREFIX = "0201061AFF4C000215E20A39F473F54BC4A12F17D1AD07A961";
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    private final LinkedBlockingQueue<PipelineSnapshot> mSnapshots = new LinkedBlockingQueue<PipelineSnapshot>();
+    private final LinkedBlockingQueue<IBeacon> mLost = new LinkedBlockingQueue<IBeacon>();
+    private final LinkedBlockingQueue<String> mRegionEvents = new LinkedBlockingQueue<String>();
+    private MetricsRegistry mMetrics;
+    private ScanPipeline mPipeline;
+
+    // stands in for the UI thread: runs every task straight away, on the render stage's caller
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable task) {
+            task.run();
+        }
+    };
+
+    private static byte[] createScanRecord(int major, int minor) {
+        return DataConverter.hexToBytes(SCAN_RECORD_PREFIX + String.format("%04X%04XC5", major, minor));
+    }
+
+    private static IBeacon createIBeacon(int minor, int rssi, double x, double y) throws Exception {
+        IBeacon iBeacon = IBeacon.fromScanRecord(createScanRecord(1, minor));
+        iBeacon.setLocation(x, y);
+        iBeacon.setRssi(rssi);
+        return iBeacon;
+    }
+
+    /**
+     * Wait for a snapshot that passes a check, skipping older ones
+     */
+    private PipelineSnapshot awaitSnapshot(int iBeaconCount, boolean hasPosition) throws Exception {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            PipelineSnapshot snapshot = mSnapshots.poll(50, TimeUnit.MILLISECONDS);
+            if (snapshot != null && snapshot.getIBeaconCount() == iBeaconCount && snapshot.hasPosition() == hasPosition) {
+                return snapshot;
+            }
+        }
+        fail("No snapshot with " + iBeaconCount + " iBeacons, hasPosition " + hasPosition + "; latest " + mPipeline.getLatestSnapshot().getIBeaconCount());
+        return null;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        mMetrics = new MetricsRegistry();
+        mPipeline = new ScanPipeline(10, 3, new EphemeralIdResolver(), DIRECT_EXECUTOR, new RenderStage.Listener() {
+            @Override
+            public void onSnapshot(PipelineSnapshot snapshot) {
+                mSnapshots.add(snapshot);
+            }
+        }, mMetrics);
+        mPipeline.setLostTimeout(TimeUnit.MILLISECONDS.toNanos(300));
+        mPipeline.setIBeaconLostListener(new FilterStage.IBeaconLostListener() {
+            @Override
+            public void onIBeaconLost(IBeacon iBeacon) {
+                mLost.add(iBeacon);
+            }
+        });
+        mPipeline.setRegionExitTimeout(TimeUnit.MILLISECONDS.toNanos(300));
+        mPipeline.setRegionListener(new FilterStage.RegionListener() {
+            @Override
+            public void onEnterRegion(Region region) {
+                mRegionEvents.add("enter " + region.getIdentifier());
+            }
+
+            @Override
+            public void onExitRegion(Region region) {
+                mRegionEvents.add("exit " + region.getIdentifier());
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mPipeline.stop();
+    }
+
+    @Test
+    public void submit_deduplicatesAndPublishesCopies() throws Exception {
+        mPipeline.start();
+        for (int repeat = 0; repeat < 5; repeat++) {
+            assertTrue(mPipeline.submit("00:00:00:00:00:01", createScanRecord(1, 1), -60));
+            assertTrue(mPipeline.submit("00:00:00:00:00:02", createScanRecord(1, 2), -70));
+        }
+        // not a beacon at all
+        assertTrue(mPipeline.submit("00:00:00:00:00:03", DataConverter.hexToBytes("020106"), -70));
+
+        PipelineSnapshot snapshot = awaitSnapshot(2, false);
+        List<IBeacon> nearest = snapshot.getNearestIBeacons();
+        assertEquals(1, nearest.get(0).getMinor());
+        assertEquals("00:00:00:00:00:01", nearest.get(0).getMacAddress());
+        assertEquals(2, nearest.get(1).getMinor());
+        // recorded by the stages, in the registry the pipeline was given
+        assertEquals(11, mMetrics.counter(BeaconMetrics.ADVERTISEMENTS).sum());
+        assertEquals(2, mMetrics.counter(BeaconMetrics.DEDUPLICATION_MISSES).sum());
+        try {
+            nearest.clear();
+            fail("Snapshots must not be modifiable");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void add_locatesCentral() throws Exception {
+        mPipeline.start();
+        List<IBeacon> iBeacons = new ArrayList<IBeacon>();
+        iBeacons.add(createIBeacon(1, -59, 0, 0));
+        iBeacons.add(createIBeacon(2, -59, 10, 0));
+        iBeacons.add(createIBeacon(3, -59, 0, 10));
+        IBeacon first = iBeacons.get(0);
+        mPipeline.add(iBeacons);
+
+        PipelineSnapshot snapshot = awaitSnapshot(3, true);
+        assertFalse(Double.isNaN(snapshot.getX()));
+        assertFalse(Double.isNaN(snapshot.getY()));
+        for (IBeacon iBeacon : snapshot.getNearestIBeacons()) {
+            assertNotSame(first, iBeacon);
+        }
+
+        mPipeline.clear();
+        awaitSnapshot(0, false);
+    }
+
+    @Test
+    public void unseenIBeacons_areLostWhileScanning() throws Exception {
+        mPipeline.start();
+        List<IBeacon> simulated = new ArrayList<IBeacon>();
+        simulated.add(createIBeacon(9, -80, 0, 0));
+        mPipeline.add(simulated);
+        mPipeline.setScanning(true);
+
+        long endMillis = System.currentTimeMillis() + 1000;
+        mPipeline.submit("00:00:00:00:00:02", createScanRecord(1, 2), -70);
+        while (System.currentTimeMillis() < endMillis) {
+            // minor 1 keeps being seen, minor 2 was seen once
+            mPipeline.submit("00:00:00:00:00:01", createScanRecord(1, 1), -60);
+            Thread.sleep(50);
+        }
+        IBeacon lost = mLost.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        assertNotNull(lost);
+        assertEquals(2, lost.getMinor());
+        assertTrue(mLost.isEmpty());
+        // the loss is published straight away
+        Thread.sleep(200);
+        PipelineSnapshot snapshot = mPipeline.getLatestSnapshot();
+        assertEquals(2, snapshot.getIBeaconCount());
+        assertEquals(1, snapshot.getNearestIBeacons().get(0).getMinor());
+        assertEquals(9, snapshot.getNearestIBeacons().get(1).getMinor());
+
+        // nothing is lost between scans
+        mPipeline.setScanning(false);
+        Thread.sleep(600);
+        assertTrue(mLost.isEmpty());
+    }
+
+    @Test
+    public void sightings_enterAndLeaveRegions() throws Exception {
+        mPipeline.startMonitoring(new Region("site", UUID.fromString("e20a39f4-73f5-4bc4-a12f-17d1ad07a961")));
+        mPipeline.startMonitoring(new Region("elsewhere", UUID.fromString("f7826da6-4fa2-4e98-8024-bc5b71e0893e")));
+        mPipeline.start();
+        mPipeline.setScanning(true);
+
+        mPipeline.submit("00:00:00:00:00:01", createScanRecord(1, 1), -60);
+        mPipeline.submit("00:00:00:00:00:02", createScanRecord(2, 1), -60);
+        assertEquals("enter site", mRegionEvents.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        assertEquals("exit site", mRegionEvents.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        assertTrue(mRegionEvents.isEmpty());
+    }
+
+    @Test
+    public void scanResponseTelemetry_reachesTheSnapshot() throws Exception {
+        mPipeline.start();
+        // the advertisement padded to 31 bytes, then a scan response with 3.7 V and 23.5 C
+        byte[] iBeacon = createScanRecord(1, 1);
+        byte[] telemetry = DataConverter.hexToBytes("0303AAFE1116AAFE20000E741780000000640000C350");
+        byte[] scanRecord = new byte[62];
+        System.arraycopy(iBeacon, 0, scanRecord, 0, iBeacon.length);
+        System.arraycopy(telemetry, 0, scanRecord, 31, telemetry.length);
+        assertTrue(mPipeline.submit("00:00:00:00:00:01", scanRecord, -60));
+
+        IBeacon found = awaitSnapshot(1, false).getNearestIBeacons().get(0);
+        BeaconTelemetry received = found.getTelemetry();
+        assertNotNull(received);
+        assertEquals(3700, received.getBatteryMillivolts());
+        assertEquals(23.5, received.getTemperature(), 0.001);
+        assertEquals(50000, received.getUptimeDeciseconds());
+    }
+
+    @Test
+    public void telemetrySetWithIdentityScanResponse_reachesTheSnapshot() throws Exception {
+        mPipeline.start();
+        // the telemetry set's advertisement, then its scan response with the iBeacon frame
+        byte[] telemetry = DataConverter.hexToBytes("0303AAFE1116AAFE20000E741780000000640000C350");
+        byte[] iBeacon = createScanRecord(1, 1);
+        byte[] scanRecord = new byte[62];
+        System.arraycopy(telemetry, 0, scanRecord, 0, telemetry.length);
+        System.arraycopy(iBeacon, 3, scanRecord, 31, iBeacon.length - 3); // a scan response has no flags
+        assertTrue(mPipeline.submit("00:00:00:00:00:0A", scanRecord, -60));
+        // the iBeacon's own set advertises from another address
+        assertTrue(mPipeline.submit("00:00:00:00:00:01", iBeacon, -60));
+
+        IBeacon found = awaitSnapshot(1, false).getNearestIBeacons().get(0);
+        BeaconTelemetry received = found.getTelemetry();
+        assertNotNull(received);
+        assertEquals(3700, received.getBatteryMillivolts());
+        assertEquals(23.5, received.getTemperature(), 0.001);
+        mPipeline.stop();
+        assertEquals(1, mMetrics.counter("stage.filter.processed").sum()); // the link is not a Sighting
+    }
+
+    @Test
+    public void submit_dropsWhenParseQueueIsFull() throws Exception {
+        // not started, so nothing is taken off the queue
+        byte[] scanRecord = createScanRecord(1, 1);
+        for (int index = 0; index < ScanPipeline.DEFAULT_PARSE_CAPACITY; index++) {
+            assertTrue(mPipeline.submit("00:00:00:00:00:01", scanRecord, -60));
+        }
+        assertFalse(mPipeline.submit("00:00:00:00:00:01", scanRecord, -60));
+        assertEquals(ScanPipeline.DEFAULT_PARSE_CAPACITY, mPipeline.getParseQueueDepth());
+        assertEquals(1, mMetrics.counter("stage.parse.dropped").sum());
+    }
+}
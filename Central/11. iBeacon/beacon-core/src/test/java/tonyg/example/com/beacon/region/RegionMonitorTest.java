@@ -0,0 +1,143 @@
+package tonyg.example.com.beacon.region;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import tonyg.example.com.beacon.ble.IBeacon;
+
+import static org.junit.Assert.*;
+
+/**
+ * Match sightings against wildcard regions, and leave regions only after the exit timeout
+ */
+public class RegionMonitorTest {
+    private static final UUID UUID_1 = UUID.fromString("e20a39f4-73f5-4bc4-a12f-17d1ad07a961");
+    private static final UUID UUID_2 = UUID.fromString("f7826da6-4fa2-4e98-8024-bc5b71e0893e");
+    private static final long TICK_NANOS = 100;
+    private static final long EXIT_TIMEOUT_NANOS = 1000;
+
+    private final Region mSite = new Region("site", UUID_1);
+    private final Region mFloor = new Region("floor", UUID_1, 1);
+    private final Region mDesk = new Region("desk", UUID_1, 1, 7);
+    private final Region mOther = new Region("other", UUID_2);
+
+    private RegionMonitor mMonitor;
+    private final List<String> mEvents = new ArrayList<String>();
+
+    private static IBeacon createIBeacon(UUID uuid, int major, int minor) {
+        IBeacon iBeacon = new IBeacon();
+        iBeacon.setUuid(uuid);
+        iBeacon.setMajor(major);
+        iBeacon.setMinor(minor);
+        return iBeacon;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        mMonitor = new RegionMonitor(TICK_NANOS, 0);
+        mMonitor.setExitTimeout(EXIT_TIMEOUT_NANOS);
+        mMonitor.setListener(new RegionMonitor.Listener() {
+            @Override
+            public void onEnterRegion(Region region) {
+                mEvents.add("enter " + region.getIdentifier());
+            }
+
+            @Override
+            public void onExitRegion(Region region) {
+                mEvents.add("exit " + region.getIdentifier());
+            }
+        });
+        mMonitor.startMonitoring(mSite);
+        mMonitor.startMonitoring(mFloor);
+        mMonitor.startMonitoring(mDesk);
+        mMonitor.startMonitoring(mOther);
+    }
+
+    @Test
+    public void sighting_entersEveryMatchingRegionOnce() throws Exception {
+        mMonitor.onSighting(createIBeacon(UUID_1, 1, 7), 0);
+        mMonitor.onSighting(createIBeacon(UUID_1, 1, 7), 10);
+        assertEquals(3, mEvents.size());
+        assertTrue(mEvents.contains("enter site"));
+        assertTrue(mEvents.contains("enter floor"));
+        assertTrue(mEvents.contains("enter desk"));
+
+        mEvents.clear();
+        mMonitor.onSighting(createIBeacon(UUID_1, 2, 7), 20);
+        mMonitor.onSighting(createIBeacon(UUID_1, 1, 8), 20);
+        assertTrue(mEvents.isEmpty());
+        assertFalse(mMonitor.isInside(mOther));
+    }
+
+    @Test
+    public void exit_waitsForTheTimeout() throws Exception {
+        mMonitor.onSighting(createIBeacon(UUID_1, 1, 7), 0);
+        mMonitor.onSighting(createIBeacon(UUID_1, 2, 0), 500);
+        mEvents.clear();
+
+        // missed advertisements do not cause an exit
+        assertEquals(0, mMonitor.advance(900));
+        assertEquals(2, mMonitor.advance(1100));
+        assertTrue(mEvents.contains("exit floor"));
+        assertTrue(mEvents.contains("exit desk"));
+        assertTrue(mMonitor.isInside(mSite));
+
+        assertEquals(1, mMonitor.advance(1600));
+        assertEquals("exit site", mEvents.get(2));
+        assertFalse(mMonitor.isInside(mSite));
+
+        mMonitor.onSighting(createIBeacon(UUID_1, 3, 0), 2000);
+        assertEquals("enter site", mEvents.get(3));
+    }
+
+    @Test
+    public void resume_restartsTheExitTimers() throws Exception {
+        mMonitor.onSighting(createIBeacon(UUID_2, 9, 9), 0);
+        // not scanning between 0 and 5000, so advance() was not called
+        mMonitor.resume(5000);
+        assertEquals(0, mMonitor.advance(5900));
+        assertEquals(1, mMonitor.advance(6000));
+    }
+
+    @Test
+    public void stopMonitoring_removesTheRegionSilently() throws Exception {
+        mMonitor.onSighting(createIBeacon(UUID_1, 1, 7), 0);
+        mEvents.clear();
+        mMonitor.stopMonitoring(new Region("desk", UUID_2));
+        mMonitor.stopMonitoring(mOther);
+        assertEquals(2, mMonitor.getRegions().size());
+        assertFalse(mMonitor.isInside(mDesk));
+
+        mMonitor.advance(5000);
+        assertEquals(2, mEvents.size());
+        assertFalse(mEvents.contains("exit desk"));
+
+        mEvents.clear();
+        mMonitor.onSighting(createIBeacon(UUID_1, 1, 7), 6000);
+        mMonitor.onSighting(createIBeacon(UUID_2, 1, 7), 6000);
+        assertEquals(2, mEvents.size());
+    }
+
+    @Test
+    public void startMonitoring_replacesRegionWithTheSameIdentifier() throws Exception {
+        mMonitor.startMonitoring(new Region("desk", UUID_1, 1, 8));
+        assertEquals(4, mMonitor.getRegions().size());
+        mMonitor.onSighting(createIBeacon(UUID_1, 1, 8), 0);
+        assertTrue(mMonitor.isInside(mDesk));
+        mMonitor.stopMonitoring(mSite);
+        mMonitor.stopMonitoring(mFloor);
+        mMonitor.stopMonitoring(mDesk);
+        mEvents.clear();
+        mMonitor.onSighting(createIBeacon(UUID_1, 1, 7), 10);
+        assertTrue(mEvents.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void region_withMinorNeedsMajor() throws Exception {
+        new Region("bad", UUID_1, Region.ANY, 3);
+    }
+}
@@ -0,0 +1,94 @@
+package tonyg.example.com.beacon.simulation;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+/**
+ * Generate the same run for a seed, however many threads generate it
+ */
+public class FleetGeneratorTest {
+    private static final long DURATION_MILLIS = 20 * 1000;
+    private static final FloorPlan FLOOR_PLAN = FloorPlan.createGrid(UUID.fromString("e20a39f4-73f5-4bc4-a12f-17d1ad07a961"), 1, 4, 4, 5, -59);
+
+    private static FleetGenerator createGenerator(long seed) {
+        List<Trajectory> trajectories = new ArrayList<Trajectory>();
+        trajectories.add(new Trajectory(new double[] { 0, 0, 15, 0, 15, 15, 0, 15 }, Trajectory.WALKING_SPEED));
+        trajectories.add(Trajectory.createStationary(7.5, 7.5));
+        trajectories.add(new Trajectory(new double[] { 15, 15, 0, 0 }, Trajectory.WALKING_SPEED));
+        FleetGenerator generator = new FleetGenerator(FLOOR_PLAN, trajectories, new RadioModel());
+        generator.setSliceMillis(3 * 1000);
+        generator.setSeed(seed);
+        return generator;
+    }
+
+    /**
+     * Generate a run into one trace per partition
+     */
+    private static byte[][] generate(FleetGenerator generator, int threadCount) throws Exception {
+        final ByteArrayOutputStream[] outputs = new ByteArrayOutputStream[generator.getPartitionCount(DURATION_MILLIS)];
+        long sightingCount = generator.generate(DURATION_MILLIS, threadCount, new SightingSink.Factory() {
+            @Override
+            public SightingSink createSink(int partition) throws Exception {
+                outputs[partition] = new ByteArrayOutputStream();
+                return new TraceWriter(outputs[partition], FLOOR_PLAN);
+            }
+        });
+        assertTrue(sightingCount > 0);
+        byte[][] traces = new byte[outputs.length][];
+        for (int partition = 0; partition < outputs.length; partition++) {
+            traces[partition] = outputs[partition].toByteArray();
+        }
+        return traces;
+    }
+
+    @Test
+    public void generate_isTheSameForOneAndManyThreads() throws Exception {
+        byte[][] oneThread = generate(createGenerator(42), 1);
+        assertEquals(3 * 7, oneThread.length);
+        for (int threadCount : new int[] { 2, 4, 16 }) {
+            byte[][] manyThreads = generate(createGenerator(42), threadCount);
+            assertEquals(oneThread.length, manyThreads.length);
+            for (int partition = 0; partition < oneThread.length; partition++) {
+                assertArrayEquals("partition " + partition, oneThread[partition], manyThreads[partition]);
+            }
+        }
+        assertFalse(Arrays.deepEquals(oneThread, generate(createGenerator(43), 4)));
+    }
+
+    @Test
+    public void mergedPartitions_areOneRunInTimeOrder() throws Exception {
+        byte[][] traces = generate(createGenerator(42), 4);
+        List<InputStream> partitions = new ArrayList<InputStream>();
+        long expectedCount = 0;
+        for (byte[] trace : traces) {
+            partitions.add(new ByteArrayInputStream(trace));
+            TraceReader reader = new TraceReader(new ByteArrayInputStream(trace));
+            while (reader.next()) {
+                expectedCount++;
+            }
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertEquals(expectedCount, TraceMerger.merge(partitions, output));
+
+        TraceReader reader = new TraceReader(new ByteArrayInputStream(output.toByteArray()));
+        long latestTimeMillis = 0;
+        long count = 0;
+        while (reader.next()) {
+            // only advertising delay puts a sighting behind the one before it
+            assertTrue(reader.getTimeMillis() >= latestTimeMillis - 10);
+            assertTrue(reader.getTimeMillis() < DURATION_MILLIS + 10);
+            latestTimeMillis = Math.max(latestTimeMillis, reader.getTimeMillis());
+            count++;
+        }
+        assertEquals(expectedCount, count);
+    }
+}
@@ -0,0 +1,144 @@
+package tonyg.example.com.beacon.simulation;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+/**
+ * Write traces, read them back, and merge the traces of a partitioned run
+ */
+public class TraceTest {
+    private static final UUID UUID_UNDER_TEST = UUID.fromString("e20a39f4-73f5-4bc4-a12f-17d1ad07a961");
+
+    /**
+     * Keeps every sighting as { time, observer, beacon, rssi }
+     */
+    private static class RecordingSink implements SightingSink {
+        final List<long[]> sightings = new ArrayList<long[]>();
+
+        @Override
+        public void onSighting(long timeMillis, int observer, int beacon, int rssi) {
+            sightings.add(new long[] { timeMillis, observer, beacon, rssi });
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static FloorPlan createFloorPlan() {
+        FloorPlan floorPlan = new FloorPlan();
+        floorPlan.addBeacon(UUID_UNDER_TEST, 1, 2, -59, 0, 0);
+        floorPlan.addBeacon(UUID_UNDER_TEST, 65535, 65535, -128, 12.5, -3.25);
+        floorPlan.addBeacon(new UUID(-1, 1), 0, 300, 20, 1e6, 0.1);
+        return floorPlan;
+    }
+
+    private static byte[] write(FloorPlan floorPlan, long[][] sightings) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        TraceWriter writer = new TraceWriter(output, floorPlan);
+        for (long[] sighting : sightings) {
+            writer.onSighting(sighting[0], (int) sighting[1], (int) sighting[2], (int) sighting[3]);
+        }
+        writer.close();
+        assertEquals(sightings.length, writer.getRecordCount());
+        return output.toByteArray();
+    }
+
+    @Test
+    public void roundTrip_keepsEverySighting() throws Exception {
+        FloorPlan floorPlan = createFloorPlan();
+        long[][] sightings = {
+                { 0, 0, 0, -59 },
+                { 7, 1, 1, -127 },
+                { 3, 1, 2, -1 }, // earlier than the one before, as advertising delay allows
+                { 1L << 40, 300, 0, -100 },
+                { (1L << 40) + 1, 0, 1, 20 },
+                { 5, 2, 2, -128 }, // back across a huge gap
+                { Long.MAX_VALUE / 4, 100000, 0, -80 },
+        };
+        byte[] trace = write(floorPlan, sightings);
+
+        TraceReader reader = new TraceReader(new ByteArrayInputStream(trace));
+        FloorPlan readFloorPlan = reader.getFloorPlan();
+        assertEquals(floorPlan.size(), readFloorPlan.size());
+        for (int beacon = 0; beacon < floorPlan.size(); beacon++) {
+            assertEquals(floorPlan.getUuid(beacon), readFloorPlan.getUuid(beacon));
+            assertEquals(floorPlan.getMajor(beacon), readFloorPlan.getMajor(beacon));
+            assertEquals(floorPlan.getMinor(beacon), readFloorPlan.getMinor(beacon));
+            assertEquals(floorPlan.getTransmissionPower(beacon), readFloorPlan.getTransmissionPower(beacon));
+            assertEquals(floorPlan.getX(beacon), readFloorPlan.getX(beacon), 0);
+            assertEquals(floorPlan.getY(beacon), readFloorPlan.getY(beacon), 0);
+        }
+        RecordingSink sink = new RecordingSink();
+        assertEquals(sightings.length, reader.replay(sink));
+        reader.close();
+        for (int index = 0; index < sightings.length; index++) {
+            assertArrayEquals(sightings[index], sink.sightings.get(index));
+        }
+    }
+
+    @Test
+    public void next_readsOneSightingAtATime() throws Exception {
+        byte[] trace = write(createFloorPlan(), new long[][] { { 100, 0, 1, -70 }, { 90, 1, 0, -60 } });
+        TraceReader reader = new TraceReader(new ByteArrayInputStream(trace));
+        assertTrue(reader.next());
+        assertEquals(100, reader.getTimeMillis());
+        assertEquals(1, reader.getBeacon());
+        assertTrue(reader.next());
+        assertEquals(90, reader.getTimeMillis());
+        assertEquals(1, reader.getObserver());
+        assertEquals(-60, reader.getRssi());
+        assertFalse(reader.next());
+        reader.close();
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedTrace_isReported() throws Exception {
+        byte[] trace = write(createFloorPlan(), new long[][] { { 1L << 40, 0, 1, -70 } });
+        TraceReader reader = new TraceReader(new ByteArrayInputStream(Arrays.copyOf(trace, trace.length - 2)));
+        reader.replay(new RecordingSink());
+    }
+
+    @Test
+    public void merge_ordersThePartitionsByTime() throws Exception {
+        FloorPlan floorPlan = createFloorPlan();
+        List<InputStream> partitions = new ArrayList<InputStream>();
+        partitions.add(new ByteArrayInputStream(write(floorPlan, new long[][] { { 0, 0, 0, -50 }, { 20, 0, 1, -51 }, { 40, 0, 2, -52 } })));
+        partitions.add(new ByteArrayInputStream(write(floorPlan, new long[][] {})));
+        partitions.add(new ByteArrayInputStream(write(floorPlan, new long[][] { { 10, 1, 0, -60 }, { 30, 1, 1, -61 }, { 1L << 40, 1, 2, -62 } })));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertEquals(6, TraceMerger.merge(partitions, output));
+
+        TraceReader reader = new TraceReader(new ByteArrayInputStream(output.toByteArray()));
+        assertEquals(floorPlan.size(), reader.getFloorPlan().size());
+        RecordingSink sink = new RecordingSink();
+        reader.replay(sink);
+        long[] times = new long[sink.sightings.size()];
+        for (int index = 0; index < times.length; index++) {
+            times[index] = sink.sightings.get(index)[0];
+        }
+        assertArrayEquals(new long[] { 0, 10, 20, 30, 40, 1L << 40 }, times);
+        assertArrayEquals(new long[] { 30, 1, 1, -61 }, sink.sightings.get(3));
+    }
+
+    @Test(expected = IOException.class)
+    public void merge_rejectsDifferentFloorPlans() throws Exception {
+        FloorPlan other = createFloorPlan();
+        other.addBeacon(UUID_UNDER_TEST, 9, 9, -59, 1, 1);
+        List<InputStream> partitions = new ArrayList<InputStream>();
+        partitions.add(new ByteArrayInputStream(write(createFloorPlan(), new long[][] { { 0, 0, 0, -50 } })));
+        partitions.add(new ByteArrayInputStream(write(other, new long[][] { { 0, 0, 0, -50 } })));
+        TraceMerger.merge(partitions, new ByteArrayOutputStream());
+    }
+}
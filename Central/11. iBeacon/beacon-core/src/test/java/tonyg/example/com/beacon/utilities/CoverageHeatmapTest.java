@@ -0,0 +1,218 @@
+package tonyg.example.com.beacon.utilities;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compute coverage per cell, and recompute only the tiles a beacon change reaches
+ */
+public class CoverageHeatmapTest {
+    private static final double SIZE_M = 40;
+    private static final double CELL_M = 0.5;
+    private static final int TILE_SIZE = 8; // 10 x 10 tiles
+    private static final int TILE_COUNT = 100;
+    private static final int WEAK_POWER = -90; // about 2 m of range
+
+    private CoverageHeatmap mRssiHeatmap;
+    private CoverageHeatmap mErrorHeatmap;
+
+    private static int toCell(double meters) {
+        return (int) (meters / CELL_M);
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        mRssiHeatmap = new CoverageHeatmap(0, 0, SIZE_M, SIZE_M, CELL_M, TILE_SIZE, CoverageHeatmap.MODE_RSSI);
+        mErrorHeatmap = new CoverageHeatmap(0, 0, SIZE_M, SIZE_M, CELL_M, TILE_SIZE, CoverageHeatmap.MODE_POSITION_ERROR);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mRssiHeatmap.shutdown();
+        mErrorHeatmap.shutdown();
+    }
+
+    @Test
+    public void rssi_isTheStrongestExpectedRssi() throws Exception {
+        assertEquals(TILE_COUNT, mRssiHeatmap.getTileColumns() * mRssiHeatmap.getTileRows());
+        mRssiHeatmap.putBeacon("a", 10, 10, -59);
+        mRssiHeatmap.putBeacon("b", 20, 10, -70);
+        assertEquals(TILE_COUNT, mRssiHeatmap.update());
+
+        // cell centers are a quarter meter off the grid lines
+        assertEquals(-59, mRssiHeatmap.getValue(toCell(10), toCell(10)), 0.001);
+        double expected = CoverageHeatmap.getExpectedRssi(-59, Math.hypot(4.25, 0.25));
+        assertEquals(expected, mRssiHeatmap.getValue(toCell(14), toCell(10)), 0.001);
+        // nearer the weaker beacon, it is the stronger signal
+        expected = CoverageHeatmap.getExpectedRssi(-70, Math.hypot(1.75, 0.25));
+        assertEquals(expected, mRssiHeatmap.getValue(toCell(18), toCell(10)), 0.001);
+        // out of range of both
+        assertEquals(CoverageHeatmap.DEFAULT_RSSI_FLOOR, mRssiHeatmap.getValue(toCell(39), toCell(39)), 0.001);
+    }
+
+    @Test
+    public void update_recomputesOnlyTheTilesInRange() throws Exception {
+        mRssiHeatmap.putBeacon("a", 10, 10, WEAK_POWER);
+        assertEquals(TILE_COUNT, mRssiHeatmap.update());
+        assertEquals(0, mRssiHeatmap.update());
+        int farVersion = mRssiHeatmap.getTileVersion(9, 9);
+
+        // the same place again changes nothing
+        mRssiHeatmap.putBeacon("a", 10, 10, WEAK_POWER);
+        assertEquals(0, mRssiHeatmap.getDirtyTileCount());
+
+        // the tiles around the old and the new place
+        mRssiHeatmap.putBeacon("a", 12, 10, WEAK_POWER);
+        int recomputed = mRssiHeatmap.update();
+        assertTrue(recomputed > 0 && recomputed <= 4);
+        assertEquals(farVersion, mRssiHeatmap.getTileVersion(9, 9));
+        assertTrue(mRssiHeatmap.getValue(toCell(12), toCell(10)) > CoverageHeatmap.DEFAULT_RSSI_FLOOR);
+        assertEquals(CoverageHeatmap.DEFAULT_RSSI_FLOOR, mRssiHeatmap.getValue(toCell(10) - 4, toCell(10)), 0.001);
+
+        mRssiHeatmap.removeBeacon("a");
+        assertTrue(mRssiHeatmap.update() > 0);
+        assertEquals(CoverageHeatmap.DEFAULT_RSSI_FLOOR, mRssiHeatmap.getValue(toCell(12), toCell(10)), 0.001);
+    }
+
+    @Test
+    public void positionError_needsThreeBeaconsInRange() throws Exception {
+        mErrorHeatmap.putBeacon("a", 10, 10, -59);
+        mErrorHeatmap.putBeacon("b", 15, 10, -59);
+        mErrorHeatmap.update();
+        assertEquals(Float.POSITIVE_INFINITY, mErrorHeatmap.getValue(toCell(12), toCell(12)), 0);
+
+        mErrorHeatmap.putBeacon("c", 12, 15, -59);
+        mErrorHeatmap.update();
+        float inside = mErrorHeatmap.getValue(toCell(12), toCell(12));
+        assertTrue(inside > 0 && inside < 2);
+        // farther from every beacon, each distance is less certain
+        assertTrue(mErrorHeatmap.getValue(toCell(22), toCell(22)) > inside);
+    }
+
+    @Test
+    public void parallelTiles_matchOneThread() throws Exception {
+        ExecutorService oneThread = Executors.newSingleThreadExecutor();
+        CoverageHeatmap serial = new CoverageHeatmap(0, 0, SIZE_M, SIZE_M, CELL_M, TILE_SIZE, CoverageHeatmap.MODE_POSITION_ERROR, oneThread);
+        try {
+            for (int beacon = 0; beacon < 16; beacon++) {
+                double x = 2.5 + (beacon % 4) * 10;
+                double y = 2.5 + (beacon / 4) * 10;
+                serial.putBeacon(beacon, x, y, -59 - beacon);
+                mErrorHeatmap.putBeacon(beacon, x, y, -59 - beacon);
+            }
+            serial.update();
+            mErrorHeatmap.update();
+            for (int row = 0; row < serial.getRows(); row++) {
+                for (int column = 0; column < serial.getColumns(); column++) {
+                    assertEquals(serial.getValue(column, row), mErrorHeatmap.getValue(column, row), 0);
+                }
+            }
+        } finally {
+            serial.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cellSize_mustBePositive() throws Exception {
+        new CoverageHeatmap(0, 0, SIZE_M, SIZE_M, 0, TILE_SIZE, CoverageHeatmap.MODE_RSSI).shutdown();
+    }
+
+    /**
+     * Runs tiles on the calling thread, failing every one while failing is set
+     */
+    private static class FailingExecutor extends AbstractExecutorService {
+        boolean failing = true;
+
+        @Override
+        public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks) {
+            List<Future<T>> futures = new ArrayList<Future<T>>(tasks.size());
+            for (final Callable<T> task : tasks) {
+                FutureTask<T> future = new FutureTask<T>(failing ? new Callable<T>() {
+                    @Override
+                    public T call() {
+                        throw new IllegalStateException("tile failed");
+                    }
+                } : task);
+                future.run();
+                futures.add(future);
+            }
+            return futures;
+        }
+
+        @Override
+        public void execute(Runnable command) { command.run(); }
+        @Override
+        public void shutdown() {}
+        @Override
+        public List<Runnable> shutdownNow() { return new ArrayList<Runnable>(); }
+        @Override
+        public boolean isShutdown() { return false; }
+        @Override
+        public boolean isTerminated() { return false; }
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) { return true; }
+    }
+
+    @Test
+    public void failedTiles_stayDirtyUntilComputed() throws Exception {
+        FailingExecutor executor = new FailingExecutor();
+        CoverageHeatmap heatmap = new CoverageHeatmap(0, 0, SIZE_M, SIZE_M, CELL_M, TILE_SIZE, CoverageHeatmap.MODE_RSSI, executor);
+        heatmap.putBeacon("a", 10, 10, -59);
+        try {
+            heatmap.update();
+            fail("The failure was not rethrown");
+        } catch (IllegalStateException e) {
+            assertEquals("tile failed", e.getMessage());
+        }
+        assertEquals(TILE_COUNT, heatmap.getDirtyTileCount());
+        assertEquals(0, heatmap.getTileVersion(0, 0));
+
+        executor.failing = false;
+        assertEquals(TILE_COUNT, heatmap.update());
+        assertEquals(0, heatmap.getDirtyTileCount());
+        assertEquals(1, heatmap.getTileVersion(0, 0));
+        assertEquals(-59, heatmap.getValue(toCell(10), toCell(10)), 0.001);
+    }
+
+    @Test
+    public void interruptedUpdate_leavesTheTilesDirty() throws Exception {
+        mRssiHeatmap.putBeacon("a", 10, 10, -59);
+        Thread.currentThread().interrupt();
+        try {
+            mRssiHeatmap.update();
+            fail("The interruption was not reported");
+        } catch (InterruptedException e) {
+            // expected
+        }
+        assertEquals(TILE_COUNT, mRssiHeatmap.getDirtyTileCount());
+        assertEquals(TILE_COUNT, mRssiHeatmap.update());
+        assertEquals(-59, mRssiHeatmap.getValue(toCell(10), toCell(10)), 0.001);
+    }
+
+    @Test
+    public void shutDownHeatmap_leavesTheTilesDirty() throws Exception {
+        mRssiHeatmap.putBeacon("a", 10, 10, -59);
+        mRssiHeatmap.shutdown();
+        try {
+            mRssiHeatmap.update();
+            fail("The rejection was not reported");
+        } catch (RuntimeException e) {
+            // expected
+        }
+        assertEquals(TILE_COUNT, mRssiHeatmap.getDirtyTileCount());
+    }
+}
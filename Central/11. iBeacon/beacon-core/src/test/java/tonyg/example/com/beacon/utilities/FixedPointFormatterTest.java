@@ -0,0 +1,131 @@
+package tonyg.example.com.beacon.utilities;
+
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Write the same text as String.format("%.1f") and friends, without allocating
+ */
+public class FixedPointFormatterTest {
+    private final char[] mBuffer = new char[FixedPointFormatter.MAX_LENGTH + 2];
+
+    private String format(double value, int decimals) {
+        mBuffer[0] = '<';
+        int end = FixedPointFormatter.appendFixedPoint(mBuffer, 1, FixedPointFormatter.toFixedPoint(value, decimals), decimals);
+        assertEquals('<', mBuffer[0]); // nothing written before the position
+        return new String(mBuffer, 1, end - 1);
+    }
+
+    private static String expected(double value, int decimals) {
+        String text = String.format(Locale.US, "%." + decimals + "f", value);
+        // fixed point has no negative zero
+        return text.matches("-0(\\.0*)?") ? text.substring(1) : text;
+    }
+
+    private void assertFormatsLikeString(double value, int decimals) {
+        assertEquals(value + " at " + decimals + " decimals", expected(value, decimals), format(value, decimals));
+    }
+
+    @Test
+    public void integersAndDecimals() throws Exception {
+        assertEquals("12.3", format(12.345, 1));
+        assertEquals("12", format(12.345, 0));
+        assertEquals("0.050", format(0.05, 3));
+        assertEquals("-7.25", format(-7.25, 2));
+        assertEquals("0.000001", format(0.000001, 6));
+    }
+
+    @Test
+    public void negatives() throws Exception {
+        double[] values = { -0.5, -1.04, -1.06, -12.345, -99.99, -1000.01 };
+        for (double value : values) {
+            for (int decimals = 0; decimals <= 3; decimals++) {
+                assertFormatsLikeString(value, decimals);
+            }
+        }
+    }
+
+    @Test
+    public void negativeZero_hasNoSign() throws Exception {
+        assertEquals("-0.0", String.format(Locale.US, "%.1f", -0.04));
+        assertEquals("0.0", format(-0.04, 1));
+        assertEquals("0.0", format(-0.0, 1));
+        assertEquals("0", format(-0.4, 0));
+        assertEquals(0, FixedPointFormatter.toFixedPoint(-0.04, 1));
+    }
+
+    @Test
+    public void halfWayValues_roundAwayFromZero() throws Exception {
+        // the shortest decimal is half-way, although the double is slightly below or above it
+        double[] values = { 0.05, 0.15, 0.25, 0.35, 0.45, 2.675, 1.005, 77.475, 902.45, 999.95, -0.15, -77.475, -1.005 };
+        for (double value : values) {
+            for (int decimals = 0; decimals <= 3; decimals++) {
+                assertFormatsLikeString(value, decimals);
+            }
+        }
+        assertEquals("0.2", format(0.15, 1));
+        assertEquals("2.68", format(2.675, 2));
+        assertEquals("902.5", format(902.45, 1));
+        assertEquals("-0.2", format(-0.15, 1));
+    }
+
+    @Test
+    public void carries_addADigit() throws Exception {
+        assertEquals("10.0", format(9.95, 1));
+        assertEquals("100.0", format(99.95, 1));
+        assertEquals("-10.0", format(-9.95, 1));
+        assertEquals("1000.00", format(999.995, 2));
+        assertEquals("1", format(0.5, 0));
+        double[] values = { 9.95, 99.95, 999.95, 9.995, 0.95, 9.5 };
+        for (double value : values) {
+            for (int decimals = 0; decimals <= 3; decimals++) {
+                assertFormatsLikeString(value, decimals);
+                assertFormatsLikeString(-value, decimals);
+            }
+        }
+    }
+
+    @Test
+    public void notFinite_likeString() throws Exception {
+        assertEquals(FixedPointFormatter.NOT_A_NUMBER, FixedPointFormatter.toFixedPoint(Double.NaN, 1));
+        assertEquals("NaN", format(Double.NaN, 1));
+        assertEquals("Infinity", format(Double.POSITIVE_INFINITY, 1));
+        assertEquals("-Infinity", format(Double.NEGATIVE_INFINITY, 2));
+        assertFormatsLikeString(Double.NaN, 1);
+        assertFormatsLikeString(Double.POSITIVE_INFINITY, 0);
+        assertFormatsLikeString(Double.NEGATIVE_INFINITY, 3);
+    }
+
+    @Test
+    public void outOfRange_isClamped() throws Exception {
+        assertEquals(Long.MAX_VALUE - 1, FixedPointFormatter.toFixedPoint(1e300, 0));
+        assertEquals(-(Long.MAX_VALUE - 1), FixedPointFormatter.toFixedPoint(-1e300, 0));
+        assertEquals(FixedPointFormatter.MAX_LENGTH, format(-1e300, 1).length());
+    }
+
+    @Test
+    public void randomValues_likeString() throws Exception {
+        Random random = new Random(42);
+        for (int trial = 0; trial < 100000; trial++) {
+            int decimals = random.nextInt(7);
+            double value = (trial % 2 == 0)
+                    ? random.nextDouble() * 2000 - 1000
+                    : (random.nextInt(2000001) - 1000000 + 0.5) / Math.pow(10, decimals); // half-way
+            assertFormatsLikeString(value, decimals);
+        }
+    }
+
+    @Test
+    public void appendInt() throws Exception {
+        int end = FixedPointFormatter.appendInt(mBuffer, 0, -59);
+        assertEquals("-59", new String(mBuffer, 0, end));
+        end = FixedPointFormatter.appendInt(mBuffer, 0, 0);
+        assertEquals("0", new String(mBuffer, 0, end));
+        end = FixedPointFormatter.appendInt(mBuffer, 0, Long.MAX_VALUE - 1);
+        assertEquals(String.valueOf(Long.MAX_VALUE - 1), new String(mBuffer, 0, end));
+    }
+}
@@ -0,0 +1,53 @@
+package tonyg.example.com.beacon.utilities;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import tonyg.example.com.beacon.ble.IBeacon;
+
+import static org.junit.Assert.*;
+
+/**
+ * Find the Central from iBeacons at known positions
+ */
+public class IBeaconLocatorTest {
+    private static final int TRANSMISSION_POWER = -59;
+
+    /** An iBeacon whose RSSI puts it at the true distance from the Central **/
+    private static IBeacon createIBeacon(int minor, double x, double y, double centralX, double centralY) {
+        IBeacon iBeacon = new IBeacon();
+        iBeacon.setMinor(minor);
+        iBeacon.setTransmissionPower(TRANSMISSION_POWER);
+        iBeacon.setLocation(x, y);
+        double distance = Math.hypot(x - centralX, y - centralY);
+        double rssi = TRANSMISSION_POWER - 10 * IBeacon.RADIO_PROPAGATION_CONSTANT * Math.log10(distance);
+        iBeacon.setRssi((int) Math.round(rssi));
+        return iBeacon;
+    }
+
+    private static void assertLocates(double[][] beaconPositions, double centralX, double centralY, double tolerance) throws Exception {
+        ArrayList<IBeacon> iBeacons = new ArrayList<IBeacon>();
+        for (int index = 0; index < beaconPositions.length; index++) {
+            iBeacons.add(createIBeacon(index, beaconPositions[index][0], beaconPositions[index][1], centralX, centralY));
+        }
+        double[] position = IBeaconLocator.trilaterate(iBeacons);
+        assertEquals(centralX, position[0], tolerance);
+        assertEquals(centralY, position[1], tolerance);
+    }
+
+    @Test
+    public void trilaterate_findsTheCentral() throws Exception {
+        // RSSI is whole dB, so the distances, and the position, are only approximate
+        assertLocates(new double[][] { { 0, 0 }, { 10, 0 }, { 0, 10 } }, 3, 4, 0.5);
+        assertLocates(new double[][] { { 10, 10 }, { 50, 30 }, { 35, 50 } }, 30, 30, 2);
+    }
+
+    @Test(expected = Exception.class)
+    public void trilaterate_needsThreeIBeacons() throws Exception {
+        ArrayList<IBeacon> iBeacons = new ArrayList<IBeacon>();
+        iBeacons.add(createIBeacon(0, 0, 0, 1, 1));
+        iBeacons.add(createIBeacon(1, 10, 0, 1, 1));
+        IBeaconLocator.trilaterate(iBeacons);
+    }
+}
@@ -0,0 +1,202 @@
+package tonyg.example.com.beacon.utilities;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Turn one list into another with removals, moves, insertions and changes, in dispatch order
+ */
+public class ListDiffTest {
+    /** ID and contents of a list item **/
+    private static final ListDiff.Callback<long[]> CALLBACK = new ListDiff.Callback<long[]>() {
+        @Override
+        public long getId(long[] item) {
+            return item[0];
+        }
+
+        @Override
+        public boolean areContentsTheSame(long[] oldItem, long[] newItem) {
+            return oldItem[1] == newItem[1];
+        }
+    };
+
+    /**
+     * Apply the updates to a copy of the old list, as a list view would
+     */
+    private static class ApplyingReceiver implements ListDiff.Receiver {
+        final List<long[]> mItems;
+        final List<long[]> mNewItems;
+        int mRemoved, mInserted, mMoved, mChanged;
+
+        ApplyingReceiver(List<long[]> oldItems, List<long[]> newItems) {
+            mItems = new ArrayList<long[]>(oldItems);
+            mNewItems = newItems;
+        }
+
+        @Override
+        public void onRemoved(int position) {
+            mItems.remove(position);
+            mRemoved++;
+        }
+
+        @Override
+        public void onInserted(int position) {
+            mItems.add(position, mNewItems.get(position));
+            mInserted++;
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            mItems.add(toPosition, mItems.remove(fromPosition));
+            mMoved++;
+        }
+
+        @Override
+        public void onChanged(int position) {
+            assertEquals("changed another item", mNewItems.get(position)[0], mItems.get(position)[0]);
+            mItems.set(position, mNewItems.get(position));
+            mChanged++;
+        }
+    }
+
+    private static List<long[]> list(long... ids) {
+        List<long[]> items = new ArrayList<long[]>();
+        for (long id : ids) {
+            items.add(new long[] { id, 0 });
+        }
+        return items;
+    }
+
+    /**
+     * Dispatch the diff and check that the old list became the new one
+     */
+    private static ApplyingReceiver apply(List<long[]> oldItems, List<long[]> newItems) {
+        ApplyingReceiver receiver = new ApplyingReceiver(oldItems, newItems);
+        ListDiff.calculate(oldItems, newItems, CALLBACK).dispatch(receiver);
+        assertEquals(newItems.size(), receiver.mItems.size());
+        for (int index = 0; index < newItems.size(); index++) {
+            assertArrayEquals(newItems.get(index), receiver.mItems.get(index));
+        }
+        return receiver;
+    }
+
+    @Test
+    public void sameList_hasNoUpdates() throws Exception {
+        assertEquals(0, ListDiff.calculate(list(1, 2, 3), list(1, 2, 3), CALLBACK).size());
+    }
+
+    @Test
+    public void emptyLists() throws Exception {
+        assertEquals(0, ListDiff.calculate(list(), list(), CALLBACK).size());
+
+        ApplyingReceiver receiver = apply(list(), list(1, 2, 3));
+        assertEquals(3, receiver.mInserted);
+        assertEquals(0, receiver.mRemoved + receiver.mMoved + receiver.mChanged);
+
+        receiver = apply(list(1, 2, 3), list());
+        assertEquals(3, receiver.mRemoved);
+        assertEquals(0, receiver.mInserted + receiver.mMoved + receiver.mChanged);
+    }
+
+    @Test
+    public void moves_keepTheItems() throws Exception {
+        ApplyingReceiver receiver = apply(list(1, 2, 3, 4), list(4, 1, 2, 3));
+        assertEquals(1, receiver.mMoved);
+        assertEquals(0, receiver.mRemoved + receiver.mInserted + receiver.mChanged);
+
+        receiver = apply(list(1, 2, 3, 4), list(4, 3, 2, 1));
+        assertEquals(0, receiver.mRemoved + receiver.mInserted + receiver.mChanged);
+
+        ListDiff diff = ListDiff.calculate(list(1, 2, 3), list(3, 1, 2), CALLBACK);
+        assertEquals(1, diff.size());
+        assertEquals(ListDiff.MOVE, diff.getType(0));
+        assertEquals(2, diff.getFromPosition(0));
+        assertEquals(0, diff.getToPosition(0));
+    }
+
+    @Test
+    public void removalsInsertionsAndMoves_together() throws Exception {
+        ApplyingReceiver receiver = apply(list(1, 2, 3, 4, 5), list(6, 5, 3, 7, 1));
+        assertEquals(2, receiver.mRemoved);
+        assertEquals(2, receiver.mInserted);
+    }
+
+    @Test
+    public void allChanged_onlyChanges() throws Exception {
+        List<long[]> oldItems = list(1, 2, 3);
+        List<long[]> newItems = list(1, 2, 3);
+        for (long[] item : newItems) {
+            item[1] = 1;
+        }
+        ApplyingReceiver receiver = apply(oldItems, newItems);
+        assertEquals(3, receiver.mChanged);
+        assertEquals(0, receiver.mRemoved + receiver.mInserted + receiver.mMoved);
+    }
+
+    @Test
+    public void allReplaced_removesThenInserts() throws Exception {
+        ListDiff diff = ListDiff.calculate(list(1, 2, 3), list(4, 5), CALLBACK);
+        assertEquals(5, diff.size());
+        for (int index = 0; index < 3; index++) {
+            assertEquals(ListDiff.REMOVE, diff.getType(index));
+        }
+        for (int index = 3; index < 5; index++) {
+            assertEquals(ListDiff.INSERT, diff.getType(index));
+        }
+        apply(list(1, 2, 3), list(4, 5));
+    }
+
+    @Test
+    public void duplicateIds_stillProduceTheNewList() throws Exception {
+        ApplyingReceiver receiver = apply(list(1, 1, 2), list(1, 2));
+        assertEquals(1, receiver.mRemoved);
+
+        receiver = apply(list(1, 2), list(1, 2, 1));
+        assertEquals(1, receiver.mInserted);
+
+        apply(list(1, 2, 1, 2), list(2, 2, 1));
+        apply(list(3, 3, 3), list(3));
+
+        // an inserted duplicate is not reported as changed
+        List<long[]> newItems = list(1, 1);
+        newItems.get(1)[1] = 1;
+        receiver = apply(list(1), newItems);
+        assertEquals(1, receiver.mInserted);
+        assertEquals(0, receiver.mChanged);
+    }
+
+    @Test
+    public void randomLists() throws Exception {
+        Random random = new Random(42);
+        for (int trial = 0; trial < 500; trial++) {
+            List<long[]> oldItems = new ArrayList<long[]>();
+            List<long[]> newItems = new ArrayList<long[]>();
+            int oldSize = random.nextInt(12);
+            int newSize = random.nextInt(12);
+            for (int index = 0; index < oldSize; index++) {
+                oldItems.add(new long[] { random.nextInt(10), random.nextInt(2) });
+            }
+            for (int index = 0; index < newSize; index++) {
+                newItems.add(new long[] { random.nextInt(10), random.nextInt(2) });
+            }
+            apply(oldItems, newItems);
+        }
+    }
+
+    @Test
+    public void manyUpdates_growTheOperations() throws Exception {
+        long[] ids = new long[100];
+        for (int index = 0; index < ids.length; index++) {
+            ids[index] = index;
+        }
+        ListDiff diff = ListDiff.calculate(list(), list(ids), CALLBACK);
+        assertEquals(100, diff.size());
+        assertEquals(ListDiff.INSERT, diff.getType(99));
+        assertEquals(99, diff.getToPosition(99));
+    }
+}
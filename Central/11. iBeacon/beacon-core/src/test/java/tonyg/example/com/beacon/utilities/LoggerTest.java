@@ -0,0 +1,69 @@
+package tonyg.example.com.beacon.utilities;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Check that disabled levels never reach the Sink and that templates are filled in
+ */
+public class LoggerTest implements Logger.Sink {
+    private final List<String> mMessages = new ArrayList<String>();
+
+    @Before
+    public void setUp() throws Exception {
+        Logger.configure(this, Logger.DEBUG);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Logger.configure(null, Logger.NONE);
+    }
+
+    @Override
+    public void println(int level, String tag, String message) {
+        mMessages.add(level + " " + tag + " " + message);
+    }
+
+    @Test
+    public void disabledLevel_isNotFormatted() throws Exception {
+        Object explodes = new Object() {
+            @Override
+            public String toString() {
+                throw new AssertionError("formatted a disabled message");
+            }
+        };
+        Logger.v("T", "{}", explodes);
+        assertFalse(Logger.isLoggable(Logger.VERBOSE));
+        assertTrue(mMessages.isEmpty());
+    }
+
+    @Test
+    public void placeholders_areFilledInOrder() throws Exception {
+        Logger.d("T", "Found {} beacons", 3);
+        Logger.d("T", "{} at {} dBm", "beacon", -59);
+        Logger.d("T", "GAP: {}", new byte[] { 0x02, 0x01, (byte) 0xAF });
+        Logger.e("T", "plain");
+        assertEquals("3 T Found 3 beacons", mMessages.get(0));
+        assertEquals("3 T beacon at -59 dBm", mMessages.get(1));
+        assertEquals("3 T GAP: 0201AF", mMessages.get(2));
+        assertEquals("6 T plain", mMessages.get(3));
+    }
+
+    @Test
+    public void missingPlaceholders_keepTheTemplate() throws Exception {
+        assertEquals("no slot", Logger.format("no slot", "x", null, 1));
+        assertEquals("a {} b", Logger.format("{} {} b", "a", null, 1));
+    }
+
+    @Test
+    public void noSink_disablesEverything() throws Exception {
+        Logger.configure(null, Logger.VERBOSE);
+        assertFalse(Logger.isLoggable(Logger.ERROR));
+    }
+}
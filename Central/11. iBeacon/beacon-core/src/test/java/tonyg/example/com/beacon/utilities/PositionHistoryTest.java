@@ -0,0 +1,116 @@
+package tonyg.example.com.beacon.utilities;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Keep the newest positions in order, and interpolate between them
+ */
+public class PositionHistoryTest {
+    private PositionHistory mHistory;
+    private final double[] mPosition = new double[2];
+
+    @Before
+    public void setUp() throws Exception {
+        mHistory = new PositionHistory(4);
+    }
+
+    @Test
+    public void append_replacesTheOldestOnceFull() throws Exception {
+        for (int index = 0; index < 6; index++) {
+            assertTrue(mHistory.append(index * 100, index, -index));
+        }
+        assertEquals(4, mHistory.size());
+        assertEquals(200, mHistory.getTimestamp(0));
+        assertEquals(2, mHistory.getX(0), 0);
+        assertEquals(500, mHistory.getTimestamp(3));
+        assertEquals(-5, mHistory.getY(3), 0);
+    }
+
+    @Test
+    public void append_ignoresOlderPositions() throws Exception {
+        mHistory.append(1000, 1, 1);
+        assertFalse(mHistory.append(999, 2, 2));
+        assertTrue(mHistory.append(1000, 3, 3));
+        assertEquals(2, mHistory.size());
+    }
+
+    @Test
+    public void getPositionAt_interpolates() throws Exception {
+        assertFalse(mHistory.getPositionAt(0, mPosition));
+        // wrap around the ring, so the search crosses its end
+        for (int index = 0; index < 7; index++) {
+            mHistory.append(index * 100, index * 10, 0);
+        }
+        assertTrue(mHistory.getPositionAt(425, mPosition));
+        assertEquals(42.5, mPosition[0], 1e-9);
+
+        assertTrue(mHistory.getPositionAt(0, mPosition));
+        assertEquals(30, mPosition[0], 0); // the oldest kept
+        assertTrue(mHistory.getPositionAt(10000, mPosition));
+        assertEquals(60, mPosition[0], 0);
+    }
+
+    @Test
+    public void getPositionAt_hitsEachStoredPositionExactly() throws Exception {
+        for (int index = 0; index < 6; index++) {
+            mHistory.append(index * 100, index, index * index);
+        }
+        for (int index = 0; index < mHistory.size(); index++) {
+            assertTrue(mHistory.getPositionAt(mHistory.getTimestamp(index), mPosition));
+            assertEquals(mHistory.getX(index), mPosition[0], 0);
+            assertEquals(mHistory.getY(index), mPosition[1], 0);
+        }
+        // y is interpolated along with x
+        assertTrue(mHistory.getPositionAt(350, mPosition));
+        assertEquals(3.5, mPosition[0], 1e-9);
+        assertEquals(12.5, mPosition[1], 1e-9);
+    }
+
+    @Test
+    public void getPositionAt_usesTheNewestOfEqualTimestamps() throws Exception {
+        mHistory.append(100, 0, 0);
+        mHistory.append(200, 1, 1);
+        mHistory.append(200, 5, 5);
+        mHistory.append(300, 7, 7);
+        assertTrue(mHistory.getPositionAt(250, mPosition));
+        assertEquals(6, mPosition[0], 1e-9);
+        assertTrue(mHistory.getPositionAt(150, mPosition));
+        assertEquals(0.5, mPosition[0], 1e-9);
+    }
+
+    @Test
+    public void singlePosition_isReturnedForEveryTime() throws Exception {
+        PositionHistory history = new PositionHistory(1);
+        history.append(100, 1, 2);
+        history.append(200, 3, 4);
+        assertEquals(1, history.size());
+        for (long timestamp : new long[] { Long.MIN_VALUE, 150, 200, Long.MAX_VALUE }) {
+            assertTrue(history.getPositionAt(timestamp, mPosition));
+            assertEquals(3, mPosition[0], 0);
+            assertEquals(4, mPosition[1], 0);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroCapacity_isRejected() throws Exception {
+        new PositionHistory(0);
+    }
+
+    @Test
+    public void clear_forgetsEverything() throws Exception {
+        mHistory.append(100, 1, 1);
+        mHistory.clear();
+        assertTrue(mHistory.isEmpty());
+        assertTrue(mHistory.append(50, 2, 2));
+        assertEquals(50, mHistory.getTimestamp(0));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void get_outOfRangeIsRejected() throws Exception {
+        mHistory.append(100, 1, 1);
+        mHistory.getX(1);
+    }
+}
@@ -0,0 +1,105 @@
+package tonyg.example.com.beacon.utilities;
+
+import org.junit.Test;
+
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * Build the same text as String.format from a parsed format String
+ */
+public class TextTemplateTest {
+    private static final int DECIMALS = 1;
+
+    /**
+     * Fill the template as the list adapter does
+     */
+    private static String build(TextTemplate template, double... arguments) {
+        char[] buffer = new char[template.getMaxLength(FixedPointFormatter.MAX_LENGTH)];
+        int position = 0;
+        for (int slot = 0; slot < template.getSlotCount(); slot++) {
+            position = template.appendLiteral(slot, buffer, position);
+            long argument = FixedPointFormatter.toFixedPoint(arguments[template.getArgumentIndex(slot)], DECIMALS);
+            position = FixedPointFormatter.appendFixedPoint(buffer, position, argument, DECIMALS);
+        }
+        position = template.appendLiteral(template.getSlotCount(), buffer, position);
+        return new String(buffer, 0, position);
+    }
+
+    /**
+     * Compare with String.format of the arguments as text at the same precision
+     */
+    private static void assertBuildsLikeString(String format, double... arguments) {
+        Object[] texts = new Object[arguments.length];
+        for (int index = 0; index < arguments.length; index++) {
+            texts[index] = String.format(Locale.US, "%." + DECIMALS + "f", arguments[index]);
+        }
+        assertEquals(String.format(Locale.US, format, texts), build(new TextTemplate(format), arguments));
+    }
+
+    @Test
+    public void slotsAndLiterals() throws Exception {
+        TextTemplate template = new TextTemplate("X: %1$s m, Y: %2$s m");
+        assertEquals(2, template.getSlotCount());
+        assertEquals(0, template.getArgumentIndex(0));
+        assertEquals(1, template.getArgumentIndex(1));
+        assertBuildsLikeString("X: %1$s m, Y: %2$s m", 1.25, -3.5);
+    }
+
+    @Test
+    public void implicitIndices() throws Exception {
+        assertBuildsLikeString("%s dBm", -59);
+        assertBuildsLikeString("%s, %s", 1.5, 2.5);
+        assertEquals("RSSI: 7.0", build(new TextTemplate("RSSI: %d"), 7)); // the adapter fills %d with fixed point too
+    }
+
+    @Test
+    public void reorderedArguments() throws Exception {
+        TextTemplate template = new TextTemplate("%2$s before %1$s");
+        assertEquals(1, template.getArgumentIndex(0));
+        assertEquals(0, template.getArgumentIndex(1));
+        assertBuildsLikeString("%2$s before %1$s", 1.0, 2.0);
+    }
+
+    @Test
+    public void explicitIndex_doesNotMoveTheImplicitOnes() throws Exception {
+        TextTemplate template = new TextTemplate("%2$s %s %s");
+        assertEquals(1, template.getArgumentIndex(0));
+        assertEquals(0, template.getArgumentIndex(1));
+        assertEquals(1, template.getArgumentIndex(2));
+        assertBuildsLikeString("%2$s %s %s", 1.0, 2.0);
+    }
+
+    @Test
+    public void percentSigns() throws Exception {
+        assertBuildsLikeString("%s%% battery", 87.5);
+        assertBuildsLikeString("100%%");
+        assertEquals(0, new TextTemplate("100%%").getSlotCount());
+    }
+
+    @Test
+    public void noSlots() throws Exception {
+        TextTemplate template = new TextTemplate("");
+        assertEquals(0, template.getSlotCount());
+        assertEquals("", build(template));
+        assertEquals(0, template.getMaxLength(FixedPointFormatter.MAX_LENGTH));
+    }
+
+    @Test
+    public void maxLength_fitsTheLongestArguments() throws Exception {
+        TextTemplate template = new TextTemplate("X: %1$s m, Y: %2$s m");
+        assertEquals("X:  m, Y:  m".length() + 2 * FixedPointFormatter.MAX_LENGTH, template.getMaxLength(FixedPointFormatter.MAX_LENGTH));
+        build(template, -1e300, Double.NEGATIVE_INFINITY); // does not overflow the buffer
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unsupportedConversion_throws() throws Exception {
+        new TextTemplate("%.1f m");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroArgumentIndex_throws() throws Exception {
+        new TextTemplate("%0$s");
+    }
+}
@@ -0,0 +1,120 @@
+package tonyg.example.com.beacon.utilities;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Expire timers on the right tick, across every level of the wheel
+ */
+public class TimingWheelTest {
+    private static final long TICK_NANOS = 10;
+
+    private TimingWheel<Integer> mWheel;
+    private final List<Integer> mExpired = new ArrayList<Integer>();
+    private final TimingWheel.Listener<Integer> mListener = new TimingWheel.Listener<Integer>() {
+        @Override
+        public void onExpired(Integer item) {
+            mExpired.add(item);
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        mWheel = new TimingWheel<Integer>(TICK_NANOS, 1000);
+        mExpired.clear();
+    }
+
+    @Test
+    public void timer_expiresOnTheTickAfterItsDeadline() throws Exception {
+        TimingWheel.Timer<Integer> timer = mWheel.newTimer(1);
+        mWheel.schedule(timer, 1000 + 45); // rounded up to tick 5
+        assertEquals(1, mWheel.size());
+
+        assertEquals(0, mWheel.advance(1000 + 49, mListener));
+        assertTrue(timer.isScheduled());
+        assertEquals(1, mWheel.advance(1000 + 50, mListener));
+        assertEquals(1, (int) mExpired.get(0));
+        assertFalse(timer.isScheduled());
+        assertEquals(0, mWheel.size());
+    }
+
+    @Test
+    public void reschedule_pushesTheDeadlineBack() throws Exception {
+        TimingWheel.Timer<Integer> timer = mWheel.newTimer(1);
+        for (long now = 1000; now < 1000 + 10000; now += TICK_NANOS) {
+            mWheel.advance(now, mListener);
+            mWheel.schedule(timer, now + 30 * TICK_NANOS);
+        }
+        assertTrue(mExpired.isEmpty());
+        assertEquals(1, mWheel.size());
+
+        mWheel.cancel(timer);
+        mWheel.advance(1000 + 100000, mListener);
+        assertTrue(mExpired.isEmpty());
+    }
+
+    @Test
+    public void deadlines_onEveryLevelExpireOnTime() throws Exception {
+        Random random = new Random(4);
+        int count = 2000;
+        long[] deadlineTicks = new long[count];
+        for (int index = 0; index < count; index++) {
+            // from the first wheel to the third
+            deadlineTicks[index] = 1 + (long) (random.nextDouble() * random.nextDouble() * 300000);
+            mWheel.schedule(mWheel.newTimer(index), 1000 + deadlineTicks[index] * TICK_NANOS);
+        }
+
+        long tick = 0;
+        while (mWheel.size() > 0) {
+            tick += 1 + random.nextInt(50);
+            mExpired.clear();
+            mWheel.advance(1000 + tick * TICK_NANOS, mListener);
+            for (int index : mExpired) {
+                assertTrue("expired early", deadlineTicks[index] <= tick);
+                assertTrue("expired late", deadlineTicks[index] > tick - 51);
+                deadlineTicks[index] = -1;
+            }
+        }
+        for (long deadlineTick : deadlineTicks) {
+            assertEquals(-1, deadlineTick);
+        }
+    }
+
+    @Test
+    public void listener_canRescheduleExpiredTimers() throws Exception {
+        final TimingWheel.Timer<Integer> timer = mWheel.newTimer(1);
+        mWheel.schedule(timer, 1000 + TICK_NANOS);
+        final int[] expiredCount = { 0 };
+        TimingWheel.Listener<Integer> repeating = new TimingWheel.Listener<Integer>() {
+            @Override
+            public void onExpired(Integer item) {
+                expiredCount[0]++;
+                // in the past: runs on the next tick, not this one
+                mWheel.schedule(timer, 0);
+            }
+        };
+        assertEquals(10, mWheel.advance(1000 + 10 * TICK_NANOS, repeating));
+        assertEquals(10, expiredCount[0]);
+        assertTrue(timer.isScheduled());
+    }
+
+    @Test
+    public void clear_cancelsEveryTimer() throws Exception {
+        TimingWheel.Timer<Integer> near = mWheel.newTimer(1);
+        TimingWheel.Timer<Integer> far = mWheel.newTimer(2);
+        mWheel.schedule(near, 1000 + 5 * TICK_NANOS);
+        mWheel.schedule(far, 1000 + 50000 * TICK_NANOS);
+        mWheel.clear();
+        assertEquals(0, mWheel.size());
+        assertFalse(near.isScheduled());
+        assertFalse(far.isScheduled());
+        mWheel.advance(1000 + 100000 * TICK_NANOS, mListener);
+        assertTrue(mExpired.isEmpty());
+    }
+}
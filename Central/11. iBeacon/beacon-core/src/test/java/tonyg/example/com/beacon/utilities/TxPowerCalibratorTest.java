@@ -0,0 +1,44 @@
+package tonyg.example.com.beacon.utilities;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Measure the RSSI at 1 meter with outliers trimmed
+ */
+public class TxPowerCalibratorTest {
+    private TxPowerCalibrator mCalibrator;
+
+    @Before
+    public void setUp() throws Exception {
+        mCalibrator = new TxPowerCalibrator(20, 0.1);
+    }
+
+    @Test
+    public void outliers_areTrimmed() throws Exception {
+        for (int sample = 0; sample < 18; sample++) {
+            mCalibrator.addSample(-60);
+        }
+        mCalibrator.addSample(-30);
+        mCalibrator.addSample(-99);
+        assertTrue(mCalibrator.isFull());
+        assertEquals(-60, mCalibrator.getMeasuredPower());
+        assertEquals(-60, mCalibrator.getMedian());
+    }
+
+    @Test
+    public void unknownRssi_isIgnored() throws Exception {
+        assertFalse(mCalibrator.addSample(0));
+        assertEquals(0, mCalibrator.getSampleCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void tooFewSamples_cannotBeMeasured() throws Exception {
+        for (int sample = 0; sample < TxPowerCalibrator.MIN_SAMPLES - 1; sample++) {
+            mCalibrator.addSample(-60);
+        }
+        mCalibrator.getMeasuredPower();
+    }
+}
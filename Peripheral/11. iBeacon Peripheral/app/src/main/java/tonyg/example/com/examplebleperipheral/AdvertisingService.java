@@ -0,0 +1,299 @@
+package tonyg.example.com.examplebleperipheral;
+
+import android.app.Notification;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.le.AdvertiseCallback;
+import android.bluetooth.le.AdvertiseSettings;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Binder;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.v4.app.NotificationCompat;
+import android.util.Log;
+
+import tonyg.example.com.examplebleperipheral.ble.AdvertisingSupervisor;
+import tonyg.example.com.examplebleperipheral.ble.IBeacon;
+import tonyg.example.com.examplebleperipheral.ble.TelemetryAdvertiser;
+import tonyg.example.com.examplebleperipheral.utilities.AdvertisingSettingsStore;
+import tonyg.example.com.examplebleperipheral.utilities.Clock;
+
+
+/**
+ * Keep the iBeacon advertising while the Activity is paused or closed.
+ *
+ * An AdvertisingSupervisor restarts the advertisement with backoff when it fails, and when
+ * Bluetooth turns back on.  The Activity binds to this service to read the supervisor's metrics.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class AdvertisingService extends Service {
+    /** Constants **/
+    private static final String TAG = AdvertisingService.class.getSimpleName();
+    private static final int NOTIFICATION_ID = 1;
+
+    /**
+     * Gives the bound Activity access to the service
+     */
+    public class LocalBinder extends Binder {
+        public AdvertisingService getService() {
+            return AdvertisingService.this;
+        }
+    }
+
+    private final IBinder mBinder = new LocalBinder();
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    /** Bluetooth Stuff **/
+    private IBeacon mIBeacon;
+    private TelemetryAdvertiser mTelemetryAdvertiser;
+    private AdvertisingSupervisor mSupervisor;
+    private AdvertisingSupervisor.Listener mListener;
+    private AdvertisingSettingsStore mSettings;
+
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        mSettings = new AdvertisingSettingsStore(this);
+        mSupervisor = new AdvertisingSupervisor(mAdvertiser, mScheduler, UPTIME_CLOCK);
+        mSupervisor.setListener(mSupervisorListener);
+
+        // restart advertising when the Bluetooth radio turns back on
+        registerReceiver(mBleBroadcastReceiver, new IntentFilter(BluetoothAdapter.ACTION_STATE_CHANGED));
+
+        Intent activityIntent = new Intent(this, MainActivity.class);
+        Notification notification = new NotificationCompat.Builder(this)
+                .setSmallIcon(R.mipmap.ic_launcher)
+                .setContentTitle(getString(R.string.app_name))
+                .setContentText(getString(R.string.advertising))
+                .setContentIntent(PendingIntent.getActivity(this, 0, activityIntent, 0))
+                .build();
+        startForeground(NOTIFICATION_ID, notification);
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        mSupervisor.start();
+        return START_STICKY;
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return mBinder;
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        unregisterReceiver(mBleBroadcastReceiver);
+        mSupervisor.stop();
+        Log.v(TAG, "Advertising stopped: " + mSupervisor.getSummary());
+        stopForeground(true);
+    }
+
+    /**
+     * Get the supervisor, for its state and metrics
+     *
+     * @return the supervisor
+     */
+    public AdvertisingSupervisor getSupervisor() {
+        return mSupervisor;
+    }
+
+    /**
+     * Get the iBeacon being advertised
+     *
+     * @return the iBeacon, or <b>null</b> if Bluetooth has not started
+     */
+    public IBeacon getIBeacon() {
+        return mIBeacon;
+    }
+
+    /**
+     * Restart advertising with the saved TX power level, advertising mode, and measured power
+     */
+    public void reloadSettings() {
+        if (mIBeacon != null) {
+            mSettings.applyTo(mIBeacon);
+        }
+        mSupervisor.stop();
+        mSupervisor.start();
+    }
+
+    /**
+     * Be notified when advertising starts and stops
+     *
+     * @param listener the listener, or <b>null</b>
+     */
+    public void setListener(AdvertisingSupervisor.Listener listener) {
+        mListener = listener;
+    }
+
+
+    /**
+     * Start and stop the iBeacon and its telemetry for the supervisor
+     */
+    private final AdvertisingSupervisor.Advertiser mAdvertiser = new AdvertisingSupervisor.Advertiser() {
+        @Override
+        public void start() {
+            if (mIBeacon == null) {
+                try {
+                    mIBeacon = new IBeacon(AdvertisingService.this);
+                    mSettings.applyTo(mIBeacon);
+                    mTelemetryAdvertiser = new TelemetryAdvertiser(AdvertisingService.this, TelemetryAdvertiser.DEFAULT_UPDATE_INTERVAL_MILLIS);
+                } catch (Exception e) {
+                    Log.e(TAG, e.getMessage());
+                    mIBeacon = null;
+                    mSupervisor.onStartFailure(AdvertisingSupervisor.ERROR_FEATURE_UNSUPPORTED);
+                    return;
+                }
+            }
+            mIBeacon.updateEphemeralId(System.currentTimeMillis());
+            mIBeacon.startAdvertising(mAdvertiseCallback, null);
+        }
+
+        @Override
+        public void stop() {
+            mHandler.removeCallbacks(mRotateIdentifierTask);
+            if (mIBeacon != null) {
+                mIBeacon.stopAdvertising();
+            }
+            if (mTelemetryAdvertiser != null) {
+                mTelemetryAdvertiser.stop();
+            }
+        }
+    };
+
+    private final AdvertisingSupervisor.Scheduler mScheduler = new AdvertisingSupervisor.Scheduler() {
+        @Override
+        public void schedule(Runnable task, long delayMillis) {
+            mHandler.postDelayed(task, delayMillis);
+        }
+
+        @Override
+        public void cancel(Runnable task) {
+            mHandler.removeCallbacks(task);
+        }
+    };
+
+    private static final Clock UPTIME_CLOCK = new Clock() {
+        @Override
+        public long uptimeMillis() {
+            return SystemClock.elapsedRealtime();
+        }
+    };
+
+    private final AdvertisingSupervisor.Listener mSupervisorListener = new AdvertisingSupervisor.Listener() {
+        @Override
+        public void onStateChanged(int state) {
+            if (state == AdvertisingSupervisor.STATE_ADVERTISING) {
+                // telemetry has its own advertising set, linked to the iBeacon's current identity
+                mTelemetryAdvertiser.start(mIBeacon);
+                scheduleIdentifierRotation();
+            }
+            Log.v(TAG, "Advertising state " + state + ", " + mSupervisor.getSummary());
+            if (mListener != null) {
+                mListener.onStateChanged(state);
+            }
+        }
+    };
+
+
+    /**
+     * Restart the advertisement when the rotating identifier is due to change, since the
+     * advertise data cannot be updated in place
+     */
+    private void scheduleIdentifierRotation() {
+        mHandler.removeCallbacks(mRotateIdentifierTask);
+        long nextRotationTime = mIBeacon.getNextRotationTime();
+        if (nextRotationTime != Long.MAX_VALUE) {
+            mHandler.postDelayed(mRotateIdentifierTask, Math.max(0, nextRotationTime - System.currentTimeMillis()));
+        }
+    }
+
+    private final Runnable mRotateIdentifierTask = new Runnable() {
+        @Override
+        public void run() {
+            Log.v(TAG, "Rotating identifier");
+            mSupervisor.stop();
+            mSupervisor.start();
+        }
+    };
+
+
+    /**
+     * Report the outcome of each start to the supervisor, on the main thread
+     */
+    private final AdvertiseCallback mAdvertiseCallback = new AdvertiseCallback() {
+        @Override
+        public void onStartSuccess(AdvertiseSettings settingsInEffect) {
+            super.onStartSuccess(settingsInEffect);
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    mSupervisor.onStartSuccess();
+                }
+            });
+        }
+
+        @Override
+        public void onStartFailure(final int errorCode) {
+            super.onStartFailure(errorCode);
+            switch (errorCode) {
+                case AdvertiseCallback.ADVERTISE_FAILED_ALREADY_STARTED:
+                    Log.e(TAG, "Failed to start advertising as the advertising is already started.");
+                    break;
+                case AdvertiseCallback.ADVERTISE_FAILED_DATA_TOO_LARGE:
+                    Log.e(TAG, "Failed to start advertising as the advertise data to be broadcasted is larger than 31 bytes.");
+                    break;
+                case AdvertiseCallback.ADVERTISE_FAILED_FEATURE_UNSUPPORTED:
+                    Log.e(TAG, "This feature is not supported on this platform.");
+                    break;
+                case AdvertiseCallback.ADVERTISE_FAILED_INTERNAL_ERROR:
+                    Log.e(TAG, "Operation failed due to an internal error.");
+                    break;
+                case AdvertiseCallback.ADVERTISE_FAILED_TOO_MANY_ADVERTISERS:
+                    Log.e(TAG, "Failed to start advertising because no advertising instance is available.");
+                    break;
+                default:
+                    Log.e(TAG, "unknown problem");
+            }
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    mSupervisor.onStartFailure(errorCode);
+                }
+            });
+        }
+    };
+
+
+    /**
+     * When the Bluetooth radio turns off, the advertisement is lost.  Start again when it turns on.
+     */
+    private final BroadcastReceiver mBleBroadcastReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            final int state = intent.getIntExtra(BluetoothAdapter.EXTRA_STATE, BluetoothAdapter.ERROR);
+            switch (state) {
+                case BluetoothAdapter.STATE_OFF:
+                    Log.v(TAG, "Bluetooth turned off");
+                    mSupervisor.stop();
+                    mIBeacon = null; // the advertiser must be fetched again once Bluetooth is on
+                    break;
+                case BluetoothAdapter.STATE_ON:
+                    Log.v(TAG, "Bluetooth turned on");
+                    mSupervisor.start();
+                    break;
+            }
+        }
+    };
+}
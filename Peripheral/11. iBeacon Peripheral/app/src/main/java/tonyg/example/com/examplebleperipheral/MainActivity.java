@@ -2,20 +2,32 @@ package tonyg.example.com.examplebleperipheral;
 
 import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
-import android.bluetooth.le.AdvertiseCallback;
-import android.bluetooth.le.AdvertiseSettings;
 import android.content.BroadcastReceiver;
+import android.content.ComponentName;
 import android.content.Context;
+import android.content.DialogInterface;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.content.ServiceConnection;
 import android.os.Bundle;
+import android.os.IBinder;
+import android.support.v7.app.AlertDialog;
 import android.support.v7.app.AppCompatActivity;
 import android.support.v7.widget.Toolbar;
 import android.util.Log;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.view.View;
+import android.widget.AdapterView;
+import android.widget.EditText;
+import android.widget.Spinner;
 import android.widget.Switch;
 import android.widget.Toast;
 
+import tonyg.example.com.examplebleperipheral.ble.AdvertisingSupervisor;
 import tonyg.example.com.examplebleperipheral.ble.IBeacon;
+import tonyg.example.com.examplebleperipheral.ble.MultiBeaconAdvertiser;
+import tonyg.example.com.examplebleperipheral.utilities.AdvertisingSettingsStore;
 
 
 /**
@@ -29,8 +41,16 @@ public class MainActivity extends AppCompatActivity {
     private static final String TAG = MainActivity.class.getSimpleName();
     private static final int REQUEST_ENABLE_BT = 1;
 
+    /** Fleet emulation, for load testing Centrals **/
+    private static final int FLEET_SIZE = 20;
+    private static final long FLEET_INTERVAL_MILLIS = 1000;
+    private static final int FLEET_ADVERTISING_SETS = 4;
+
     /** Bluetooth Stuff **/
     private IBeacon mIBeacon;
+    private MultiBeaconAdvertiser mFleetAdvertiser;
+    private AdvertisingService mAdvertisingService; // advertises while the Activity is paused
+    private boolean mServiceBound = false;
 
 
     /** UI Stuff **/
@@ -56,8 +76,19 @@ public class MainActivity extends AppCompatActivity {
     @Override
     public void onPause() {
         super.onPause();
-        // stop advertising when the activity pauses
-        mIBeacon.stopAdvertising();
+        // the AdvertisingService keeps advertising the iBeacon after the activity pauses
+        if (mFleetAdvertiser != null) {
+            stopEmulatingFleet();
+            startAdvertising();
+        }
+        if (mAdvertisingService != null) {
+            mAdvertisingService.setListener(null);
+            mAdvertisingService = null;
+        }
+        if (mServiceBound) {
+            unbindService(mServiceConnection);
+            mServiceBound = false;
+        }
         mAdvertisingSwitch.setChecked(false);
     }
 
@@ -74,6 +105,55 @@ public class MainActivity extends AppCompatActivity {
     }
 
 
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.menu_main, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onPrepareOptionsMenu(Menu menu) {
+        menu.findItem(R.id.action_emulate_fleet).setChecked(mFleetAdvertiser != null);
+        menu.findItem(R.id.action_rotate_identifier).setChecked(new AdvertisingSettingsStore(this).isRotatingIdentifier());
+        return super.onPrepareOptionsMenu(menu);
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        switch (item.getItemId()) {
+            case R.id.action_rotate_identifier:
+                if (!item.isChecked() && !AdvertisingSettingsStore.hasEphemeralIdSecret()) {
+                    Toast.makeText(this, R.string.no_ephemeral_id_secret, Toast.LENGTH_LONG).show();
+                    return true;
+                }
+                AdvertisingSettingsStore settings = new AdvertisingSettingsStore(this);
+                settings.setRotatingIdentifier(!item.isChecked());
+                item.setChecked(settings.isRotatingIdentifier());
+                applyAdvertisingSettings();
+                return true;
+            case R.id.action_calibrate:
+                showCalibrationDialog();
+                return true;
+            case R.id.action_stop_advertising:
+                stopEmulatingFleet();
+                stopAdvertising();
+                return true;
+            case R.id.action_emulate_fleet:
+                if (item.isChecked()) {
+                    stopEmulatingFleet();
+                    startAdvertising();
+                } else {
+                    stopAdvertising();
+                    startEmulatingFleet();
+                }
+                item.setChecked(mFleetAdvertiser != null);
+                return true;
+            default:
+                return super.onOptionsItemSelected(item);
+        }
+    }
+
+
     /**
      * Load UI components
      */
@@ -108,15 +188,130 @@ public class MainActivity extends AppCompatActivity {
         } else {
             startAdvertising();
         }
+        if (!mServiceBound) {
+            mServiceBound = bindService(new Intent(this, AdvertisingService.class), mServiceConnection, BIND_AUTO_CREATE);
+        }
 
     }
 
     /**
-     * Start advertising Peripheral
+     * Start advertising Peripheral.  The AdvertisingService keeps it advertising until stopAdvertising()
      */
     public void startAdvertising() {
         Log.v(TAG, "starting advertising...");
-        mIBeacon.startAdvertising(mAdvertiseCallback);
+        startService(new Intent(this, AdvertisingService.class));
+    }
+
+    /**
+     * Stop advertising the iBeacon and its telemetry
+     */
+    public void stopAdvertising() {
+        if (mAdvertisingService != null) {
+            mAdvertisingService.getSupervisor().stop();
+        }
+        stopService(new Intent(this, AdvertisingService.class));
+    }
+
+
+
+    /**
+     * Calibration mode: choose the TX power level and advertising mode, and enter the RSSI
+     * that a Central measured at 1 meter.  The measured power is advertised as the iBeacon's TX Power.
+     */
+    public void showCalibrationDialog() {
+        final AdvertisingSettingsStore settings = new AdvertisingSettingsStore(this);
+        View dialogView = getLayoutInflater().inflate(R.layout.dialog_calibration, null);
+        final Spinner transmissionPowerLevelSpinner = (Spinner) dialogView.findViewById(R.id.tx_power_level);
+        final Spinner advertisingModeSpinner = (Spinner) dialogView.findViewById(R.id.advertising_mode);
+        final EditText measuredPowerText = (EditText) dialogView.findViewById(R.id.measured_power);
+
+        transmissionPowerLevelSpinner.setSelection(settings.getTransmissionPowerLevel());
+        advertisingModeSpinner.setSelection(settings.getAdvertisingMode());
+        // show the saved measurement for whichever level is chosen
+        transmissionPowerLevelSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                measuredPowerText.setText(String.valueOf(settings.getMeasuredPower(position)));
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
+
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.calibration_title)
+                .setView(dialogView)
+                .setPositiveButton(R.string.calibration_apply, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        int transmissionPowerLevel = transmissionPowerLevelSpinner.getSelectedItemPosition();
+                        int measuredPower;
+                        try {
+                            measuredPower = Integer.parseInt(measuredPowerText.getText().toString().trim());
+                        } catch (NumberFormatException e) {
+                            measuredPower = settings.getMeasuredPower(transmissionPowerLevel);
+                        }
+                        if (measuredPower < -127 || measuredPower > 0) {
+                            Toast.makeText(MainActivity.this, "Measured power must be between -127 and 0 dBm", Toast.LENGTH_SHORT).show();
+                            return;
+                        }
+                        settings.save(advertisingModeSpinner.getSelectedItemPosition(), transmissionPowerLevel, measuredPower);
+                        applyAdvertisingSettings();
+                    }
+                })
+                .setNegativeButton(R.string.calibration_cancel, null)
+                .show();
+    }
+
+    /**
+     * Restart advertising with the saved calibration
+     */
+    private void applyAdvertisingSettings() {
+        stopEmulatingFleet();
+        if (mAdvertisingService != null) {
+            mAdvertisingService.reloadSettings();
+        } else {
+            startAdvertising();
+        }
+    }
+
+
+    /**
+     * Advertise many iBeacons at once, with consecutive Minor numbers
+     */
+    public void startEmulatingFleet() {
+        try {
+            mFleetAdvertiser = new MultiBeaconAdvertiser(this,
+                    MultiBeaconAdvertiser.createFleet(mIBeacon.getPayload(), FLEET_SIZE),
+                    FLEET_INTERVAL_MILLIS, FLEET_ADVERTISING_SETS);
+        } catch (Exception e) {
+            Toast.makeText(this, "Could not emulate fleet", Toast.LENGTH_SHORT).show();
+            Log.e(TAG, e.getMessage());
+            mFleetAdvertiser = null;
+            return;
+        }
+        mFleetAdvertiser.setListener(new MultiBeaconAdvertiser.Listener() {
+            @Override
+            public void onAdvertisingFailed(int errorCode) {
+                Toast.makeText(MainActivity.this, "Could not emulate fleet", Toast.LENGTH_SHORT).show();
+                stopEmulatingFleet();
+            }
+        });
+        Log.v(TAG, "emulating " + FLEET_SIZE + " iBeacons...");
+        mFleetAdvertiser.startAdvertising();
+        mAdvertisingSwitch.setChecked(true);
+    }
+
+    /**
+     * Stop advertising the emulated iBeacons
+     */
+    public void stopEmulatingFleet() {
+        if (mFleetAdvertiser != null) {
+            mFleetAdvertiser.stopAdvertising();
+            mFleetAdvertiser = null;
+            mAdvertisingSwitch.setChecked(false);
+        }
     }
 
 
@@ -152,36 +347,31 @@ public class MainActivity extends AppCompatActivity {
 
 
 
-    public AdvertiseCallback mAdvertiseCallback = new AdvertiseCallback() {
+    /**
+     * Show the AdvertisingService's state while the Activity is bound to it
+     */
+    private final ServiceConnection mServiceConnection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder service) {
+            mAdvertisingService = ((AdvertisingService.LocalBinder) service).getService();
+            mAdvertisingService.setListener(mSupervisorListener);
+            mSupervisorListener.onStateChanged(mAdvertisingService.getSupervisor().getState());
+        }
 
         @Override
-        public void onStartSuccess(AdvertiseSettings settingsInEffect) {
-            super.onStartSuccess(settingsInEffect);
-            mAdvertisingSwitch.setChecked(true);
+        public void onServiceDisconnected(ComponentName name) {
+            mAdvertisingService = null;
         }
+    };
 
+    private final AdvertisingSupervisor.Listener mSupervisorListener = new AdvertisingSupervisor.Listener() {
         @Override
-        public void onStartFailure(int errorCode) {
-            super.onStartFailure(errorCode);
-            mAdvertisingSwitch.setChecked(false);
-            switch (errorCode) {
-                case AdvertiseCallback.ADVERTISE_FAILED_ALREADY_STARTED:
-                    Log.e(TAG, "Failed to start advertising as the advertising is already started.");
-                    break;
-                case AdvertiseCallback.ADVERTISE_FAILED_DATA_TOO_LARGE:
-                    Log.e(TAG, "Failed to start advertising as the advertise data to be broadcasted is larger than 31 bytes.");
-                    break;
-                case AdvertiseCallback.ADVERTISE_FAILED_FEATURE_UNSUPPORTED:
-                    Log.e(TAG, "This feature is not supported on this platform.");
-                    break;
-                case AdvertiseCallback.ADVERTISE_FAILED_INTERNAL_ERROR:
-                    Log.e(TAG, "Operation failed due to an internal error.");
-                    break;
-                case AdvertiseCallback.ADVERTISE_FAILED_TOO_MANY_ADVERTISERS:
-                    Log.e(TAG, "Failed to start advertising because no advertising instance is available.");
-                    break;
-                default:
-                    Log.e(TAG, "unknown problem");
+        public void onStateChanged(int state) {
+            if (mFleetAdvertiser == null) {
+                mAdvertisingSwitch.setChecked(state == AdvertisingSupervisor.STATE_ADVERTISING);
+            }
+            if (state == AdvertisingSupervisor.STATE_FAILED) {
+                Toast.makeText(MainActivity.this, "Could not advertise", Toast.LENGTH_SHORT).show();
             }
         }
     };
@@ -0,0 +1,182 @@
+package tonyg.example.com.examplebleperipheral.ble;
+
+import tonyg.example.com.examplebleperipheral.utilities.Clock;
+
+
+/**
+ * Plan which iBeacon identity each advertising set broadcasts, so that one device can
+ * emulate more iBeacons than the Bluetooth controller can advertise at once.
+ *
+ * The identities are dealt out round-robin to the advertising sets: set s broadcasts
+ * identities s, s + sets, s + 2 * sets, and so on, each for one dwell time before moving on
+ * to the next.  The dwell time is chosen so that every identity is broadcast at least once
+ * per target interval, unless that would make the dwell shorter than the minimum dwell.
+ *
+ * The sets switch identities at staggered times, so that the controller never has to
+ * restart every set at once.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class AdvertisingRotationPlanner {
+    /** Constants **/
+    public static final long DEFAULT_MINIMUM_DWELL_MILLIS = 250; // long enough for a scanner to catch several packets
+    public static final long NEVER = Long.MAX_VALUE;
+
+    private final Clock mClock;
+    private final int mIdentityCount;
+    private final int mSlotCount;
+    private final int mIdentitiesPerSlot;
+    private final long mDwellMillis;
+    private final long mTargetIntervalMillis;
+    private final long mMinimumDwellMillis;
+    private final long[] mSlotOffsets; // how far ahead each slot's rotation runs
+    private long mStartTime;
+
+
+    /**
+     * Plan a rotation
+     *
+     * @param identityCount number of identities to emulate
+     * @param targetIntervalMillis how often each identity should be broadcast
+     * @param maxAdvertisingSets number of advertising sets the controller supports
+     * @param minimumDwellMillis shortest time an identity may be broadcast before switching
+     * @param clock the time source
+     */
+    public AdvertisingRotationPlanner(int identityCount, long targetIntervalMillis, int maxAdvertisingSets,
+                                      long minimumDwellMillis, Clock clock) {
+        if (identityCount < 1) {
+            throw new IllegalArgumentException("At least one identity is required");
+        }
+        if (maxAdvertisingSets < 1) {
+            throw new IllegalArgumentException("At least one advertising set is required");
+        }
+        if (targetIntervalMillis < 1 || minimumDwellMillis < 1) {
+            throw new IllegalArgumentException("Intervals must be positive");
+        }
+
+        mClock = clock;
+        mIdentityCount = identityCount;
+        mTargetIntervalMillis = targetIntervalMillis;
+        mMinimumDwellMillis = minimumDwellMillis;
+        mSlotCount = Math.min(identityCount, maxAdvertisingSets);
+        mIdentitiesPerSlot = (identityCount + mSlotCount - 1) / mSlotCount;
+        mDwellMillis = Math.max(minimumDwellMillis, targetIntervalMillis / mIdentitiesPerSlot);
+
+        mSlotOffsets = new long[mSlotCount];
+        for (int slot = 0; slot < mSlotCount; slot++) {
+            mSlotOffsets[slot] = slot * mDwellMillis / mSlotCount;
+        }
+        mStartTime = clock.uptimeMillis();
+    }
+
+    /**
+     * Restart the rotation from the first identity of each slot
+     */
+    public void start() {
+        mStartTime = mClock.uptimeMillis();
+    }
+
+    public int getIdentityCount() { return mIdentityCount; }
+    public int getSlotCount() { return mSlotCount; }
+    public int getIdentitiesPerSlot() { return mIdentitiesPerSlot; }
+    public long getDwellMillis() { return mDwellMillis; }
+    public long getStartTime() { return mStartTime; }
+
+    /**
+     * Plan the same rotation with fewer advertising sets, after a set could not start because the
+     * controller ran out of them.  Only the sets before the failed one are kept, so each re-plan
+     * has fewer sets than the last, and a rotation can only be re-planned until no set is left.
+     *
+     * @param failedSlot the slot that could not start
+     * @return the new plan, or <b>null</b> if the first slot failed and no set can advertise
+     */
+    public AdvertisingRotationPlanner withoutSlot(int failedSlot) {
+        if (failedSlot < 0 || failedSlot >= mSlotCount) {
+            throw new IllegalArgumentException("No slot " + failedSlot);
+        }
+        if (failedSlot == 0) {
+            return null;
+        }
+        return new AdvertisingRotationPlanner(mIdentityCount, mTargetIntervalMillis, failedSlot, mMinimumDwellMillis, mClock);
+    }
+
+    /**
+     * Longest time between two broadcasts of the same identity
+     *
+     * @return the interval in milliseconds
+     */
+    public long getEffectiveIntervalMillis() {
+        return mDwellMillis * mIdentitiesPerSlot;
+    }
+
+    /**
+     * Test if every identity is broadcast at least once per target interval
+     *
+     * @return <b>false</b> if the minimum dwell or the number of advertising sets makes the rotation slower
+     */
+    public boolean isTargetIntervalMet() {
+        return getEffectiveIntervalMillis() <= mTargetIntervalMillis;
+    }
+
+    /**
+     * Number of identities a slot rotates through
+     *
+     * @param slot the advertising slot
+     * @return number of identities
+     */
+    public int getSlotIdentityCount(int slot) {
+        return (mIdentityCount - slot + mSlotCount - 1) / mSlotCount;
+    }
+
+    /**
+     * Get the identity a slot should be broadcasting now
+     *
+     * @param slot the advertising slot
+     * @return index of the identity
+     */
+    public int getIdentity(int slot) {
+        return getIdentity(slot, mClock.uptimeMillis());
+    }
+
+    /**
+     * Get the identity a slot should be broadcasting at a given time
+     *
+     * @param slot the advertising slot
+     * @param time the time, from the same Clock
+     * @return index of the identity
+     */
+    public int getIdentity(int slot, long time) {
+        long step = getStep(slot, time);
+        int rotation = (int) (step % getSlotIdentityCount(slot));
+        return slot + rotation * mSlotCount;
+    }
+
+    /**
+     * Get the next time any slot switches identity
+     *
+     * @param time the current time, from the same Clock
+     * @return the next switch, or NEVER if every slot broadcasts a single identity
+     */
+    public long getNextRotationTime(long time) {
+        long next = NEVER;
+        for (int slot = 0; slot < mSlotCount; slot++) {
+            if (getSlotIdentityCount(slot) < 2) {
+                continue;
+            }
+            long slotNext = mStartTime - mSlotOffsets[slot] + (getStep(slot, time) + 1) * mDwellMillis;
+            if (slotNext < next) {
+                next = slotNext;
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Number of whole dwell times a slot has completed
+     */
+    private long getStep(int slot, long time) {
+        long elapsed = time - mStartTime + mSlotOffsets[slot];
+        return (elapsed < 0) ? 0 : elapsed / mDwellMillis;
+    }
+}
@@ -0,0 +1,338 @@
+package tonyg.example.com.examplebleperipheral.ble;
+
+import tonyg.example.com.examplebleperipheral.utilities.Clock;
+
+
+/**
+ * Keep an advertisement running, restarting it with exponential backoff when it fails.
+ *
+ * The supervisor is a state machine with no Android dependencies.  It asks an Advertiser to
+ * start and stop, and is told the outcome through onStartSuccess() and onStartFailure().
+ * Retries are scheduled through a Scheduler, so the whole machine can run on a fake clock.
+ *
+ * Failures are handled by error code:
+ *
+ * TOO_MANY_ADVERTISERS, INTERNAL_ERROR, start timeout:  retry with exponential backoff, and give
+ *                                                       up after too many failures in a row
+ * ALREADY_STARTED:                                      the advertisement is running
+ * DATA_TOO_LARGE, FEATURE_UNSUPPORTED:                  give up, retrying cannot help
+ *
+ * Not thread safe: call every method from the Scheduler's thread.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class AdvertisingSupervisor {
+    /** States **/
+    public static final int STATE_STOPPED = 0;
+    public static final int STATE_STARTING = 1;
+    public static final int STATE_ADVERTISING = 2;
+    public static final int STATE_BACKING_OFF = 3;
+    public static final int STATE_FAILED = 4;
+
+    /** Error codes, the same as AdvertiseCallback's **/
+    public static final int ERROR_START_TIMEOUT = 0;
+    public static final int ERROR_DATA_TOO_LARGE = 1;
+    public static final int ERROR_TOO_MANY_ADVERTISERS = 2;
+    public static final int ERROR_ALREADY_STARTED = 3;
+    public static final int ERROR_INTERNAL_ERROR = 4;
+    public static final int ERROR_FEATURE_UNSUPPORTED = 5;
+    private static final int ERROR_CODE_COUNT = 6;
+
+    /** Default timing **/
+    public static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 1000;
+    public static final long DEFAULT_MAX_BACKOFF_MILLIS = 5 * 60 * 1000;
+    public static final long DEFAULT_START_TIMEOUT_MILLIS = 10000;
+    public static final int DEFAULT_MAX_CONSECUTIVE_FAILURES = 10; // about 8 minutes of retries with the default backoff
+
+    /**
+     * Starts and stops the supervised advertisement
+     */
+    public interface Advertiser {
+        /** Start advertising.  Report the outcome with onStartSuccess() or onStartFailure(). **/
+        void start();
+        /** Stop advertising **/
+        void stop();
+    }
+
+    /**
+     * Runs tasks after a delay
+     */
+    public interface Scheduler {
+        void schedule(Runnable task, long delayMillis);
+        void cancel(Runnable task);
+    }
+
+    /**
+     * Notified when the supervisor changes state
+     */
+    public interface Listener {
+        void onStateChanged(int state);
+    }
+
+    private final Advertiser mAdvertiser;
+    private final Scheduler mScheduler;
+    private final Clock mClock;
+    private Listener mListener;
+
+    private long mInitialBackoffMillis = DEFAULT_INITIAL_BACKOFF_MILLIS;
+    private long mMaxBackoffMillis = DEFAULT_MAX_BACKOFF_MILLIS;
+    private long mStartTimeoutMillis = DEFAULT_START_TIMEOUT_MILLIS;
+    private int mMaxConsecutiveFailures = DEFAULT_MAX_CONSECUTIVE_FAILURES;
+
+    private int mState = STATE_STOPPED;
+    private long mBackoffMillis;
+    private int mConsecutiveFailures = 0;
+    private int mLastErrorCode = -1;
+
+    /** Metrics **/
+    private long mUptimeMillis = 0; // time spent advertising, not counting the current run
+    private long mAdvertisingSince;
+    private int mStartCount = 0;
+    private int mRestartCount = 0;
+    private final int[] mFailureCounts = new int[ERROR_CODE_COUNT];
+
+
+    /**
+     * Supervise an advertisement
+     *
+     * @param advertiser starts and stops the advertisement
+     * @param scheduler runs the retries and timeouts
+     * @param clock the time source for the metrics
+     */
+    public AdvertisingSupervisor(Advertiser advertiser, Scheduler scheduler, Clock clock) {
+        mAdvertiser = advertiser;
+        mScheduler = scheduler;
+        mClock = clock;
+        mBackoffMillis = mInitialBackoffMillis;
+    }
+
+    /**
+     * Set the retry timing
+     *
+     * @param initialBackoffMillis delay before the first retry
+     * @param maxBackoffMillis longest delay between retries
+     * @param startTimeoutMillis how long to wait for a start to be reported before retrying
+     */
+    public void setTiming(long initialBackoffMillis, long maxBackoffMillis, long startTimeoutMillis) {
+        if (initialBackoffMillis < 1 || maxBackoffMillis < initialBackoffMillis || startTimeoutMillis < 1) {
+            throw new IllegalArgumentException("Invalid timing");
+        }
+        mInitialBackoffMillis = initialBackoffMillis;
+        mMaxBackoffMillis = maxBackoffMillis;
+        mStartTimeoutMillis = startTimeoutMillis;
+        mBackoffMillis = initialBackoffMillis;
+    }
+
+    /**
+     * Set how many retryable failures in a row to allow before giving up
+     *
+     * @param maxConsecutiveFailures at least 1
+     */
+    public void setMaxConsecutiveFailures(int maxConsecutiveFailures) {
+        if (maxConsecutiveFailures < 1) {
+            throw new IllegalArgumentException("Allow at least one failure");
+        }
+        mMaxConsecutiveFailures = maxConsecutiveFailures;
+    }
+
+    public void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Start advertising, and keep it running until stop()
+     */
+    public void start() {
+        if (mState != STATE_STOPPED && mState != STATE_FAILED) {
+            return;
+        }
+        mConsecutiveFailures = 0;
+        mBackoffMillis = mInitialBackoffMillis;
+        attemptStart();
+    }
+
+    /**
+     * Stop advertising and cancel any retry
+     */
+    public void stop() {
+        mScheduler.cancel(mRetryTask);
+        mScheduler.cancel(mTimeoutTask);
+        if (mState == STATE_STOPPED) {
+            return;
+        }
+        if (mState == STATE_ADVERTISING || mState == STATE_STARTING) {
+            mAdvertiser.stop();
+        }
+        setState(STATE_STOPPED);
+    }
+
+    /**
+     * The advertisement started
+     */
+    public void onStartSuccess() {
+        if (mState != STATE_STARTING) {
+            return; // a late report after stop() or a timeout
+        }
+        mScheduler.cancel(mTimeoutTask);
+        mConsecutiveFailures = 0;
+        mBackoffMillis = mInitialBackoffMillis;
+        setState(STATE_ADVERTISING);
+    }
+
+    /**
+     * The advertisement failed to start
+     *
+     * @param errorCode one of the ERROR_ codes
+     */
+    public void onStartFailure(int errorCode) {
+        if (mState != STATE_STARTING) {
+            return;
+        }
+        if (errorCode == ERROR_ALREADY_STARTED) {
+            onStartSuccess();
+            return;
+        }
+        mScheduler.cancel(mTimeoutTask);
+        recordFailure(errorCode);
+
+        if (errorCode == ERROR_DATA_TOO_LARGE || errorCode == ERROR_FEATURE_UNSUPPORTED) {
+            setState(STATE_FAILED);
+            return;
+        }
+        scheduleRetry();
+    }
+
+    /**
+     * The advertisement stopped on its own, such as when Bluetooth turned off
+     */
+    public void onAdvertisingLost() {
+        if (mState != STATE_ADVERTISING) {
+            return;
+        }
+        recordFailure(ERROR_INTERNAL_ERROR);
+        scheduleRetry();
+    }
+
+    private void attemptStart() {
+        mStartCount++;
+        setState(STATE_STARTING);
+        mScheduler.schedule(mTimeoutTask, mStartTimeoutMillis);
+        mAdvertiser.start();
+    }
+
+    private void scheduleRetry() {
+        mAdvertiser.stop(); // release anything the failed start left behind
+        if (mConsecutiveFailures >= mMaxConsecutiveFailures) {
+            setState(STATE_FAILED);
+            return;
+        }
+        setState(STATE_BACKING_OFF);
+        mScheduler.schedule(mRetryTask, mBackoffMillis);
+        mBackoffMillis = Math.min(mMaxBackoffMillis, mBackoffMillis * 2);
+    }
+
+    private void recordFailure(int errorCode) {
+        mLastErrorCode = errorCode;
+        mConsecutiveFailures++;
+        mFailureCounts[(errorCode >= 0 && errorCode < ERROR_CODE_COUNT) ? errorCode : ERROR_INTERNAL_ERROR]++;
+    }
+
+    private void setState(int state) {
+        if (mState == state) {
+            return;
+        }
+        long now = mClock.uptimeMillis();
+        if (mState == STATE_ADVERTISING) {
+            mUptimeMillis += now - mAdvertisingSince;
+        }
+        if (state == STATE_ADVERTISING) {
+            mAdvertisingSince = now;
+        }
+        mState = state;
+        if (mListener != null) {
+            mListener.onStateChanged(state);
+        }
+    }
+
+    private final Runnable mRetryTask = new Runnable() {
+        @Override
+        public void run() {
+            if (mState == STATE_BACKING_OFF) {
+                mRestartCount++;
+                attemptStart();
+            }
+        }
+    };
+
+    private final Runnable mTimeoutTask = new Runnable() {
+        @Override
+        public void run() {
+            if (mState == STATE_STARTING) {
+                recordFailure(ERROR_START_TIMEOUT);
+                scheduleRetry();
+            }
+        }
+    };
+
+    public int getState() { return mState; }
+    public int getStartCount() { return mStartCount; }
+    public int getRestartCount() { return mRestartCount; }
+    public int getConsecutiveFailures() { return mConsecutiveFailures; }
+    public int getLastErrorCode() { return mLastErrorCode; }
+
+    /**
+     * Get the delay before the next retry, if the next start fails
+     *
+     * @return delay in milliseconds
+     */
+    public long getBackoffMillis() {
+        return mBackoffMillis;
+    }
+
+    /**
+     * Get the total time spent advertising
+     *
+     * @return time in milliseconds
+     */
+    public long getUptimeMillis() {
+        if (mState == STATE_ADVERTISING) {
+            return mUptimeMillis + mClock.uptimeMillis() - mAdvertisingSince;
+        }
+        return mUptimeMillis;
+    }
+
+    /**
+     * Get how many times starting failed with an error code
+     *
+     * @param errorCode one of the ERROR_ codes
+     * @return number of failures
+     */
+    public int getFailureCount(int errorCode) {
+        return (errorCode >= 0 && errorCode < ERROR_CODE_COUNT) ? mFailureCounts[errorCode] : 0;
+    }
+
+    /**
+     * Get the number of failures for every error code, indexed by error code
+     *
+     * @return a copy of the failure histogram
+     */
+    public int[] getFailureHistogram() {
+        return mFailureCounts.clone();
+    }
+
+    /**
+     * Get a one-line summary of the metrics
+     *
+     * @return the summary
+     */
+    public String getSummary() {
+        StringBuilder summary = new StringBuilder();
+        summary.append("uptime ").append(getUptimeMillis() / 1000).append(" s, ")
+                .append(mRestartCount).append(" restarts, failures");
+        for (int errorCode = 0; errorCode < ERROR_CODE_COUNT; errorCode++) {
+            summary.append(' ').append(errorCode).append(':').append(mFailureCounts[errorCode]);
+        }
+        return summary.toString();
+    }
+}
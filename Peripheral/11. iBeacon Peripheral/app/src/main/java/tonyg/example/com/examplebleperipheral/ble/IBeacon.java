@@ -10,10 +10,10 @@ import android.content.Context;
 import android.content.pm.PackageManager;
 import android.util.Log;
 
-import java.nio.ByteBuffer;
 import java.util.UUID;
 
-import tonyg.example.com.examplebleperipheral.utilities.DataConverter;
+import tonyg.example.com.blecodec.DataConverter;
+import tonyg.example.com.blecodec.EphemeralIdGenerator;
 
 
 /**
@@ -30,21 +30,28 @@ public class IBeacon {
     public static final UUID I_BEACON_UUID = UUID.fromString("e20a39f4-73f5-4bc4-a12f-17d1ad07a961");
 
 
-    private static final byte[] beaconHeader = { -1, 0x4c, 0x00, 0x02, 0x15 }; // -1 = 0xff in Java, except that 0xff produces an error
-    //private static final byte[] beaconHeader = { 0x02, 0x01 }; //, 0x06 };
-
     // Major Number and Minor number identify the Beacon
-    public static int MANUFACTURER_ID = 224; // Google Manufacturer ID
-    public static int MAJOR_NUMBER = 1122;
-    public static int MINOR_NUMBER = 3344;
-    public static int TRANSMISSION_POWER_DB = -55;
+    public static final int MANUFACTURER_ID = IBeaconPayload.APPLE_COMPANY_ID;
+    public static final int MAJOR_NUMBER = 1122;
+    public static final int MINOR_NUMBER = 3344;
+    public static final int TRANSMISSION_POWER_DB = -55; // estimated RSSI at 1 meter, at ADVERTISE_TX_POWER_HIGH
+
+    // nominal radio output of each AdvertiseSettings TX power level, in dBm
+    private static final int[] TX_POWER_LEVEL_DBM = { -21, -15, -7, 1 };
 
     /** Data formatting **/
     public static final String CHARSET = "ASCII";
 
     /** Advertising settings **/
     int mAdvertisingMode = AdvertiseSettings.ADVERTISE_MODE_LOW_LATENCY;
-    int mTransmissionPower = AdvertiseSettings.ADVERTISE_TX_POWER_HIGH;
+    int mTransmissionPowerLevel = AdvertiseSettings.ADVERTISE_TX_POWER_HIGH;
+
+    /** iBeacon identity, encoded once and only re-encoded when it changes **/
+    private IBeaconPayload mPayload = new IBeaconPayload(I_BEACON_UUID, MAJOR_NUMBER, MINOR_NUMBER, TRANSMISSION_POWER_DB);
+
+    /** Rotating identifier, or null to always advertise the same Major and Minor **/
+    private EphemeralIdGenerator mEphemeralIds;
+    private long mEphemeralCounter = -1;
 
 
 
@@ -99,40 +106,141 @@ public class IBeacon {
 
 
 
-    private byte[] getManufacturerData() {
-        ByteBuffer manufacturerData = ByteBuffer.allocate(27);
+    /**
+     * Set the Proximity UUID.  Takes effect the next time advertising starts.
+     *
+     * @param uuid Proximity UUID
+     */
+    public void setUuid(UUID uuid) { setPayload(mPayload.withUuid(uuid)); }
 
-        int i=0;
-        while (i < beaconHeader.length) {
-            manufacturerData.put(i, beaconHeader[i]);
-            i++;
-        }
+    /**
+     * Set the Major number.  Takes effect the next time advertising starts.
+     *
+     * @param major Major number
+     */
+    public void setMajorNumber(int major) { setPayload(mPayload.withMajor(major)); }
 
-        // add UUID
-        byte[] uuid = DataConverter.hexToBytes(I_BEACON_UUID.toString().replace("-",""));
+    /**
+     * Set the Minor number.  Takes effect the next time advertising starts.
+     *
+     * @param minor Minor number
+     */
+    public void setMinorNumber(int minor) { setPayload(mPayload.withMinor(minor)); }
 
-        Log.v(TAG, "uuid: "+I_BEACON_UUID.toString().replace("-","")+", length: "+uuid.length);
-        for (int u = 0; i<16; u++) {
-            i = u + beaconHeader.length;
-            manufacturerData.put(i, uuid[u]);
-        }
+    /**
+     * Set the advertised transmission power, the RSSI measured at 1 meter.  Takes effect the next time advertising starts.
+     *
+     * @param transmissionPower_db RSSI at 1 meter
+     */
+    public void setTransmissionPowerDb(int transmissionPower_db) { setPayload(mPayload.withTransmissionPower(transmissionPower_db)); }
 
+    public IBeaconPayload getPayload() { return mPayload; }
+    public int getAdvertisingMode() { return mAdvertisingMode; }
+    public int getTransmissionPowerLevel() { return mTransmissionPowerLevel; }
 
+    /**
+     * Set how often to advertise.  Takes effect the next time advertising starts.
+     *
+     * @param advertisingMode one of ADVERTISE_MODE_LOW_POWER, ADVERTISE_MODE_BALANCED, or ADVERTISE_MODE_LOW_LATENCY
+     */
+    public void setAdvertisingMode(int advertisingMode) {
+        if (advertisingMode < AdvertiseSettings.ADVERTISE_MODE_LOW_POWER || advertisingMode > AdvertiseSettings.ADVERTISE_MODE_LOW_LATENCY) {
+            throw new IllegalArgumentException("Unknown advertising mode " + advertisingMode);
+        }
+        mAdvertisingMode = advertisingMode;
+    }
 
-        manufacturerData.put(i++, (byte) (MAJOR_NUMBER >> 8)); // first byte of Major
-        manufacturerData.put(i++, (byte) (MAJOR_NUMBER & 0xFF)); // second byte of Major
+    /**
+     * Set the radio's TX power level and the RSSI measured at 1 meter at that level.  Takes effect the next time advertising starts.
+     *
+     * @param transmissionPowerLevel one of ADVERTISE_TX_POWER_ULTRA_LOW, ADVERTISE_TX_POWER_LOW, ADVERTISE_TX_POWER_MEDIUM, or ADVERTISE_TX_POWER_HIGH
+     * @param measuredPower_db RSSI at 1 meter, as measured by a calibrated Central
+     */
+    public void setTransmissionPowerLevel(int transmissionPowerLevel, int measuredPower_db) {
+        if (transmissionPowerLevel < AdvertiseSettings.ADVERTISE_TX_POWER_ULTRA_LOW || transmissionPowerLevel > AdvertiseSettings.ADVERTISE_TX_POWER_HIGH) {
+            throw new IllegalArgumentException("Unknown TX power level " + transmissionPowerLevel);
+        }
+        mTransmissionPowerLevel = transmissionPowerLevel;
+        setTransmissionPowerDb(measuredPower_db);
+    }
+
+    /**
+     * Rotate the Major and Minor numbers, derived from a secret shared with the Central.
+     * Call updateEphemeralId() before each start to advertise the current identifier.
+     *
+     * @param ephemeralIds the identifier generator, or <b>null</b> to advertise MAJOR_NUMBER and MINOR_NUMBER again
+     */
+    public void setEphemeralIdGenerator(EphemeralIdGenerator ephemeralIds) {
+        mEphemeralIds = ephemeralIds;
+        mEphemeralCounter = -1;
+        if (ephemeralIds == null) {
+            setPayload(mPayload.withMajor(MAJOR_NUMBER).withMinor(MINOR_NUMBER));
+        }
+    }
 
-        manufacturerData.put(i++, (byte) (MINOR_NUMBER >> 8)); // first byte of Minor
-        manufacturerData.put(i++, (byte) (MINOR_NUMBER & 0xFF)); // second byte of Minor
+    public boolean isRotatingIdentifier() { return mEphemeralIds != null; }
 
-        manufacturerData.put(i++, (byte) TRANSMISSION_POWER_DB); // txPower
+    /**
+     * Switch to the identifier for the current rotation period.  Takes effect the next time advertising starts.
+     *
+     * @param timeMillis wall clock time, in milliseconds since the Unix epoch
+     * @return <b>true</b> if the identifier changed
+     */
+    public boolean updateEphemeralId(long timeMillis) {
+        if (mEphemeralIds == null) {
+            return false;
+        }
+        long counter = mEphemeralIds.getCounter(timeMillis);
+        if (counter == mEphemeralCounter) {
+            return false;
+        }
+        mEphemeralCounter = counter;
+        int identifier = mEphemeralIds.getIdentifier(counter);
+        setPayload(mPayload.withMajor(EphemeralIdGenerator.getMajor(identifier)).withMinor(EphemeralIdGenerator.getMinor(identifier)));
+        return true;
+    }
 
-        byte[] manufacturerDataBytes = manufacturerData.array();
+    /**
+     * Get when the advertised identifier must next change
+     *
+     * @return wall clock time in milliseconds, or Long.MAX_VALUE if the identifier does not rotate
+     */
+    public long getNextRotationTime() {
+        if (mEphemeralIds == null || mEphemeralCounter < 0) {
+            return Long.MAX_VALUE;
+        }
+        return mEphemeralIds.getRotationTime(mEphemeralCounter + 1);
+    }
 
-        Log.v(TAG, "iBeacon built, GAP: " + DataConverter.bytesToHex(manufacturerDataBytes));
+    /**
+     * Estimate the RSSI at 1 meter for a TX power level, before it has been measured
+     *
+     * @param transmissionPowerLevel one of the ADVERTISE_TX_POWER_ levels
+     * @return estimated RSSI at 1 meter
+     */
+    public static int estimateMeasuredPower(int transmissionPowerLevel) {
+        return TRANSMISSION_POWER_DB + TX_POWER_LEVEL_DBM[transmissionPowerLevel] - TX_POWER_LEVEL_DBM[AdvertiseSettings.ADVERTISE_TX_POWER_HIGH];
+    }
 
-        return manufacturerDataBytes;
+    /**
+     * Replace the payload, logging the new bytes only when they changed
+     *
+     * @param payload the new payload
+     */
+    private void setPayload(IBeaconPayload payload) {
+        if (payload != mPayload) {
+            mPayload = payload;
+            Log.v(TAG, "iBeacon built, GAP: " + DataConverter.bytesToHex(payload.getBytes()));
+        }
+    }
 
+    /**
+     * Get the iBeacon manufacturer data.  The array is cached: do not modify it.
+     *
+     * @return the manufacturer data
+     */
+    private byte[] getManufacturerData() {
+        return mPayload.getBytes();
     }
 
 
@@ -172,36 +280,34 @@ public class IBeacon {
     /**
      * Start Advertising
      *
-     * @throws Exception Exception thrown if Bluetooth Peripheral mode is not supported
+     * @param advertiseCallback reports whether advertising started
+     * @param scanResponse data sent to Centrals that scan actively, such as telemetry, or <b>null</b>
      */
-    public void startAdvertising(AdvertiseCallback advertiseCallback) {
+    public void startAdvertising(AdvertiseCallback advertiseCallback, AdvertiseData scanResponse) {
         mAdvertiseCallback = advertiseCallback;
 
 
-        // Build Advertise settings with transmission power and advertise speed
+        // Build Advertise settings with transmission power and advertise speed.
+        // Not connectable
         AdvertiseSettings advertiseSettings = new AdvertiseSettings.Builder()
                 .setAdvertiseMode(mAdvertisingMode)
+                .setTxPowerLevel(mTransmissionPowerLevel)
                 .setConnectable(false)
-                .setTimeout(mTransmissionPower)
                 .setTimeout(0)
                 .build();
 
 
-/*
-        AdvertiseData.Builder scanResponseDataBuilder = new AdvertiseData.Builder();
-        scanResponseDataBuilder.setIncludeDeviceName(false);
-        scanResponseDataBuilder.addManufacturerData(MANUFACTURER_ID, getManufacturerData()); // using google's company ID
-        AdvertiseData scanResponseData = scanResponseDataBuilder.build();
-*/
-
-
         AdvertiseData.Builder advertiseBuilder = new AdvertiseData.Builder();
         advertiseBuilder.setIncludeDeviceName(false);
-        advertiseBuilder.addManufacturerData(MANUFACTURER_ID, getManufacturerData()); // using google's company ID
+        advertiseBuilder.addManufacturerData(MANUFACTURER_ID, getManufacturerData()); // using Apple's company ID
         AdvertiseData advertiseData = advertiseBuilder.build();
 
         // begin advertising
-        mBluetoothAdvertiser.startAdvertising(advertiseSettings, advertiseData, mAdvertiseCallback);
+        if (scanResponse == null) {
+            mBluetoothAdvertiser.startAdvertising(advertiseSettings, advertiseData, mAdvertiseCallback);
+        } else {
+            mBluetoothAdvertiser.startAdvertising(advertiseSettings, advertiseData, scanResponse, mAdvertiseCallback);
+        }
     }
 
 
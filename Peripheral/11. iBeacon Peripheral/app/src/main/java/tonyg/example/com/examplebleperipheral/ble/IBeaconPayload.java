@@ -0,0 +1,99 @@
+package tonyg.example.com.examplebleperipheral.ble;
+
+import java.util.UUID;
+
+import tonyg.example.com.blecodec.codecs.BeaconCodec;
+import tonyg.example.com.blecodec.codecs.BeaconFrame;
+import tonyg.example.com.blecodec.codecs.IBeaconCodec;
+
+
+/**
+ * The manufacturer data of an iBeacon advertisement.
+ *
+ * The bytes are encoded once, by the same IBeaconCodec the Central decodes with, and cached.
+ * They are the iBeacon data after the 2-byte company ID, which Android adds.  An IBeaconPayload
+ * never changes: use the with...() methods to get a payload with a different identity.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public final class IBeaconPayload {
+    /** Constants **/
+    public static final int APPLE_COMPANY_ID = IBeaconCodec.APPLE_COMPANY_ID; // iBeacons are advertised under Apple's company ID
+
+    private static final IBeaconCodec CODEC = new IBeaconCodec();
+    public static final int LENGTH = CODEC.getDataLength() - BeaconCodec.ID_LENGTH;
+
+    /** iBeacon Properties **/
+    private final UUID mUuid;
+    private final int mMajor;
+    private final int mMinor;
+    private final int mTransmissionPower;
+    private final byte[] mBytes;
+
+    /**
+     * Encode an iBeacon payload
+     *
+     * @param uuid Proximity UUID
+     * @param major Major number, 0-65535
+     * @param minor Minor number, 0-65535
+     * @param transmissionPower measured RSSI at 1 meter, -128 to 127
+     */
+    public IBeaconPayload(UUID uuid, int major, int minor, int transmissionPower) {
+        if (uuid == null) {
+            throw new IllegalArgumentException("UUID is required");
+        }
+        if (major < 0 || major > 0xFFFF || minor < 0 || minor > 0xFFFF) {
+            throw new IllegalArgumentException("Major and Minor must be between 0 and 65535");
+        }
+        if (transmissionPower < Byte.MIN_VALUE || transmissionPower > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Transmission power must fit in a signed byte");
+        }
+        mUuid = uuid;
+        mMajor = major;
+        mMinor = minor;
+        mTransmissionPower = transmissionPower;
+        mBytes = encode(uuid, major, minor, transmissionPower);
+    }
+
+    /**
+     * Write the payload bytes
+     */
+    private static byte[] encode(UUID uuid, int major, int minor, int transmissionPower) {
+        BeaconFrame frame = new BeaconFrame();
+        frame.setIdentity(BeaconFrame.FORMAT_IBEACON, APPLE_COMPANY_ID,
+                uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), major, minor, transmissionPower);
+        return CODEC.encodePayload(frame);
+    }
+
+    public UUID getUuid() { return mUuid; }
+    public int getMajor() { return mMajor; }
+    public int getMinor() { return mMinor; }
+    public int getTransmissionPower() { return mTransmissionPower; }
+
+    /**
+     * Get the encoded manufacturer data.  The array is shared: do not modify it.
+     *
+     * @return the manufacturer data
+     */
+    public byte[] getBytes() {
+        return mBytes;
+    }
+
+    /** Get a payload with one property changed.  Returns this payload if nothing changes. **/
+    public IBeaconPayload withUuid(UUID uuid) {
+        return uuid.equals(mUuid) ? this : new IBeaconPayload(uuid, mMajor, mMinor, mTransmissionPower);
+    }
+
+    public IBeaconPayload withMajor(int major) {
+        return (major == mMajor) ? this : new IBeaconPayload(mUuid, major, mMinor, mTransmissionPower);
+    }
+
+    public IBeaconPayload withMinor(int minor) {
+        return (minor == mMinor) ? this : new IBeaconPayload(mUuid, mMajor, minor, mTransmissionPower);
+    }
+
+    public IBeaconPayload withTransmissionPower(int transmissionPower) {
+        return (transmissionPower == mTransmissionPower) ? this : new IBeaconPayload(mUuid, mMajor, mMinor, transmissionPower);
+    }
+}
@@ -0,0 +1,319 @@
+package tonyg.example.com.examplebleperipheral.ble;
+
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.BluetoothManager;
+import android.bluetooth.le.AdvertiseCallback;
+import android.bluetooth.le.AdvertiseData;
+import android.bluetooth.le.AdvertiseSettings;
+import android.bluetooth.le.BluetoothLeAdvertiser;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import tonyg.example.com.examplebleperipheral.utilities.Clock;
+
+
+/**
+ * Emulate many iBeacons from one device by rotating identities through the advertising sets
+ * that the Bluetooth controller supports.
+ *
+ * An AdvertisingRotationPlanner decides which identity each advertising set broadcasts.
+ * Only the sets whose identity changed are restarted on each rotation.
+ * If the controller has fewer advertising sets than requested, the rotation is re-planned
+ * with fewer sets.  A set that fails for another reason, such as an internal error, is retried
+ * with exponential backoff, like the AdvertisingSupervisor does.  If not even one set can start,
+ * the advertisement can never start, or a set keeps failing, advertising stops and the Listener is told.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class MultiBeaconAdvertiser {
+    /** Constants **/
+    private static final String TAG = MultiBeaconAdvertiser.class.getSimpleName();
+    private static final int NO_IDENTITY = -1;
+
+    /**
+     * Notified when advertising stopped because it could not start
+     */
+    public interface Listener {
+        void onAdvertisingFailed(int errorCode);
+    }
+
+    /** Handler.postAtTime() uses the uptime clock **/
+    private static final Clock UPTIME_CLOCK = new Clock() {
+        @Override
+        public long uptimeMillis() {
+            return SystemClock.uptimeMillis();
+        }
+    };
+
+    /**
+     * One advertising set.  Each set needs its own callback, because the callback identifies the set.
+     */
+    private class Slot extends AdvertiseCallback {
+        final int slot;
+        int identity = NO_IDENTITY;
+        long backoffMillis = AdvertisingSupervisor.DEFAULT_INITIAL_BACKOFF_MILLIS;
+        int consecutiveFailures = 0;
+        boolean retryPending = false;
+
+        Slot(int slot) {
+            this.slot = slot;
+        }
+
+        /** Start the set again after a failure, with the identity it should have by then **/
+        final Runnable retry = new Runnable() {
+            @Override
+            public void run() {
+                retryPending = false;
+                if (!mRunning || mSlots[slot] != Slot.this || identity != NO_IDENTITY) {
+                    return;
+                }
+                identity = mPlanner.getIdentity(slot, UPTIME_CLOCK.uptimeMillis());
+                mBluetoothAdvertiser.startAdvertising(mAdvertiseSettings, mAdvertiseData[identity], Slot.this);
+            }
+        };
+
+        @Override
+        public void onStartSuccess(AdvertiseSettings settingsInEffect) {
+            super.onStartSuccess(settingsInEffect);
+            Log.v(TAG, "Slot " + slot + " advertising identity " + identity);
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    backoffMillis = AdvertisingSupervisor.DEFAULT_INITIAL_BACKOFF_MILLIS;
+                    consecutiveFailures = 0;
+                }
+            });
+        }
+
+        @Override
+        public void onStartFailure(final int errorCode) {
+            super.onStartFailure(errorCode);
+            Log.e(TAG, "Slot " + slot + " failed to advertise, error " + errorCode);
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    onSlotFailed(Slot.this, errorCode);
+                }
+            });
+        }
+    }
+
+    /** Rotation **/
+    private final ArrayList<IBeaconPayload> mIdentities;
+    private final AdvertiseData[] mAdvertiseData; // built once per identity
+    private final long mTargetIntervalMillis;
+    private final long mMinimumDwellMillis;
+    private AdvertisingRotationPlanner mPlanner;
+    private Slot[] mSlots = new Slot[0];
+    private boolean mRunning = false;
+    private Listener mListener;
+
+    /** Advertising settings **/
+    private AdvertiseSettings mAdvertiseSettings;
+
+    /** Bluetooth Stuff **/
+    private BluetoothLeAdvertiser mBluetoothAdvertiser;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+
+    /**
+     * Construct a new multi-beacon advertiser
+     *
+     * @param context The Application Context
+     * @param identities the iBeacons to emulate
+     * @param targetIntervalMillis how often each iBeacon should be broadcast
+     * @param maxAdvertisingSets number of advertising sets to use at once
+     * @throws Exception Exception thrown if Bluetooth Peripheral mode is not supported
+     */
+    public MultiBeaconAdvertiser(final Context context, List<IBeaconPayload> identities,
+                                 long targetIntervalMillis, int maxAdvertisingSets) throws Exception {
+        if (!context.getPackageManager().hasSystemFeature(PackageManager.FEATURE_BLUETOOTH_LE)) {
+            throw new Exception("Bluetooth Not Supported");
+        }
+        final BluetoothManager bluetoothManager = (BluetoothManager) context.getSystemService(Context.BLUETOOTH_SERVICE);
+        BluetoothAdapter bluetoothAdapter = bluetoothManager.getAdapter();
+        if (!bluetoothAdapter.isMultipleAdvertisementSupported()) {
+            throw new Exception ("Peripheral mode not supported");
+        }
+        mBluetoothAdvertiser = bluetoothAdapter.getBluetoothLeAdvertiser();
+
+        mIdentities = new ArrayList<IBeaconPayload>(identities);
+        mTargetIntervalMillis = targetIntervalMillis;
+        mMinimumDwellMillis = AdvertisingRotationPlanner.DEFAULT_MINIMUM_DWELL_MILLIS;
+        mPlanner = new AdvertisingRotationPlanner(mIdentities.size(), targetIntervalMillis,
+                maxAdvertisingSets, mMinimumDwellMillis, UPTIME_CLOCK);
+
+        mAdvertiseData = new AdvertiseData[mIdentities.size()];
+        for (int index = 0; index < mAdvertiseData.length; index++) {
+            mAdvertiseData[index] = new AdvertiseData.Builder()
+                    .setIncludeDeviceName(false)
+                    .addManufacturerData(IBeaconPayload.APPLE_COMPANY_ID, mIdentities.get(index).getBytes())
+                    .build();
+        }
+
+        mAdvertiseSettings = new AdvertiseSettings.Builder()
+                .setAdvertiseMode(AdvertiseSettings.ADVERTISE_MODE_LOW_LATENCY)
+                .setTxPowerLevel(AdvertiseSettings.ADVERTISE_TX_POWER_HIGH)
+                .setConnectable(false)
+                .setTimeout(0)
+                .build();
+    }
+
+    /**
+     * Build identities that share a UUID and Major number, with consecutive Minor numbers
+     *
+     * @param first the first identity
+     * @param count number of identities
+     * @return the identities
+     */
+    public static ArrayList<IBeaconPayload> createFleet(IBeaconPayload first, int count) {
+        ArrayList<IBeaconPayload> fleet = new ArrayList<IBeaconPayload>(count);
+        for (int index = 0; index < count; index++) {
+            fleet.add(first.withMinor((first.getMinor() + index) & 0xFFFF));
+        }
+        return fleet;
+    }
+
+    /**
+     * Be notified when advertising stops because it could not start
+     *
+     * @param listener the listener, or <b>null</b>
+     */
+    public void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Get the current rotation plan
+     *
+     * @return the planner
+     */
+    public AdvertisingRotationPlanner getPlanner() {
+        return mPlanner;
+    }
+
+    /**
+     * Start rotating identities
+     */
+    public void startAdvertising() {
+        if (mRunning) {
+            return;
+        }
+        mRunning = true;
+        if (!mPlanner.isTargetIntervalMet()) {
+            Log.w(TAG, "Each iBeacon will only be broadcast every " + mPlanner.getEffectiveIntervalMillis() + " ms");
+        }
+        mSlots = new Slot[mPlanner.getSlotCount()];
+        for (int slot = 0; slot < mSlots.length; slot++) {
+            mSlots[slot] = new Slot(slot);
+        }
+        mPlanner.start();
+        mRotateRunnable.run();
+    }
+
+    /**
+     * Stop advertising every identity
+     */
+    public void stopAdvertising() {
+        mRunning = false;
+        mHandler.removeCallbacks(mRotateRunnable);
+        for (Slot slot : mSlots) {
+            mHandler.removeCallbacks(slot.retry);
+            slot.retryPending = false;
+            if (slot.identity != NO_IDENTITY && mBluetoothAdvertiser != null) {
+                mBluetoothAdvertiser.stopAdvertising(slot);
+            }
+            slot.identity = NO_IDENTITY;
+        }
+    }
+
+    /**
+     * Restart the advertising sets whose identity changed, then wait for the next change
+     */
+    private final Runnable mRotateRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (!mRunning) {
+                return;
+            }
+            long now = UPTIME_CLOCK.uptimeMillis();
+            for (Slot slot : mSlots) {
+                int identity = mPlanner.getIdentity(slot.slot, now);
+                if (identity == slot.identity || slot.retryPending) {
+                    continue; // a failed set waits for its retry
+                }
+                if (slot.identity != NO_IDENTITY) {
+                    mBluetoothAdvertiser.stopAdvertising(slot);
+                }
+                slot.identity = identity;
+                mBluetoothAdvertiser.startAdvertising(mAdvertiseSettings, mAdvertiseData[identity], slot);
+            }
+
+            long next = mPlanner.getNextRotationTime(now);
+            if (next != AdvertisingRotationPlanner.NEVER) {
+                mHandler.postAtTime(this, next);
+            }
+        }
+    };
+
+    /**
+     * An advertising set failed to start.  Without enough advertising sets, plan again with
+     * only the sets before the failed one.  Without any, or if the data can never be
+     * advertised, stop rather than fail again on every rotation.  Otherwise retry the set
+     * with backoff, since a set whose identity does not change is never started by a rotation.
+     *
+     * @param slot the set that could not start
+     * @param errorCode the AdvertiseCallback error
+     */
+    private void onSlotFailed(Slot slot, int errorCode) {
+        if (!mRunning || slot.slot >= mSlots.length || mSlots[slot.slot] != slot) {
+            return; // a set from before a re-plan
+        }
+        switch (errorCode) {
+            case AdvertiseCallback.ADVERTISE_FAILED_TOO_MANY_ADVERTISERS:
+                AdvertisingRotationPlanner planner = mPlanner.withoutSlot(slot.slot);
+                if (planner == null) {
+                    fail(errorCode);
+                    return;
+                }
+                Log.w(TAG, "Controller supports " + planner.getSlotCount() + " advertising sets");
+                stopAdvertising();
+                mPlanner = planner;
+                startAdvertising();
+                break;
+            case AdvertiseCallback.ADVERTISE_FAILED_DATA_TOO_LARGE:
+            case AdvertiseCallback.ADVERTISE_FAILED_FEATURE_UNSUPPORTED:
+                fail(errorCode);
+                break;
+            default: // ADVERTISE_FAILED_INTERNAL_ERROR, ADVERTISE_FAILED_ALREADY_STARTED
+                mBluetoothAdvertiser.stopAdvertising(slot); // in case the set is half started
+                slot.identity = NO_IDENTITY;
+                slot.consecutiveFailures++;
+                if (slot.consecutiveFailures >= AdvertisingSupervisor.DEFAULT_MAX_CONSECUTIVE_FAILURES) {
+                    fail(errorCode);
+                    return;
+                }
+                Log.w(TAG, "Retrying slot " + slot.slot + " in " + slot.backoffMillis + " ms");
+                mHandler.removeCallbacks(slot.retry);
+                mHandler.postDelayed(slot.retry, slot.backoffMillis);
+                slot.retryPending = true;
+                slot.backoffMillis = Math.min(AdvertisingSupervisor.DEFAULT_MAX_BACKOFF_MILLIS, slot.backoffMillis * 2);
+        }
+    }
+
+    private void fail(int errorCode) {
+        Log.e(TAG, "Cannot advertise, error " + errorCode);
+        stopAdvertising();
+        if (mListener != null) {
+            mListener.onAdvertisingFailed(errorCode);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package tonyg.example.com.examplebleperipheral.ble;
+
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.BluetoothManager;
+import android.bluetooth.le.AdvertiseCallback;
+import android.bluetooth.le.AdvertiseData;
+import android.bluetooth.le.AdvertiseSettings;
+import android.bluetooth.le.BluetoothLeAdvertiser;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.PackageManager;
+import android.os.BatteryManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.ParcelUuid;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.Arrays;
+
+
+/**
+ * Advertise Eddystone-TLM telemetry next to the iBeacon advertisement.
+ *
+ * Android can only change advertisement data by restarting the advertisement, and a restart
+ * drops the beacon from Centrals for a scan window.  So telemetry is advertised from its own
+ * advertising set, and only that set is restarted when the telemetry changes.  The iBeacon
+ * advertisement is never interrupted for telemetry.
+ *
+ * Android gives each advertising set its own random address, so the address does not link the
+ * telemetry to the iBeacon.  Instead the telemetry set sends the iBeacon frame as its scan
+ * response.  A Central that scans actively gets the telemetry and the identity in one Scan Record,
+ * and remembers the telemetry set's address for Scan Records without the scan response.
+ *
+ * The battery and temperature are checked every update interval.  The set is restarted when they
+ * changed past their thresholds, when the iBeacon's identity changed, or when the uptime has not
+ * been advertised for UPTIME_REFRESH_MILLIS.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class TelemetryAdvertiser {
+    /** Constants **/
+    private static final String TAG = TelemetryAdvertiser.class.getSimpleName();
+    public static final long DEFAULT_UPDATE_INTERVAL_MILLIS = 60 * 1000;
+    public static final long UPTIME_REFRESH_MILLIS = 10 * 60 * 1000;
+    private static final ParcelUuid EDDYSTONE_SERVICE_UUID = ParcelUuid.fromString("0000feaa-0000-1000-8000-00805f9b34fb");
+
+    /** Telemetry **/
+    private final TelemetryPayload mPayload = new TelemetryPayload();
+    private final long mUpdateIntervalMillis;
+    private final long mStartTime;
+    private long mAdvertisingIntervalMillis = getAdvertisingIntervalMillis(AdvertiseSettings.ADVERTISE_MODE_LOW_POWER);
+    private long mAdvertisedTime;
+    private byte[] mIdentity; // the iBeacon manufacturer data sent as the scan response
+    private boolean mRunning = false;
+    private boolean mAdvertising = false;
+
+    /** Bluetooth Stuff **/
+    private final Context mContext;
+    private final BluetoothLeAdvertiser mBluetoothAdvertiser;
+    private final AdvertiseSettings mAdvertiseSettings;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+
+    /**
+     * Construct a new telemetry advertiser.  The uptime counts from now.
+     *
+     * @param context The Application Context
+     * @param updateIntervalMillis how often to check the battery and temperature
+     * @throws Exception Exception thrown if Bluetooth Peripheral mode is not supported
+     */
+    public TelemetryAdvertiser(final Context context, long updateIntervalMillis) throws Exception {
+        if (!context.getPackageManager().hasSystemFeature(PackageManager.FEATURE_BLUETOOTH_LE)) {
+            throw new Exception("Bluetooth Not Supported");
+        }
+        final BluetoothManager bluetoothManager = (BluetoothManager) context.getSystemService(Context.BLUETOOTH_SERVICE);
+        BluetoothAdapter bluetoothAdapter = bluetoothManager.getAdapter();
+        if (!bluetoothAdapter.isMultipleAdvertisementSupported()) {
+            throw new Exception ("Peripheral mode not supported");
+        }
+        mBluetoothAdvertiser = bluetoothAdapter.getBluetoothLeAdvertiser();
+        if (mBluetoothAdvertiser == null) {
+            throw new Exception ("Peripheral mode not supported");
+        }
+        mContext = context.getApplicationContext();
+        mUpdateIntervalMillis = updateIntervalMillis;
+        mStartTime = SystemClock.elapsedRealtime();
+
+        // telemetry changes slowly, so it can be advertised less often than the iBeacon.
+        // Scannable, so Centrals can read the identity in the scan response
+        mAdvertiseSettings = new AdvertiseSettings.Builder()
+                .setAdvertiseMode(AdvertiseSettings.ADVERTISE_MODE_LOW_POWER)
+                .setTxPowerLevel(AdvertiseSettings.ADVERTISE_TX_POWER_HIGH)
+                .setConnectable(false)
+                .setTimeout(0)
+                .build();
+    }
+
+    /**
+     * Start advertising telemetry for the iBeacon, or restart it if the iBeacon's identity changed
+     *
+     * @param iBeacon the iBeacon, which has started advertising
+     */
+    public void start(IBeacon iBeacon) {
+        mAdvertisingIntervalMillis = getAdvertisingIntervalMillis(iBeacon.getAdvertisingMode());
+        byte[] identity = iBeacon.getPayload().getBytes();
+        boolean identityChanged = !Arrays.equals(identity, mIdentity);
+        mIdentity = identity;
+        if (!mRunning) {
+            mRunning = true;
+            mHandler.removeCallbacks(mUpdateRunnable);
+            mUpdateRunnable.run();
+        } else if (identityChanged) {
+            readTelemetry();
+            restartAdvertising();
+        }
+    }
+
+    /**
+     * Stop advertising telemetry
+     */
+    public void stop() {
+        mRunning = false;
+        mHandler.removeCallbacks(mUpdateRunnable);
+        if (mAdvertising) {
+            mBluetoothAdvertiser.stopAdvertising(mAdvertiseCallback);
+            mAdvertising = false;
+        }
+    }
+
+    /**
+     * Get the telemetry being advertised
+     *
+     * @return the telemetry
+     */
+    public TelemetryPayload getPayload() {
+        return mPayload;
+    }
+
+    /**
+     * Refresh the telemetry, and restart the telemetry advertisement only if it is due
+     */
+    private final Runnable mUpdateRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (!mRunning) {
+                return;
+            }
+            readTelemetry();
+            if (!mAdvertising || mPayload.isChanged()
+                    || SystemClock.elapsedRealtime() - mAdvertisedTime >= UPTIME_REFRESH_MILLIS) {
+                restartAdvertising();
+            }
+            mHandler.postDelayed(this, mUpdateIntervalMillis);
+        }
+    };
+
+    /**
+     * Advertise the current telemetry, with the iBeacon identity as the scan response
+     */
+    private void restartAdvertising() {
+        if (mAdvertising) {
+            mBluetoothAdvertiser.stopAdvertising(mAdvertiseCallback);
+        }
+        AdvertiseData advertiseData = new AdvertiseData.Builder()
+                .setIncludeDeviceName(false)
+                .addServiceUuid(EDDYSTONE_SERVICE_UUID)
+                .addServiceData(EDDYSTONE_SERVICE_UUID, mPayload.getBytes())
+                .build();
+        AdvertiseData scanResponse = new AdvertiseData.Builder()
+                .setIncludeDeviceName(false)
+                .addManufacturerData(IBeacon.MANUFACTURER_ID, mIdentity)
+                .build();
+        mBluetoothAdvertiser.startAdvertising(mAdvertiseSettings, advertiseData, scanResponse, mAdvertiseCallback);
+        mAdvertising = true;
+        mAdvertisedTime = SystemClock.elapsedRealtime();
+        mPayload.clearChanged();
+    }
+
+    /**
+     * Read the battery and uptime into the payload
+     */
+    private void readTelemetry() {
+        // the battery status is a sticky broadcast, so no receiver is needed
+        Intent batteryStatus = mContext.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        if (batteryStatus != null) {
+            mPayload.setBatteryMillivolts(batteryStatus.getIntExtra(BatteryManager.EXTRA_VOLTAGE, 0));
+            int temperature = batteryStatus.getIntExtra(BatteryManager.EXTRA_TEMPERATURE, Integer.MIN_VALUE);
+            // battery temperature is in tenths of a degree
+            mPayload.setTemperature((temperature == Integer.MIN_VALUE) ? Double.NaN : temperature / 10.0);
+        }
+
+        long elapsed = SystemClock.elapsedRealtime() - mStartTime;
+        mPayload.setUptimeDeciseconds(elapsed / 100);
+        // Android does not report how many advertisements were sent, so estimate it from the interval
+        mPayload.setAdvertisementCount(elapsed / mAdvertisingIntervalMillis);
+    }
+
+    /**
+     * Approximate advertising interval of each advertise mode
+     */
+    private static long getAdvertisingIntervalMillis(int advertiseMode) {
+        switch (advertiseMode) {
+            case AdvertiseSettings.ADVERTISE_MODE_LOW_LATENCY:
+                return 100;
+            case AdvertiseSettings.ADVERTISE_MODE_BALANCED:
+                return 250;
+            default: // ADVERTISE_MODE_LOW_POWER
+                return 1000;
+        }
+    }
+
+    /**
+     * A failed telemetry set leaves the iBeacon advertising.  The next update tries again
+     */
+    private final AdvertiseCallback mAdvertiseCallback = new AdvertiseCallback() {
+        @Override
+        public void onStartFailure(final int errorCode) {
+            super.onStartFailure(errorCode);
+            Log.e(TAG, "Failed to advertise telemetry, error " + errorCode);
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    mAdvertising = false;
+                }
+            });
+        }
+    };
+}
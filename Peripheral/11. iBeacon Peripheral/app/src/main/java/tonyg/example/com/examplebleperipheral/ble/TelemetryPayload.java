@@ -0,0 +1,143 @@
+package tonyg.example.com.examplebleperipheral.ble;
+
+import tonyg.example.com.blecodec.codecs.BeaconCodec;
+import tonyg.example.com.blecodec.codecs.BeaconFrame;
+import tonyg.example.com.blecodec.codecs.EddystoneTlmCodec;
+import tonyg.example.com.blecodec.codecs.EddystoneUidCodec;
+
+
+/**
+ * The service data of an Eddystone-TLM telemetry frame.
+ *
+ * The bytes are encoded by the same EddystoneTlmCodec the Central decodes with, and are the TLM
+ * data after the 16-bit Eddystone service UUID, which Android adds.  They are only encoded again
+ * after a value changes.
+ *
+ * isChanged() tells whether the frame is worth a restart of the telemetry advertisement.  The uptime
+ * and advertisement count change all the time, and the battery voltage and temperature jitter, so
+ * only a battery or temperature change past a threshold counts.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class TelemetryPayload {
+    /** Constants **/
+    public static final int EDDYSTONE_SERVICE_UUID = EddystoneUidCodec.EDDYSTONE_SERVICE_UUID;
+    public static final int TEMPERATURE_UNKNOWN = BeaconFrame.TEMPERATURE_UNKNOWN;
+
+    private static final EddystoneTlmCodec CODEC = new EddystoneTlmCodec();
+    public static final int LENGTH = CODEC.getDataLength() - BeaconCodec.ID_LENGTH;
+    public static final int BATTERY_CHANGE_MILLIVOLTS = 50;
+    public static final int TEMPERATURE_CHANGE = 256; // 1 degree, in 8.8 fixed point
+
+    private final BeaconFrame mFrame = new BeaconFrame();
+    private byte[] mBytes; // null until encoded after a change
+    private int mBatteryMillivolts = 0;
+    private int mTemperature = TEMPERATURE_UNKNOWN;
+    private long mAdvertisementCount = 0;
+    private long mUptimeDeciseconds = 0;
+
+    // as last advertised.  Nothing has been yet
+    private int mAdvertisedBatteryMillivolts = -1;
+    private int mAdvertisedTemperature = TEMPERATURE_UNKNOWN;
+
+    /**
+     * Set the battery voltage
+     *
+     * @param batteryMillivolts battery voltage in millivolts, or 0 if unknown
+     */
+    public void setBatteryMillivolts(int batteryMillivolts) {
+        batteryMillivolts = Math.max(0, Math.min(0xFFFF, batteryMillivolts));
+        if (batteryMillivolts != mBatteryMillivolts) {
+            mBatteryMillivolts = batteryMillivolts;
+            mBytes = null;
+        }
+    }
+
+    /**
+     * Set the temperature
+     *
+     * @param temperature degrees Celsius, or NaN if unknown
+     */
+    public void setTemperature(double temperature) {
+        int fixedPoint = TEMPERATURE_UNKNOWN;
+        if (!Double.isNaN(temperature)) {
+            fixedPoint = (int) Math.round(Math.max(-127.0, Math.min(127.0, temperature)) * 256) & 0xFFFF;
+        }
+        if (fixedPoint != mTemperature) {
+            mTemperature = fixedPoint;
+            mBytes = null;
+        }
+    }
+
+    /**
+     * Set the number of advertisements sent since the beacon started
+     *
+     * @param advertisementCount number of advertisements
+     */
+    public void setAdvertisementCount(long advertisementCount) {
+        advertisementCount &= 0xFFFFFFFFL;
+        if (advertisementCount != mAdvertisementCount) {
+            mAdvertisementCount = advertisementCount;
+            mBytes = null;
+        }
+    }
+
+    /**
+     * Set the time since the beacon started
+     *
+     * @param uptimeDeciseconds uptime in tenths of a second
+     */
+    public void setUptimeDeciseconds(long uptimeDeciseconds) {
+        uptimeDeciseconds &= 0xFFFFFFFFL;
+        if (uptimeDeciseconds != mUptimeDeciseconds) {
+            mUptimeDeciseconds = uptimeDeciseconds;
+            mBytes = null;
+        }
+    }
+
+    public int getBatteryMillivolts() { return mBatteryMillivolts; }
+    public int getRawTemperature() { return mTemperature; }
+    public long getAdvertisementCount() { return mAdvertisementCount; }
+    public long getUptimeDeciseconds() { return mUptimeDeciseconds; }
+
+    /**
+     * Test if the battery or temperature changed past its threshold since the last call to clearChanged()
+     *
+     * @return <b>true</b> if the frame needs to be advertised again
+     */
+    public boolean isChanged() {
+        if (mAdvertisedBatteryMillivolts < 0
+                || Math.abs(mBatteryMillivolts - mAdvertisedBatteryMillivolts) >= BATTERY_CHANGE_MILLIVOLTS) {
+            return true;
+        }
+        if (mTemperature == TEMPERATURE_UNKNOWN || mAdvertisedTemperature == TEMPERATURE_UNKNOWN) {
+            return mTemperature != mAdvertisedTemperature;
+        }
+        return Math.abs((short) mTemperature - (short) mAdvertisedTemperature) >= TEMPERATURE_CHANGE;
+    }
+
+    /**
+     * Mark the current values as advertised
+     */
+    public void clearChanged() {
+        mAdvertisedBatteryMillivolts = mBatteryMillivolts;
+        mAdvertisedTemperature = mTemperature;
+    }
+
+    /**
+     * Get the encoded service data.  The array is shared, and replaced after a change: do not modify it.
+     *
+     * @return the service data
+     */
+    public byte[] getBytes() {
+        if (mBytes == null) {
+            // the frame holds the temperature signed, as the codec decodes it
+            int temperature = (mTemperature == TEMPERATURE_UNKNOWN) ? TEMPERATURE_UNKNOWN : (short) mTemperature;
+            mFrame.setTelemetry(EDDYSTONE_SERVICE_UUID, EddystoneTlmCodec.VERSION_UNENCRYPTED, mBatteryMillivolts,
+                    temperature, mAdvertisementCount, mUptimeDeciseconds);
+            mBytes = CODEC.encodePayload(mFrame);
+        }
+        return mBytes;
+    }
+}
@@ -0,0 +1,125 @@
+package tonyg.example.com.examplebleperipheral.utilities;
+
+import android.bluetooth.le.AdvertiseSettings;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import tonyg.example.com.blecodec.EphemeralIdGenerator;
+import tonyg.example.com.examplebleperipheral.BuildConfig;
+import tonyg.example.com.examplebleperipheral.ble.IBeacon;
+
+
+/**
+ * Save the advertising settings chosen in calibration mode, and the RSSI measured at 1 meter
+ * for each TX power level, so that they survive restarts.
+ *
+ * The rotating identifier's secret is provisioned at build time, outside the source tree.
+ * Without one, the identifier does not rotate.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class AdvertisingSettingsStore {
+    /** Constants **/
+    private static final String TAG = AdvertisingSettingsStore.class.getSimpleName();
+    private static final String PREFERENCES_NAME = "advertising_settings";
+    private static final String KEY_ADVERTISING_MODE = "advertising_mode";
+    private static final String KEY_TX_POWER_LEVEL = "tx_power_level";
+    private static final String KEY_MEASURED_POWER = "measured_power_"; // followed by the TX power level
+    private static final String KEY_ROTATING_IDENTIFIER = "rotating_identifier";
+
+    private final SharedPreferences mPreferences;
+
+    /**
+     * Open the settings
+     *
+     * @param context the Application context
+     */
+    public AdvertisingSettingsStore(Context context) {
+        mPreferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+    }
+
+    public int getAdvertisingMode() {
+        return mPreferences.getInt(KEY_ADVERTISING_MODE, AdvertiseSettings.ADVERTISE_MODE_LOW_LATENCY);
+    }
+
+    public int getTransmissionPowerLevel() {
+        return mPreferences.getInt(KEY_TX_POWER_LEVEL, AdvertiseSettings.ADVERTISE_TX_POWER_HIGH);
+    }
+
+    /**
+     * Get the RSSI measured at 1 meter for a TX power level
+     *
+     * @param transmissionPowerLevel one of the ADVERTISE_TX_POWER_ levels
+     * @return the measured power, or an estimate if it has not been measured
+     */
+    public int getMeasuredPower(int transmissionPowerLevel) {
+        return mPreferences.getInt(KEY_MEASURED_POWER + transmissionPowerLevel, IBeacon.estimateMeasuredPower(transmissionPowerLevel));
+    }
+
+    /**
+     * Test if a TX power level has been measured
+     *
+     * @param transmissionPowerLevel one of the ADVERTISE_TX_POWER_ levels
+     * @return <b>false</b> if getMeasuredPower() returns an estimate
+     */
+    public boolean isMeasured(int transmissionPowerLevel) {
+        return mPreferences.contains(KEY_MEASURED_POWER + transmissionPowerLevel);
+    }
+
+    /**
+     * Save new advertising settings
+     *
+     * @param advertisingMode one of the ADVERTISE_MODE_ modes
+     * @param transmissionPowerLevel one of the ADVERTISE_TX_POWER_ levels
+     * @param measuredPower_db RSSI measured at 1 meter at this TX power level
+     */
+    public void save(int advertisingMode, int transmissionPowerLevel, int measuredPower_db) {
+        mPreferences.edit()
+                .putInt(KEY_ADVERTISING_MODE, advertisingMode)
+                .putInt(KEY_TX_POWER_LEVEL, transmissionPowerLevel)
+                .putInt(KEY_MEASURED_POWER + transmissionPowerLevel, measuredPower_db)
+                .apply();
+    }
+
+    public boolean isRotatingIdentifier() {
+        return mPreferences.getBoolean(KEY_ROTATING_IDENTIFIER, false) && hasEphemeralIdSecret();
+    }
+
+    /**
+     * Choose whether to advertise a rotating identifier.  It only rotates if a secret was provisioned.
+     *
+     * @param rotatingIdentifier <b>true</b> to derive the Major and Minor from the provisioned secret
+     */
+    public void setRotatingIdentifier(boolean rotatingIdentifier) {
+        mPreferences.edit().putBoolean(KEY_ROTATING_IDENTIFIER, rotatingIdentifier).apply();
+    }
+
+    /**
+     * Test if a secret for the rotating identifier was provisioned
+     *
+     * @return <b>false</b> if the identifier cannot rotate
+     */
+    public static boolean hasEphemeralIdSecret() {
+        return EphemeralIdGenerator.parseSecret(BuildConfig.EPHEMERAL_ID_SECRET) != null;
+    }
+
+    /**
+     * Use the saved settings for an iBeacon.  Takes effect the next time it starts advertising.
+     *
+     * @param iBeacon the iBeacon
+     */
+    public void applyTo(IBeacon iBeacon) {
+        int transmissionPowerLevel = getTransmissionPowerLevel();
+        iBeacon.setAdvertisingMode(getAdvertisingMode());
+        iBeacon.setTransmissionPowerLevel(transmissionPowerLevel, getMeasuredPower(transmissionPowerLevel));
+        if (isRotatingIdentifier() != iBeacon.isRotatingIdentifier()) {
+            iBeacon.setEphemeralIdGenerator(isRotatingIdentifier()
+                    ? new EphemeralIdGenerator(EphemeralIdGenerator.parseSecret(BuildConfig.EPHEMERAL_ID_SECRET), EphemeralIdGenerator.DEFAULT_ROTATION_PERIOD_MILLIS)
+                    : null);
+        } else if (mPreferences.getBoolean(KEY_ROTATING_IDENTIFIER, false) && !hasEphemeralIdSecret()) {
+            Log.w(TAG, "No ephemeral ID secret was provisioned, so the identifier does not rotate");
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package tonyg.example.com.examplebleperipheral.utilities;
+
+
+/**
+ * A source of monotonic time, so that schedules can be tested without waiting
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public interface Clock {
+    /**
+     * Milliseconds since some fixed point in the past.  Never goes backwards.
+     *
+     * @return the time in milliseconds
+     */
+    long uptimeMillis();
+}
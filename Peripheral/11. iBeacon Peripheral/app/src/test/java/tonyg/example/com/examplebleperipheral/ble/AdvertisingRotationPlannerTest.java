@@ -0,0 +1,170 @@
+package tonyg.example.com.examplebleperipheral.ble;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+
+import tonyg.example.com.examplebleperipheral.utilities.Clock;
+
+import static org.junit.Assert.*;
+
+/**
+ * Check the identity rotation against a clock that only moves when told to
+ */
+public class AdvertisingRotationPlannerTest {
+
+    private static class FakeClock implements Clock {
+        long now = 10000;
+
+        @Override
+        public long uptimeMillis() {
+            return now;
+        }
+    }
+
+    @Test
+    public void fewIdentities_eachGetsItsOwnSet() throws Exception {
+        FakeClock clock = new FakeClock();
+        AdvertisingRotationPlanner planner = new AdvertisingRotationPlanner(3, 1000, 4, 100, clock);
+
+        assertEquals(3, planner.getSlotCount());
+        assertEquals(AdvertisingRotationPlanner.NEVER, planner.getNextRotationTime(clock.now));
+        for (int slot = 0; slot < 3; slot++) {
+            assertEquals(slot, planner.getIdentity(slot));
+        }
+        clock.now += 60000;
+        for (int slot = 0; slot < 3; slot++) {
+            assertEquals(slot, planner.getIdentity(slot));
+        }
+    }
+
+    @Test
+    public void rotation_broadcastsEveryIdentityWithinTargetInterval() throws Exception {
+        FakeClock clock = new FakeClock();
+        AdvertisingRotationPlanner planner = new AdvertisingRotationPlanner(10, 1000, 4, 100, clock);
+
+        assertEquals(4, planner.getSlotCount());
+        assertEquals(3, planner.getIdentitiesPerSlot());
+        assertEquals(333, planner.getDwellMillis());
+        assertTrue(planner.isTargetIntervalMet());
+
+        // every window of one target interval sees every identity
+        for (long windowStart = 0; windowStart < 5000; windowStart += 50) {
+            HashSet<Integer> seen = new HashSet<Integer>();
+            for (long time = windowStart; time < windowStart + 1000; time += 10) {
+                for (int slot = 0; slot < planner.getSlotCount(); slot++) {
+                    seen.add(planner.getIdentity(slot, clock.now + time));
+                }
+            }
+            assertEquals(10, seen.size());
+        }
+    }
+
+    @Test
+    public void rotation_neverBroadcastsOneIdentityTwice() throws Exception {
+        FakeClock clock = new FakeClock();
+        AdvertisingRotationPlanner planner = new AdvertisingRotationPlanner(7, 900, 3, 100, clock);
+
+        for (long time = 0; time < 10000; time += 7) {
+            HashSet<Integer> active = new HashSet<Integer>();
+            for (int slot = 0; slot < planner.getSlotCount(); slot++) {
+                int identity = planner.getIdentity(slot, clock.now + time);
+                assertTrue(identity >= 0 && identity < 7);
+                assertTrue(active.add(identity));
+            }
+        }
+    }
+
+    @Test
+    public void nextRotationTime_isWhenAnIdentityChanges() throws Exception {
+        FakeClock clock = new FakeClock();
+        AdvertisingRotationPlanner planner = new AdvertisingRotationPlanner(8, 800, 2, 100, clock);
+        int slotCount = planner.getSlotCount();
+
+        long time = clock.now;
+        for (int rotation = 0; rotation < 50; rotation++) {
+            long next = planner.getNextRotationTime(time);
+            assertTrue(next > time);
+
+            // nothing changes before the next rotation time, and something changes at it
+            boolean changed = false;
+            for (int slot = 0; slot < slotCount; slot++) {
+                assertEquals(planner.getIdentity(slot, time), planner.getIdentity(slot, next - 1));
+                changed |= planner.getIdentity(slot, time) != planner.getIdentity(slot, next);
+            }
+            assertTrue(changed);
+            time = next;
+        }
+    }
+
+    @Test
+    public void switches_areStaggeredAcrossSets() throws Exception {
+        FakeClock clock = new FakeClock();
+        AdvertisingRotationPlanner planner = new AdvertisingRotationPlanner(8, 800, 4, 100, clock);
+
+        long time = clock.now;
+        for (int rotation = 0; rotation < 20; rotation++) {
+            long next = planner.getNextRotationTime(time);
+            int changes = 0;
+            for (int slot = 0; slot < planner.getSlotCount(); slot++) {
+                if (planner.getIdentity(slot, next - 1) != planner.getIdentity(slot, next)) {
+                    changes++;
+                }
+            }
+            assertEquals(1, changes);
+            time = next;
+        }
+    }
+
+    @Test
+    public void minimumDwell_stretchesTheInterval() throws Exception {
+        FakeClock clock = new FakeClock();
+        AdvertisingRotationPlanner planner = new AdvertisingRotationPlanner(20, 1000, 2, 250, clock);
+
+        assertEquals(250, planner.getDwellMillis());
+        assertEquals(2500, planner.getEffectiveIntervalMillis());
+        assertFalse(planner.isTargetIntervalMet());
+    }
+
+    @Test
+    public void start_restartsTheRotation() throws Exception {
+        FakeClock clock = new FakeClock();
+        AdvertisingRotationPlanner planner = new AdvertisingRotationPlanner(6, 600, 2, 100, clock);
+
+        clock.now += 12345;
+        planner.start();
+        assertEquals(0, planner.getIdentity(0));
+        assertEquals(clock.now + planner.getDwellMillis() / 2, planner.getNextRotationTime(clock.now));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noAdvertisingSets_isRejected() throws Exception {
+        new AdvertisingRotationPlanner(5, 1000, 0, 100, new FakeClock());
+    }
+
+    @Test
+    public void withoutSlot_shrinksUntilNoSetIsLeft() throws Exception {
+        FakeClock clock = new FakeClock();
+        AdvertisingRotationPlanner planner = new AdvertisingRotationPlanner(10, 1000, 4, 100, clock);
+
+        AdvertisingRotationPlanner reduced = planner.withoutSlot(2);
+        assertEquals(2, reduced.getSlotCount());
+        assertEquals(10, reduced.getIdentityCount());
+        assertEquals(5, reduced.getIdentitiesPerSlot());
+        assertEquals(200, reduced.getDwellMillis());
+
+        // the controller keeps refusing: each failure leaves fewer sets, then none
+        int replans = 0;
+        for (reduced = planner; reduced != null; reduced = reduced.withoutSlot(reduced.getSlotCount() - 1)) {
+            replans++;
+            assertTrue(replans <= 4);
+        }
+        assertEquals(4, replans);
+        assertNull(planner.withoutSlot(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void withoutSlot_rejectsAMissingSlot() throws Exception {
+        new AdvertisingRotationPlanner(10, 1000, 4, 100, new FakeClock()).withoutSlot(4);
+    }
+}
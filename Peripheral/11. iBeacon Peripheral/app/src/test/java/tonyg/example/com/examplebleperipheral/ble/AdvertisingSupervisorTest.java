@@ -0,0 +1,229 @@
+package tonyg.example.com.examplebleperipheral.ble;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import tonyg.example.com.examplebleperipheral.utilities.Clock;
+
+import static org.junit.Assert.*;
+
+/**
+ * Drive the supervisor's state machine with a fake clock and scheduler
+ */
+public class AdvertisingSupervisorTest {
+
+    /**
+     * A clock and scheduler that only move when advance() is called
+     */
+    private static class FakeTime implements Clock, AdvertisingSupervisor.Scheduler {
+        long now = 0;
+        ArrayList<Runnable> tasks = new ArrayList<Runnable>();
+        ArrayList<Long> dueTimes = new ArrayList<Long>();
+
+        @Override
+        public long uptimeMillis() {
+            return now;
+        }
+
+        @Override
+        public void schedule(Runnable task, long delayMillis) {
+            tasks.add(task);
+            dueTimes.add(now + delayMillis);
+        }
+
+        @Override
+        public void cancel(Runnable task) {
+            for (int index = tasks.size() - 1; index >= 0; index--) {
+                if (tasks.get(index) == task) {
+                    tasks.remove(index);
+                    dueTimes.remove(index);
+                }
+            }
+        }
+
+        /** Run every task that falls due, in order **/
+        void advance(long millis) {
+            long end = now + millis;
+            while (true) {
+                int next = -1;
+                for (int index = 0; index < tasks.size(); index++) {
+                    if (dueTimes.get(index) <= end && (next < 0 || dueTimes.get(index) < dueTimes.get(next))) {
+                        next = index;
+                    }
+                }
+                if (next < 0) {
+                    break;
+                }
+                now = dueTimes.remove(next);
+                tasks.remove(next).run();
+            }
+            now = end;
+        }
+
+        /** Delay until the next task, or -1 **/
+        long nextDelay() {
+            long next = -1;
+            for (long dueTime : dueTimes) {
+                if (next < 0 || dueTime < next) {
+                    next = dueTime;
+                }
+            }
+            return (next < 0) ? -1 : next - now;
+        }
+    }
+
+    private static class FakeAdvertiser implements AdvertisingSupervisor.Advertiser {
+        int starts = 0;
+        int stops = 0;
+
+        @Override
+        public void start() { starts++; }
+
+        @Override
+        public void stop() { stops++; }
+    }
+
+    private FakeTime mTime;
+    private FakeAdvertiser mAdvertiser;
+    private AdvertisingSupervisor mSupervisor;
+
+    @Before
+    public void setUp() throws Exception {
+        mTime = new FakeTime();
+        mAdvertiser = new FakeAdvertiser();
+        mSupervisor = new AdvertisingSupervisor(mAdvertiser, mTime, mTime);
+        mSupervisor.setTiming(1000, 8000, 5000);
+    }
+
+    @Test
+    public void start_advertisesOnSuccess() throws Exception {
+        mSupervisor.start();
+        assertEquals(AdvertisingSupervisor.STATE_STARTING, mSupervisor.getState());
+        assertEquals(1, mAdvertiser.starts);
+
+        mSupervisor.onStartSuccess();
+        assertEquals(AdvertisingSupervisor.STATE_ADVERTISING, mSupervisor.getState());
+        assertEquals(-1, mTime.nextDelay()); // the start timeout was cancelled
+    }
+
+    @Test
+    public void retryableFailures_backOffExponentially() throws Exception {
+        mSupervisor.start();
+        long[] expectedDelays = { 1000, 2000, 4000, 8000, 8000 };
+        for (int attempt = 0; attempt < expectedDelays.length; attempt++) {
+            mSupervisor.onStartFailure((attempt % 2 == 0)
+                    ? AdvertisingSupervisor.ERROR_TOO_MANY_ADVERTISERS
+                    : AdvertisingSupervisor.ERROR_INTERNAL_ERROR);
+            assertEquals(AdvertisingSupervisor.STATE_BACKING_OFF, mSupervisor.getState());
+            assertEquals(expectedDelays[attempt], mTime.nextDelay());
+
+            mTime.advance(expectedDelays[attempt]);
+            assertEquals(AdvertisingSupervisor.STATE_STARTING, mSupervisor.getState());
+            assertEquals(attempt + 2, mAdvertiser.starts);
+        }
+        assertEquals(5, mSupervisor.getRestartCount());
+        assertEquals(3, mSupervisor.getFailureCount(AdvertisingSupervisor.ERROR_TOO_MANY_ADVERTISERS));
+        assertEquals(2, mSupervisor.getFailureCount(AdvertisingSupervisor.ERROR_INTERNAL_ERROR));
+    }
+
+    @Test
+    public void success_resetsTheBackoff() throws Exception {
+        mSupervisor.start();
+        mSupervisor.onStartFailure(AdvertisingSupervisor.ERROR_INTERNAL_ERROR);
+        mTime.advance(1000);
+        mSupervisor.onStartFailure(AdvertisingSupervisor.ERROR_INTERNAL_ERROR);
+        mTime.advance(2000);
+        mSupervisor.onStartSuccess();
+        assertEquals(0, mSupervisor.getConsecutiveFailures());
+
+        mSupervisor.onAdvertisingLost();
+        assertEquals(AdvertisingSupervisor.STATE_BACKING_OFF, mSupervisor.getState());
+        assertEquals(1000, mTime.nextDelay());
+    }
+
+    @Test
+    public void alreadyStarted_countsAsSuccess() throws Exception {
+        mSupervisor.start();
+        mSupervisor.onStartFailure(AdvertisingSupervisor.ERROR_ALREADY_STARTED);
+        assertEquals(AdvertisingSupervisor.STATE_ADVERTISING, mSupervisor.getState());
+        assertEquals(0, mSupervisor.getFailureCount(AdvertisingSupervisor.ERROR_ALREADY_STARTED));
+    }
+
+    @Test
+    public void fatalFailures_giveUp() throws Exception {
+        mSupervisor.start();
+        mSupervisor.onStartFailure(AdvertisingSupervisor.ERROR_DATA_TOO_LARGE);
+        assertEquals(AdvertisingSupervisor.STATE_FAILED, mSupervisor.getState());
+        assertEquals(-1, mTime.nextDelay());
+
+        // an explicit start tries again
+        mSupervisor.start();
+        mSupervisor.onStartFailure(AdvertisingSupervisor.ERROR_FEATURE_UNSUPPORTED);
+        assertEquals(AdvertisingSupervisor.STATE_FAILED, mSupervisor.getState());
+        assertEquals(2, mAdvertiser.starts);
+    }
+
+    @Test
+    public void missingCallback_timesOutAndRetries() throws Exception {
+        mSupervisor.start();
+        mTime.advance(5000);
+        assertEquals(AdvertisingSupervisor.STATE_BACKING_OFF, mSupervisor.getState());
+        assertEquals(1, mSupervisor.getFailureCount(AdvertisingSupervisor.ERROR_START_TIMEOUT));
+
+        // a late success for the timed out start is ignored
+        mSupervisor.onStartSuccess();
+        assertEquals(AdvertisingSupervisor.STATE_BACKING_OFF, mSupervisor.getState());
+    }
+
+    @Test
+    public void stop_cancelsRetries() throws Exception {
+        mSupervisor.start();
+        mSupervisor.onStartFailure(AdvertisingSupervisor.ERROR_INTERNAL_ERROR);
+        mSupervisor.stop();
+        assertEquals(AdvertisingSupervisor.STATE_STOPPED, mSupervisor.getState());
+
+        mTime.advance(60000);
+        assertEquals(1, mAdvertiser.starts);
+    }
+
+    @Test
+    public void uptime_onlyCountsTimeAdvertising() throws Exception {
+        mSupervisor.start();
+        mTime.advance(300);
+        mSupervisor.onStartSuccess();
+        mTime.advance(10000);
+        assertEquals(10000, mSupervisor.getUptimeMillis());
+
+        mSupervisor.onAdvertisingLost();
+        mTime.advance(1000);
+        mSupervisor.onStartSuccess();
+        mTime.advance(500);
+        assertEquals(10500, mSupervisor.getUptimeMillis());
+
+        mSupervisor.stop();
+        mTime.advance(10000);
+        assertEquals(10500, mSupervisor.getUptimeMillis());
+    }
+
+    @Test
+    public void repeatedFailures_giveUpAfterTheLimit() throws Exception {
+        mSupervisor.setMaxConsecutiveFailures(4);
+        mSupervisor.start();
+        for (int attempt = 1; attempt < 4; attempt++) {
+            mSupervisor.onStartFailure(AdvertisingSupervisor.ERROR_TOO_MANY_ADVERTISERS);
+            assertEquals(AdvertisingSupervisor.STATE_BACKING_OFF, mSupervisor.getState());
+            mTime.advance(mTime.nextDelay());
+        }
+        mSupervisor.onStartFailure(AdvertisingSupervisor.ERROR_TOO_MANY_ADVERTISERS);
+        assertEquals(AdvertisingSupervisor.STATE_FAILED, mSupervisor.getState());
+        assertEquals(-1, mTime.nextDelay());
+        assertEquals(4, mAdvertiser.starts);
+
+        // an explicit start tries again, with the count reset
+        mSupervisor.start();
+        mSupervisor.onStartFailure(AdvertisingSupervisor.ERROR_INTERNAL_ERROR);
+        assertEquals(AdvertisingSupervisor.STATE_BACKING_OFF, mSupervisor.getState());
+    }
+}
@@ -0,0 +1,86 @@
+package tonyg.example.com.examplebleperipheral.ble;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+import tonyg.example.com.blecodec.codecs.BeaconCodecRegistry;
+import tonyg.example.com.blecodec.codecs.BeaconFrame;
+import tonyg.example.com.blecodec.codecs.IBeaconCodec;
+
+import static org.junit.Assert.*;
+
+/**
+ * Check that the iBeacon payload decodes with the codecs the Central parses Scan Records with
+ */
+public class IBeaconPayloadTest {
+    private static final UUID UUID_UNDER_TEST = UUID.fromString("e20a39f4-73f5-4bc4-a12f-17d1ad07a961");
+
+    /**
+     * Build the Scan Record a Central receives: flags, then the manufacturer data with its company ID
+     */
+    private static byte[] toScanRecord(IBeaconPayload payload) {
+        byte[] data = payload.getBytes();
+        ByteBuffer scanRecord = ByteBuffer.allocate(62);
+        scanRecord.put(new byte[] { 0x02, 0x01, 0x06 }); // flags
+        scanRecord.put((byte) (data.length + 3)); // length of type, company ID, and data
+        scanRecord.put((byte) 0xFF); // manufacturer specific data
+        scanRecord.put((byte) (IBeaconPayload.APPLE_COMPANY_ID & 0xFF)); // company ID is Little Endian
+        scanRecord.put((byte) (IBeaconPayload.APPLE_COMPANY_ID >> 8));
+        scanRecord.put(data);
+        return scanRecord.array();
+    }
+
+    @Test
+    public void payload_matchesCentralScanRecord() throws Exception {
+        byte[] expected = {
+                0x02, 0x01, 0x06, 0x1A, (byte) 0xFF, 0x4C, 0x00, 0x02, 0x15,
+                (byte) 0xE2, 0x0A, 0x39, (byte) 0xF4, 0x73, (byte) 0xF5, 0x4B, (byte) 0xC4,
+                (byte) 0xA1, 0x2F, 0x17, (byte) 0xD1, (byte) 0xAD, 0x07, (byte) 0xA9, 0x61,
+                0x04, 0x62, 0x0D, 0x10, (byte) 0xC9
+        };
+        byte[] scanRecord = toScanRecord(new IBeaconPayload(UUID_UNDER_TEST, 1122, 3344, -55));
+
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals("byte " + i, expected[i], scanRecord[i]);
+        }
+    }
+
+    @Test
+    public void payload_roundTripsThroughCentralCodecs() throws Exception {
+        BeaconCodecRegistry codecs = BeaconCodecRegistry.createDefault();
+        BeaconFrame frame = new BeaconFrame();
+        int[][] identities = { { 65535, 1, -128 }, { 0, 65535, 127 }, { 1122, 3344, -55 } };
+        for (int[] identity : identities) {
+            byte[] scanRecord = toScanRecord(new IBeaconPayload(UUID_UNDER_TEST, identity[0], identity[1], identity[2]));
+
+            // the flags structure comes first, and is skipped
+            assertEquals(BeaconCodecRegistry.RESULT_DECODED, codecs.decodeWithResult(scanRecord, 0, scanRecord.length, frame));
+            assertEquals(BeaconFrame.FORMAT_IBEACON, frame.getFormat());
+            assertEquals(IBeaconCodec.APPLE_COMPANY_ID, frame.getCompanyId());
+            assertEquals(UUID_UNDER_TEST, frame.getIdentifier());
+            assertEquals(identity[0], frame.getId2());
+            assertEquals(identity[1], frame.getId3());
+            assertEquals(identity[2], frame.getTransmissionPower());
+        }
+    }
+
+    @Test
+    public void payload_isCachedUntilIdentityChanges() throws Exception {
+        IBeaconPayload payload = new IBeaconPayload(UUID_UNDER_TEST, 1122, 3344, -55);
+
+        assertSame(payload.getBytes(), payload.getBytes());
+        assertSame(payload, payload.withMajor(1122).withMinor(3344).withTransmissionPower(-55).withUuid(UUID_UNDER_TEST));
+
+        IBeaconPayload changed = payload.withMinor(3345);
+        assertNotSame(payload, changed);
+        assertEquals(3345, changed.getMinor());
+        assertEquals(1122, changed.getMajor());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void payload_rejectsMajorOutOfRange() throws Exception {
+        new IBeaconPayload(UUID_UNDER_TEST, 65536, 0, -55);
+    }
+}
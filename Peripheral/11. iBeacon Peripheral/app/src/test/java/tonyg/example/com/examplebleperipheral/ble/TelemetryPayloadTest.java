@@ -0,0 +1,123 @@
+package tonyg.example.com.examplebleperipheral.ble;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+import tonyg.example.com.blecodec.codecs.BeaconCodecRegistry;
+import tonyg.example.com.blecodec.codecs.BeaconFrame;
+
+import static org.junit.Assert.*;
+
+/**
+ * Check that the telemetry advertisement decodes with the Central's codecs, before the iBeacon in its scan response
+ */
+public class TelemetryPayloadTest {
+    private static final UUID UUID_UNDER_TEST = UUID.fromString("e20a39f4-73f5-4bc4-a12f-17d1ad07a961");
+
+    /**
+     * Build the Scan Record a Central receives from an active scan of the telemetry set: the
+     * Eddystone service UUID and service data padded to 31 bytes, then the iBeacon scan response
+     */
+    private static byte[] toScanRecord(IBeaconPayload iBeacon, TelemetryPayload telemetry) {
+        byte[] iBeaconData = iBeacon.getBytes();
+        byte[] telemetryData = telemetry.getBytes();
+        ByteBuffer scanRecord = ByteBuffer.allocate(62);
+        scanRecord.put(new byte[] { 0x03, 0x03, (byte) 0xAA, (byte) 0xFE }); // complete list of 16-bit service UUIDs
+        scanRecord.put((byte) (telemetryData.length + 3));
+        scanRecord.put((byte) 0x16); // service data
+        scanRecord.put((byte) (TelemetryPayload.EDDYSTONE_SERVICE_UUID & 0xFF));
+        scanRecord.put((byte) (TelemetryPayload.EDDYSTONE_SERVICE_UUID >> 8));
+        scanRecord.put(telemetryData);
+
+        scanRecord.position(31);
+        scanRecord.put((byte) (iBeaconData.length + 3));
+        scanRecord.put((byte) 0xFF); // manufacturer specific data
+        scanRecord.put((byte) (IBeaconPayload.APPLE_COMPANY_ID & 0xFF));
+        scanRecord.put((byte) (IBeaconPayload.APPLE_COMPANY_ID >> 8));
+        scanRecord.put(iBeaconData);
+        assertTrue(scanRecord.position() <= 62); // both fit in 31 bytes
+        return scanRecord.array();
+    }
+
+    @Test
+    public void telemetry_decodesBeforeTheIBeaconScanResponse() throws Exception {
+        BeaconCodecRegistry codecs = BeaconCodecRegistry.createDefault();
+        BeaconFrame frame = new BeaconFrame();
+        double[] temperatures = { 23.5, -12.25, Double.NaN };
+        for (double temperature : temperatures) {
+            TelemetryPayload telemetry = new TelemetryPayload();
+            telemetry.setBatteryMillivolts(3712);
+            telemetry.setTemperature(temperature);
+            telemetry.setAdvertisementCount(0xFFFFFFF0L);
+            telemetry.setUptimeDeciseconds(864000);
+            assertEquals(TelemetryPayload.LENGTH, telemetry.getBytes().length);
+            byte[] scanRecord = toScanRecord(new IBeaconPayload(UUID_UNDER_TEST, 1122, 3344, -55), telemetry);
+
+            assertEquals(BeaconCodecRegistry.RESULT_DECODED, codecs.decodeWithResult(scanRecord, 0, scanRecord.length, frame));
+            assertEquals(BeaconFrame.FORMAT_EDDYSTONE_TLM, frame.getFormat());
+            assertEquals(3712, frame.getBatteryMillivolts());
+            if (Double.isNaN(temperature)) {
+                assertTrue(Double.isNaN(frame.getTemperature()));
+            } else {
+                assertEquals(temperature, frame.getTemperature(), 1.0 / 256);
+            }
+            assertEquals(0xFFFFFFF0L, frame.getAdvertisementCount());
+            assertEquals(864000, frame.getUptimeDeciseconds());
+            int position = frame.getEndPosition();
+            assertEquals(22, position);
+
+            // the Central skips the padding, as ParseStage does
+            while (scanRecord[position] == 0) {
+                position++;
+            }
+            assertEquals(BeaconCodecRegistry.RESULT_DECODED, codecs.decodeWithResult(scanRecord, position, scanRecord.length - position, frame));
+            assertEquals(BeaconFrame.FORMAT_IBEACON, frame.getFormat());
+            assertEquals(1122, frame.getId2());
+            assertEquals(3344, frame.getId3());
+        }
+    }
+
+    @Test
+    public void bytes_areCachedUntilAValueChanges() throws Exception {
+        TelemetryPayload telemetry = new TelemetryPayload();
+        telemetry.setBatteryMillivolts(3700);
+        byte[] bytes = telemetry.getBytes();
+        telemetry.setBatteryMillivolts(3700);
+        assertSame(bytes, telemetry.getBytes());
+
+        telemetry.setUptimeDeciseconds(10);
+        assertNotSame(bytes, telemetry.getBytes());
+    }
+
+    @Test
+    public void isChanged_onlyForBatteryAndTemperature() throws Exception {
+        TelemetryPayload telemetry = new TelemetryPayload();
+        telemetry.setBatteryMillivolts(3700);
+        telemetry.setTemperature(25);
+        assertTrue(telemetry.isChanged()); // never advertised
+        telemetry.clearChanged();
+
+        // uptime and count go out with the next refresh
+        telemetry.setUptimeDeciseconds(6000);
+        telemetry.setAdvertisementCount(600);
+        assertFalse(telemetry.isChanged());
+
+        // jitter is below the thresholds
+        telemetry.setBatteryMillivolts(3700 - TelemetryPayload.BATTERY_CHANGE_MILLIVOLTS + 1);
+        telemetry.setTemperature(25.5);
+        assertFalse(telemetry.isChanged());
+
+        telemetry.setBatteryMillivolts(3700 - TelemetryPayload.BATTERY_CHANGE_MILLIVOLTS);
+        assertTrue(telemetry.isChanged());
+        telemetry.clearChanged();
+
+        telemetry.setTemperature(24);
+        assertTrue(telemetry.isChanged());
+        telemetry.clearChanged();
+
+        telemetry.setTemperature(Double.NaN);
+        assertTrue(telemetry.isChanged());
+    }
+}
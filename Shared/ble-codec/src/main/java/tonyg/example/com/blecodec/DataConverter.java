@@ -0,0 +1,247 @@
+package tonyg.example.com.blecodec;
+
+import java.util.UUID;
+
+/**
+ * Convert between bytes, numbers, and hexadecimal.
+ *
+ * The primitives read and write at an offset into a caller's array and never allocate, so they
+ * can be used on every scan result.  Multi-byte values are Big Endian unless the name says
+ * otherwise.  The String methods at the end are conveniences for logging and constants.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public final class DataConverter {
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    /** Value of each ASCII character as a hex digit, or -1 if it is not one **/
+    private static final byte[] HEX_VALUES = new byte[128];
+
+    static {
+        for (int index = 0; index < HEX_VALUES.length; index++) {
+            HEX_VALUES[index] = -1;
+        }
+        for (int digit = 0; digit < 16; digit++) {
+            HEX_VALUES[HEX_DIGITS[digit]] = (byte) digit;
+            HEX_VALUES[Character.toLowerCase(HEX_DIGITS[digit])] = (byte) digit;
+        }
+    }
+
+    private DataConverter() {}
+
+    /** Readers **/
+
+    public static int readU8(byte[] data, int offset) {
+        return data[offset] & 0xFF;
+    }
+
+    public static int readS8(byte[] data, int offset) {
+        return data[offset];
+    }
+
+    public static int readU16BE(byte[] data, int offset) {
+        return ((data[offset] & 0xFF) << 8) | (data[offset + 1] & 0xFF);
+    }
+
+    public static int readU16LE(byte[] data, int offset) {
+        return (data[offset] & 0xFF) | ((data[offset + 1] & 0xFF) << 8);
+    }
+
+    public static long readU32BE(byte[] data, int offset) {
+        return ((long) readU16BE(data, offset) << 16) | readU16BE(data, offset + 2);
+    }
+
+    public static long readS64BE(byte[] data, int offset) {
+        return readUnsignedBE(data, offset, 8);
+    }
+
+    /**
+     * Read a Big Endian value of up to 8 bytes
+     *
+     * @param data the array to read from
+     * @param offset position of the first byte
+     * @param length number of bytes
+     * @return the value, zero extended
+     */
+    public static long readUnsignedBE(byte[] data, int offset, int length) {
+        long value = 0;
+        for (int index = 0; index < length; index++) {
+            value = (value << 8) | (data[offset + index] & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * Read a 16 byte UUID.  This allocates the UUID; use readS64BE twice to avoid it.
+     *
+     * @param data the array to read from
+     * @param offset position of the first byte
+     * @return the UUID
+     */
+    public static UUID readUuid(byte[] data, int offset) {
+        return new UUID(readS64BE(data, offset), readS64BE(data, offset + 8));
+    }
+
+    /** Writers **/
+
+    public static void writeU16BE(int value, byte[] data, int offset) {
+        data[offset] = (byte) (value >> 8);
+        data[offset + 1] = (byte) value;
+    }
+
+    public static void writeU16LE(int value, byte[] data, int offset) {
+        data[offset] = (byte) value;
+        data[offset + 1] = (byte) (value >> 8);
+    }
+
+    public static void writeU32BE(long value, byte[] data, int offset) {
+        writeU16BE((int) (value >> 16), data, offset);
+        writeU16BE((int) value, data, offset + 2);
+    }
+
+    public static void writeS64BE(long value, byte[] data, int offset) {
+        writeUnsignedBE(value, data, offset, 8);
+    }
+
+    /**
+     * Write the low bytes of a value, Big Endian
+     *
+     * @param value the value to write
+     * @param data the array to write into
+     * @param offset position of the first byte
+     * @param length number of bytes
+     */
+    public static void writeUnsignedBE(long value, byte[] data, int offset, int length) {
+        for (int index = length - 1; index >= 0; index--) {
+            data[offset + index] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    public static void writeUuid(UUID uuid, byte[] data, int offset) {
+        writeS64BE(uuid.getMostSignificantBits(), data, offset);
+        writeS64BE(uuid.getLeastSignificantBits(), data, offset + 8);
+    }
+
+    /** Hexadecimal **/
+
+    /**
+     * Write two upper case hex digits per byte
+     *
+     * @param data the bytes to encode
+     * @param offset position of the first byte
+     * @param length number of bytes
+     * @param out the array to write into, with room for 2 * length characters
+     * @param outOffset position of the first character
+     * @return position after the last character written
+     */
+    public static int encodeHex(byte[] data, int offset, int length, char[] out, int outOffset) {
+        for (int index = offset; index < offset + length; index++) {
+            int value = data[index] & 0xFF;
+            out[outOffset++] = HEX_DIGITS[value >>> 4];
+            out[outOffset++] = HEX_DIGITS[value & 0x0F];
+        }
+        return outOffset;
+    }
+
+    /**
+     * Decode pairs of hex digits, in either case
+     *
+     * @param hex the characters to decode
+     * @param start position of the first character
+     * @param end position after the last character
+     * @param out the array to write into, with room for (end - start) / 2 bytes
+     * @param outOffset position of the first byte
+     * @return position after the last byte written
+     * @throws IllegalArgumentException if the length is odd or a character is not a hex digit
+     */
+    public static int decodeHex(CharSequence hex, int start, int end, byte[] out, int outOffset) {
+        if (((end - start) & 1) != 0) {
+            throw new IllegalArgumentException("Hex string must have an even number of digits");
+        }
+        for (int index = start; index < end; index += 2) {
+            out[outOffset++] = (byte) ((hexValue(hex, index) << 4) | hexValue(hex, index + 1));
+        }
+        return outOffset;
+    }
+
+    private static int hexValue(CharSequence hex, int index) {
+        char digit = hex.charAt(index);
+        int value = digit < HEX_VALUES.length ? HEX_VALUES[digit] : -1;
+        if (value < 0) {
+            throw new IllegalArgumentException("Not a hex digit at " + index + ": '" + digit + "'");
+        }
+        return value;
+    }
+
+    /** Conveniences **/
+
+    /**
+     * Convert bytes to a hexadecimal String, each byte followed by a space
+     *
+     * @param bytes a byte array
+     * @return hexadecimal string
+     */
+    public static String bytesToHex(byte[] bytes) {
+        char[] hexChars = new char[bytes.length * 3];
+        int position = 0;
+        for (int index = 0; index < bytes.length; index++) {
+            position = encodeHex(bytes, index, 1, hexChars, position);
+            hexChars[position++] = ' ';
+        }
+        return new String(hexChars);
+    }
+
+    /**
+     * Convert hex String to a byte array
+     *
+     * @param hexString a String representation of hexadecimal
+     * @return byte array
+     */
+    public static byte[] hexToBytes(String hexString) {
+        byte[] data = new byte[hexString.length() / 2];
+        decodeHex(hexString, 0, hexString.length(), data, 0);
+        return data;
+    }
+
+    /**
+     * Convert uint16_t byte array into double
+     *
+     * @param bytes a 2-byte byte array
+     * @return double value of bytes, or 0 if too short
+     */
+    public static double bytesToDouble(byte[] bytes) {
+        return bytesToUnsignedInt(bytes);
+    }
+
+    /**
+     * Convert int8_t byte array into a signed integer
+     *
+     * @param bytes a 1-byte byte array
+     * @return signed integer value of bytes, or 0 if too short
+     */
+    public static int bytesToSignedInt(byte[] bytes) {
+        return bytes.length < 1 ? 0 : readS8(bytes, 0);
+    }
+
+    /**
+     * Convert uint16_t byte array into an unsigned integer
+     *
+     * @param bytes a 2-byte byte array
+     * @return unsigned int value of bytes, or 0 if too short
+     */
+    public static int bytesToUnsignedInt(byte[] bytes) {
+        return bytes.length < 2 ? 0 : readU16BE(bytes, 0);
+    }
+
+    /**
+     * Convert a 16-byte array into UUID
+     *
+     * @param bytes a 16-byte byte array
+     * @return a UUID
+     */
+    public static UUID bytesToUuid(byte[] bytes) {
+        return readUuid(bytes, 0);
+    }
+}
@@ -0,0 +1,128 @@
+package tonyg.example.com.blecodec;
+
+import java.security.GeneralSecurityException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+
+/**
+ * Derive rotating iBeacon identifiers from a secret shared by the Peripheral and the Central.
+ *
+ * Time is cut into rotation periods, numbered from the Unix epoch.  The identifier for a period
+ * is the first 4 bytes of HMAC-SHA256(secret, period number), advertised as the Major and Minor.
+ * Without the secret, successive identifiers look unrelated, so the beacon cannot be cloned or
+ * followed.  The Peripheral advertises them and the Central resolves them with this same class.
+ * Both sides need clocks that agree to within a rotation period.
+ *
+ * Not thread safe: the Mac and buffers are reused.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class EphemeralIdGenerator {
+    /** Constants **/
+    public static final String ALGORITHM = "HmacSHA256";
+    public static final long DEFAULT_ROTATION_PERIOD_MILLIS = 15 * 60 * 1000;
+    public static final int MIN_SECRET_LENGTH = 16;
+
+    private final Mac mMac;
+    private final long mRotationPeriodMillis;
+    private final byte[] mCounterBytes = new byte[8];
+    private final byte[] mDigest;
+
+
+    /**
+     * Create a generator
+     *
+     * @param secret the shared secret, at least MIN_SECRET_LENGTH bytes
+     * @param rotationPeriodMillis how long each identifier is advertised
+     */
+    public EphemeralIdGenerator(byte[] secret, long rotationPeriodMillis) {
+        if (secret == null || secret.length < MIN_SECRET_LENGTH) {
+            throw new IllegalArgumentException("Secret must be at least " + MIN_SECRET_LENGTH + " bytes");
+        }
+        if (rotationPeriodMillis < 1000) {
+            throw new IllegalArgumentException("Rotation period must be at least 1 second");
+        }
+        try {
+            mMac = Mac.getInstance(ALGORITHM);
+            mMac.init(new SecretKeySpec(secret, ALGORITHM));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        }
+        mDigest = new byte[mMac.getMacLength()];
+        mRotationPeriodMillis = rotationPeriodMillis;
+    }
+
+    /**
+     * Parse a provisioned secret.  Secrets are provisioned outside the source, so a missing or
+     * placeholder secret means the beacon was not provisioned, and must not rotate.
+     *
+     * @param hexSecret the secret in hex, such as from the build configuration
+     * @return the secret, or <b>null</b> if it is missing, not hex, shorter than MIN_SECRET_LENGTH bytes,
+     *         or a placeholder with every byte the same
+     */
+    public static byte[] parseSecret(String hexSecret) {
+        if (hexSecret == null || hexSecret.length() < MIN_SECRET_LENGTH * 2) {
+            return null;
+        }
+        byte[] secret;
+        try {
+            secret = DataConverter.hexToBytes(hexSecret);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        for (byte value : secret) {
+            if (value != secret[0]) {
+                return secret;
+            }
+        }
+        return null;
+    }
+
+    public long getRotationPeriodMillis() { return mRotationPeriodMillis; }
+
+    /**
+     * Get the rotation period that a time falls in
+     *
+     * @param timeMillis wall clock time, in milliseconds since the Unix epoch
+     * @return the period number
+     */
+    public long getCounter(long timeMillis) {
+        return timeMillis / mRotationPeriodMillis;
+    }
+
+    /**
+     * Get the time a rotation period begins
+     *
+     * @param counter the period number
+     * @return wall clock time, in milliseconds since the Unix epoch
+     */
+    public long getRotationTime(long counter) {
+        return counter * mRotationPeriodMillis;
+    }
+
+    /**
+     * Derive the identifier for a rotation period
+     *
+     * @param counter the period number
+     * @return the Major number in the high 16 bits and the Minor number in the low 16 bits
+     */
+    public int getIdentifier(long counter) {
+        for (int index = 7; index >= 0; index--) {
+            mCounterBytes[index] = (byte) counter;
+            counter >>>= 8;
+        }
+        mMac.update(mCounterBytes);
+        try {
+            mMac.doFinal(mDigest, 0);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+        return ((mDigest[0] & 0xFF) << 24) | ((mDigest[1] & 0xFF) << 16) | ((mDigest[2] & 0xFF) << 8) | (mDigest[3] & 0xFF);
+    }
+
+    public static int getMajor(int identifier) { return identifier >>> 16; }
+    public static int getMinor(int identifier) { return identifier & 0xFFFF; }
+}
@@ -0,0 +1,54 @@
+package tonyg.example.com.blecodec.codecs;
+
+
+/**
+ * AltBeacon, advertised as manufacturer data under any company ID
+ *
+ * Data after the AD type:
+ *
+ * Company ID:      0-1 (Little Endian)
+ * Beacon code:     2-3 (0xBEAC)
+ * Beacon ID:       4-23 (16-byte identifier, then two 2-byte IDs)
+ * Reference RSSI: 24    (measured power at 1 meter, two's complement)
+ * Reserved:       25
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class AltBeaconCodec extends BeaconCodec {
+    private static final int COMPANY_ID_POSITION = 0;
+    private static final int IDENTIFIER_POSITION = 4;
+    private static final int ID2_POSITION = 20;
+    private static final int ID3_POSITION = 22;
+    private static final int REFERENCE_RSSI_POSITION = 24;
+    private static final int RESERVED_POSITION = 25;
+    private static final int DATA_LENGTH = 26;
+
+    public AltBeaconCodec() {
+        super(BeaconFrame.FORMAT_ALTBEACON, AD_TYPE_MANUFACTURER_DATA, 2, new byte[] { (byte) 0xBE, (byte) 0xAC }, DATA_LENGTH);
+    }
+
+    @Override
+    public boolean decode(byte[] data, int position, int length, BeaconFrame frame) {
+        frame.setIdentity(BeaconFrame.FORMAT_ALTBEACON,
+                readU16LittleEndian(data, position + COMPANY_ID_POSITION),
+                readLongBigEndian(data, position + IDENTIFIER_POSITION, 8),
+                readLongBigEndian(data, position + IDENTIFIER_POSITION + 8, 8),
+                readU16BigEndian(data, position + ID2_POSITION),
+                readU16BigEndian(data, position + ID3_POSITION),
+                data[position + REFERENCE_RSSI_POSITION]);
+        frame.setReserved(data[position + RESERVED_POSITION] & 0xFF);
+        return true;
+    }
+
+    @Override
+    protected void encodeData(BeaconFrame frame, byte[] data, int position) {
+        writeU16LittleEndian(frame.getCompanyId(), data, position + COMPANY_ID_POSITION);
+        writeLongBigEndian(frame.getIdentifierMostSignificantBits(), data, position + IDENTIFIER_POSITION, 8);
+        writeLongBigEndian(frame.getIdentifierLeastSignificantBits(), data, position + IDENTIFIER_POSITION + 8, 8);
+        writeU16BigEndian(frame.getId2(), data, position + ID2_POSITION);
+        writeU16BigEndian(frame.getId3(), data, position + ID3_POSITION);
+        data[position + REFERENCE_RSSI_POSITION] = (byte) frame.getTransmissionPower();
+        data[position + RESERVED_POSITION] = (byte) frame.getReserved();
+    }
+}
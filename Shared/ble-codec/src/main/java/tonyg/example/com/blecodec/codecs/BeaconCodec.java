@@ -0,0 +1,170 @@
+package tonyg.example.com.blecodec.codecs;
+
+import java.util.Arrays;
+
+import tonyg.example.com.blecodec.DataConverter;
+
+
+/**
+ * Reads and writes one beacon advertisement format.
+ *
+ * Each codec has a signature: the AD type it is advertised in, and up to 4 key bytes found
+ * at a fixed offset after the AD type.  The BeaconCodecRegistry compiles the signatures into
+ * lookup tables, so a codec's decode() is only called on AD structures that match its signature.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public abstract class BeaconCodec {
+    /** AD Types **/
+    public static final int AD_TYPE_SERVICE_DATA = 0x16;
+    public static final int AD_TYPE_MANUFACTURER_DATA = 0xFF;
+
+    public static final int MAX_KEY_LENGTH = 4;
+    public static final int ID_LENGTH = 2; // the 16-bit company ID or service UUID that starts the data
+
+    private final int mFormat;
+    private final int mAdType;
+    private final int mKeyOffset;
+    private final byte[] mKey;
+    private final int mDataLength;
+
+    /**
+     * Describe a format
+     *
+     * @param format one of the BeaconFrame FORMAT_ constants
+     * @param adType the AD type the format is advertised in
+     * @param keyOffset position of the key bytes after the AD type
+     * @param key the bytes that identify the format, 1-4 bytes
+     * @param dataLength shortest AD data that holds the format, after the AD type
+     */
+    protected BeaconCodec(int format, int adType, int keyOffset, byte[] key, int dataLength) {
+        if (key.length < 1 || key.length > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Key must be 1 to " + MAX_KEY_LENGTH + " bytes");
+        }
+        if (keyOffset < 0 || keyOffset + key.length > dataLength) {
+            throw new IllegalArgumentException("Key must be inside the data");
+        }
+        mFormat = format;
+        mAdType = adType;
+        mKeyOffset = keyOffset;
+        mKey = key.clone();
+        mDataLength = dataLength;
+    }
+
+    public int getFormat() { return mFormat; }
+    public int getAdType() { return mAdType; }
+    public int getKeyOffset() { return mKeyOffset; }
+    public int getKeyLength() { return mKey.length; }
+    public int getDataLength() { return mDataLength; }
+
+    /**
+     * Get the key bytes packed Big Endian into an int
+     *
+     * @return the packed key
+     */
+    public int getPackedKey() {
+        return readKey(mKey, 0, mKey.length);
+    }
+
+    /**
+     * Decode an AD structure that matched this codec's signature
+     *
+     * @param data the Scan Record
+     * @param position position of the first byte after the AD type
+     * @param length number of bytes after the AD type.  At least getDataLength().
+     * @param frame receives the decoded values
+     * @return <b>false</b> if the data is not valid for this format
+     */
+    public abstract boolean decode(byte[] data, int position, int length, BeaconFrame frame);
+
+    /**
+     * Encode a frame as a complete AD structure: length, AD type, then the data
+     *
+     * @param frame the values to encode
+     * @param data the array to write into
+     * @param position where to start writing
+     * @return number of bytes written
+     */
+    public int encode(BeaconFrame frame, byte[] data, int position) {
+        int length = getEncodedLength();
+        data[position] = (byte) (length + 1);
+        data[position + 1] = (byte) mAdType;
+        System.arraycopy(mKey, 0, data, position + 2 + mKeyOffset, mKey.length);
+        encodeData(frame, data, position + 2);
+        return length + 2;
+    }
+
+    /**
+     * Encode a frame as the data that follows the company ID or service UUID.  This is what a
+     * Peripheral hands to Android's AdvertiseData, which writes the AD header and the ID itself.
+     *
+     * @param frame the values to encode
+     * @return the data after the ID
+     */
+    public byte[] encodePayload(BeaconFrame frame) {
+        byte[] structure = new byte[getEncodedLength() + 2];
+        encode(frame, structure, 0);
+        return Arrays.copyOfRange(structure, 2 + ID_LENGTH, structure.length);
+    }
+
+    /**
+     * Number of bytes encodeData() writes after the AD type
+     *
+     * @return the data length
+     */
+    protected int getEncodedLength() {
+        return mDataLength;
+    }
+
+    /**
+     * Write the data after the AD type.  The key bytes are already written.
+     *
+     * @param frame the values to encode
+     * @param data the array to write into
+     * @param position position of the first byte after the AD type
+     */
+    protected abstract void encodeData(BeaconFrame frame, byte[] data, int position);
+
+    /** Primitive readers and writers **/
+
+    static int readKey(byte[] data, int position, int length) {
+        int key = 0;
+        for (int index = 0; index < length; index++) {
+            key = (key << 8) | (data[position + index] & 0xFF);
+        }
+        return key;
+    }
+
+    protected static int readU16BigEndian(byte[] data, int position) {
+        return DataConverter.readU16BE(data, position);
+    }
+
+    protected static int readU16LittleEndian(byte[] data, int position) {
+        return DataConverter.readU16LE(data, position);
+    }
+
+    protected static long readU32BigEndian(byte[] data, int position) {
+        return DataConverter.readU32BE(data, position);
+    }
+
+    protected static long readLongBigEndian(byte[] data, int position, int length) {
+        return DataConverter.readUnsignedBE(data, position, length);
+    }
+
+    protected static void writeU16BigEndian(int value, byte[] data, int position) {
+        DataConverter.writeU16BE(value, data, position);
+    }
+
+    protected static void writeU16LittleEndian(int value, byte[] data, int position) {
+        DataConverter.writeU16LE(value, data, position);
+    }
+
+    protected static void writeU32BigEndian(long value, byte[] data, int position) {
+        DataConverter.writeU32BE(value, data, position);
+    }
+
+    protected static void writeLongBigEndian(long value, byte[] data, int position, int length) {
+        DataConverter.writeUnsignedBE(value, data, position, length);
+    }
+}
@@ -0,0 +1,253 @@
+package tonyg.example.com.blecodec.codecs;
+
+import java.util.ArrayList;
+
+
+/**
+ * Decode Scan Records with a set of beacon codecs, in one pass over the AD structures.
+ *
+ * Codecs are grouped by the shape of their signature: AD type, key offset, and key length.
+ * Each shape has a hash table from the packed key bytes to the codec.  Decoding an AD structure
+ * is one table probe per shape registered for its AD type, however many formats are supported.
+ *
+ * decodeWithResult() also tells why a Scan Record was rejected, for callers that count rejections.
+ *
+ * Register every codec before decoding.  Decoding is then safe from any thread, as long as each
+ * thread uses its own BeaconFrame.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class BeaconCodecRegistry {
+    /** Constants **/
+    public static final int RESULT_DECODED = 0;
+    public static final int RESULT_TRUNCATED = 1; // a structure ran past the end
+    public static final int RESULT_UNKNOWN_FORMAT = 2; // no codec recognized it
+    public static final int RESULT_MALFORMED = 3; // a codec recognized it, but could not decode it
+
+    private static final int AD_TYPE_COUNT = 256;
+
+    /**
+     * The codecs that share a signature shape, in an open addressing hash table keyed by the packed key bytes
+     */
+    private static class Shape {
+        final int keyOffset;
+        final int keyLength;
+        final int minimumLength; // shortest data that can hold the key
+        int[] keys = new int[4];
+        BeaconCodec[] codecs = new BeaconCodec[4];
+        int size = 0;
+
+        Shape(int keyOffset, int keyLength) {
+            this.keyOffset = keyOffset;
+            this.keyLength = keyLength;
+            this.minimumLength = keyOffset + keyLength;
+        }
+
+        BeaconCodec get(int key) {
+            int mask = codecs.length - 1;
+            for (int index = mix(key) & mask; codecs[index] != null; index = (index + 1) & mask) {
+                if (keys[index] == key) {
+                    return codecs[index];
+                }
+            }
+            return null;
+        }
+
+        void put(int key, BeaconCodec codec) {
+            if ((size + 1) * 2 > codecs.length) {
+                int[] oldKeys = keys;
+                BeaconCodec[] oldCodecs = codecs;
+                keys = new int[oldKeys.length * 2];
+                codecs = new BeaconCodec[oldCodecs.length * 2];
+                size = 0;
+                for (int index = 0; index < oldCodecs.length; index++) {
+                    if (oldCodecs[index] != null) {
+                        put(oldKeys[index], oldCodecs[index]);
+                    }
+                }
+            }
+            int mask = codecs.length - 1;
+            int index = mix(key) & mask;
+            while (codecs[index] != null) {
+                index = (index + 1) & mask;
+            }
+            keys[index] = key;
+            codecs[index] = codec;
+            size++;
+        }
+
+        private static int mix(int key) {
+            int hash = key * 0x9E3779B9;
+            return hash ^ (hash >>> 16);
+        }
+    }
+
+    private final Shape[][] mShapes = new Shape[AD_TYPE_COUNT][];
+    private final ArrayList<BeaconCodec> mCodecs = new ArrayList<BeaconCodec>();
+
+
+    /**
+     * Create a registry with the iBeacon, AltBeacon, Eddystone-UID, and Eddystone-TLM codecs
+     *
+     * @return the registry
+     */
+    public static BeaconCodecRegistry createDefault() {
+        return new BeaconCodecRegistry()
+                .register(new IBeaconCodec())
+                .register(new AltBeaconCodec())
+                .register(new EddystoneUidCodec())
+                .register(new EddystoneTlmCodec());
+    }
+
+    /**
+     * Add a codec
+     *
+     * @param codec the codec
+     * @return this registry
+     * @throws IllegalArgumentException if another codec has the same signature or format
+     */
+    public BeaconCodecRegistry register(BeaconCodec codec) {
+        if (getCodec(codec.getFormat()) != null) {
+            throw new IllegalArgumentException("Format " + codec.getFormat() + " is already registered");
+        }
+        Shape shape = getShape(codec.getAdType(), codec.getKeyOffset(), codec.getKeyLength());
+        if (shape.get(codec.getPackedKey()) != null) {
+            throw new IllegalArgumentException("Another codec has the same signature as format " + codec.getFormat());
+        }
+        shape.put(codec.getPackedKey(), codec);
+        mCodecs.add(codec);
+        return this;
+    }
+
+    /**
+     * Get the codec for a format
+     *
+     * @param format one of the BeaconFrame FORMAT_ constants
+     * @return the codec, or <b>null</b> if the format is not registered
+     */
+    public BeaconCodec getCodec(int format) {
+        for (BeaconCodec codec : mCodecs) {
+            if (codec.getFormat() == format) {
+                return codec;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Find the shape for a signature, adding it if it is new
+     */
+    private Shape getShape(int adType, int keyOffset, int keyLength) {
+        Shape[] shapes = mShapes[adType];
+        if (shapes != null) {
+            for (Shape shape : shapes) {
+                if (shape.keyOffset == keyOffset && shape.keyLength == keyLength) {
+                    return shape;
+                }
+            }
+        }
+        Shape shape = new Shape(keyOffset, keyLength);
+        int count = (shapes == null) ? 0 : shapes.length;
+        Shape[] grown = new Shape[count + 1];
+        if (shapes != null) {
+            System.arraycopy(shapes, 0, grown, 0, count);
+        }
+        grown[count] = shape;
+        mShapes[adType] = grown;
+        return shape;
+    }
+
+    /**
+     * Decode the first beacon frame in a Scan Record
+     *
+     * @param scanRecord the Scan Record
+     * @param frame receives the decoded frame
+     * @return <b>true</b> if a registered format was found
+     */
+    public boolean decode(byte[] scanRecord, BeaconFrame frame) {
+        return decode(scanRecord, 0, scanRecord.length, frame);
+    }
+
+    /**
+     * Decode the first beacon frame in part of a Scan Record
+     *
+     * @param scanRecord the Scan Record
+     * @param position where the AD structures start
+     * @param length number of bytes of AD structures
+     * @param frame receives the decoded frame
+     * @return <b>true</b> if a registered format was found
+     */
+    public boolean decode(byte[] scanRecord, int position, int length, BeaconFrame frame) {
+        return decodeWithResult(scanRecord, position, length, frame) == RESULT_DECODED;
+    }
+
+    /**
+     * Decode the first beacon frame in part of a Scan Record, and tell why if there is none
+     *
+     * @param scanRecord the Scan Record
+     * @param position where the AD structures start
+     * @param length number of bytes of AD structures
+     * @param frame receives the decoded frame
+     * @return one of the RESULT_ constants
+     */
+    public int decodeWithResult(byte[] scanRecord, int position, int length, BeaconFrame frame) {
+        frame.clear();
+        int end = Math.min(scanRecord.length, position + length);
+        boolean isRecognized = false; // a codec matched, but could not decode
+        boolean isTruncated = false;
+        while (position < end) {
+            int structureLength = scanRecord[position] & 0xFF;
+            if (structureLength == 0) {
+                break; // the rest of the Scan Record is padding
+            }
+            int next = position + 1 + structureLength;
+            if (next > end) {
+                isTruncated = true;
+                break;
+            }
+
+            Shape[] shapes = mShapes[scanRecord[position + 1] & 0xFF];
+            if (shapes != null) {
+                int dataPosition = position + 2;
+                int dataLength = structureLength - 1;
+                for (Shape shape : shapes) {
+                    if (dataLength < shape.minimumLength) {
+                        continue;
+                    }
+                    BeaconCodec codec = shape.get(BeaconCodec.readKey(scanRecord, dataPosition + shape.keyOffset, shape.keyLength));
+                    if (codec == null) {
+                        continue;
+                    }
+                    isRecognized = true;
+                    if (dataLength >= codec.getDataLength() && codec.decode(scanRecord, dataPosition, dataLength, frame)) {
+                        frame.setEndPosition(next);
+                        return RESULT_DECODED;
+                    }
+                }
+            }
+            position = next;
+        }
+        if (isRecognized) {
+            return RESULT_MALFORMED;
+        }
+        return isTruncated ? RESULT_TRUNCATED : RESULT_UNKNOWN_FORMAT;
+    }
+
+    /**
+     * Encode a frame as an AD structure, with the codec for its format
+     *
+     * @param frame the frame
+     * @param data the array to write into
+     * @param position where to start writing
+     * @return number of bytes written
+     * @throws IllegalArgumentException if the frame's format is not registered
+     */
+    public int encode(BeaconFrame frame, byte[] data, int position) {
+        BeaconCodec codec = getCodec(frame.getFormat());
+        if (codec == null) {
+            throw new IllegalArgumentException("Format " + frame.getFormat() + " is not registered");
+        }
+        return codec.encode(frame, data, position);
+    }
+}
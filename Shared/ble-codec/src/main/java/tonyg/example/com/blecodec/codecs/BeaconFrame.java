@@ -0,0 +1,142 @@
+package tonyg.example.com.blecodec.codecs;
+
+import java.util.UUID;
+
+
+/**
+ * A decoded beacon advertisement, in any of the supported formats.
+ *
+ * A BeaconFrame is meant to be reused: a codec overwrites every field of its format on each
+ * decode, so that the scan callback does not allocate a frame per advertisement.
+ *
+ * Identity is stored the same way for every format:
+ *
+ * iBeacon:        identifier = Proximity UUID, id2 = Major, id3 = Minor
+ * AltBeacon:      identifier = first 16 bytes of the Beacon ID, id2 and id3 = last 4 bytes
+ * Eddystone-UID:  identifier = 10-byte Namespace followed by the 6-byte Instance
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class BeaconFrame {
+    /** Formats **/
+    public static final int FORMAT_NONE = 0;
+    public static final int FORMAT_IBEACON = 1;
+    public static final int FORMAT_ALTBEACON = 2;
+    public static final int FORMAT_EDDYSTONE_UID = 3;
+    public static final int FORMAT_EDDYSTONE_TLM = 4;
+
+    // Eddystone calibrates at 0 meters, iBeacon and AltBeacon at 1 meter
+    public static final int EDDYSTONE_1M_PATH_LOSS = 41;
+
+    public static final int TEMPERATURE_UNKNOWN = 0x8000;
+
+    /** Frame Properties **/
+    private int mFormat = FORMAT_NONE;
+    private int mCompanyId; // manufacturer ID, or the 16-bit service UUID for Eddystone
+    private long mIdentifierMostSignificantBits;
+    private long mIdentifierLeastSignificantBits;
+    private int mId2;
+    private int mId3;
+    private int mTransmissionPower; // measured power at 1 meter, in dBm
+    private int mReserved;
+
+    /** Telemetry Properties **/
+    private int mTelemetryVersion;
+    private int mBatteryMillivolts;
+    private int mTemperature; // signed 8.8 fixed point degrees Celsius, or TEMPERATURE_UNKNOWN
+    private long mAdvertisementCount;
+    private long mUptimeDeciseconds;
+
+    private int mEndPosition; // where the next AD structure starts, after the decoded one
+
+    /**
+     * Forget the last decoded frame
+     */
+    public void clear() {
+        mFormat = FORMAT_NONE;
+    }
+
+    /** Set a frame's identity.  Used by the codecs. **/
+    public void setIdentity(int format, int companyId, long mostSignificantBits, long leastSignificantBits,
+                            int id2, int id3, int transmissionPower) {
+        mFormat = format;
+        mCompanyId = companyId;
+        mIdentifierMostSignificantBits = mostSignificantBits;
+        mIdentifierLeastSignificantBits = leastSignificantBits;
+        mId2 = id2;
+        mId3 = id3;
+        mTransmissionPower = transmissionPower;
+        mReserved = 0;
+    }
+
+    /** Set a frame's telemetry.  Used by the codecs. **/
+    public void setTelemetry(int companyId, int version, int batteryMillivolts, int temperature,
+                             long advertisementCount, long uptimeDeciseconds) {
+        mFormat = FORMAT_EDDYSTONE_TLM;
+        mCompanyId = companyId;
+        mTelemetryVersion = version;
+        mBatteryMillivolts = batteryMillivolts;
+        mTemperature = temperature;
+        mAdvertisementCount = advertisementCount;
+        mUptimeDeciseconds = uptimeDeciseconds;
+    }
+
+    public void setReserved(int reserved) { mReserved = reserved; }
+
+    /** Set where the decoded AD structure ends.  Used by the BeaconCodecRegistry. **/
+    public void setEndPosition(int endPosition) { mEndPosition = endPosition; }
+
+    public int getFormat() { return mFormat; }
+    public int getCompanyId() { return mCompanyId; }
+    public long getIdentifierMostSignificantBits() { return mIdentifierMostSignificantBits; }
+    public long getIdentifierLeastSignificantBits() { return mIdentifierLeastSignificantBits; }
+    public int getId2() { return mId2; }
+    public int getId3() { return mId3; }
+    public int getTransmissionPower() { return mTransmissionPower; }
+    public int getReserved() { return mReserved; }
+
+    public int getTelemetryVersion() { return mTelemetryVersion; }
+    public int getBatteryMillivolts() { return mBatteryMillivolts; }
+    public int getRawTemperature() { return mTemperature; }
+    public long getAdvertisementCount() { return mAdvertisementCount; }
+    public long getUptimeDeciseconds() { return mUptimeDeciseconds; }
+
+    /**
+     * Get where the next AD structure starts, to decode another frame from the rest of the Scan
+     * Record.  The scan response of an advertisement follows its frame.
+     *
+     * @return position in the Scan Record just after the decoded frame
+     */
+    public int getEndPosition() { return mEndPosition; }
+
+    /**
+     * Test if this frame identifies a beacon, rather than carrying telemetry
+     *
+     * @return <b>true</b> for iBeacon, AltBeacon, and Eddystone-UID frames
+     */
+    public boolean hasIdentity() {
+        return mFormat == FORMAT_IBEACON || mFormat == FORMAT_ALTBEACON || mFormat == FORMAT_EDDYSTONE_UID;
+    }
+
+    /**
+     * Get the 16-byte identifier as a UUID.  Allocates.
+     *
+     * @return the identifier
+     */
+    public UUID getIdentifier() {
+        return new UUID(mIdentifierMostSignificantBits, mIdentifierLeastSignificantBits);
+    }
+
+    /**
+     * Get the beacon temperature
+     *
+     * @return degrees Celsius, or NaN if the beacon has no temperature sensor
+     */
+    public double getTemperature() {
+        if (mTemperature == TEMPERATURE_UNKNOWN) {
+            return Double.NaN;
+        }
+        return mTemperature / 256.0;
+    }
+}
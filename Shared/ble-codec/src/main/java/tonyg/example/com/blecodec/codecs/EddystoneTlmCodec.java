@@ -0,0 +1,63 @@
+package tonyg.example.com.blecodec.codecs;
+
+
+/**
+ * Eddystone-TLM, unencrypted telemetry advertised as service data under the Eddystone service UUID
+ *
+ * Data after the AD type:
+ *
+ * Service UUID:        0-1 (0xFEAA, Little Endian)
+ * Frame type:          2   (0x20)
+ * Version:             3   (0x00, unencrypted)
+ * Battery voltage:     4-5 (millivolts, Big Endian)
+ * Temperature:         6-7 (signed 8.8 fixed point degrees Celsius, 0x8000 if unknown)
+ * Advertising count:   8-11 (Big Endian)
+ * Uptime:             12-15 (0.1 second resolution, Big Endian)
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class EddystoneTlmCodec extends BeaconCodec {
+    public static final byte FRAME_TYPE_TLM = 0x20;
+    public static final int VERSION_UNENCRYPTED = 0x00;
+
+    private static final int VERSION_POSITION = 3;
+    private static final int BATTERY_POSITION = 4;
+    private static final int TEMPERATURE_POSITION = 6;
+    private static final int ADVERTISEMENT_COUNT_POSITION = 8;
+    private static final int UPTIME_POSITION = 12;
+    private static final int DATA_LENGTH = 16;
+
+    public EddystoneTlmCodec() {
+        super(BeaconFrame.FORMAT_EDDYSTONE_TLM, AD_TYPE_SERVICE_DATA, 0,
+                new byte[] { (byte) EddystoneUidCodec.EDDYSTONE_SERVICE_UUID, (byte) (EddystoneUidCodec.EDDYSTONE_SERVICE_UUID >> 8), FRAME_TYPE_TLM },
+                DATA_LENGTH);
+    }
+
+    @Override
+    public boolean decode(byte[] data, int position, int length, BeaconFrame frame) {
+        int version = data[position + VERSION_POSITION] & 0xFF;
+        if (version != VERSION_UNENCRYPTED) {
+            return false; // encrypted telemetry needs the beacon's key
+        }
+        int temperature = readU16BigEndian(data, position + TEMPERATURE_POSITION);
+        if (temperature != BeaconFrame.TEMPERATURE_UNKNOWN) {
+            temperature = (short) temperature;
+        }
+        frame.setTelemetry(EddystoneUidCodec.EDDYSTONE_SERVICE_UUID, version,
+                readU16BigEndian(data, position + BATTERY_POSITION),
+                temperature,
+                readU32BigEndian(data, position + ADVERTISEMENT_COUNT_POSITION),
+                readU32BigEndian(data, position + UPTIME_POSITION));
+        return true;
+    }
+
+    @Override
+    protected void encodeData(BeaconFrame frame, byte[] data, int position) {
+        data[position + VERSION_POSITION] = VERSION_UNENCRYPTED;
+        writeU16BigEndian(frame.getBatteryMillivolts(), data, position + BATTERY_POSITION);
+        writeU16BigEndian(frame.getRawTemperature(), data, position + TEMPERATURE_POSITION);
+        writeU32BigEndian(frame.getAdvertisementCount(), data, position + ADVERTISEMENT_COUNT_POSITION);
+        writeU32BigEndian(frame.getUptimeDeciseconds(), data, position + UPTIME_POSITION);
+    }
+}
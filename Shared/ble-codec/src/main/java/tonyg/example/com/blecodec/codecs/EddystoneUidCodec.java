@@ -0,0 +1,58 @@
+package tonyg.example.com.blecodec.codecs;
+
+
+/**
+ * Eddystone-UID, advertised as service data under the Eddystone service UUID
+ *
+ * Data after the AD type:
+ *
+ * Service UUID:    0-1 (0xFEAA, Little Endian)
+ * Frame type:      2   (0x00)
+ * TX Power:        3   (measured power at 0 meters, two's complement)
+ * Namespace:       4-13
+ * Instance:       14-19
+ * Reserved:       20-21 (optional, 0x0000)
+ *
+ * The TX Power is converted to and from the 1 meter power that the other formats use.
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class EddystoneUidCodec extends BeaconCodec {
+    public static final int EDDYSTONE_SERVICE_UUID = 0xFEAA;
+    public static final byte FRAME_TYPE_UID = 0x00;
+
+    private static final int TX_POWER_POSITION = 3;
+    private static final int IDENTIFIER_POSITION = 4;
+    private static final int RESERVED_POSITION = 20;
+    private static final int DATA_LENGTH = 20;
+    private static final int ENCODED_LENGTH = 22;
+
+    public EddystoneUidCodec() {
+        super(BeaconFrame.FORMAT_EDDYSTONE_UID, AD_TYPE_SERVICE_DATA, 0,
+                new byte[] { (byte) EDDYSTONE_SERVICE_UUID, (byte) (EDDYSTONE_SERVICE_UUID >> 8), FRAME_TYPE_UID }, DATA_LENGTH);
+    }
+
+    @Override
+    public boolean decode(byte[] data, int position, int length, BeaconFrame frame) {
+        frame.setIdentity(BeaconFrame.FORMAT_EDDYSTONE_UID, EDDYSTONE_SERVICE_UUID,
+                readLongBigEndian(data, position + IDENTIFIER_POSITION, 8),
+                readLongBigEndian(data, position + IDENTIFIER_POSITION + 8, 8),
+                0, 0,
+                data[position + TX_POWER_POSITION] - BeaconFrame.EDDYSTONE_1M_PATH_LOSS);
+        return true;
+    }
+
+    @Override
+    protected int getEncodedLength() {
+        return ENCODED_LENGTH;
+    }
+
+    @Override
+    protected void encodeData(BeaconFrame frame, byte[] data, int position) {
+        data[position + TX_POWER_POSITION] = (byte) (frame.getTransmissionPower() + BeaconFrame.EDDYSTONE_1M_PATH_LOSS);
+        writeLongBigEndian(frame.getIdentifierMostSignificantBits(), data, position + IDENTIFIER_POSITION, 8);
+        writeLongBigEndian(frame.getIdentifierLeastSignificantBits(), data, position + IDENTIFIER_POSITION + 8, 8);
+        writeU16BigEndian(0, data, position + RESERVED_POSITION);
+    }
+}
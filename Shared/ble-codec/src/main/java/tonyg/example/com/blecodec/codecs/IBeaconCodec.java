@@ -0,0 +1,53 @@
+package tonyg.example.com.blecodec.codecs;
+
+
+/**
+ * Apple iBeacon, advertised as manufacturer data
+ *
+ * Data after the AD type:
+ *
+ * Company ID:      0-1 (0x004C, Little Endian)
+ * iBeacon type:    2   (0x02)
+ * Data length:     3   (0x15)
+ * Proximity UUID:  4-19 (Big Endian)
+ * Major:          20-21 (Big Endian)
+ * Minor:          22-23 (Big Endian)
+ * TX Power:       24    (measured power at 1 meter, two's complement)
+ *
+ * @author Tony Gaitatzis backupbrain@gmail.com
+ * @date 2026-10-19
+ */
+public class IBeaconCodec extends BeaconCodec {
+    public static final int APPLE_COMPANY_ID = 0x004C;
+
+    private static final int UUID_POSITION = 4;
+    private static final int MAJOR_NUMBER_POSITION = 20;
+    private static final int MINOR_NUMBER_POSITION = 22;
+    private static final int TX_POWER_POSITION = 24;
+    private static final int DATA_LENGTH = 25;
+
+    public IBeaconCodec() {
+        super(BeaconFrame.FORMAT_IBEACON, AD_TYPE_MANUFACTURER_DATA, 0,
+                new byte[] { (byte) APPLE_COMPANY_ID, (byte) (APPLE_COMPANY_ID >> 8), 0x02, 0x15 }, DATA_LENGTH);
+    }
+
+    @Override
+    public boolean decode(byte[] data, int position, int length, BeaconFrame frame) {
+        frame.setIdentity(BeaconFrame.FORMAT_IBEACON, APPLE_COMPANY_ID,
+                readLongBigEndian(data, position + UUID_POSITION, 8),
+                readLongBigEndian(data, position + UUID_POSITION + 8, 8),
+                readU16BigEndian(data, position + MAJOR_NUMBER_POSITION),
+                readU16BigEndian(data, position + MINOR_NUMBER_POSITION),
+                data[position + TX_POWER_POSITION]);
+        return true;
+    }
+
+    @Override
+    protected void encodeData(BeaconFrame frame, byte[] data, int position) {
+        writeLongBigEndian(frame.getIdentifierMostSignificantBits(), data, position + UUID_POSITION, 8);
+        writeLongBigEndian(frame.getIdentifierLeastSignificantBits(), data, position + UUID_POSITION + 8, 8);
+        writeU16BigEndian(frame.getId2(), data, position + MAJOR_NUMBER_POSITION);
+        writeU16BigEndian(frame.getId3(), data, position + MINOR_NUMBER_POSITION);
+        data[position + TX_POWER_POSITION] = (byte) frame.getTransmissionPower();
+    }
+}
@@ -0,0 +1,93 @@
+package tonyg.example.com.blecodec;
+
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+/**
+ * Check the primitives at non-zero offsets and the hex conversions in both directions
+ */
+public class DataConverterTest {
+    private static final byte[] DATA = {
+            (byte) 0xAA, (byte) 0xE2, (byte) 0x0A, (byte) 0xFE, (byte) 0x80, (byte) 0x01,
+            (byte) 0x02, (byte) 0x03, (byte) 0x04, (byte) 0x05
+    };
+
+    @Test
+    public void readers_honourOffsetAndSign() throws Exception {
+        assertEquals(0xE2, DataConverter.readU8(DATA, 1));
+        assertEquals(-2, DataConverter.readS8(DATA, 3));
+        assertEquals(0xE20A, DataConverter.readU16BE(DATA, 1));
+        assertEquals(0x0AE2, DataConverter.readU16LE(DATA, 1));
+        assertEquals(0xFE800102L, DataConverter.readU32BE(DATA, 3));
+        assertEquals(0xE20AFE8001020304L, DataConverter.readS64BE(DATA, 1));
+    }
+
+    @Test
+    public void writers_roundTrip() throws Exception {
+        byte[] data = new byte[12];
+        DataConverter.writeU16BE(0xBEEF, data, 1);
+        DataConverter.writeU16LE(0xBEEF, data, 3);
+        DataConverter.writeU32BE(0xFE800102L, data, 5);
+        assertEquals(0xBEEF, DataConverter.readU16BE(data, 1));
+        assertEquals(0xBEEF, DataConverter.readU16LE(data, 3));
+        assertEquals(0xEF, DataConverter.readU8(data, 3));
+        assertEquals(0xFE800102L, DataConverter.readU32BE(data, 5));
+        assertEquals(0, data[0]);
+        assertEquals(0, data[9]);
+    }
+
+    @Test
+    public void uuid_roundTrips() throws Exception {
+        UUID uuid = UUID.fromString("e20a39f4-73f5-4bc4-a12f-17d1ad07a961");
+        byte[] data = new byte[18];
+        DataConverter.writeUuid(uuid, data, 2);
+        assertEquals((byte) 0xE2, data[2]);
+        assertEquals((byte) 0x61, data[17]);
+        assertEquals(uuid, DataConverter.readUuid(data, 2));
+        assertEquals(uuid, DataConverter.bytesToUuid(DataConverter.hexToBytes("E20A39F473F54BC4A12F17D1AD07A961")));
+    }
+
+    @Test
+    public void hex_roundTripsIntoCallerArrays() throws Exception {
+        char[] hex = new char[8];
+        assertEquals(7, DataConverter.encodeHex(DATA, 2, 3, hex, 1));
+        assertEquals("0AFE80", new String(hex, 1, 6));
+
+        byte[] bytes = new byte[4];
+        assertEquals(4, DataConverter.decodeHex("xx0afE80", 2, 8, bytes, 1));
+        assertEquals(0x0A, bytes[1]);
+        assertEquals((byte) 0xFE, bytes[2]);
+        assertEquals((byte) 0x80, bytes[3]);
+    }
+
+    @Test
+    public void bytesToHex_keepsSpacedFormat() throws Exception {
+        assertEquals("AA E2 0A ", DataConverter.bytesToHex(new byte[] { (byte) 0xAA, (byte) 0xE2, 0x0A }));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decodeHex_rejectsNonHexDigits() throws Exception {
+        DataConverter.hexToBytes("0G");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decodeHex_rejectsNonAscii() throws Exception {
+        DataConverter.hexToBytes("0\u0661");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decodeHex_rejectsOddLength() throws Exception {
+        DataConverter.hexToBytes("ABC");
+    }
+
+    @Test
+    public void legacyConversions_matchOldBehaviour() throws Exception {
+        assertEquals(0xFE80, DataConverter.bytesToUnsignedInt(new byte[] { (byte) 0xFE, (byte) 0x80 }));
+        assertEquals(0, DataConverter.bytesToUnsignedInt(new byte[] { 1 }));
+        assertEquals(-59, DataConverter.bytesToSignedInt(new byte[] { (byte) 0xC5 }));
+        assertEquals(65152.0, DataConverter.bytesToDouble(new byte[] { (byte) 0xFE, (byte) 0x80 }), 0);
+    }
+}
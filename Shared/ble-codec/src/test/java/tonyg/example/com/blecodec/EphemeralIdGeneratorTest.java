@@ -0,0 +1,69 @@
+package tonyg.example.com.blecodec;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Check the rotating identifiers against HMAC-SHA256 computed independently
+ */
+public class EphemeralIdGeneratorTest {
+    private static final byte[] SECRET = DataConverter.hexToBytes("5d1f0c7a9b3e48f2a6c4e1d7b8093f6a");
+    private static final long PERIOD_MILLIS = 15 * 60 * 1000;
+
+    private EphemeralIdGenerator mGenerator;
+
+    @Before
+    public void setUp() throws Exception {
+        mGenerator = new EphemeralIdGenerator(SECRET, PERIOD_MILLIS);
+    }
+
+    @Test
+    public void identifier_isTruncatedHmac() throws Exception {
+        assertEquals(0xb938acd6, mGenerator.getIdentifier(0));
+        assertEquals(0xeffaa7b2, mGenerator.getIdentifier(1));
+        assertEquals(0xfa4aee73, mGenerator.getIdentifier(1960000));
+        // the Mac is reused, so repeating a counter must give the same answer
+        assertEquals(0xb938acd6, mGenerator.getIdentifier(0));
+    }
+
+    @Test
+    public void identifier_splitsIntoMajorAndMinor() throws Exception {
+        int identifier = mGenerator.getIdentifier(1960000);
+        assertEquals(64074, EphemeralIdGenerator.getMajor(identifier));
+        assertEquals(61043, EphemeralIdGenerator.getMinor(identifier));
+    }
+
+    @Test
+    public void counter_changesAtPeriodBoundaries() throws Exception {
+        long start = 1960000 * PERIOD_MILLIS;
+        assertEquals(1959999, mGenerator.getCounter(start - 1));
+        assertEquals(1960000, mGenerator.getCounter(start));
+        assertEquals(1960000, mGenerator.getCounter(start + PERIOD_MILLIS - 1));
+        assertEquals(start, mGenerator.getRotationTime(1960000));
+    }
+
+    @Test
+    public void differentSecrets_giveDifferentIdentifiers() throws Exception {
+        byte[] otherSecret = SECRET.clone();
+        otherSecret[0] ^= 1;
+        assertNotEquals(mGenerator.getIdentifier(1), new EphemeralIdGenerator(otherSecret, PERIOD_MILLIS).getIdentifier(1));
+    }
+
+    @Test
+    public void parseSecret_onlyAcceptsProvisionedSecrets() throws Exception {
+        assertArrayEquals(SECRET, EphemeralIdGenerator.parseSecret("5d1f0c7a9b3e48f2a6c4e1d7b8093f6a"));
+        assertNull(EphemeralIdGenerator.parseSecret(null));
+        assertNull(EphemeralIdGenerator.parseSecret("")); // not provisioned
+        assertNull(EphemeralIdGenerator.parseSecret("5d1f0c7a9b3e48f2")); // too short
+        assertNull(EphemeralIdGenerator.parseSecret("5d1f0c7a9b3e48f2a6c4e1d7b8093f6")); // odd length
+        assertNull(EphemeralIdGenerator.parseSecret("zz1f0c7a9b3e48f2a6c4e1d7b8093f6a"));
+        assertNull(EphemeralIdGenerator.parseSecret("00000000000000000000000000000000")); // placeholder
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shortSecret_isRejected() throws Exception {
+        new EphemeralIdGenerator(new byte[8], PERIOD_MILLIS);
+    }
+}
@@ -0,0 +1,136 @@
+package tonyg.example.com.blecodec.codecs;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.UUID;
+
+import tonyg.example.com.blecodec.DataConverter;
+
+import static org.junit.Assert.*;
+
+/**
+ * Decode and encode every supported beacon format
+ */
+public class BeaconCodecRegistryTest {
+    private static final String IBEACON_SCAN_RECORD = "0201061AFF4C000215E20A39F473F54BC4A12F17D1AD07A96104610D10C8";
+    private static final UUID IBEACON_UUID = UUID.fromString("e20a39f4-73f5-4bc4-a12f-17d1ad07a961");
+
+    private BeaconCodecRegistry mRegistry;
+    private BeaconFrame mFrame;
+
+    @Before
+    public void setUp() throws Exception {
+        mRegistry = BeaconCodecRegistry.createDefault();
+        mFrame = new BeaconFrame();
+    }
+
+    @Test
+    public void iBeacon_isDecoded() throws Exception {
+        assertTrue(mRegistry.decode(DataConverter.hexToBytes(IBEACON_SCAN_RECORD), mFrame));
+        assertEquals(BeaconFrame.FORMAT_IBEACON, mFrame.getFormat());
+        assertEquals(IBeaconCodec.APPLE_COMPANY_ID, mFrame.getCompanyId());
+        assertEquals(IBEACON_UUID, mFrame.getIdentifier());
+        assertEquals(0x0461, mFrame.getId2());
+        assertEquals(0x0D10, mFrame.getId3());
+        assertEquals(-56, mFrame.getTransmissionPower());
+    }
+
+    @Test
+    public void everyIdentityFormat_roundTrips() throws Exception {
+        int[] formats = { BeaconFrame.FORMAT_IBEACON, BeaconFrame.FORMAT_ALTBEACON, BeaconFrame.FORMAT_EDDYSTONE_UID };
+        for (int format : formats) {
+            BeaconFrame original = new BeaconFrame();
+            original.setIdentity(format, 0x0118, IBEACON_UUID.getMostSignificantBits(), IBEACON_UUID.getLeastSignificantBits(), 1122, 3344, -59);
+            byte[] scanRecord = new byte[62];
+            mRegistry.encode(original, scanRecord, 0);
+
+            assertTrue("format " + format, mRegistry.decode(scanRecord, mFrame));
+            assertEquals(format, mFrame.getFormat());
+            assertEquals(IBEACON_UUID, mFrame.getIdentifier());
+            assertEquals(-59, mFrame.getTransmissionPower());
+            if (format != BeaconFrame.FORMAT_EDDYSTONE_UID) { // Eddystone has no Major or Minor
+                assertEquals(1122, mFrame.getId2());
+                assertEquals(3344, mFrame.getId3());
+            }
+        }
+    }
+
+    @Test
+    public void telemetry_roundTrips() throws Exception {
+        BeaconFrame original = new BeaconFrame();
+        original.setTelemetry(EddystoneUidCodec.EDDYSTONE_SERVICE_UUID, 0, 3000, 0x1780, 123456, 7890);
+        byte[] scanRecord = new byte[62];
+        mRegistry.encode(original, scanRecord, 0);
+
+        assertTrue(mRegistry.decode(scanRecord, mFrame));
+        assertEquals(BeaconFrame.FORMAT_EDDYSTONE_TLM, mFrame.getFormat());
+        assertFalse(mFrame.hasIdentity());
+        assertEquals(3000, mFrame.getBatteryMillivolts());
+        assertEquals(23.5, mFrame.getTemperature(), 0.001);
+        assertEquals(123456, mFrame.getAdvertisementCount());
+        assertEquals(7890, mFrame.getUptimeDeciseconds());
+    }
+
+    @Test
+    public void endPosition_findsTheNextFrame() throws Exception {
+        BeaconFrame telemetry = new BeaconFrame();
+        telemetry.setTelemetry(EddystoneUidCodec.EDDYSTONE_SERVICE_UUID, 0, 3000, 0x1780, 123456, 7890);
+        byte[] iBeacon = DataConverter.hexToBytes(IBEACON_SCAN_RECORD);
+        byte[] scanRecord = new byte[62];
+        System.arraycopy(iBeacon, 0, scanRecord, 0, iBeacon.length);
+        mRegistry.encode(telemetry, scanRecord, iBeacon.length);
+
+        assertTrue(mRegistry.decode(scanRecord, mFrame));
+        assertEquals(BeaconFrame.FORMAT_IBEACON, mFrame.getFormat());
+        int position = mFrame.getEndPosition();
+        assertEquals(iBeacon.length, position);
+
+        assertTrue(mRegistry.decode(scanRecord, position, scanRecord.length - position, mFrame));
+        assertEquals(BeaconFrame.FORMAT_EDDYSTONE_TLM, mFrame.getFormat());
+        assertEquals(3000, mFrame.getBatteryMillivolts());
+    }
+
+    @Test
+    public void encodePayload_isTheStructureAfterTheId() throws Exception {
+        assertTrue(mRegistry.decode(DataConverter.hexToBytes(IBEACON_SCAN_RECORD), mFrame));
+        byte[] payload = mRegistry.getCodec(BeaconFrame.FORMAT_IBEACON).encodePayload(mFrame);
+        // skip the flags, then the iBeacon structure's length, AD type, and company ID
+        assertEquals(IBEACON_SCAN_RECORD.substring(2 * (3 + 2 + BeaconCodec.ID_LENGTH)),
+                DataConverter.bytesToHex(payload).replace(" ", ""));
+    }
+
+    @Test
+    public void otherAdvertisements_areNotBeacons() throws Exception {
+        // flags and a complete local name
+        assertFalse(mRegistry.decode(DataConverter.hexToBytes("020106050948656C6C6F"), mFrame));
+        // an empty record
+        assertFalse(mRegistry.decode(new byte[62], mFrame));
+    }
+
+    @Test
+    public void truncatedRecords_areRejected() throws Exception {
+        byte[] scanRecord = DataConverter.hexToBytes(IBEACON_SCAN_RECORD);
+        for (int length = 0; length < scanRecord.length; length++) {
+            assertFalse("length " + length, mRegistry.decode(scanRecord, 0, length, mFrame));
+        }
+    }
+
+    @Test
+    public void decodeWithResult_tellsWhyARecordWasRejected() throws Exception {
+        byte[] notABeacon = DataConverter.hexToBytes("020106060948656C6C6F");
+        assertEquals(BeaconCodecRegistry.RESULT_UNKNOWN_FORMAT,
+                mRegistry.decodeWithResult(notABeacon, 0, notABeacon.length, mFrame));
+
+        byte[] scanRecord = DataConverter.hexToBytes(IBEACON_SCAN_RECORD);
+        assertEquals(BeaconCodecRegistry.RESULT_TRUNCATED,
+                mRegistry.decodeWithResult(scanRecord, 0, scanRecord.length - 1, mFrame));
+        assertEquals(BeaconCodecRegistry.RESULT_DECODED,
+                mRegistry.decodeWithResult(scanRecord, 0, scanRecord.length, mFrame));
+
+        // the iBeacon signature, but too short to hold an identity
+        byte[] shortIBeacon = DataConverter.hexToBytes("0AFF4C000215E20A39F473");
+        assertEquals(BeaconCodecRegistry.RESULT_MALFORMED,
+                mRegistry.decodeWithResult(shortIBeacon, 0, shortIBeacon.length, mFrame));
+    }
+}